@@ -3,42 +3,143 @@ package com.realstereo.dev;
 import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
-import android.app.PendingIntent;
 import android.app.Service;
 import android.content.Intent;
 import android.media.AudioAttributes;
 import android.media.AudioFocusRequest;
 import android.media.AudioManager;
-import android.media.MediaPlayer;
 import android.os.Binder;
 import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.IBinder;
-import android.os.PowerManager;
-import androidx.core.app.NotificationCompat;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
 import androidx.media.session.MediaButtonReceiver;
+import android.support.v4.media.MediaMetadataCompat;
 import android.support.v4.media.session.MediaSessionCompat;
 import android.support.v4.media.session.PlaybackStateCompat;
-import androidx.media.app.NotificationCompat.MediaStyle;
 import android.util.Log;
 
+import com.realstereo.core.BackoffPolicy;
+import com.realstereo.core.BufferConfig;
+import com.realstereo.core.NetworkPolicy;
+import com.realstereo.core.NetworkType;
+import com.realstereo.core.NowPlaying;
+import com.realstereo.core.PlaybackSnapshot;
+import com.realstereo.core.PlaybackCommand;
+import com.realstereo.core.PlaybackStateMachine;
+import com.realstereo.core.PlaybackStats;
+import com.realstereo.core.PlaybackStatus;
+import com.realstereo.core.RebufferController;
+import com.realstereo.core.SnapshotStore;
+import com.realstereo.core.Station;
+import com.realstereo.core.StationPredictor;
+import com.realstereo.core.TimeShiftBuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
 public class AudioService extends Service implements
-    MediaPlayer.OnPreparedListener,
-    MediaPlayer.OnErrorListener,
-    MediaPlayer.OnInfoListener,
+    PlaybackEngine.Listener,
     AudioManager.OnAudioFocusChangeListener {
 
     private static final String TAG = "AudioService";
     private static final String CHANNEL_ID = "RADIO_CHANNEL";
     private static final int NOTIFICATION_ID = 1;
-
-    private MediaPlayer mediaPlayer;
+    // Nombre sin catálogo de emisoras
+    private static final String DEFAULT_STATION_NAME = "Real Stereo Sahagún";
+    // Un corte de buffer más largo que esto se trata como fallo de la URL actual
+    private static final long UNDERRUN_FAILOVER_MS = 10000;
+    // Sonando sin cortes este tiempo, la espera de reconexión vuelve a empezar. Antes no:
+    // hay servidores que entregan la ráfaga inicial y cortan en cada intento
+    private static final long STABLE_PLAYBACK_MS = 10000;
+    // Tasa supuesta para dimensionar el buffer diferido; streams de más tasa caben menos minutos
+    private static final int TIME_SHIFT_BYTES_PER_SECOND = 192000 / 8;
+    private static final String TIME_SHIFT_FILE = "timeshift.buf";
+    private static final String RECORDINGS_DIR = "recordings";
+    private static final long DATA_USAGE_FLUSH_MS = 60000;
+    // La emisora en espera se conecta cuando la actual ya suena, para no competir con ella
+    private static final long STANDBY_DELAY_MS = 5000;
+    private static final String SNAPSHOT_FILE = "playback.snapshot";
+    // Si el sistema reinicia el servicio más tarde, la radio no vuelve a sonar sola
+    private static final long MAX_RESUME_AGE_MS = 10 * 60 * 1000;
+    // Variante HLS más cara que se acepta en una red de pago por uso
+    private static final int HLS_METERED_MAX_BANDWIDTH = 64000;
+
+    // Se escriben en el hilo de reproducción y se consultan desde el plugin
+    private volatile PlaybackEngine engine;
+    private volatile boolean engineSettingsChanged = false;
     private MediaSessionCompat mediaSession;
-    private PowerManager.WakeLock wakeLock;
+    private PowerLockManager powerLockManager;
     private AudioManager audioManager;
     private AudioFocusRequest audioFocusRequest;
-    private boolean isPlaying = false;
+    // Hilo propio para el reproductor, el buffer, las reconexiones y la notificación:
+    // el principal lo comparte el WebView. handler es de este hilo.
+    private HandlerThread playbackThread;
+    private Handler handler;
+    // Todas las órdenes de control pasan por aquí y se ejecutan en playbackThread
+    private PlaybackCommandQueue commandQueue;
+    private ReconnectScheduler reconnectScheduler;
+    private NetworkMonitor networkMonitor;
+    // Se leen desde el hilo del plugin
+    private volatile NetworkPolicy networkPolicy;
+    private volatile NetworkPolicy.Profile networkProfile;
+    private final Runnable dataUsageFlushRunnable = this::flushDataUsage;
+    private NotificationRenderer notificationRenderer;
+    private final PlaybackStats playbackStats = new PlaybackStats(SystemClock::elapsedRealtime);
+    private EndpointSelector endpointSelector;
+    private EndpointProber endpointProber;
+    private List<String> endpoints;
+    private volatile String currentEndpoint;
+    // Cambios de URL inmediatos desde el último audio; pasado el total se usa la espera
+    private int failoversWithoutAudio = 0;
+    private final Runnable underrunFailoverRunnable = this::onSustainedUnderrun;
+    private final Runnable stablePlaybackRunnable = () -> reconnectScheduler.onPlaybackRecovered();
+    // Modo diferido: la grabación sigue en pausa y al reanudar se continúa donde se dejó
+    private TimeShiftRecorder timeShiftRecorder;
+    private TimeShiftBuffer.Reader timeShiftReader;
+    private boolean timeShiftPaused = false;
+    private final Runnable timeShiftExpiredRunnable = this::onTimeShiftPauseExpired;
+    // Graba lo que llega por StreamDataSource; vive con el servicio
+    private StreamRecorder streamRecorder;
+    // Emisora siguiente más probable, ya conectada y con los últimos segundos guardados
+    private final StationPredictor stationPredictor = new StationPredictor();
+    private volatile StationStandby standby;
+    private final Runnable standbyRunnable = this::startStandby;
+    private volatile String stationName = DEFAULT_STATION_NAME;
+    private String stationId;
+    // Estado guardado en cada transición para volver a él si el sistema mata el proceso
+    private SnapshotStore snapshotStore;
+    private PlaybackSnapshot restoredSnapshot;
+    // URL que sonaba antes de que el sistema matara el proceso: se vuelve a ella sin
+    // probar las demás. Solo en ese reinicio, no en cada arranque
+    private String restoreEndpoint;
+    // Para puntuar la URL actual cuando empieza a sonar (EndpointSelector)
+    private long connectStartedAtMs;
+    private long firstByteLatencyMs = -1;
+    // Cuánto acumular tras un corte según los cortes recientes y la velocidad de la
+    // red; solo con el motor con buffer. Se lee desde el plugin.
+    private volatile RebufferController rebufferController;
+    private final Runnable rebufferSampleRunnable = this::sampleThroughput;
+    private long lastSampleBytes;
+    private long lastSampleAtMs;
     private boolean hasAudioFocus = false;
-    private final String streamUrl = "https://stream.zeno.fm/oa7brrybk0vuv";
+    private final PlaybackStateMachine stateMachine = new PlaybackStateMachine(this::onStatusChanged);
+    private NowPlaying nowPlaying = NowPlaying.fromStreamTitle("");
+    private volatile ServiceListener serviceListener;
+
+    // Eventos del servicio hacia AudioServicePlugin
+    public interface ServiceListener {
+        void onPlaybackStatusChanged(PlaybackStatus status);
+
+        void onNowPlaying(NowPlaying nowPlaying);
+
+        void onRebufferDecision(RebufferController.Decision decision);
+    }
 
     public class AudioBinder extends Binder {
         public AudioService getService() {
@@ -50,15 +151,37 @@ public class AudioService extends Service implements
 
     @Override
     public void onCreate() {
+        Trace.beginSection("AudioService.onCreate");
         super.onCreate();
         Log.d(TAG, "AudioService created");
+        StartupTracker.get().mark(StartupTracker.SERVICE_CREATED);
 
         audioManager = (AudioManager) getSystemService(AUDIO_SERVICE);
+        playbackThread = new HandlerThread("Playback", Process.THREAD_PRIORITY_AUDIO);
+        playbackThread.start();
+        handler = new Handler(playbackThread.getLooper());
+        commandQueue = new PlaybackCommandQueue(handler, this::executeCommand);
+        endpointSelector = new EndpointSelector(this);
+        streamRecorder = new StreamRecorder(getRecordingsDir());
+        stationPredictor.restore(PlaybackSettings.getStationSwitches(this));
+        Station station = PlaybackSettings.getCurrentStation(this);
+        if (station != null) {
+            stationId = station.id;
+            stationName = station.name;
+        }
+        DataUsageTracker.get().init(this);
+        ConnectionLayer.get().init(this);
+        initializeReconnect();
+        restoreSnapshot();
         createNotificationChannel();
-        initializeWakeLock();
+        powerLockManager = new PowerLockManager(this, handler);
         initializeMediaSession();
-        initializeMediaPlayer();
+        notificationRenderer = new NotificationRenderer(
+            this, handler, CHANNEL_ID, NOTIFICATION_ID, stationName, mediaSession.getSessionToken());
         initializeAudioFocus();
+        // Los callbacks de MediaPlayer llegan al Looper del hilo que lo crea
+        handler.post(this::initializeEngine);
+        Trace.endSection();
     }
 
     private void createNotificationChannel() {
@@ -82,13 +205,84 @@ public class AudioService extends Service implements
         }
     }
 
-    private void initializeWakeLock() {
-        PowerManager powerManager = (PowerManager) getSystemService(POWER_SERVICE);
-        if (powerManager != null) {
-            wakeLock = powerManager.newWakeLock(
-                PowerManager.PARTIAL_WAKE_LOCK,
-                "RealStereo::AudioWakeLock"
-            );
+    private void initializeReconnect() {
+        networkPolicy = new NetworkPolicy(PlaybackSettings.getDataPolicyMode(this));
+        reconnectScheduler = new ReconnectScheduler(handler, new BackoffPolicy(), this::reconnect);
+        networkMonitor = new NetworkMonitor(this, handler, reconnectScheduler, this::onNetworkTypeChanged);
+        reconnectScheduler.setNetworkMonitor(networkMonitor);
+        networkProfile = networkPolicy.profileFor(networkMonitor.isOnline(), networkMonitor.isMetered());
+        reconnectScheduler.setBackoffPolicy(networkPolicy.backoffFor(networkProfile));
+        DataUsageTracker.get().setNetworkType(networkMonitor.getNetworkType());
+        networkMonitor.register();
+    }
+
+    private void onNetworkTypeChanged(NetworkType type, boolean metered) {
+        DataUsageTracker.get().setNetworkType(type);
+        applyNetworkPolicy(false);
+        if (rebufferController != null) {
+            applyRebufferDecision(rebufferController.reset());
+        }
+    }
+
+    // Reintentos y buffer según la red. Un buffer distinto se aplica en el siguiente
+    // startPlaying(), como los demás ajustes del motor, para no cortar el audio.
+    private void applyNetworkPolicy(boolean force) {
+        NetworkPolicy.Profile profile = networkPolicy.profileFor(networkMonitor.isOnline(), networkMonitor.isMetered());
+        if (profile == networkProfile && !force) {
+            return;
+        }
+        Log.d(TAG, "Network policy " + networkPolicy.getMode() + ": " + networkProfile + " -> " + profile);
+        networkProfile = profile;
+        reconnectScheduler.setBackoffPolicy(networkPolicy.backoffFor(profile));
+        // La espera solo descarga en redes sin coste; al volver a una se reanuda
+        if (profile == NetworkPolicy.Profile.UNMETERED) {
+            refreshStandby();
+        } else {
+            stopStandby();
+        }
+        // Sin red no se descarga nada: se decide cuando vuelva
+        if (profile == NetworkPolicy.Profile.OFFLINE) {
+            return;
+        }
+        PlaybackEngine current = engine;
+        if (current instanceof BufferedStreamEngine
+            && !((BufferedStreamEngine) current).getConfig().equals(getEffectiveBufferConfig())) {
+            engineSettingsChanged = true;
+        }
+    }
+
+    public void setNetworkPolicyMode(NetworkPolicy.Mode mode) {
+        handler.post(() -> {
+            networkPolicy = new NetworkPolicy(mode);
+            applyNetworkPolicy(true);
+        });
+    }
+
+    public NetworkPolicy.Mode getNetworkPolicyMode() {
+        return networkPolicy.getMode();
+    }
+
+    public NetworkPolicy.Profile getNetworkProfile() {
+        return networkProfile;
+    }
+
+    public boolean isNetworkMetered() {
+        return networkMonitor.isMetered();
+    }
+
+    // Ajustes del usuario recortados por la política de red
+    private BufferConfig getEffectiveBufferConfig() {
+        return networkPolicy.bufferConfigFor(networkProfile, PlaybackSettings.getBufferConfig(this));
+    }
+
+    // Guarda el consumo mientras haya algo descargando; después se para
+    private void flushDataUsage() {
+        handler.removeCallbacks(dataUsageFlushRunnable);
+        DataUsageTracker.get().flush();
+        // También renueva la hora de la copia: una sesión larga sin cambios sigue reciente
+        saveSnapshot();
+        if (stateMachine.isPlayRequested() || timeShiftRecorder != null || streamRecorder.isRecording()) {
+            handler.postDelayed(dataUsageFlushRunnable, DATA_USAGE_FLUSH_MS);
         }
     }
 
@@ -102,7 +296,7 @@ public class AudioService extends Service implements
             audioFocusRequest = new AudioFocusRequest.Builder(AudioManager.AUDIOFOCUS_GAIN)
                 .setAudioAttributes(audioAttributes)
                 .setAcceptsDelayedFocusGain(true)
-                .setOnAudioFocusChangeListener(this)
+                .setOnAudioFocusChangeListener(this, handler)
                 .build();
         }
     }
@@ -132,32 +326,69 @@ public class AudioService extends Service implements
                 Log.d(TAG, "MediaSession: onStop");
                 stopPlaying();
             }
-        });
+        }, handler);
 
         mediaSession.setActive(true);
+        updateMediaSessionMetadata();
     }
 
-    private void initializeMediaPlayer() {
-        mediaPlayer = new MediaPlayer();
+    private void initializeEngine() {
+        String engineName = PlaybackSettings.getEngine(this);
+        if (PlaybackSettings.ENGINE_MEDIA_PLAYER.equals(engineName)) {
+            engine = new MediaPlayerEngine(this);
+            // MediaPlayer no expone los bytes: una grabación en curso se quedaría vacía
+            streamRecorder.stop();
+            rebufferController = null;
+        } else {
+            BufferConfig config = getEffectiveBufferConfig();
+            BufferedStreamEngine buffered = new BufferedStreamEngine(this, handler.getLooper(),
+                config, streamRecorder,
+                PlaybackSettings.isLoudnessNormalizationEnabled(this));
+            // Lo aprendido sigue valiendo con el motor nuevo: la red es la misma
+            RebufferController previous = rebufferController;
+            if (previous == null) {
+                rebufferController = new RebufferController(SystemClock::elapsedRealtime, config.rebufferMs);
+            } else {
+                buffered.setRebufferTargetMs(previous.getTargetMs());
+            }
+            engine = buffered;
+        }
+        engine.setListener(this);
+        engineSettingsChanged = false;
+        Log.d(TAG, "Playback engine: " + engine.getName());
+    }
 
-        AudioAttributes audioAttributes = new AudioAttributes.Builder()
-            .setUsage(AudioAttributes.USAGE_MEDIA)
-            .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
-            .build();
-        mediaPlayer.setAudioAttributes(audioAttributes);
+    // El plugin guardó nuevos ajustes: se aplican en el siguiente startPlaying()
+    // para no cortar el audio que ya suena.
+    public void onPlaybackSettingsChanged() {
+        engineSettingsChanged = true;
+    }
+
+    // Se aplica al momento: la ganancia se mueve con su velocidad limitada, sin saltos
+    public void setLoudnessNormalization(boolean enabled) {
+        PlaybackEngine current = engine;
+        if (current instanceof BufferedStreamEngine) {
+            ((BufferedStreamEngine) current).setLoudnessNormalization(enabled);
+        }
+    }
+
+    // null con MediaPlayer, que no deja procesar el PCM
+    public BufferedStreamEngine getBufferedEngine() {
+        PlaybackEngine current = engine;
+        return current instanceof BufferedStreamEngine ? (BufferedStreamEngine) current : null;
+    }
 
-        mediaPlayer.setOnPreparedListener(this);
-        mediaPlayer.setOnErrorListener(this);
-        mediaPlayer.setOnInfoListener(this);
-        mediaPlayer.setWakeMode(getApplicationContext(), PowerManager.PARTIAL_WAKE_LOCK);
+    public String getEngineName() {
+        return engine != null ? engine.getName() : PlaybackSettings.getEngine(this);
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         Log.d(TAG, "onStartCommand received");
 
-        // Mostrar notificación de carga inmediatamente SIEMPRE
-        startForeground(NOTIFICATION_ID, createNotificationLoading());
+        // startForeground es obligatorio tras startForegroundService: se reutiliza la
+        // notificación ya dibujada en vez de construir otra
+        startForeground(NOTIFICATION_ID, notificationRenderer.getCurrent(stateMachine.getStatus(), nowPlaying));
 
         // Manejar botones de media
         MediaButtonReceiver.handleIntent(mediaSession, intent);
@@ -175,13 +406,84 @@ public class AudioService extends Service implements
                 startPlaying();
             }
         } else {
-            // Auto-iniciar reproducción como estaba antes
-            startPlaying();
+            // Reinicio por START_STICKY tras matar el proceso
+            resumeAfterRestart();
         }
 
         return START_STICKY;
     }
 
+    // Lo que dejó el proceso anterior: el título se muestra ya al arrancar; la URL solo
+    // se reutiliza si el sistema reinicia el servicio (resumeAfterRestart)
+    private void restoreSnapshot() {
+        try {
+            snapshotStore = new SnapshotStore(new File(getFilesDir(), SNAPSHOT_FILE));
+        } catch (IOException e) {
+            Log.e(TAG, "Could not open playback snapshot", e);
+            return;
+        }
+        PlaybackSnapshot snapshot = snapshotStore.read();
+        if (snapshot == null) {
+            return;
+        }
+        restoredSnapshot = snapshot;
+        Log.d(TAG, "Restored " + snapshot);
+
+        // El catálogo pudo cambiar mientras tanto
+        boolean sameStation = snapshot.stationId == null ? stationId == null : snapshot.stationId.equals(stationId);
+        if (sameStation) {
+            nowPlaying = NowPlaying.fromStreamTitle(snapshot.streamTitle);
+        }
+    }
+
+    // URL del proceso anterior si sigue siendo de la emisora actual; null si no
+    private String restorableEndpoint(PlaybackSnapshot snapshot) {
+        boolean sameStation = snapshot.stationId == null ? stationId == null : snapshot.stationId.equals(stationId);
+        if (!sameStation || snapshot.endpoint == null
+            || !PlaybackSettings.getActiveEndpoints(this).contains(snapshot.endpoint)) {
+            return null;
+        }
+        return snapshot.endpoint;
+    }
+
+    // Solo vuelve a sonar si el usuario estaba escuchando hace poco; si no, el servicio
+    // queda en pausa con la emisora y el título de antes
+    private void resumeAfterRestart() {
+        PlaybackSnapshot snapshot = restoredSnapshot;
+        restoredSnapshot = null;
+        if (snapshot == null) {
+            // Sin copia guardada se mantiene el comportamiento anterior
+            startPlaying();
+            return;
+        }
+        if (snapshot.shouldResume(System.currentTimeMillis(), MAX_RESUME_AGE_MS)) {
+            restoreEndpoint = restorableEndpoint(snapshot);
+            if (restoreEndpoint != null
+                && PlaybackSettings.ENGINE_BUFFERED.equals(PlaybackSettings.getEngine(this))
+                && !PlaybackSettings.isCurrentStationHls(this)) {
+                StreamPrewarmer.get().start(restoreEndpoint, getEffectiveBufferConfig(), true);
+            }
+            startPlaying();
+            return;
+        }
+        Log.d(TAG, "Restarted by the system, staying paused");
+        handler.post(() -> {
+            if (!stateMachine.isPlayRequested()) {
+                stateMachine.onPauseRequested();
+            }
+        });
+    }
+
+    // Se llama en cada transición desde el hilo de reproducción. Solo copia bytes a un
+    // fichero mapeado, así que no espera a disco.
+    private void saveSnapshot() {
+        if (snapshotStore == null) {
+            return;
+        }
+        snapshotStore.write(new PlaybackSnapshot(stateMachine.isPlayRequested(), stationId,
+            currentEndpoint, nowPlaying.streamTitle, getBehindLiveMs(), System.currentTimeMillis()));
+    }
+
     private boolean requestAudioFocus() {
         int result;
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
@@ -203,8 +505,39 @@ public class AudioService extends Service implements
         hasAudioFocus = false;
     }
 
+    // Se pueden llamar desde cualquier hilo: solo encolan la orden
     public void startPlaying() {
-        if (isPlaying) {
+        commandQueue.submit(PlaybackCommand.PLAY);
+    }
+
+    public void pausePlaying() {
+        commandQueue.submit(PlaybackCommand.PAUSE);
+    }
+
+    public void stopPlaying() {
+        commandQueue.submit(PlaybackCommand.STOP);
+    }
+
+    public long getCoalescedCommandCount() {
+        return commandQueue.getCoalescedCount();
+    }
+
+    private void executeCommand(PlaybackCommand command) {
+        switch (command) {
+            case PLAY:
+                handlePlay();
+                break;
+            case PAUSE:
+                handlePause();
+                break;
+            case STOP:
+                handleStop();
+                break;
+        }
+    }
+
+    private void handlePlay() {
+        if (stateMachine.isPlayRequested()) {
             Log.d(TAG, "Already playing");
             return;
         }
@@ -213,104 +546,633 @@ public class AudioService extends Service implements
 
         if (!requestAudioFocus()) {
             Log.w(TAG, "Could not get audio focus");
+            // El PLAY no tuvo efecto: el siguiente no debe tomarse por repetido
+            commandQueue.onStatusChanged(stateMachine.getStatus(), false);
+            return;
+        }
+
+        if (timeShiftPaused && !engineSettingsChanged) {
+            resumeTimeShift();
             return;
         }
 
         try {
-            if (wakeLock != null && !wakeLock.isHeld()) {
-                wakeLock.acquire(10*60*1000L);
-            }
+            powerLockManager.startSession();
+            playbackStats.onStartRequested();
+            DataUsageTracker.get().startSession();
 
-            mediaPlayer.reset();
-            mediaPlayer.setDataSource(streamUrl);
-            mediaPlayer.prepareAsync();
+            if (engineSettingsChanged) {
+                engine.release();
+                initializeEngine();
+            }
+            startTimeShift();
 
-            isPlaying = true;
-            updateMediaSessionState(PlaybackStateCompat.STATE_CONNECTING);
+            failoversWithoutAudio = 0;
+            stateMachine.onStartRequested();
+            connectToBestEndpoint();
+            flushDataUsage();
 
         } catch (Exception e) {
             Log.e(TAG, "Error starting playback", e);
-            isPlaying = false;
+            stateMachine.onStartFailed();
             abandonAudioFocus();
         }
     }
 
-    public void pausePlaying() {
-        Log.d(TAG, "Pausing playback");
+    // Con una sola URL, si ya hay una conexión anticipada a la preferida, en una red
+    // de pago por uso o con una emisora HLS, se usa directamente; si no, se prueban
+    // todas en paralelo y gana la más rápida
+    private void connectToBestEndpoint() {
+        endpoints = PlaybackSettings.getActiveEndpoints(this);
+        String restored = restoreEndpoint;
+        restoreEndpoint = null;
+        if (restored != null && endpoints.contains(restored)) {
+            prepareEndpoint(restored);
+            return;
+        }
+        String preferred = endpointSelector.preferred(endpoints);
+        if (endpoints.size() == 1 || StreamPrewarmer.get().isWarmFor(preferred)
+            || !networkPolicy.allowsParallelProbes(networkProfile)
+            || PlaybackSettings.isCurrentStationHls(this)) {
+            prepareEndpoint(preferred);
+            return;
+        }
 
-        if (mediaPlayer != null && mediaPlayer.isPlaying()) {
-            mediaPlayer.pause();
+        cancelProbe();
+        boolean canAdopt = PlaybackSettings.ENGINE_BUFFERED.equals(engine.getName());
+        EndpointProber prober = new EndpointProber(
+            handler, getEffectiveBufferConfig(), endpointSelector, canAdopt);
+        endpointProber = prober;
+        prober.start(endpoints, winner -> {
+            if (endpointProber != prober || !stateMachine.isPlayRequested()) {
+                return;
+            }
+            endpointProber = null;
+            // Si ninguna respondió se intenta la mejor puntuada y decide el motor
+            prepareEndpoint(winner != null ? winner : endpointSelector.preferred(endpoints));
+        });
+    }
+
+    private void cancelProbe() {
+        if (endpointProber != null) {
+            endpointProber.cancel();
+            endpointProber = null;
         }
+    }
 
-        isPlaying = false;
-        updateMediaSessionState(PlaybackStateCompat.STATE_PAUSED);
-        updateNotification();
-        abandonAudioFocus();
+    private void prepareEndpoint(String url) {
+        currentEndpoint = url;
+        connectStartedAtMs = SystemClock.elapsedRealtime();
+        firstByteLatencyMs = -1;
+        saveSnapshot();
+        if (rebufferController != null) {
+            rebufferController.onStreamChanged();
+        }
+        Log.d(TAG, "Connecting to " + url);
+        Trace.beginSection("AudioService.prepareEndpoint");
+        try {
+            if (timeShiftRecorder != null) {
+                // La grabadora mantiene la conexión; el motor lee del buffer desde el directo
+                timeShiftRecorder.start(url);
+                TimeShiftBuffer buffer = timeShiftRecorder.getBuffer();
+                prepareFromTimeShift(buffer.getWritePosition());
+            } else if (engine instanceof BufferedStreamEngine && PlaybackSettings.isCurrentStationHls(this)) {
+                // MediaPlayer reproduce HLS por sí mismo con prepare(url)
+                ((BufferedStreamEngine) engine).prepareHls(url, PlaybackSettings.getHlsLiveEdgeMs(this),
+                    PlaybackSettings.getHlsPrefetchSegments(this),
+                    networkProfile == NetworkPolicy.Profile.UNMETERED ? 0 : HLS_METERED_MAX_BANDWIDTH);
+            } else {
+                engine.prepare(url);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error preparing " + url, e);
+            onError(0, 0);
+        } finally {
+            Trace.endSection();
+        }
     }
 
-    public void stopPlaying() {
-        Log.d(TAG, "Stopping playback");
+    // Reinicia el stream sin pasar por handlePlay(), que ignora la llamada
+    // mientras el usuario siga queriendo oír la radio. Cada intento pasa a la siguiente URL.
+    private void reconnect() {
+        if (!stateMachine.isPlayRequested()) {
+            reconnectScheduler.cancel();
+            return;
+        }
+
+        stateMachine.onReconnecting();
+        prepareEndpoint(nextEndpoint());
+    }
+
+    private String nextEndpoint() {
+        if (endpoints == null || currentEndpoint == null) {
+            endpoints = PlaybackSettings.getActiveEndpoints(this);
+            return endpointSelector.preferred(endpoints);
+        }
+        return endpointSelector.next(endpoints, currentEndpoint);
+    }
+
+    // Hay otra URL sin probar desde el último audio: se cambia sin esperar
+    private boolean tryHotFailover() {
+        if (endpoints == null || endpoints.size() < 2 || failoversWithoutAudio >= endpoints.size() - 1) {
+            return false;
+        }
+        failoversWithoutAudio++;
+        String next = nextEndpoint();
+        Log.w(TAG, "Failing over from " + currentEndpoint + " to " + next);
+        stateMachine.onReconnecting();
+        prepareEndpoint(next);
+        return true;
+    }
+
+    private void onSustainedUnderrun() {
+        if (!stateMachine.isPlayRequested() || stateMachine.getStatus() != PlaybackStatus.BUFFERING) {
+            return;
+        }
+        Log.w(TAG, "Buffering for " + UNDERRUN_FAILOVER_MS + "ms on " + currentEndpoint);
+        endpointSelector.recordFailure(currentEndpoint);
+        tryHotFailover();
+    }
+
+    private void startTimeShift() {
+        releaseTimeShift();
+        // La grabadora guarda un stream progresivo; una emisora HLS suena en directo
+        if (!PlaybackSettings.isTimeShiftEnabled(this) || !(engine instanceof BufferedStreamEngine)
+            || PlaybackSettings.isCurrentStationHls(this)) {
+            return;
+        }
+
+        int windowSeconds = PlaybackSettings.getTimeShiftWindowMinutes(this) * 60;
+        try {
+            TimeShiftBuffer buffer = new TimeShiftBuffer(
+                SystemClock::elapsedRealtime,
+                new File(getCacheDir(), TIME_SHIFT_FILE),
+                windowSeconds * TIME_SHIFT_BYTES_PER_SECOND,
+                windowSeconds);
+            timeShiftRecorder = new TimeShiftRecorder(buffer, getEffectiveBufferConfig(),
+                streamRecorder, () -> handler.post(this::updatePowerLocks));
+        } catch (IOException e) {
+            // Sin espacio o sin permisos: se sigue en directo
+            Log.e(TAG, "Could not create time-shift buffer", e);
+        }
+    }
+
+    private void releaseTimeShift() {
+        handler.removeCallbacks(timeShiftExpiredRunnable);
+        timeShiftPaused = false;
+        timeShiftReader = null;
+        if (timeShiftRecorder != null) {
+            timeShiftRecorder.stop();
+            if (!timeShiftRecorder.getBuffer().close()) {
+                Log.w(TAG, "Could not delete time-shift file");
+            }
+            timeShiftRecorder = null;
+        }
+    }
+
+    private void prepareFromTimeShift(long position) {
+        TimeShiftBuffer buffer = timeShiftRecorder.getBuffer();
+        timeShiftReader = buffer.newReader(position);
+        ((BufferedStreamEngine) engine).prepareFromBuffer(buffer, timeShiftReader);
+    }
+
+    // El motor sigue preparado en la posición en que se pausó
+    private void resumeTimeShift() {
+        Log.d(TAG, "Resuming time-shifted playback");
+        handler.removeCallbacks(timeShiftExpiredRunnable);
+        timeShiftPaused = false;
+        powerLockManager.startSession();
+        engine.start();
+        stateMachine.onResumed();
+    }
+
+    // En pausa más tiempo que la ventana: lo pausado ya se ha sobrescrito
+    private void onTimeShiftPauseExpired() {
+        Log.d(TAG, "Time-shift window exceeded while paused, stopping recording");
+        engine.stop();
+        releaseTimeShift();
+        updatePowerLocks();
+    }
+
+    public boolean isTimeShiftActive() {
+        return timeShiftRecorder != null;
+    }
+
+    // Salta a delayMs por detrás del directo (0 = directo). Si está en pausa, se
+    // queda en pausa en la nueva posición.
+    public boolean seekBehindLive(long delayMs) {
+        if (timeShiftRecorder == null || timeShiftReader == null) {
+            return false;
+        }
+
+        long position = timeShiftRecorder.getBuffer().positionForDelay(delayMs);
+        Log.d(TAG, "Seeking to " + delayMs + "ms behind live");
+        prepareFromTimeShift(position);
+        stateMachine.onSeeking();
+        return true;
+    }
+
+    // Retraso respecto al directo: lo que el lector lleva de atraso más lo que ExoPlayer
+    // tiene leído y sin reproducir. Solo desde el hilo de reproducción.
+    public long getBehindLiveMs() {
+        if (timeShiftRecorder == null || timeShiftReader == null) {
+            return 0;
+        }
+        TimeShiftBuffer buffer = timeShiftRecorder.getBuffer();
+        long readerDelay = SystemClock.elapsedRealtime() - buffer.timeAtPosition(timeShiftReader.getPosition());
+        return Math.max(0, readerDelay + ((BufferedStreamEngine) engine).getBufferedDurationMs());
+    }
+
+    public long getTimeShiftAvailableMs() {
+        return timeShiftRecorder != null ? timeShiftRecorder.getBuffer().getAvailableMs() : 0;
+    }
+
+    public long getTimeShiftOverruns() {
+        return timeShiftRecorder != null ? timeShiftRecorder.getBuffer().getOverruns() : 0;
+    }
+
+    public boolean isTimeShiftRecording() {
+        return timeShiftRecorder != null && timeShiftRecorder.isRecording();
+    }
+
+    // Se puede llamar desde cualquier hilo; el plugin ya comprobó que la emisora existe
+    public void playStation(String id) {
+        handler.post(() -> switchStation(id));
+    }
+
+    // Cambia de emisora. Si estaba en espera, StreamDataSource adopta esa conexión y
+    // empieza con lo ya guardado; si no, se conecta como en cualquier arranque.
+    private void switchStation(String id) {
+        Station station = Station.find(PlaybackSettings.getStationCatalog(this), id);
+        if (station == null) {
+            Log.w(TAG, "Unknown station " + id);
+            return;
+        }
+        Station previous = PlaybackSettings.getCurrentStation(this);
+        stationPredictor.recordSwitch(previous != null ? previous.id : null, id);
+        PlaybackSettings.setStationSwitches(this, stationPredictor.serialize());
+        PlaybackSettings.setCurrentStationId(this, id);
+        Log.d(TAG, "Switching to station " + id);
+
+        handler.removeCallbacks(standbyRunnable);
+        StationStandby pending = standby;
+        standby = null;
+        if (pending != null) {
+            if (!pending.getStationId().equals(id) || !pending.handOff()) {
+                pending.stop();
+            }
+        }
 
-        if (mediaPlayer != null) {
-            if (mediaPlayer.isPlaying()) {
-                mediaPlayer.stop();
+        stationId = station.id;
+        stationName = station.name;
+        restoreEndpoint = null;
+        notificationRenderer.setTitle(station.name);
+        resetNowPlaying();
+        endpoints = station.endpoints;
+        currentEndpoint = null;
+
+        if (!stateMachine.isPlayRequested()) {
+            // Lo pausado en diferido era de la otra emisora
+            if (timeShiftPaused) {
+                engine.stop();
+                releaseTimeShift();
             }
-            mediaPlayer.reset();
+            startPlaying();
+            return;
         }
 
-        isPlaying = false;
+        // Ya sonando: se reinicia el stream sin soltar el foco de audio ni los locks
+        reconnectScheduler.cancel();
+        cancelProbe();
+        handler.removeCallbacks(underrunFailoverRunnable);
+        engine.stop();
+        if (engineSettingsChanged) {
+            engine.release();
+            initializeEngine();
+        }
+        startTimeShift();
+        playbackStats.onStopped();
+        playbackStats.onStartRequested();
+        failoversWithoutAudio = 0;
+        stateMachine.onStartRequested();
+        connectToBestEndpoint();
+    }
 
-        if (wakeLock != null && wakeLock.isHeld()) {
-            wakeLock.release();
+    // El título de la emisora anterior ya no vale
+    private void resetNowPlaying() {
+        nowPlaying = NowPlaying.fromStreamTitle("");
+        updateMediaSessionMetadata();
+        notificationRenderer.update(stateMachine.getStatus(), nowPlaying);
+        if (serviceListener != null) {
+            serviceListener.onNowPlaying(nowPlaying);
         }
+    }
+
+    public String getStationName() {
+        return stationName;
+    }
+
+    public StationStandby getStandby() {
+        return standby;
+    }
+
+    // Catálogo o límites cambiados desde el plugin
+    public void onStationSettingsChanged() {
+        handler.post(() -> {
+            stopStandby();
+            refreshStandby();
+        });
+    }
+
+    private void refreshStandby() {
+        handler.removeCallbacks(standbyRunnable);
+        if (stateMachine.isPlayRequested()) {
+            handler.postDelayed(standbyRunnable, STANDBY_DELAY_MS);
+        }
+    }
+
+    private void startStandby() {
+        List<Station> catalog = PlaybackSettings.getStationCatalog(this);
+        Station current = PlaybackSettings.getCurrentStation(this);
+        // Solo el motor con buffer puede adoptar la conexión
+        if (current == null || catalog.size() < 2
+            || !stateMachine.isPlayRequested()
+            || !PlaybackSettings.isStandbyEnabled(this)
+            || !(engine instanceof BufferedStreamEngine)
+            || networkProfile != NetworkPolicy.Profile.UNMETERED) {
+            return;
+        }
+        Station next = stationPredictor.predictNext(catalog, current.id);
+        // StreamDataSource solo adopta conexiones progresivas
+        if (next == null || next.isHls()) {
+            return;
+        }
+        String url = endpointSelector.preferred(next.endpoints);
+        StationStandby existing = standby;
+        if (existing != null && existing.getStationId().equals(next.id) && existing.getUrl().equals(url)) {
+            return;
+        }
+        stopStandby();
+        StationStandby created = new StationStandby(next.id, url, getEffectiveBufferConfig(),
+            PlaybackSettings.getStandbyMaxBytes(this), PlaybackSettings.getStandbyMaxKbps(this));
+        standby = created;
+        created.start();
+    }
+
+    private void stopStandby() {
+        handler.removeCallbacks(standbyRunnable);
+        StationStandby current = standby;
+        standby = null;
+        if (current != null) {
+            current.stop();
+        }
+    }
+
+    // Almacenamiento propio de la app: no requiere permisos
+    private File getRecordingsDir() {
+        File external = getExternalFilesDir(RECORDINGS_DIR);
+        return external != null ? external : new File(getFilesDir(), RECORDINGS_DIR);
+    }
+
+    // Solo el motor con buffer ve los bytes del stream
+    public String startRecording() throws IOException {
+        if (!(engine instanceof BufferedStreamEngine)) {
+            throw new IllegalStateException("Recording requires the buffered engine");
+        }
+        return streamRecorder.start();
+    }
+
+    public void stopRecording() {
+        streamRecorder.stop();
+    }
+
+    public StreamRecorder getStreamRecorder() {
+        return streamRecorder;
+    }
+
+    public String getCurrentEndpoint() {
+        return currentEndpoint;
+    }
+
+    public EndpointSelector getEndpointSelector() {
+        return endpointSelector;
+    }
+
+    private void handlePause() {
+        Log.d(TAG, "Pausing playback");
+        reconnectScheduler.cancel();
+        handler.removeCallbacks(rebufferSampleRunnable);
+        cancelProbe();
+        stopStandby();
+        handler.removeCallbacks(underrunFailoverRunnable);
+
+        if (engine != null) {
+            engine.pause();
+        }
+
+        // En diferido solo se puede reanudar si el motor estaba sonando desde el buffer
+        PlaybackStatus status = stateMachine.getStatus();
+        if (timeShiftRecorder != null && timeShiftReader != null
+            && (status == PlaybackStatus.PLAYING || status == PlaybackStatus.BUFFERING)) {
+            timeShiftPaused = true;
+            handler.removeCallbacks(timeShiftExpiredRunnable);
+            handler.postDelayed(timeShiftExpiredRunnable,
+                PlaybackSettings.getTimeShiftWindowMinutes(this) * 60 * 1000L);
+        }
+
+        playbackStats.onStopped();
+        stateMachine.onPauseRequested();
+        powerLockManager.endSession();
+        abandonAudioFocus();
+        flushDataUsage();
+    }
+
+    private void handleStop() {
+        Log.d(TAG, "Stopping playback");
+        reconnectScheduler.cancel();
+        handler.removeCallbacks(rebufferSampleRunnable);
+        cancelProbe();
+        stopStandby();
+        handler.removeCallbacks(underrunFailoverRunnable);
+
+        if (engine != null) {
+            engine.stop();
+        }
+        releaseTimeShift();
+
+        playbackStats.onStopped();
 
         abandonAudioFocus();
-        updateMediaSessionState(PlaybackStateCompat.STATE_STOPPED);
+        stateMachine.onStopRequested();
+        powerLockManager.endSession();
+        flushDataUsage();
+        notificationRenderer.cancelPending();
         stopForeground(true);
         stopSelf();
     }
 
     @Override
-    public void onPrepared(MediaPlayer mp) {
-        Log.d(TAG, "MediaPlayer prepared, starting playback");
+    public void onFirstByte() {
+        playbackStats.onFirstByte();
+        if (firstByteLatencyMs < 0) {
+            firstByteLatencyMs = SystemClock.elapsedRealtime() - connectStartedAtMs;
+        }
+    }
+
+    @Override
+    public void onPrepared() {
+        Log.d(TAG, "Engine prepared, starting playback");
+        playbackStats.onPrepared();
+        reconnectScheduler.onAttemptConnected();
         if (hasAudioFocus) {
-            mp.start();
-            updateMediaSessionState(PlaybackStateCompat.STATE_PLAYING);
-            // Actualizar notificación a "EN VIVO" cuando realmente esté sonando
-            updateNotification();
+            engine.start();
         }
+        stateMachine.onPrepared(hasAudioFocus);
     }
 
     @Override
-    public boolean onError(MediaPlayer mp, int what, int extra) {
-        Log.e(TAG, "MediaPlayer error: what=" + what + ", extra=" + extra);
+    public void onAudioStarted() {
+        Log.d(TAG, "Audio started");
+        StartupTracker.get().mark(StartupTracker.FIRST_AUDIO);
+        playbackStats.onAudioStarted();
+        failoversWithoutAudio = 0;
+        // Suena: se borran los fallos de la URL y se actualiza su latencia. MediaPlayer no
+        // avisa del primer byte; se usa lo que tardó en sonar
+        if (currentEndpoint != null) {
+            long latencyMs = firstByteLatencyMs >= 0
+                ? firstByteLatencyMs : SystemClock.elapsedRealtime() - connectStartedAtMs;
+            endpointSelector.recordSuccess(currentEndpoint, latencyMs);
+        }
+        refreshStandby();
+        startThroughputSampling();
+    }
 
-        new android.os.Handler().postDelayed(() -> {
-            if (isPlaying && hasAudioFocus) {
-                Log.d(TAG, "Attempting to reconnect...");
-                startPlaying();
+    @Override
+    public void onError(int what, int extra) {
+        Log.e(TAG, "Playback error: what=" + what + ", extra=" + extra);
+        playbackStats.onError(what, stateMachine.isPlayRequested());
+        handler.removeCallbacks(underrunFailoverRunnable);
+        if (currentEndpoint != null) {
+            endpointSelector.recordFailure(currentEndpoint);
+        }
+
+        if (stateMachine.onError() && !tryHotFailover()) {
+            reconnectScheduler.onPlaybackFailed();
+        }
+    }
+
+    @Override
+    public void onBufferingStart() {
+        Log.d(TAG, "Buffering started");
+        playbackStats.onBufferingStart();
+        if (stateMachine.onBufferingStarted()) {
+            handler.removeCallbacks(underrunFailoverRunnable);
+            handler.postDelayed(underrunFailoverRunnable, UNDERRUN_FAILOVER_MS);
+            if (rebufferController != null) {
+                applyRebufferDecision(rebufferController.onStall());
             }
-        }, 3000);
+        }
+    }
 
-        return true;
+    private void startThroughputSampling() {
+        if (rebufferController == null) {
+            return;
+        }
+        handler.removeCallbacks(rebufferSampleRunnable);
+        lastSampleBytes = networkBytesRead();
+        lastSampleAtMs = SystemClock.elapsedRealtime();
+        handler.postDelayed(rebufferSampleRunnable, RebufferController.SAMPLE_MS);
+    }
+
+    // Bytes de red leídos por StreamDataSource frente al audio ya cargado. En diferido
+    // lee la grabadora al ritmo del directo, así que la muestra sigue valiendo.
+    private void sampleThroughput() {
+        RebufferController controller = rebufferController;
+        BufferedStreamEngine buffered = getBufferedEngine();
+        if (controller == null || buffered == null || !stateMachine.isPlayRequested()) {
+            return;
+        }
+        long now = SystemClock.elapsedRealtime();
+        boolean hls = buffered.getHlsStream() != null;
+        long bytes = networkBytesRead();
+        // icy-br es de la última conexión progresiva: en HLS no vale
+        controller.setBitrateKbps(hls ? 0 : StreamDataSource.getBitrateKbps());
+        applyRebufferDecision(controller.onSample(bytes - lastSampleBytes, now - lastSampleAtMs,
+            buffered.getBufferedDurationMs()));
+        lastSampleBytes = bytes;
+        lastSampleAtMs = now;
+        handler.postDelayed(rebufferSampleRunnable, RebufferController.SAMPLE_MS);
+    }
+
+    // Los segmentos HLS llegan a ráfagas, pero la media de la muestra sigue valiendo
+    private long networkBytesRead() {
+        BufferedStreamEngine buffered = getBufferedEngine();
+        return buffered != null && buffered.getHlsStream() != null
+            ? buffered.getHlsBytesRead() : StreamDataSource.getBytesRead();
+    }
+
+    // decision null = sin cambios
+    private void applyRebufferDecision(RebufferController.Decision decision) {
+        if (decision == null) {
+            return;
+        }
+        Log.d(TAG, "Rebuffer target: " + decision);
+        BufferedStreamEngine buffered = getBufferedEngine();
+        if (buffered != null) {
+            buffered.setRebufferTargetMs(decision.targetMs);
+        }
+        if (serviceListener != null) {
+            serviceListener.onRebufferDecision(decision);
+        }
+    }
+
+    // null con MediaPlayer
+    public RebufferController getRebufferController() {
+        return rebufferController;
     }
 
     @Override
-    public boolean onInfo(MediaPlayer mp, int what, int extra) {
-        Log.d(TAG, "MediaPlayer info: what=" + what + ", extra=" + extra);
-        return false;
+    public void onBufferingEnd() {
+        Log.d(TAG, "Buffering ended");
+        playbackStats.onBufferingEnd();
+        handler.removeCallbacks(underrunFailoverRunnable);
+        stateMachine.onBufferingEnded();
+    }
+
+    @Override
+    public void onStreamTitle(String streamTitle) {
+        if (streamTitle.equals(nowPlaying.streamTitle)) {
+            return;
+        }
+
+        Log.d(TAG, "Now playing: " + streamTitle);
+        nowPlaying = NowPlaying.fromStreamTitle(streamTitle);
+        updateMediaSessionMetadata();
+        notificationRenderer.update(stateMachine.getStatus(), nowPlaying);
+        saveSnapshot();
+        if (serviceListener != null) {
+            serviceListener.onNowPlaying(nowPlaying);
+        }
     }
 
     @Override
     public void onAudioFocusChange(int focusChange) {
+        // Antes de Android 8 el aviso llega al hilo principal
+        if (Looper.myLooper() != handler.getLooper()) {
+            handler.post(() -> onAudioFocusChange(focusChange));
+            return;
+        }
         Log.d(TAG, "Audio focus changed: " + focusChange);
 
         switch (focusChange) {
             case AudioManager.AUDIOFOCUS_GAIN:
                 hasAudioFocus = true;
-                if (isPlaying && mediaPlayer != null && !mediaPlayer.isPlaying()) {
-                    mediaPlayer.start();
-                    mediaPlayer.setVolume(1.0f, 1.0f);
+                if (stateMachine.isPlayRequested() && engine != null && !engine.isPlaying()) {
+                    engine.start();
+                    stateMachine.onFocusRegained();
+                }
+                if (engine != null) {
+                    engine.setVolume(1.0f);
                 }
                 break;
 
@@ -321,71 +1183,83 @@ public class AudioService extends Service implements
 
             case AudioManager.AUDIOFOCUS_LOSS_TRANSIENT:
                 hasAudioFocus = false;
-                if (mediaPlayer != null && mediaPlayer.isPlaying()) {
-                    mediaPlayer.pause();
+                // Por el estado publicado y no por engine.isPlaying(), que es false durante
+                // un corte o una retención: sin pausar el motor volvería a sonar solo
+                if (stateMachine.onFocusLostTransient() && engine != null) {
+                    engine.pause();
                 }
                 break;
 
             case AudioManager.AUDIOFOCUS_LOSS_TRANSIENT_CAN_DUCK:
-                if (mediaPlayer != null && mediaPlayer.isPlaying()) {
-                    mediaPlayer.setVolume(0.3f, 0.3f);
+                // También en un corte: el volumen bajado se aplica al volver a sonar
+                if (engine != null) {
+                    engine.setVolume(0.3f);
                 }
                 break;
         }
     }
 
-    // ✅ CAMBIO 1: createNotificationLoading() - Ahora usa ícono del sistema
-    private Notification createNotificationLoading() {
-        Intent notificationIntent = new Intent(this, MainActivity.class);
-        notificationIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
-
-        int flags = PendingIntent.FLAG_UPDATE_CURRENT;
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            flags |= PendingIntent.FLAG_IMMUTABLE;
+    private void onStatusChanged(PlaybackStatus previous, PlaybackStatus newStatus) {
+        Log.d(TAG, "Status: " + previous + " -> " + newStatus);
+        if (newStatus == PlaybackStatus.CONNECTING) {
+            StartupTracker.get().mark(StartupTracker.PLAYBACK_CONNECTING);
+        }
+        commandQueue.onStatusChanged(newStatus, stateMachine.isPlayRequested());
+        handler.removeCallbacks(stablePlaybackRunnable);
+        if (newStatus == PlaybackStatus.PLAYING) {
+            handler.postDelayed(stablePlaybackRunnable, STABLE_PLAYBACK_MS);
         }
-        PendingIntent pendingIntent = PendingIntent.getActivity(this, 0, notificationIntent, flags);
+        updateMediaSessionState(toSessionState(newStatus));
+        notificationRenderer.update(newStatus, nowPlaying);
+        updatePowerLocks();
+        saveSnapshot();
+        if (serviceListener != null) {
+            serviceListener.onPlaybackStatusChanged(newStatus);
+        }
+    }
 
-        return new NotificationCompat.Builder(this, CHANNEL_ID)
-            .setContentTitle("Real Stereo Sahagún")
-            .setContentText("⏳ Conectando...")
-            .setSmallIcon(android.R.drawable.ic_media_play)
-            .setContentIntent(pendingIntent)
-            .setOngoing(true)
-            .setShowWhen(false)
-            .setPriority(NotificationCompat.PRIORITY_LOW)
-            .setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
-            .setCategory(NotificationCompat.CATEGORY_SERVICE)
-            .build();
+    // CPU mientras el pipeline trabaja (incluida la espera de reconexión, para que el
+    // reintento no se congele con la pantalla apagada); Wi-Fi solo mientras llegan datos
+    private void updatePowerLocks() {
+        PlaybackStatus status = stateMachine.getStatus();
+        boolean streaming = status == PlaybackStatus.CONNECTING
+            || status == PlaybackStatus.BUFFERING
+            || status == PlaybackStatus.PLAYING;
+        // La grabación diferida sigue descargando también en pausa
+        boolean recording = timeShiftRecorder != null && timeShiftRecorder.isRecording();
+        boolean needCpu = streaming || recording || status == PlaybackStatus.RECONNECTING;
+        powerLockManager.update(needCpu, (streaming || recording) && networkMonitor.isOnline());
     }
 
-    // ✅ CAMBIO 2: createNotification() - Ya estaba bien con ícono del sistema
-    private Notification createNotification() {
-        Intent notificationIntent = new Intent(this, MainActivity.class);
-        notificationIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+    public PlaybackStats getPlaybackStats() {
+        return playbackStats;
+    }
 
-        int flags = PendingIntent.FLAG_UPDATE_CURRENT;
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            flags |= PendingIntent.FLAG_IMMUTABLE;
-        }
-        PendingIntent pendingIntent = PendingIntent.getActivity(this, 0, notificationIntent, flags);
+    public PowerLockManager.Stats getPowerStats() {
+        return powerLockManager.getStats();
+    }
 
-        return new NotificationCompat.Builder(this, CHANNEL_ID)
-            .setContentTitle("Real Stereo Sahagún")
-            .setContentText("🔴 EN VIVO - Radio reproduciéndose")
-            .setSmallIcon(android.R.drawable.ic_media_play)
-            .setContentIntent(pendingIntent)
-            .setOngoing(true)
-            .setShowWhen(false)
-            .setPriority(NotificationCompat.PRIORITY_LOW)
-            .setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
-            .setCategory(NotificationCompat.CATEGORY_SERVICE)
-            .build();
+    public PlaybackStatus getStatus() {
+        return stateMachine.getStatus();
     }
 
-    private void updateNotification() {
-        NotificationManager manager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
-        if (manager != null) {
-            manager.notify(NOTIFICATION_ID, createNotification());
+    private static int toSessionState(PlaybackStatus status) {
+        switch (status) {
+            case CONNECTING:
+            case RECONNECTING:
+                return PlaybackStateCompat.STATE_CONNECTING;
+            case BUFFERING:
+                return PlaybackStateCompat.STATE_BUFFERING;
+            case PLAYING:
+                return PlaybackStateCompat.STATE_PLAYING;
+            case PAUSED:
+                return PlaybackStateCompat.STATE_PAUSED;
+            case STOPPED:
+                return PlaybackStateCompat.STATE_STOPPED;
+            case ERROR:
+                return PlaybackStateCompat.STATE_ERROR;
+            default:
+                return PlaybackStateCompat.STATE_NONE;
         }
     }
 
@@ -401,6 +1275,28 @@ public class AudioService extends Service implements
         mediaSession.setPlaybackState(stateBuilder.build());
     }
 
+    private void updateMediaSessionMetadata() {
+        String title = nowPlaying.isEmpty() ? stationName : nowPlaying.title;
+        String artist = nowPlaying.isEmpty() ? "EN VIVO" : nowPlaying.artist;
+
+        MediaMetadataCompat metadata = new MediaMetadataCompat.Builder()
+            .putString(MediaMetadataCompat.METADATA_KEY_TITLE, title)
+            .putString(MediaMetadataCompat.METADATA_KEY_ARTIST, artist)
+            .putString(MediaMetadataCompat.METADATA_KEY_ALBUM, stationName)
+            .putString(MediaMetadataCompat.METADATA_KEY_DISPLAY_TITLE, title)
+            .putString(MediaMetadataCompat.METADATA_KEY_DISPLAY_SUBTITLE, stationName)
+            .build();
+        mediaSession.setMetadata(metadata);
+    }
+
+    public void setServiceListener(ServiceListener listener) {
+        this.serviceListener = listener;
+    }
+
+    public NowPlaying getNowPlaying() {
+        return nowPlaying;
+    }
+
     @Override
     public IBinder onBind(Intent intent) {
         return binder;
@@ -410,28 +1306,71 @@ public class AudioService extends Service implements
     public void onDestroy() {
         Log.d(TAG, "AudioService destroyed");
 
-        if (mediaPlayer != null) {
-            if (mediaPlayer.isPlaying()) {
-                mediaPlayer.stop();
-            }
-            mediaPlayer.release();
-            mediaPlayer = null;
-        }
+        commandQueue.close();
 
+        // Todo vive en el hilo de reproducción, también la sesión (sus callbacks van a
+        // ese hilo y el motor la actualiza al parar): se libera allí y después el hilo
+        // termina (quitSafely deja correr lo ya encolado, incluida esta tarea)
+        handler.post(this::releasePlayback);
+        playbackThread.quitSafely();
+        super.onDestroy();
+    }
+
+    private void releasePlayback() {
+        reconnectScheduler.cancel();
+        handler.removeCallbacks(rebufferSampleRunnable);
+        cancelProbe();
+        stopStandby();
+        handler.removeCallbacks(underrunFailoverRunnable);
+        handler.removeCallbacks(stablePlaybackRunnable);
+        networkMonitor.unregister();
+        notificationRenderer.cancelPending();
+
+        if (engine != null) {
+            engine.release();
+            engine = null;
+        }
+        releaseTimeShift();
+        streamRecorder.stop();
+        powerLockManager.releaseAll();
+        abandonAudioFocus();
+        // Con el motor ya parado: nada más va a actualizar la sesión
         if (mediaSession != null) {
             mediaSession.setActive(false);
             mediaSession.release();
         }
-
-        if (wakeLock != null && wakeLock.isHeld()) {
-            wakeLock.release();
+        handler.removeCallbacks(dataUsageFlushRunnable);
+        DataUsageTracker.get().flush();
+        if (snapshotStore != null) {
+            snapshotStore.close();
+            snapshotStore = null;
         }
+    }
 
-        abandonAudioFocus();
-        super.onDestroy();
+    // Para consultas que solo admiten el hilo del reproductor (ExoPlayer)
+    public void runOnPlaybackThread(Runnable action) {
+        handler.post(action);
+    }
+
+    public ReconnectScheduler.State getReconnectState() {
+        return reconnectScheduler.getState();
+    }
+
+    public int getReconnectAttempts() {
+        return reconnectScheduler.getAttempts();
+    }
+
+    public long getNextReconnectInMs() {
+        return reconnectScheduler.getNextAttemptInMs();
+    }
+
+    public boolean isNetworkOnline() {
+        return networkMonitor.isOnline();
     }
 
+    // Desde el hilo del plugin: el estado publicado (volátil), que ya tiene en cuenta la
+    // pausa por pérdida de foco, los cortes y un foco que no se llegó a conceder
     public boolean isCurrentlyPlaying() {
-        return isPlaying && mediaPlayer != null && mediaPlayer.isPlaying();
+        return stateMachine.getStatus() == PlaybackStatus.PLAYING;
     }
 }
@@ -4,20 +4,97 @@ import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.ServiceConnection;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
 import android.util.Log;
 
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
 
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.realstereo.core.BufferConfig;
+import com.realstereo.core.DataUsageLedger;
+import com.realstereo.core.HlsStream;
+import com.realstereo.core.LatencyHistogram;
+import com.realstereo.core.NetworkPolicy;
+import com.realstereo.core.NetworkType;
+import com.realstereo.core.NowPlaying;
+import com.realstereo.core.PcmChain;
+import com.realstereo.core.PlaybackStats;
+import com.realstereo.core.PlaybackStatus;
+import com.realstereo.core.RebufferController;
+import com.realstereo.core.ServiceBinding;
+import com.realstereo.core.Station;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
 @CapacitorPlugin(name = "AudioServicePlugin")
 public class AudioServicePlugin extends Plugin {
 
     private static final String TAG = "AudioServicePlugin";
     private AudioService audioService;
-    private boolean isServiceBound = false;
+    // Como mucho un enlace al servicio por muchas veces que JS llame a startService
+    private final ServiceBinding serviceBinding = new ServiceBinding();
+
+    // Número de transiciones publicadas; todas llegan a JS, en orden
+    private long stateSequence = 0;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final BridgeEventCoalescer eventCoalescer = new BridgeEventCoalescer(this::notifyListeners);
+
+    private final AudioService.ServiceListener serviceListener = new AudioService.ServiceListener() {
+        @Override
+        public void onPlaybackStatusChanged(PlaybackStatus status) {
+            publishPlaybackState(status);
+        }
+
+        @Override
+        public void onNowPlaying(NowPlaying nowPlaying) {
+            // Solo cuenta el título que suena: basta el último del frame
+            eventCoalescer.publishLatest("nowPlaying", toJSObject(nowPlaying));
+        }
+
+        @Override
+        public void onRebufferDecision(RebufferController.Decision decision) {
+            JSObject data = new JSObject();
+            data.put("level", decision.level);
+            data.put("targetMs", decision.targetMs);
+            data.put("reason", decision.reason.name());
+            data.put("throughputKbps", decision.throughputKbps);
+            data.put("stallsInWindow", decision.stallsInWindow);
+            eventCoalescer.publish("bufferDecision", data);
+        }
+    };
+
+    private void publishPlaybackState(PlaybackStatus status) {
+        JSObject data;
+        synchronized (this) {
+            stateSequence++;
+            data = playbackStateToJSObject(status, stateSequence);
+        }
+        eventCoalescer.publish("playbackState", data);
+    }
+
+    private static JSObject playbackStateToJSObject(PlaybackStatus status, long sequence) {
+        JSObject data = new JSObject();
+        data.put("state", status.name());
+        data.put("isPlaying", status == PlaybackStatus.PLAYING);
+        data.put("sequence", sequence);
+        return data;
+    }
 
     private ServiceConnection serviceConnection = new ServiceConnection() {
         @Override
@@ -25,14 +102,27 @@ public class AudioServicePlugin extends Plugin {
             Log.d(TAG, "Service connected");
             AudioService.AudioBinder binder = (AudioService.AudioBinder) service;
             audioService = binder.getService();
-            isServiceBound = true;
+            audioService.setServiceListener(serviceListener);
+            serviceBinding.onConnected();
+            StartupTracker.get().mark(StartupTracker.SERVICE_BOUND);
+            // Estado inicial para que JS no tenga que preguntarlo
+            publishPlaybackState(audioService.getStatus());
         }
 
         @Override
         public void onServiceDisconnected(ComponentName name) {
             Log.d(TAG, "Service disconnected");
             audioService = null;
-            isServiceBound = false;
+            // El enlace sigue registrado: el sistema vuelve a conectar si el servicio revive
+            serviceBinding.onDisconnected();
+        }
+
+        @Override
+        public void onBindingDied(ComponentName name) {
+            // Este enlace ya no volverá a conectar: se suelta y el próximo startService enlaza de nuevo
+            Log.w(TAG, "Service binding died");
+            audioService = null;
+            unbindAudioService();
         }
     };
 
@@ -47,8 +137,12 @@ public class AudioServicePlugin extends Plugin {
             // Iniciar el servicio
             context.startForegroundService(serviceIntent);
 
-            // Enlazar al servicio
-            context.bindService(serviceIntent, serviceConnection, Context.BIND_AUTO_CREATE);
+            // Enlazar al servicio si no hay ya un enlace pedido
+            if (serviceBinding.requestBind()
+                && !context.bindService(serviceIntent, serviceConnection, Context.BIND_AUTO_CREATE)) {
+                Log.w(TAG, "Could not bind to AudioService");
+                unbindAudioService();
+            }
 
             call.resolve();
         } catch (Exception e) {
@@ -62,10 +156,10 @@ public class AudioServicePlugin extends Plugin {
         Log.d(TAG, "Stopping audio service");
 
         try {
-            if (isServiceBound) {
-                getContext().unbindService(serviceConnection);
-                isServiceBound = false;
+            if (audioService != null) {
+                audioService.setServiceListener(null);
             }
+            unbindAudioService();
 
             Intent serviceIntent = new Intent(getContext(), AudioService.class);
             getContext().stopService(serviceIntent);
@@ -144,12 +238,707 @@ public class AudioServicePlugin extends Plugin {
         }
     }
 
+    @PluginMethod
+    public void setEngine(PluginCall call) {
+        String engine = call.getString("engine");
+        if (!PlaybackSettings.isValidEngine(engine)) {
+            call.reject("Unknown engine: " + engine);
+            return;
+        }
+
+        PlaybackSettings.setEngine(getContext(), engine);
+        if (audioService != null) {
+            audioService.onPlaybackSettingsChanged();
+        }
+        call.resolve();
+    }
+
+    @PluginMethod
+    public void setBufferConfig(PluginCall call) {
+        BufferConfig current = PlaybackSettings.getBufferConfig(getContext());
+
+        try {
+            BufferConfig config = new BufferConfig(
+                call.getInt("initialBufferMs", current.initialBufferMs),
+                call.getInt("rebufferMs", current.rebufferMs),
+                call.getInt("maxBufferBytes", current.maxBufferBytes),
+                call.getInt("connectTimeoutMs", current.connectTimeoutMs),
+                call.getInt("readTimeoutMs", current.readTimeoutMs)
+            );
+            PlaybackSettings.setBufferConfig(getContext(), config);
+            if (audioService != null) {
+                audioService.onPlaybackSettingsChanged();
+            }
+            Log.d(TAG, "Buffer config updated: " + config);
+            call.resolve();
+        } catch (IllegalArgumentException e) {
+            call.reject("Invalid buffer config: " + e.getMessage());
+        }
+    }
+
+    @PluginMethod
+    public void getBufferConfig(PluginCall call) {
+        BufferConfig config = PlaybackSettings.getBufferConfig(getContext());
+        JSObject result = new JSObject();
+        result.put("engine", PlaybackSettings.getEngine(getContext()));
+        result.put("initialBufferMs", config.initialBufferMs);
+        result.put("rebufferMs", config.rebufferMs);
+        result.put("maxBufferBytes", config.maxBufferBytes);
+        result.put("connectTimeoutMs", config.connectTimeoutMs);
+        result.put("readTimeoutMs", config.readTimeoutMs);
+        call.resolve(result);
+    }
+
+    @PluginMethod
+    public void setStreamEndpoints(PluginCall call) {
+        JSArray urls = call.getArray("urls");
+        if (urls == null) {
+            call.reject("Missing urls");
+            return;
+        }
+
+        try {
+            List<String> endpoints = urls.toList();
+            PlaybackSettings.setStreamEndpoints(getContext(), endpoints);
+            Log.d(TAG, "Stream endpoints updated: " + endpoints);
+            call.resolve();
+        } catch (JSONException | ClassCastException e) {
+            call.reject("urls must be an array of strings");
+        } catch (IllegalArgumentException e) {
+            call.reject("Invalid endpoints: " + e.getMessage());
+        }
+    }
+
+    @PluginMethod
+    public void getStreamEndpoints(PluginCall call) {
+        EndpointSelector selector = audioService != null
+            ? audioService.getEndpointSelector()
+            : new EndpointSelector(getContext());
+
+        JSArray endpoints = new JSArray();
+        // Las de la emisora seleccionada, que son las que AudioService prueba y puntúa
+        for (String url : selector.rank(PlaybackSettings.getActiveEndpoints(getContext()))) {
+            EndpointSelector.Score score = selector.getScore(url);
+            JSObject endpoint = new JSObject();
+            endpoint.put("url", url);
+            endpoint.put("latencyMs", score.latencyMs);
+            endpoint.put("failures", score.failures);
+            endpoint.put("scoreMs", score.scoreMs);
+            endpoints.put(endpoint);
+        }
+
+        JSObject result = new JSObject();
+        result.put("endpoints", endpoints);
+        result.put("current", audioService != null ? audioService.getCurrentEndpoint() : null);
+        call.resolve(result);
+    }
+
+    // stations: [{id, name, endpoints: [url...], source?}] en el orden en que se muestran.
+    // source: "progressive" o "hls"; sin él, hls si la primera URL es una lista .m3u8
+    @PluginMethod
+    public void setStationCatalog(PluginCall call) {
+        JSArray stations = call.getArray("stations");
+        if (stations == null) {
+            call.reject("Missing stations");
+            return;
+        }
+
+        try {
+            List<Station> catalog = new ArrayList<>();
+            for (int i = 0; i < stations.length(); i++) {
+                JSONObject station = stations.getJSONObject(i);
+                JSONArray urls = station.getJSONArray("endpoints");
+                List<String> endpoints = new ArrayList<>();
+                for (int j = 0; j < urls.length(); j++) {
+                    endpoints.add(urls.getString(j));
+                }
+                String id = station.getString("id");
+                if (Station.find(catalog, id) != null) {
+                    call.reject("Duplicate station id: " + id);
+                    return;
+                }
+                String sourceKey = station.isNull("source") ? null : station.getString("source");
+                Station.Source source = sourceKey != null ? Station.Source.fromKey(sourceKey)
+                    : Station.Source.guess(endpoints);
+                if (source == null) {
+                    call.reject("Unknown source for station " + id + ": " + sourceKey);
+                    return;
+                }
+                catalog.add(new Station(id, station.optString("name", id), endpoints, source));
+            }
+            PlaybackSettings.setStationCatalog(getContext(), catalog);
+            if (audioService != null) {
+                audioService.onStationSettingsChanged();
+            }
+            Log.d(TAG, "Station catalog updated: " + catalog.size() + " stations");
+            call.resolve();
+        } catch (JSONException e) {
+            call.reject("stations must be an array of {id, name, endpoints}");
+        } catch (IllegalArgumentException e) {
+            call.reject("Invalid station catalog: " + e.getMessage());
+        }
+    }
+
+    @PluginMethod
+    public void getStationCatalog(PluginCall call) {
+        JSArray stations = new JSArray();
+        for (Station station : PlaybackSettings.getStationCatalog(getContext())) {
+            JSObject item = new JSObject();
+            item.put("id", station.id);
+            item.put("name", station.name);
+            item.put("source", station.source.name().toLowerCase(Locale.ROOT));
+            JSArray endpoints = new JSArray();
+            for (String url : station.endpoints) {
+                endpoints.put(url);
+            }
+            item.put("endpoints", endpoints);
+            stations.put(item);
+        }
+
+        Station current = PlaybackSettings.getCurrentStation(getContext());
+        JSObject result = new JSObject();
+        result.put("stations", stations);
+        result.put("current", current != null ? current.id : null);
+
+        JSObject standby = new JSObject();
+        standby.put("enabled", PlaybackSettings.isStandbyEnabled(getContext()));
+        standby.put("maxBytes", PlaybackSettings.getStandbyMaxBytes(getContext()));
+        standby.put("maxKbps", PlaybackSettings.getStandbyMaxKbps(getContext()));
+        StationStandby active = audioService != null ? audioService.getStandby() : null;
+        standby.put("station", active != null ? active.getStationId() : null);
+        standby.put("connected", active != null && active.isConnected());
+        standby.put("bufferedBytes", active != null ? active.getBufferedBytes() : 0);
+        result.put("standby", standby);
+        call.resolve(result);
+    }
+
+    @PluginMethod
+    public void playStation(PluginCall call) {
+        String id = call.getString("id");
+        if (id == null || Station.find(PlaybackSettings.getStationCatalog(getContext()), id) == null) {
+            call.reject("Unknown station: " + id);
+            return;
+        }
+
+        if (audioService != null) {
+            audioService.playStation(id);
+            call.resolve();
+        } else {
+            call.reject("Service not available");
+        }
+    }
+
+    // maxBytes: memoria de la emisora en espera; maxKbps: ritmo de lectura (0 = sin límite)
+    @PluginMethod
+    public void setStandbyConfig(PluginCall call) {
+        try {
+            PlaybackSettings.setStandbyConfig(getContext(),
+                call.getBoolean("enabled", PlaybackSettings.isStandbyEnabled(getContext())),
+                call.getInt("maxBytes", PlaybackSettings.getStandbyMaxBytes(getContext())),
+                call.getInt("maxKbps", PlaybackSettings.getStandbyMaxKbps(getContext())));
+            if (audioService != null) {
+                audioService.onStationSettingsChanged();
+            }
+            call.resolve();
+        } catch (IllegalArgumentException e) {
+            call.reject("Invalid standby config: " + e.getMessage());
+        }
+    }
+
+    @PluginMethod
+    public void setTimeShift(PluginCall call) {
+        boolean enabled = call.getBoolean("enabled", PlaybackSettings.isTimeShiftEnabled(getContext()));
+        int windowMinutes = call.getInt("windowMinutes", PlaybackSettings.getTimeShiftWindowMinutes(getContext()));
+
+        try {
+            PlaybackSettings.setTimeShift(getContext(), enabled, windowMinutes);
+            if (audioService != null) {
+                audioService.onPlaybackSettingsChanged();
+            }
+            call.resolve();
+        } catch (IllegalArgumentException e) {
+            call.reject("Invalid time-shift config: " + e.getMessage());
+        }
+    }
+
+    @PluginMethod
+    public void seekTimeShift(PluginCall call) {
+        Long behindLiveMs = call.getLong("behindLiveMs");
+        if (behindLiveMs == null || behindLiveMs < 0) {
+            call.reject("behindLiveMs must be >= 0");
+            return;
+        }
+        seekBehindLive(call, behindLiveMs);
+    }
+
+    @PluginMethod
+    public void goLive(PluginCall call) {
+        seekBehindLive(call, 0);
+    }
+
+    // Como las demás órdenes de control, se ejecuta en el hilo de reproducción
+    private void seekBehindLive(PluginCall call, long behindLiveMs) {
+        AudioService service = audioService;
+        if (service == null) {
+            call.reject("Service not available");
+            return;
+        }
+        service.runOnPlaybackThread(() -> {
+            if (service.seekBehindLive(behindLiveMs)) {
+                call.resolve();
+            } else {
+                call.reject("Time-shift not active");
+            }
+        });
+    }
+
+    @PluginMethod
+    public void getTimeShiftState(PluginCall call) {
+        JSObject result = new JSObject();
+        result.put("enabled", PlaybackSettings.isTimeShiftEnabled(getContext()));
+        result.put("windowMinutes", PlaybackSettings.getTimeShiftWindowMinutes(getContext()));
+        AudioService service = audioService;
+        if (service == null) {
+            result.put("active", false);
+            call.resolve(result);
+            return;
+        }
+        // El retraso consulta a ExoPlayer, que solo admite su propio hilo
+        service.runOnPlaybackThread(() -> {
+            boolean active = service.isTimeShiftActive();
+            result.put("active", active);
+            result.put("recording", active && service.isTimeShiftRecording());
+            result.put("availableMs", active ? service.getTimeShiftAvailableMs() : 0);
+            result.put("behindLiveMs", active ? service.getBehindLiveMs() : 0);
+            result.put("overruns", active ? service.getTimeShiftOverruns() : 0);
+            call.resolve(result);
+        });
+    }
+
+    @PluginMethod
+    public void getAdaptiveBuffer(PluginCall call) {
+        AudioService service = audioService;
+        if (service == null) {
+            call.reject("Service not available");
+            return;
+        }
+        // El controlador y el buffer se consultan en su hilo
+        service.runOnPlaybackThread(() -> {
+            RebufferController controller = service.getRebufferController();
+            BufferedStreamEngine buffered = service.getBufferedEngine();
+            JSObject result = new JSObject();
+            result.put("active", controller != null);
+            result.put("level", controller != null ? controller.getLevel() : 0);
+            result.put("targetMs", controller != null ? controller.getTargetMs() : 0);
+            result.put("throughputKbps", controller != null ? controller.getThroughputKbps() : 0);
+            result.put("bitrateKbps", StreamDataSource.getBitrateKbps());
+            result.put("bufferedMs", buffered != null ? buffered.getBufferedDurationMs() : 0);
+            call.resolve(result);
+        });
+    }
+
+    // Emisoras HLS: liveEdgeMs = distancia al directo al empezar; prefetchSegments =
+    // segmentos descargados en paralelo. Se aplica en la siguiente conexión.
+    @PluginMethod
+    public void setHlsConfig(PluginCall call) {
+        try {
+            PlaybackSettings.setHlsConfig(getContext(),
+                call.getInt("liveEdgeMs", PlaybackSettings.getHlsLiveEdgeMs(getContext())),
+                call.getInt("prefetchSegments", PlaybackSettings.getHlsPrefetchSegments(getContext())));
+            call.resolve();
+        } catch (IllegalArgumentException e) {
+            call.reject("Invalid HLS config: " + e.getMessage());
+        }
+    }
+
+    @PluginMethod
+    public void getHlsState(PluginCall call) {
+        AudioService service = audioService;
+        if (service == null) {
+            call.reject("Service not available");
+            return;
+        }
+        service.runOnPlaybackThread(() -> {
+            BufferedStreamEngine buffered = service.getBufferedEngine();
+            HlsStream stream = buffered != null ? buffered.getHlsStream() : null;
+            JSObject result = new JSObject();
+            result.put("liveEdgeMs", PlaybackSettings.getHlsLiveEdgeMs(getContext()));
+            result.put("prefetchSegments", PlaybackSettings.getHlsPrefetchSegments(getContext()));
+            result.put("active", stream != null);
+            result.put("liveEdgeDistanceMs", stream != null ? stream.getLiveEdgeDistanceMs() : 0);
+            result.put("prefetched", stream != null ? stream.getPrefetchedSegments() : 0);
+            result.put("segmentsFetched", stream != null ? stream.getSegmentsFetched() : 0);
+            result.put("segmentRetries", stream != null ? stream.getSegmentRetries() : 0);
+            result.put("segmentsSkipped", stream != null ? stream.getSegmentsSkipped() : 0);
+            result.put("liveEdgeJumps", stream != null ? stream.getLiveEdgeJumps() : 0);
+            result.put("playlistReloads", stream != null ? stream.getPlaylistReloads() : 0);
+            call.resolve(result);
+        });
+    }
+
+    @PluginMethod
+    public void setDataPolicy(PluginCall call) {
+        NetworkPolicy.Mode mode = NetworkPolicy.Mode.fromKey(call.getString("mode"));
+        if (mode == null) {
+            call.reject("mode must be AUTO, SAVER or UNRESTRICTED");
+            return;
+        }
+        PlaybackSettings.setDataPolicyMode(getContext(), mode);
+        if (audioService != null) {
+            audioService.setNetworkPolicyMode(mode);
+        }
+        call.resolve();
+    }
+
+    @PluginMethod
+    public void getDataUsage(PluginCall call) {
+        DataUsageTracker tracker = DataUsageTracker.get();
+        tracker.init(getContext());
+        tracker.flush();
+        DataUsageLedger ledger = tracker.getLedger();
+
+        JSObject result = new JSObject();
+        result.put("networkType", tracker.getNetworkType().key);
+        AudioService service = audioService;
+        if (service != null) {
+            result.put("metered", service.isNetworkMetered());
+            result.put("policy", service.getNetworkPolicyMode().name());
+            result.put("profile", service.getNetworkProfile().name());
+        } else {
+            result.put("policy", PlaybackSettings.getDataPolicyMode(getContext()).name());
+        }
+
+        JSObject session = new JSObject();
+        session.put("startedAt", ledger.getSessionStartedAtMs());
+        session.put("totalBytes", ledger.getSessionTotalBytes());
+        JSObject sessionByNetwork = new JSObject();
+        for (NetworkType type : NetworkType.values()) {
+            sessionByNetwork.put(type.key, ledger.getSessionBytes(type));
+        }
+        session.put("byNetwork", sessionByNetwork);
+        result.put("session", session);
+
+        // Del más reciente al más antiguo
+        JSArray days = new JSArray();
+        for (DataUsageLedger.Day day : ledger.getDays()) {
+            JSObject entry = new JSObject();
+            entry.put("date", day.date);
+            entry.put("totalBytes", day.getTotalBytes());
+            JSObject byNetwork = new JSObject();
+            for (NetworkType type : NetworkType.values()) {
+                byNetwork.put(type.key, day.getBytes(type));
+            }
+            entry.put("byNetwork", byNetwork);
+            days.put(entry);
+        }
+        result.put("days", days);
+        call.resolve(result);
+    }
+
+    @PluginMethod
+    public void setLoudnessNormalization(PluginCall call) {
+        boolean enabled = call.getBoolean("enabled", true);
+        PlaybackSettings.setLoudnessNormalizationEnabled(getContext(), enabled);
+        if (audioService != null) {
+            audioService.setLoudnessNormalization(enabled);
+        }
+        call.resolve();
+    }
+
+    @PluginMethod
+    public void getAudioProcessingStats(PluginCall call) {
+        JSObject result = new JSObject();
+        AudioService service = audioService;
+        BufferedStreamEngine engine = service != null ? service.getBufferedEngine() : null;
+        result.put("active", engine != null);
+        if (engine == null) {
+            result.put("loudnessNormalization", PlaybackSettings.isLoudnessNormalizationEnabled(getContext()));
+            call.resolve(result);
+            return;
+        }
+        result.put("loudnessNormalization", engine.isLoudnessNormalizationEnabled());
+        result.put("loudnessGainDb", engine.getLoudnessGainDb());
+        result.put("levelDbfs", engine.getLoudnessLevelDbfs());
+        result.put("limiterMaxReductionDb", engine.takeLimiterMaxReductionDb());
+
+        VisualizerFeed visualizer = VisualizerFeed.get();
+        JSObject visualizerStats = new JSObject();
+        visualizerStats.put("active", visualizer.isActive());
+        visualizerStats.put("batches", visualizer.getBatchesSent());
+        visualizerStats.put("frames", visualizer.getFramesSent());
+        visualizerStats.put("droppedFrames", visualizer.getDroppedFrames());
+        result.put("visualizer", visualizerStats);
+
+        // Coste por bloque de 10 ms de audio, en microsegundos
+        JSArray processors = new JSArray();
+        for (PcmChain.ProcessorStats stats : engine.getPcmStats()) {
+            JSObject entry = new JSObject();
+            entry.put("name", stats.name);
+            entry.put("blocks", stats.blocks);
+            entry.put("meanMicrosPer10ms", stats.meanNanosPer10ms / 1000.0);
+            entry.put("maxMicrosPer10ms", stats.maxNanosPer10ms / 1000.0);
+            processors.put(entry);
+        }
+        result.put("processors", processors);
+        call.resolve(result);
+    }
+
+    @PluginMethod
+    public void setMainThreadWatchdog(PluginCall call) {
+        boolean enabled = call.getBoolean("enabled", false);
+        PlaybackSettings.setMainThreadWatchdogEnabled(getContext(), enabled);
+        // StrictMode se aplica al hilo que lo activa
+        mainHandler.post(() -> {
+            MainThreadWatchdog.get().setEnabled(enabled);
+            call.resolve();
+        });
+    }
+
+    @PluginMethod
+    public void getStartupReport(PluginCall call) {
+        StartupTracker tracker = StartupTracker.get();
+        JSObject marks = new JSObject();
+        for (Map.Entry<String, Long> mark : tracker.getMarks().entrySet()) {
+            marks.put(mark.getKey(), mark.getValue());
+        }
+        JSObject result = new JSObject();
+        result.put("marks", marks);
+        result.put("splashDismissReason", tracker.getSplashDismissReason());
+        call.resolve(result);
+    }
+
+    @PluginMethod
+    public void getMainThreadStats(PluginCall call) {
+        MainThreadWatchdog.Stats stats = MainThreadWatchdog.get().getStats();
+        JSObject result = new JSObject();
+        result.put("enabled", stats.enabled);
+        result.put("slowDispatches", stats.slowDispatches);
+        result.put("worstDispatchMs", stats.worstDispatchMs);
+        result.put("worstDispatch", stats.worstDispatch);
+        result.put("stalls", stats.stalls);
+        call.resolve(result);
+    }
+
+    @PluginMethod
+    public void startRecording(PluginCall call) {
+        if (audioService == null) {
+            call.reject("Service not available");
+            return;
+        }
+
+        try {
+            String id = audioService.startRecording();
+            call.resolve(new JSObject().put("id", id));
+        } catch (IllegalStateException | IOException e) {
+            Log.e(TAG, "Error starting recording", e);
+            call.reject("Failed to start recording: " + e.getMessage());
+        }
+    }
+
+    @PluginMethod
+    public void stopRecording(PluginCall call) {
+        if (audioService == null) {
+            call.reject("Service not available");
+            return;
+        }
+
+        StreamRecorder recorder = audioService.getStreamRecorder();
+        JSObject result = new JSObject();
+        result.put("id", recorder.getActiveId());
+        result.put("writtenBytes", recorder.getWrittenBytes());
+        result.put("droppedBytes", recorder.getDroppedBytes());
+        audioService.stopRecording();
+        call.resolve(result);
+    }
+
+    @PluginMethod
+    public void listRecordings(PluginCall call) {
+        if (audioService == null) {
+            call.reject("Service not available");
+            return;
+        }
+
+        StreamRecorder recorder = audioService.getStreamRecorder();
+        JSArray recordings = new JSArray();
+        for (StreamRecorder.Recording recording : recorder.list()) {
+            JSObject item = new JSObject();
+            item.put("id", recording.id);
+            item.put("path", recorder.getDirectory(recording.id).getAbsolutePath());
+            item.put("lastModifiedMs", recording.lastModifiedMs);
+            item.put("segments", recording.segments);
+            item.put("totalBytes", recording.totalBytes);
+            item.put("active", recording.active);
+            recordings.put(item);
+        }
+        call.resolve(new JSObject().put("recordings", recordings));
+    }
+
+    @PluginMethod
+    public void getReconnectState(PluginCall call) {
+        JSObject result = new JSObject();
+        if (audioService != null) {
+            result.put("state", audioService.getReconnectState().name());
+            result.put("attempts", audioService.getReconnectAttempts());
+            result.put("nextAttemptInMs", audioService.getNextReconnectInMs());
+            result.put("online", audioService.isNetworkOnline());
+        } else {
+            result.put("state", ReconnectScheduler.State.IDLE.name());
+            result.put("attempts", 0);
+            result.put("nextAttemptInMs", -1);
+            result.put("online", true);
+        }
+        call.resolve(result);
+    }
+
+    @PluginMethod
+    public void getPlaybackState(PluginCall call) {
+        PlaybackStatus status = audioService != null ? audioService.getStatus() : PlaybackStatus.IDLE;
+        long sequence;
+        synchronized (this) {
+            sequence = stateSequence;
+        }
+        call.resolve(playbackStateToJSObject(status, sequence));
+    }
+
+    @PluginMethod
+    public void getPowerStats(PluginCall call) {
+        if (audioService == null) {
+            call.reject("Service not available");
+            return;
+        }
+
+        PowerLockManager.Stats stats = audioService.getPowerStats();
+        JSObject result = new JSObject();
+        result.put("sessionDurationMs", stats.sessionDurationMs);
+        result.put("sessionCpuLockMs", stats.sessionCpuLockMs);
+        result.put("sessionWifiLockMs", stats.sessionWifiLockMs);
+        result.put("totalCpuLockMs", stats.totalCpuLockMs);
+        result.put("totalWifiLockMs", stats.totalWifiLockMs);
+        result.put("cpuLockHeld", stats.cpuLockHeld);
+        result.put("wifiLockHeld", stats.wifiLockHeld);
+        call.resolve(result);
+    }
+
+    @PluginMethod
+    public void getStats(PluginCall call) {
+        if (audioService == null) {
+            call.reject("Service not available");
+            return;
+        }
+
+        PlaybackStats.Snapshot stats = audioService.getPlaybackStats().snapshot();
+        JSObject result = new JSObject();
+        result.put("sinceResetMs", stats.sinceResetMs);
+        result.put("startAttempts", stats.startAttempts);
+        result.put("rebufferCount", stats.rebufferCount);
+        result.put("errorCount", stats.errorCount);
+        result.put("reconnectCount", stats.reconnectCount);
+        result.put("timeToFirstByte", toJSObject(stats.timeToFirstByte));
+        result.put("timeToPrepared", toJSObject(stats.timeToPrepared));
+        result.put("timeToFirstAudio", toJSObject(stats.timeToFirstAudio));
+        result.put("rebufferDuration", toJSObject(stats.rebufferDuration));
+        result.put("reconnectLatency", toJSObject(stats.reconnectLatency));
+
+        JSObject errors = new JSObject();
+        for (int i = 0; i < stats.errorCodes.length; i++) {
+            errors.put(String.valueOf(stats.errorCodes[i]), stats.errorCodeCounts[i]);
+        }
+        result.put("errorCodes", errors);
+        result.put("otherErrorCount", stats.otherErrorCount);
+        result.put("coalescedCommands", audioService.getCoalescedCommandCount());
+        call.resolve(result);
+    }
+
+    @PluginMethod
+    public void resetStats(PluginCall call) {
+        if (audioService == null) {
+            call.reject("Service not available");
+            return;
+        }
+
+        audioService.getPlaybackStats().reset();
+        call.resolve();
+    }
+
+    // Cubetas como pares {leMs, count}; la última tiene leMs = -1 (sin límite)
+    private static JSObject toJSObject(LatencyHistogram.Snapshot histogram) {
+        JSObject result = new JSObject();
+        result.put("count", histogram.count);
+        result.put("meanMs", histogram.getMeanMs());
+        result.put("minMs", histogram.minMs);
+        result.put("maxMs", histogram.maxMs);
+        result.put("p50Ms", histogram.p50Ms);
+        result.put("p95Ms", histogram.p95Ms);
+
+        JSArray buckets = new JSArray();
+        for (int i = 0; i < histogram.bucketCounts.length; i++) {
+            JSObject bucket = new JSObject();
+            bucket.put("leMs", i < LatencyHistogram.BUCKET_BOUNDS_MS.length
+                ? LatencyHistogram.BUCKET_BOUNDS_MS[i] : -1);
+            bucket.put("count", histogram.bucketCounts[i]);
+            buckets.put(bucket);
+        }
+        result.put("buckets", buckets);
+        return result;
+    }
+
+    @PluginMethod
+    public void getNowPlaying(PluginCall call) {
+        if (audioService != null) {
+            call.resolve(toJSObject(audioService.getNowPlaying()));
+        } else {
+            call.resolve(toJSObject(NowPlaying.fromStreamTitle("")));
+        }
+    }
+
+    private static JSObject toJSObject(NowPlaying nowPlaying) {
+        JSObject result = new JSObject();
+        result.put("streamTitle", nowPlaying.streamTitle);
+        result.put("artist", nowPlaying.artist);
+        result.put("title", nowPlaying.title);
+        return result;
+    }
+
+    // El visualizador solo analiza con la app visible y algún oyente de visualizerFrame
+    @Override
+    public void load() {
+        super.load();
+        VisualizerFeed.get().attach(this::notifyListeners, () -> hasListeners(VisualizerFeed.EVENT));
+    }
+
+    @Override
+    protected void handleOnResume() {
+        super.handleOnResume();
+        VisualizerFeed.get().setForeground(true);
+    }
+
+    @Override
+    protected void handleOnPause() {
+        VisualizerFeed.get().setForeground(false);
+        super.handleOnPause();
+    }
+
     @Override
     protected void handleOnDestroy() {
-        if (isServiceBound) {
-            getContext().unbindService(serviceConnection);
-            isServiceBound = false;
+        if (audioService != null) {
+            audioService.setServiceListener(null);
         }
+        eventCoalescer.cancel();
+        VisualizerFeed.get().attach(null, null);
+        unbindAudioService();
         super.handleOnDestroy();
     }
+
+    // También tras un bindService fallido o una desconexión: el sistema guarda la conexión
+    private void unbindAudioService() {
+        if (serviceBinding.requestUnbind()) {
+            audioService = null;
+            try {
+                getContext().unbindService(serviceConnection);
+            } catch (IllegalArgumentException e) {
+                // El sistema ya la había soltado
+                Log.w(TAG, "Service was not bound: " + e.getMessage());
+            }
+        }
+    }
 }
@@ -0,0 +1,110 @@
+package com.realstereo.dev;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import com.getcapacitor.JSObject;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+// Agrupa eventos hacia JS para cruzar el bridge como mucho una vez por frame, en el
+// orden en que se publicaron. publish() los entrega todos (transiciones de estado);
+// publishLatest() solo el último valor del frame (eventos de alta frecuencia).
+public class BridgeEventCoalescer {
+
+    public interface Emitter {
+        void emit(String eventName, JSObject data);
+    }
+
+    // Si no llegan frames (app en segundo plano) se vacía igualmente tras este tiempo
+    private static final long FALLBACK_FLUSH_MS = 50;
+
+    private final Emitter emitter;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final class Event {
+        final String name;
+        final JSObject data;
+        final boolean latestOnly;
+
+        Event(String name, JSObject data, boolean latestOnly) {
+            this.name = name;
+            this.data = data;
+            this.latestOnly = latestOnly;
+        }
+    }
+
+    private final List<Event> pending = new ArrayList<>();
+    private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> flush();
+    private final Runnable fallbackFlush = this::flush;
+    private final Runnable scheduleFrame = () -> {
+        Choreographer.getInstance().postFrameCallback(frameCallback);
+        mainHandler.postDelayed(fallbackFlush, FALLBACK_FLUSH_MS);
+    };
+    private boolean scheduled = false;
+
+    public BridgeEventCoalescer(Emitter emitter) {
+        this.emitter = emitter;
+    }
+
+    // Se puede llamar desde cualquier hilo
+    public void publish(String eventName, JSObject data) {
+        enqueue(new Event(eventName, data, false));
+    }
+
+    // Sustituye el valor anterior del mismo evento aún sin enviar; va detrás de lo
+    // publicado antes que él
+    public void publishLatest(String eventName, JSObject data) {
+        enqueue(new Event(eventName, data, true));
+    }
+
+    private void enqueue(Event event) {
+        synchronized (pending) {
+            if (event.latestOnly) {
+                Iterator<Event> iterator = pending.iterator();
+                while (iterator.hasNext()) {
+                    Event queued = iterator.next();
+                    if (queued.latestOnly && queued.name.equals(event.name)) {
+                        iterator.remove();
+                    }
+                }
+            }
+            pending.add(event);
+            if (scheduled) {
+                return;
+            }
+            scheduled = true;
+        }
+        mainHandler.post(scheduleFrame);
+    }
+
+    private void flush() {
+        List<Event> events;
+        synchronized (pending) {
+            if (!scheduled) {
+                return;
+            }
+            scheduled = false;
+            events = new ArrayList<>(pending);
+            pending.clear();
+        }
+
+        mainHandler.removeCallbacks(fallbackFlush);
+        Choreographer.getInstance().removeFrameCallback(frameCallback);
+        for (Event event : events) {
+            emitter.emit(event.name, event.data);
+        }
+    }
+
+    public void cancel() {
+        synchronized (pending) {
+            pending.clear();
+            scheduled = false;
+        }
+        mainHandler.removeCallbacks(scheduleFrame);
+        mainHandler.removeCallbacks(fallbackFlush);
+        mainHandler.post(() -> Choreographer.getInstance().removeFrameCallback(frameCallback));
+    }
+}
@@ -0,0 +1,445 @@
+package com.realstereo.dev;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.OptIn;
+import androidx.media3.common.AudioAttributes;
+import androidx.media3.common.C;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.PlaybackException;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.common.audio.AudioProcessor;
+import androidx.media3.exoplayer.DefaultLoadControl;
+import androidx.media3.exoplayer.DefaultRenderersFactory;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.media3.exoplayer.audio.AudioSink;
+import androidx.media3.exoplayer.audio.DefaultAudioSink;
+import androidx.media3.exoplayer.source.ProgressiveMediaSource;
+
+import com.realstereo.core.BufferConfig;
+import com.realstereo.core.GainRamp;
+import com.realstereo.core.HlsStream;
+import com.realstereo.core.LoudnessNormalizer;
+import com.realstereo.core.PcmChain;
+import com.realstereo.core.PeakLimiter;
+import com.realstereo.core.RebufferHold;
+import com.realstereo.core.TimeShiftBuffer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Motor basado en ExoPlayer con control de carga configurable: cuánto audio
+// esperar antes de sonar, cuánto tras un corte y cuánta memoria usar. El PCM
+// decodificado pasa por la PcmChain (sonoridad, volumen con rampa, limitador)
+// antes de llegar a AudioTrack.
+@OptIn(markerClass = UnstableApi.class)
+public class BufferedStreamEngine implements PlaybackEngine, Player.Listener {
+
+    private static final String TAG = "BufferedStreamEngine";
+    private static final int MIN_BUFFER_MS = 15000;
+    private static final int MAX_BUFFER_MS = 50000;
+
+    private final ExoPlayer player;
+    private final ProgressiveMediaSource.Factory mediaSourceFactory;
+    private final Handler playerHandler;
+    private final BufferConfig config;
+    private final LoudnessNormalizer loudnessNormalizer = new LoudnessNormalizer();
+    private final GainRamp volumeRamp = new GainRamp();
+    private final PeakLimiter limiter = new PeakLimiter();
+    // El análisis va al final: el visualizador ve lo que suena
+    private final PcmChain pcmChain = new PcmChain(loudnessNormalizer, volumeRamp, limiter,
+        VisualizerFeed.get().getAnalyzer());
+    private Listener listener;
+    // Solo del hilo del reproductor
+    private boolean isPrepared = false;
+    private boolean isBuffering = false;
+    private boolean audioStarted = false;
+    // Tras un corte, espera al objetivo de RebufferController antes de seguir
+    private final RebufferHold hold = new RebufferHold();
+    private final Runnable holdCheckRunnable = this::checkHold;
+    // Solo en modo HLS; se cierra al preparar otra cosa, parar o liberar
+    private volatile HlsStream hlsStream;
+    // Fuente del hlsStream actual: cada discontinuidad añade un elemento con ella
+    private ProgressiveMediaSource.Factory hlsSourceFactory;
+    // Bytes de red del modo HLS, como StreamDataSource.getBytesRead() en el progresivo
+    private final AtomicLong hlsBytesRead = new AtomicLong();
+
+    // playbackLooper: hilo en que ExoPlayer entrega callbacks y admite llamadas
+    public BufferedStreamEngine(Context context, Looper playbackLooper, BufferConfig config,
+                                StreamDataSource.Tap tap, boolean loudnessNormalization) {
+        this.config = config;
+        loudnessNormalizer.setEnabled(loudnessNormalization);
+
+        // ExoPlayer exige DefaultLoadControl con minBuffer >= umbrales de arranque
+        int minBufferMs = Math.max(MIN_BUFFER_MS, Math.max(config.initialBufferMs, config.rebufferMs));
+        int maxBufferMs = Math.max(minBufferMs, MAX_BUFFER_MS);
+
+        DefaultLoadControl loadControl = new DefaultLoadControl.Builder()
+            .setBufferDurationsMs(minBufferMs, maxBufferMs, config.initialBufferMs, config.rebufferMs)
+            .setTargetBufferBytes(config.maxBufferBytes)
+            .setPrioritizeTimeOverSizeThresholds(false)
+            .build();
+
+        mediaSourceFactory = new ProgressiveMediaSource.Factory(
+            new StreamDataSource.Factory(config, this::postStreamTitle, this::postFirstByte, tap));
+
+        AudioAttributes audioAttributes = new AudioAttributes.Builder()
+            .setUsage(C.USAGE_MEDIA)
+            .setContentType(C.AUDIO_CONTENT_TYPE_MUSIC)
+            .build();
+
+        // El foco de audio y los locks de energía los gestiona AudioService, no ExoPlayer
+        PcmChainAudioProcessor pcmProcessor = new PcmChainAudioProcessor(pcmChain);
+        DefaultRenderersFactory renderersFactory = new DefaultRenderersFactory(context.getApplicationContext()) {
+            @Override
+            protected AudioSink buildAudioSink(Context sinkContext, boolean enableFloatOutput,
+                                               boolean enableAudioTrackPlaybackParams) {
+                return new DefaultAudioSink.Builder(sinkContext)
+                    .setEnableFloatOutput(enableFloatOutput)
+                    .setEnableAudioTrackPlaybackParams(enableAudioTrackPlaybackParams)
+                    .setAudioProcessors(new AudioProcessor[] {pcmProcessor})
+                    .build();
+            }
+        };
+
+        player = new ExoPlayer.Builder(context.getApplicationContext(), renderersFactory)
+            .setLoadControl(loadControl)
+            .setAudioAttributes(audioAttributes, false)
+            .setWakeMode(C.WAKE_MODE_NONE)
+            .setLooper(playbackLooper)
+            .build();
+        player.addListener(this);
+        playerHandler = new Handler(player.getApplicationLooper());
+
+        Log.d(TAG, "Engine created with " + config);
+    }
+
+    public BufferConfig getConfig() {
+        return config;
+    }
+
+    @Override
+    public String getName() {
+        return PlaybackSettings.ENGINE_BUFFERED;
+    }
+
+    @Override
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // ExoPlayer solo admite llamadas desde su hilo de aplicación
+    private void runOnPlayerThread(Runnable action) {
+        if (Looper.myLooper() == player.getApplicationLooper()) {
+            action.run();
+        } else {
+            playerHandler.post(action);
+        }
+    }
+
+    @Override
+    public void prepare(String url) {
+        runOnPlayerThread(() -> {
+            cancelHold();
+            closeHls();
+            isPrepared = false;
+            isBuffering = false;
+            audioStarted = false;
+            player.setMediaSource(mediaSourceFactory.createMediaSource(MediaItem.fromUri(url)));
+            player.setPlayWhenReady(false);
+            player.prepare();
+        });
+    }
+
+    // Modo diferido: reproduce desde el buffer en disco en la posición del lector
+    public void prepareFromBuffer(TimeShiftBuffer buffer, TimeShiftBuffer.Reader reader) {
+        ProgressiveMediaSource.Factory factory = new ProgressiveMediaSource.Factory(
+            new TimeShiftDataSource.Factory(
+                buffer, reader, config.readTimeoutMs, this::postStreamTitle, this::postFirstByte));
+        runOnPlayerThread(() -> {
+            cancelHold();
+            closeHls();
+            isPrepared = false;
+            isBuffering = false;
+            audioStarted = false;
+            player.setMediaSource(factory.createMediaSource(MediaItem.fromUri(TimeShiftDataSource.URI)));
+            player.setPlayWhenReady(false);
+            player.prepare();
+        });
+    }
+
+    // Modo HLS: HlsStream baja los segmentos en paralelo y ExoPlayer los lee seguidos
+    // como un stream progresivo. maxBandwidth elige variante de una lista maestra (0 = la mejor)
+    public void prepareHls(String url, long liveEdgeMs, int prefetchSegments, int maxBandwidth) {
+        runOnPlayerThread(() -> {
+            cancelHold();
+            closeHls();
+            HlsStream stream = new HlsStream(
+                target -> ConnectionLayer.get().open(config, target, null), url, liveEdgeMs, prefetchSegments,
+                maxBandwidth, this::onHlsBytesFetched);
+            hlsStream = stream;
+            stream.start();
+            ProgressiveMediaSource.Factory factory = new ProgressiveMediaSource.Factory(
+                new HlsDataSource.Factory(stream, config.readTimeoutMs, this::postFirstByte,
+                    () -> runOnPlayerThread(() -> onHlsDiscontinuity(stream))));
+            hlsSourceFactory = factory;
+            isPrepared = false;
+            isBuffering = false;
+            audioStarted = false;
+            player.setMediaSource(factory.createMediaSource(MediaItem.fromUri(HlsDataSource.URI)));
+            player.setPlayWhenReady(false);
+            player.prepare();
+        });
+    }
+
+    // El elemento actual acaba en la discontinuidad; ExoPlayer pasa sin hueco al
+    // siguiente, que lee lo que sigue del mismo stream con un extractor nuevo
+    private void onHlsDiscontinuity(HlsStream stream) {
+        if (stream != hlsStream) {
+            return;
+        }
+        Log.d(TAG, "HLS discontinuity: new extractor");
+        player.addMediaSource(hlsSourceFactory.createMediaSource(MediaItem.fromUri(HlsDataSource.URI)));
+    }
+
+    // Los elementos ya reproducidos (anteriores a una discontinuidad) sobran
+    @Override
+    public void onMediaItemTransition(MediaItem mediaItem, int reason) {
+        int index = player.getCurrentMediaItemIndex();
+        if (index > 0) {
+            player.removeMediaItems(0, index);
+        }
+    }
+
+    // null fuera del modo HLS
+    public HlsStream getHlsStream() {
+        return hlsStream;
+    }
+
+    public long getHlsBytesRead() {
+        return hlsBytesRead.get();
+    }
+
+    // Desde los hilos de descarga de HlsStream
+    private void onHlsBytesFetched(int bytes) {
+        hlsBytesRead.addAndGet(bytes);
+        DataUsageTracker.get().onBytesRead(bytes);
+    }
+
+    private void closeHls() {
+        HlsStream stream = hlsStream;
+        if (stream != null) {
+            hlsStream = null;
+            hlsSourceFactory = null;
+            stream.close();
+        }
+    }
+
+    // Audio ya descargado por delante de la reproducción; solo desde el hilo del reproductor
+    public long getBufferedDurationMs() {
+        return player.getTotalBufferedDuration();
+    }
+
+    @Override
+    public void start() {
+        runOnPlayerThread(() -> {
+            hold.setPlayAllowed(true);
+            if (!hold.isHolding()) {
+                player.setPlayWhenReady(true);
+            }
+        });
+    }
+
+    @Override
+    public void pause() {
+        runOnPlayerThread(() -> {
+            cancelHold();
+            player.setPlayWhenReady(false);
+        });
+    }
+
+    @Override
+    public void stop() {
+        runOnPlayerThread(() -> {
+            cancelHold();
+            isPrepared = false;
+            isBuffering = false;
+            player.stop();
+            closeHls();
+        });
+    }
+
+    @Override
+    public void release() {
+        runOnPlayerThread(() -> {
+            cancelHold();
+            player.removeListener(this);
+            player.release();
+            closeHls();
+        });
+    }
+
+    // Solo desde el hilo del reproductor; desde otros, el estado publicado de AudioService
+    @Override
+    public boolean isPlaying() {
+        return player.isPlaying();
+    }
+
+    // Con rampa en la cadena PCM en vez de player.setVolume(), que salta de golpe
+    @Override
+    public void setVolume(float volume) {
+        volumeRamp.setTarget(volume);
+    }
+
+    public void setLoudnessNormalization(boolean enabled) {
+        loudnessNormalizer.setEnabled(enabled);
+    }
+
+    public boolean isLoudnessNormalizationEnabled() {
+        return loudnessNormalizer.isEnabled();
+    }
+
+    // Ganancia actual del control de sonoridad, en dB
+    public float getLoudnessGainDb() {
+        return loudnessNormalizer.getGainDb();
+    }
+
+    public float getLoudnessLevelDbfs() {
+        return loudnessNormalizer.getLevelDbfs();
+    }
+
+    public float takeLimiterMaxReductionDb() {
+        return limiter.takeMaxReductionDb();
+    }
+
+    public PcmChain.ProcessorStats[] getPcmStats() {
+        return pcmChain.snapshot();
+    }
+
+    // Lo fija AudioService según RebufferController; se aplica en el siguiente corte
+    public void setRebufferTargetMs(int targetMs) {
+        runOnPlayerThread(() -> hold.setTargetMs(targetMs));
+    }
+
+    // ExoPlayer ya podría seguir tras un corte, pero con menos audio del objetivo: se
+    // retiene la reproducción (sigue cargando) y se sigue informando de buffering.
+    // Solo si start() lo permitió: en pausa o sin foco no se retiene ni se reanuda.
+    private boolean startHold() {
+        if (!hold.start(player.getTotalBufferedDuration(), SystemClock.elapsedRealtime())) {
+            return false;
+        }
+        player.setPlayWhenReady(false);
+        playerHandler.postDelayed(holdCheckRunnable, RebufferHold.CHECK_MS);
+        Log.d(TAG, "Holding playback until " + hold.getTargetMs() + "ms are buffered");
+        return true;
+    }
+
+    private void checkHold() {
+        long buffered = player.getTotalBufferedDuration();
+        switch (hold.check(buffered, SystemClock.elapsedRealtime())) {
+            case WAIT:
+                playerHandler.postDelayed(holdCheckRunnable, RebufferHold.CHECK_MS);
+                return;
+            case RELEASE:
+                Log.d(TAG, "Releasing hold with " + buffered + "ms buffered");
+                player.setPlayWhenReady(true);
+                if (isBuffering) {
+                    isBuffering = false;
+                    if (listener != null) {
+                        listener.onBufferingEnd();
+                    }
+                }
+                return;
+            case NONE:
+                // Se pausó durante la retención: sigue parado hasta el próximo start()
+                break;
+        }
+    }
+
+    // Pausa, parada o nueva preparación: nada vuelve a sonar hasta start()
+    private void cancelHold() {
+        hold.setPlayAllowed(false);
+        playerHandler.removeCallbacks(holdCheckRunnable);
+    }
+
+    // Los metadatos llegan en el hilo de carga de ExoPlayer
+    private void postStreamTitle(String streamTitle) {
+        playerHandler.post(() -> {
+            if (listener != null) {
+                listener.onStreamTitle(streamTitle);
+            }
+        });
+    }
+
+    private void postFirstByte() {
+        playerHandler.post(() -> {
+            if (listener != null) {
+                listener.onFirstByte();
+            }
+        });
+    }
+
+    @Override
+    public void onIsPlayingChanged(boolean isPlaying) {
+        if (isPlaying && !audioStarted) {
+            audioStarted = true;
+            if (listener != null) {
+                listener.onAudioStarted();
+            }
+        }
+    }
+
+    @Override
+    public void onPlaybackStateChanged(int playbackState) {
+        switch (playbackState) {
+            case Player.STATE_READY:
+                if (!isPrepared) {
+                    isPrepared = true;
+                    if (listener != null) {
+                        listener.onPrepared();
+                    }
+                } else if (isBuffering && !hold.isHolding() && !startHold()) {
+                    isBuffering = false;
+                    if (listener != null) {
+                        listener.onBufferingEnd();
+                    }
+                }
+                break;
+
+            case Player.STATE_BUFFERING:
+                if (isPrepared && !isBuffering) {
+                    isBuffering = true;
+                    if (listener != null) {
+                        listener.onBufferingStart();
+                    }
+                }
+                break;
+
+            case Player.STATE_ENDED:
+                // Un stream en vivo no debería terminar: se trata como error para reconectar
+                Log.w(TAG, "Live stream ended unexpectedly");
+                isPrepared = false;
+                if (listener != null) {
+                    listener.onError(ERROR_STREAM_ENDED, 0);
+                }
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void onPlayerError(PlaybackException error) {
+        Log.e(TAG, "Player error: " + error.getErrorCodeName(), error);
+        isPrepared = false;
+        isBuffering = false;
+        if (listener != null) {
+            listener.onError(error.errorCode, 0);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.realstereo.dev;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.realstereo.core.BufferConfig;
+import com.realstereo.core.ConnectionCache;
+import com.realstereo.core.ConnectionPool;
+import com.realstereo.core.StreamConnection;
+import com.realstereo.core.StreamConnector;
+
+import java.io.IOException;
+import java.net.URL;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+
+// Capa de conexión del proceso para todas las conexiones al stream (motor, prewarm,
+// pruebas de URLs): direcciones y destino de las redirecciones en una
+// ConnectionCache guardada en SharedPreferences, y TLS con una sola fábrica del
+// SSLContext por defecto, cuya caché de sesiones reanuda los handshakes. Las conexiones
+// keep-alive devueltas con release() (segmentos HLS) se reutilizan. La inicializa
+// AudioService, o MainActivity si el prewarm llega antes.
+public final class ConnectionLayer {
+
+    private static final String TAG = "ConnectionLayer";
+    private static final String PREFS_NAME = "RealStereoConnections";
+    private static final String KEY_CACHE = "cache";
+
+    private static final ConnectionLayer INSTANCE = new ConnectionLayer();
+
+    // Reloj de pared: las caducidades se guardan en disco
+    private final ConnectionCache cache = new ConnectionCache(System::currentTimeMillis);
+    // Solo en memoria: reloj monótono
+    private final ConnectionPool pool =
+        new ConnectionPool(SystemClock::elapsedRealtime, ConnectionPool.DEFAULT_IDLE_MS);
+    private final SSLSocketFactory sslSocketFactory = defaultSslSocketFactory();
+    private SharedPreferences prefs;
+
+    private ConnectionLayer() {
+    }
+
+    public static ConnectionLayer get() {
+        return INSTANCE;
+    }
+
+    private static SSLSocketFactory defaultSslSocketFactory() {
+        try {
+            return SSLContext.getDefault().getSocketFactory();
+        } catch (NoSuchAlgorithmException e) {
+            Log.w(TAG, "No default SSLContext, using the HttpsURLConnection factory", e);
+            return HttpsURLConnection.getDefaultSSLSocketFactory();
+        }
+    }
+
+    public synchronized void init(Context context) {
+        if (prefs != null) {
+            return;
+        }
+        Context appContext = context.getApplicationContext();
+        prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        cache.restore(prefs.getString(KEY_CACHE, null));
+    }
+
+    public StreamConnection open(BufferConfig config, String url, Map<String, String> headers) throws IOException {
+        StreamConnector connector = new StreamConnector(config.connectTimeoutMs, config.readTimeoutMs,
+            cache, sslSocketFactory, HttpsURLConnection.getDefaultHostnameVerifier(), pool);
+        try {
+            return connector.open(url, headers);
+        } finally {
+            save();
+        }
+    }
+
+    // Solo DNS, para motores que abren su propia conexión (MediaPlayer)
+    public void resolve(String url) throws IOException {
+        try {
+            cache.resolve(new URL(url).getHost());
+        } finally {
+            save();
+        }
+    }
+
+    private void save() {
+        SharedPreferences target;
+        synchronized (this) {
+            target = prefs;
+        }
+        if (target != null && cache.takeDirty()) {
+            target.edit().putString(KEY_CACHE, cache.serialize()).apply();
+            Log.d(TAG, "Connection cache saved");
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.realstereo.dev;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.realstereo.core.DataUsageLedger;
+import com.realstereo.core.NetworkType;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+// Consumo de datos del stream de todo el proceso: lo suman StreamDataSource, el
+// prewarm y las pruebas de URLs, que pueden correr antes de que exista el servicio.
+// El historial diario se guarda en SharedPreferences al hacer flush().
+public final class DataUsageTracker {
+
+    private static final String PREFS_NAME = "RealStereoDataUsage";
+    private static final String KEY_DAYS = "days";
+
+    private static final DataUsageTracker INSTANCE = new DataUsageTracker();
+
+    private final DataUsageLedger ledger = new DataUsageLedger();
+    private SharedPreferences prefs;
+
+    private DataUsageTracker() {
+    }
+
+    public static DataUsageTracker get() {
+        return INSTANCE;
+    }
+
+    // Carga el historial una sola vez; lo leído antes sigue pendiente y no se pierde
+    public synchronized void init(Context context) {
+        if (prefs != null) {
+            return;
+        }
+        prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        ledger.restore(prefs.getString(KEY_DAYS, null));
+    }
+
+    // Hilos de lectura de red: solo un contador atómico
+    public void onBytesRead(int bytes) {
+        ledger.addBytes(bytes);
+    }
+
+    public void setNetworkType(NetworkType type) {
+        ledger.setNetworkType(type);
+    }
+
+    public NetworkType getNetworkType() {
+        return ledger.getNetworkType();
+    }
+
+    // Lo pendiente cuenta todavía para la sesión anterior
+    public void startSession() {
+        flush();
+        ledger.startSession(System.currentTimeMillis());
+    }
+
+    public synchronized void flush() {
+        if (prefs == null) {
+            return;
+        }
+        ledger.drain(new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date()));
+        if (ledger.takeDirty()) {
+            prefs.edit().putString(KEY_DAYS, ledger.serialize()).apply();
+        }
+    }
+
+    public DataUsageLedger getLedger() {
+        return ledger;
+    }
+}
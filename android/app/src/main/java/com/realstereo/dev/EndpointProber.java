@@ -0,0 +1,133 @@
+package com.realstereo.dev;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.realstereo.core.BufferConfig;
+import com.realstereo.core.StreamConnection;
+
+import java.io.IOException;
+import java.util.List;
+
+// Prueba varias URLs del stream en paralelo. Gana la primera que entrega audio
+// (la más rápida hasta el primer byte); si keepConnection, su conexión queda en
+// StreamPrewarmer para que StreamDataSource la adopte sin abrir otra. Todas las
+// medidas, también las que llegan después, actualizan las puntuaciones.
+public class EndpointProber {
+
+    private static final String TAG = "EndpointProber";
+    private static final int PROBE_BYTES = 16 * 1024;
+
+    public interface Callback {
+        // En el hilo del handler. winner es null si ninguna respondió a tiempo.
+        void onProbeFinished(String winner);
+    }
+
+    private final Handler handler;
+    private final BufferConfig config;
+    private final EndpointSelector selector;
+    private final boolean keepConnection;
+    private final Runnable timeoutRunnable = () -> finish(null);
+    private Callback callback;
+    private int pending;
+    private boolean finished = false;
+
+    public EndpointProber(Handler handler, BufferConfig config, EndpointSelector selector,
+                          boolean keepConnection) {
+        this.handler = handler;
+        this.config = config;
+        this.selector = selector;
+        this.keepConnection = keepConnection;
+    }
+
+    public void start(List<String> endpoints, Callback callback) {
+        synchronized (this) {
+            this.callback = callback;
+            pending = endpoints.size();
+        }
+        Log.d(TAG, "Probing " + endpoints.size() + " endpoints");
+
+        for (int i = 0; i < endpoints.size(); i++) {
+            String url = endpoints.get(i);
+            new Thread(() -> probe(url), "StreamProbe-" + i).start();
+        }
+        // Las pruebas lentas siguen y puntúan, pero no retrasan más el arranque
+        handler.postDelayed(timeoutRunnable, config.connectTimeoutMs);
+    }
+
+    // El servicio ya no espera el resultado (pausa, parada)
+    public synchronized void cancel() {
+        handler.removeCallbacks(timeoutRunnable);
+        finished = true;
+        callback = null;
+    }
+
+    private void probe(String url) {
+        long startMs = SystemClock.elapsedRealtime();
+        StreamConnection connection = null;
+        try {
+            connection = ConnectionLayer.get().open(config, url, StreamDataSource.REQUEST_HEADERS);
+            long connectMs = SystemClock.elapsedRealtime() - startMs;
+
+            byte[] buffer = new byte[PROBE_BYTES];
+            int read = connection.read(buffer, 0, buffer.length);
+            if (read <= 0) {
+                throw new IOException("No data");
+            }
+            DataUsageTracker.get().onBytesRead(read);
+            long firstByteMs = SystemClock.elapsedRealtime() - startMs;
+            Log.d(TAG, url + ": connect " + connectMs + "ms, first byte " + firstByteMs + "ms");
+            selector.recordSuccess(url, firstByteMs);
+
+            if (markFinished()) {
+                // Se entrega antes de avisar: el motor la reclamará al preparar
+                if (keepConnection) {
+                    StreamPrewarmer.get().adopt(url, connection, buffer, read);
+                    connection = null;
+                }
+                deliver(url);
+            }
+        } catch (IOException e) {
+            Log.d(TAG, "Probe failed for " + url + ": " + e.getMessage());
+            selector.recordFailure(url);
+            boolean allDone;
+            synchronized (this) {
+                allDone = --pending == 0;
+            }
+            if (allDone) {
+                finish(null);
+            }
+        } finally {
+            if (connection != null) {
+                connection.close();
+            }
+        }
+    }
+
+    private void finish(String winner) {
+        if (markFinished()) {
+            deliver(winner);
+        }
+    }
+
+    // Solo el primer resultado (ganador, fallo total o tiempo agotado) cuenta
+    private synchronized boolean markFinished() {
+        if (finished) {
+            return false;
+        }
+        finished = true;
+        return true;
+    }
+
+    private void deliver(String winner) {
+        handler.removeCallbacks(timeoutRunnable);
+        Callback target;
+        synchronized (this) {
+            target = callback;
+        }
+        if (target != null) {
+            handler.post(() -> target.onProbeFinished(winner));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.realstereo.dev;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Puntuación de cada URL del stream, guardada entre sesiones. La puntuación es la
+// latencia media hasta el primer byte más una penalización por fallos seguidos;
+// menor es mejor. Con puntuaciones iguales se respeta el orden que dio el plugin.
+public class EndpointSelector {
+
+    private static final String PREFS_NAME = "RealStereoEndpoints";
+    private static final String KEY_LATENCY_PREFIX = "latency:";
+    private static final String KEY_FAILURES_PREFIX = "failures:";
+
+    // Latencia supuesta para una URL que nunca se ha medido
+    private static final long UNKNOWN_LATENCY_MS = 1500;
+    private static final long FAILURE_PENALTY_MS = 5000;
+    private static final int MAX_FAILURES = 5;
+    // Peso de la última medida en la media móvil
+    private static final double LATENCY_WEIGHT = 0.3;
+
+    public static final class Score {
+        public final String url;
+        public final long latencyMs;
+        public final int failures;
+        public final long scoreMs;
+
+        Score(String url, long latencyMs, int failures) {
+            this.url = url;
+            this.latencyMs = latencyMs;
+            this.failures = failures;
+            this.scoreMs = latencyMs + failures * FAILURE_PENALTY_MS;
+        }
+    }
+
+    private final SharedPreferences prefs;
+
+    public EndpointSelector(Context context) {
+        prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public Score getScore(String url) {
+        return new Score(
+            url,
+            prefs.getLong(KEY_LATENCY_PREFIX + url, UNKNOWN_LATENCY_MS),
+            prefs.getInt(KEY_FAILURES_PREFIX + url, 0)
+        );
+    }
+
+    // Las URLs de mejor a peor; la ordenación es estable
+    public List<String> rank(List<String> endpoints) {
+        List<Score> scores = new ArrayList<>(endpoints.size());
+        for (String url : endpoints) {
+            scores.add(getScore(url));
+        }
+        Collections.sort(scores, (a, b) -> Long.compare(a.scoreMs, b.scoreMs));
+
+        List<String> ranked = new ArrayList<>(scores.size());
+        for (Score score : scores) {
+            ranked.add(score.url);
+        }
+        return ranked;
+    }
+
+    public String preferred(List<String> endpoints) {
+        return rank(endpoints).get(0);
+    }
+
+    // Siguiente URL tras la actual según la puntuación, volviendo al principio
+    public String next(List<String> endpoints, String current) {
+        List<String> ranked = rank(endpoints);
+        int index = ranked.indexOf(current);
+        return ranked.get((index + 1) % ranked.size());
+    }
+
+    public void recordSuccess(String url, long firstByteMs) {
+        long previous = prefs.getLong(KEY_LATENCY_PREFIX + url, -1);
+        long latency = previous < 0
+            ? firstByteMs
+            : Math.round(previous + LATENCY_WEIGHT * (firstByteMs - previous));
+        prefs.edit()
+            .putLong(KEY_LATENCY_PREFIX + url, latency)
+            .putInt(KEY_FAILURES_PREFIX + url, 0)
+            .apply();
+    }
+
+    public void recordFailure(String url) {
+        int failures = Math.min(MAX_FAILURES, prefs.getInt(KEY_FAILURES_PREFIX + url, 0) + 1);
+        prefs.edit().putInt(KEY_FAILURES_PREFIX + url, failures).apply();
+    }
+}
@@ -0,0 +1,107 @@
+package com.realstereo.dev;
+
+import android.net.Uri;
+
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.BaseDataSource;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
+
+import com.realstereo.core.HlsStream;
+
+import java.io.IOException;
+
+// Fuente de datos del modo HLS: los segmentos que HlsStream descarga en paralelo se
+// entregan a ExoPlayer seguidos, como un stream progresivo (TS/ADTS concatenados).
+// Todas las instancias de una preparación comparten el mismo HlsStream, así que si
+// ExoPlayer reabre tras un error se sigue donde se quedó. En una discontinuidad la
+// lectura termina (fin de este elemento) y se avisa a discontinuityListener, que
+// añade otro elemento sobre el mismo HlsStream con un extractor nuevo.
+@OptIn(markerClass = UnstableApi.class)
+public class HlsDataSource extends BaseDataSource {
+
+    public static final Uri URI = Uri.parse("hls://stream");
+
+    public static final class Factory implements DataSource.Factory {
+        private final HlsStream stream;
+        private final long readTimeoutMs;
+        private final Runnable firstByteListener;
+        // Desde el hilo de carga de ExoPlayer
+        private final Runnable discontinuityListener;
+
+        public Factory(HlsStream stream, long readTimeoutMs, Runnable firstByteListener,
+                       Runnable discontinuityListener) {
+            this.stream = stream;
+            this.readTimeoutMs = readTimeoutMs;
+            this.firstByteListener = firstByteListener;
+            this.discontinuityListener = discontinuityListener;
+        }
+
+        @Override
+        public DataSource createDataSource() {
+            return new HlsDataSource(this);
+        }
+    }
+
+    private final Factory factory;
+    private boolean opened = false;
+    private boolean firstByteReported = false;
+    // Tras una discontinuidad esta instancia ya no entrega más bytes
+    private boolean ended = false;
+
+    private HlsDataSource(Factory factory) {
+        super(true);
+        this.factory = factory;
+    }
+
+    @Override
+    public long open(DataSpec dataSpec) throws IOException {
+        transferInitializing(dataSpec);
+        opened = true;
+        firstByteReported = false;
+        transferStarted(dataSpec);
+        return C.LENGTH_UNSET;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (ended) {
+            return C.RESULT_END_OF_INPUT;
+        }
+
+        int read = factory.stream.read(buffer, offset, length, factory.readTimeoutMs);
+        if (read == HlsStream.DISCONTINUITY) {
+            ended = true;
+            factory.discontinuityListener.run();
+            return C.RESULT_END_OF_INPUT;
+        }
+        if (read == -1) {
+            return C.RESULT_END_OF_INPUT;
+        }
+        if (!firstByteReported) {
+            firstByteReported = true;
+            factory.firstByteListener.run();
+        }
+
+        bytesTransferred(read);
+        return read;
+    }
+
+    @Override
+    public Uri getUri() {
+        return opened ? URI : null;
+    }
+
+    @Override
+    public void close() {
+        if (opened) {
+            opened = false;
+            transferEnded();
+        }
+    }
+}
@@ -6,51 +6,114 @@ import android.content.pm.PackageManager;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.Trace;
 import android.util.Log;
+import android.webkit.WebView;
 
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import androidx.core.splashscreen.SplashScreen;
 
 import com.getcapacitor.BridgeActivity;
+import com.getcapacitor.WebViewListener;
 
 public class MainActivity extends BridgeActivity {
 
   private static final String TAG = "MainActivity";
+  // Si el WebView o el servicio tardan más, se quita el splash igualmente
+  private static final long MAX_SPLASH_MS = 2000;
+
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Runnable splashTimeoutRunnable = () -> splashTimedOut = true;
+  private boolean splashTimedOut = false;
+  private boolean splashDismissed = false;
+
+  private final WebViewListener webViewListener = new WebViewListener() {
+    @Override
+    public void onPageLoaded(WebView webView) {
+      if (!StartupTracker.get().mark(StartupTracker.WEBVIEW_PAGE_LOADED)) {
+        return;
+      }
+      // Avisa cuando lo cargado ya está listo para pintarse, no solo parseado
+      webView.postVisualStateCallback(0, new WebView.VisualStateCallback() {
+        @Override
+        public void onComplete(long requestId) {
+          StartupTracker.get().mark(StartupTracker.WEBVIEW_FIRST_PAINT);
+        }
+      });
+    }
+  };
 
   @Override
   public void onCreate(Bundle savedInstanceState) {
+    Trace.beginSection("MainActivity.onCreate");
+    StartupTracker.get().mark(StartupTracker.ACTIVITY_CREATED);
+
+    // El splash del sistema sigue hasta que la web pinta y el servicio conecta
+    SplashScreen splashScreen = SplashScreen.installSplashScreen(this);
+    splashScreen.setKeepOnScreenCondition(this::shouldKeepSplash);
+    handler.postDelayed(splashTimeoutRunnable, MAX_SPLASH_MS);
+
+    // Conectar al stream mientras se carga el WebView
+    prewarmStream();
+
+    // Capacitor solo registra los plugins añadidos antes de crear el bridge
+    registerPlugin(AudioServicePlugin.class);
     super.onCreate(savedInstanceState);
 
     Log.d(TAG, "MainActivity iniciada");
 
-    // Asegurar que el splash de Capacitor esté oculto
-    hideSplashScreen();
+    // Diagnóstico opcional: avisa del trabajo que aún bloquea este hilo
+    if (PlaybackSettings.isMainThreadWatchdogEnabled(this)) {
+      MainThreadWatchdog.get().setEnabled(true);
+    }
+
+    if (getBridge() != null) {
+      getBridge().addWebViewListener(webViewListener);
+    }
 
     // Pedir permiso de notificación
     requestNotificationPermission();
 
-    // Registrar el plugin
-    registerPlugin(AudioServicePlugin.class);
+    // El servicio reclama la conexión anticipada aunque aún no haya terminado
+    startAudioService();
+    Trace.endSection();
+  }
 
-    // RETRASAR el inicio del AudioService para evitar conflictos
-    Handler handler = new Handler(Looper.getMainLooper());
-    handler.postDelayed(new Runnable() {
-      @Override
-      public void run() {
-        startAudioService();
-      }
-    }, 1000); // Esperar 1 segundo después de que MainActivity esté lista
+  // Se consulta en cada frame mientras el splash está visible
+  private boolean shouldKeepSplash() {
+    if (splashDismissed) {
+      return false;
+    }
+    StartupTracker tracker = StartupTracker.get();
+    boolean ready = tracker.has(StartupTracker.WEBVIEW_FIRST_PAINT)
+      && tracker.has(StartupTracker.PLAYBACK_CONNECTING);
+    if (!ready && !splashTimedOut) {
+      return true;
+    }
+    splashDismissed = true;
+    handler.removeCallbacks(splashTimeoutRunnable);
+    tracker.markSplashDismissed(ready ? "ready" : "timeout");
+    return false;
   }
 
-  private void hideSplashScreen() {
-    try {
-      Class<?> splashScreenClass = Class.forName("com.capacitorjs.plugins.splashscreen.SplashScreen");
-      Object splashScreen = splashScreenClass.newInstance();
-      splashScreenClass.getMethod("hide").invoke(splashScreen);
-      Log.d(TAG, "Splash de Capacitor ocultado en MainActivity");
-    } catch (Exception e) {
-      Log.d(TAG, "No se pudo ocultar splash de Capacitor: " + e.getMessage());
+  private void prewarmStream() {
+    Trace.beginSection("MainActivity.prewarmStream");
+    ConnectionLayer.get().init(this);
+    // Una lista HLS no es un stream que se pueda dejar abierto a la espera
+    if (PlaybackSettings.isCurrentStationHls(this)) {
+      Trace.endSection();
+      return;
     }
+    String engine = PlaybackSettings.getEngine(this);
+    // Se calienta la URL mejor puntuada: es la que AudioService usará sin volver a probar
+    String url = new EndpointSelector(this).preferred(PlaybackSettings.getActiveEndpoints(this));
+    StreamPrewarmer.get().start(
+      url,
+      PlaybackSettings.getBufferConfig(this),
+      PlaybackSettings.ENGINE_BUFFERED.equals(engine)
+    );
+    Trace.endSection();
   }
 
   private void startAudioService() {
@@ -84,9 +147,11 @@ public class MainActivity extends BridgeActivity {
   }
 
   @Override
-  public void onResume() {
-    super.onResume();
-    // Asegurar que el splash esté oculto al volver a la app
-    hideSplashScreen();
+  public void onDestroy() {
+    handler.removeCallbacks(splashTimeoutRunnable);
+    if (getBridge() != null) {
+      getBridge().removeWebViewListener(webViewListener);
+    }
+    super.onDestroy();
   }
 }
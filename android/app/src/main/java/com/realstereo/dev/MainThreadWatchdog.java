@@ -0,0 +1,167 @@
+package com.realstereo.dev;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.StrictMode;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.Printer;
+
+// Modo de diagnóstico para encontrar trabajo que aún bloquea el hilo principal
+// (que comparte con el WebView). Activa StrictMode en ese hilo, mide cada mensaje
+// que despacha su Looper y, desde un hilo aparte, vuelca la pila del hilo principal
+// cuando deja de responder. Todo va al log con el tag MainThreadWatchdog.
+public final class MainThreadWatchdog {
+
+    private static final String TAG = "MainThreadWatchdog";
+    // Un mensaje que tarda más que esto ya se nota como salto en la UI
+    private static final long SLOW_DISPATCH_MS = 50;
+    private static final long STALL_CHECK_INTERVAL_MS = 1000;
+    private static final long STALL_MS = 500;
+
+    public static final class Stats {
+        public final boolean enabled;
+        public final long slowDispatches;
+        public final long worstDispatchMs;
+        public final String worstDispatch;
+        public final long stalls;
+
+        Stats(boolean enabled, long slowDispatches, long worstDispatchMs, String worstDispatch, long stalls) {
+            this.enabled = enabled;
+            this.slowDispatches = slowDispatches;
+            this.worstDispatchMs = worstDispatchMs;
+            this.worstDispatch = worstDispatch;
+            this.stalls = stalls;
+        }
+    }
+
+    private static final MainThreadWatchdog INSTANCE = new MainThreadWatchdog();
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private StrictMode.ThreadPolicy previousPolicy;
+    private Thread stallThread;
+    private volatile boolean enabled = false;
+    private volatile long lastTickAtMs;
+    private long slowDispatches = 0;
+    private long worstDispatchMs = 0;
+    private String worstDispatch;
+    private long stalls = 0;
+
+    // Solo lo usa el hilo principal (el Printer del Looper)
+    private long dispatchStartedAtMs = -1;
+    private final Printer dispatchPrinter = this::onDispatchLog;
+    private final Runnable tick = () -> lastTickAtMs = SystemClock.uptimeMillis();
+
+    private MainThreadWatchdog() {
+    }
+
+    public static MainThreadWatchdog get() {
+        return INSTANCE;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Solo desde el hilo principal: StrictMode se aplica al hilo que lo llama
+    public void setEnabled(boolean enable) {
+        if (enable == enabled) {
+            return;
+        }
+        if (enable) {
+            install();
+        } else {
+            uninstall();
+        }
+    }
+
+    private void install() {
+        previousPolicy = StrictMode.getThreadPolicy();
+        StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+            .detectDiskReads()
+            .detectDiskWrites()
+            .detectNetwork()
+            .detectCustomSlowCalls()
+            .penaltyLog()
+            .build());
+        Looper.getMainLooper().setMessageLogging(dispatchPrinter);
+
+        enabled = true;
+        lastTickAtMs = SystemClock.uptimeMillis();
+        stallThread = new Thread(this::watchStalls, "MainThreadWatchdog");
+        stallThread.setDaemon(true);
+        stallThread.start();
+        Log.i(TAG, "Main thread watchdog enabled");
+    }
+
+    private void uninstall() {
+        enabled = false;
+        if (stallThread != null) {
+            stallThread.interrupt();
+            stallThread = null;
+        }
+        Looper.getMainLooper().setMessageLogging(null);
+        dispatchStartedAtMs = -1;
+        if (previousPolicy != null) {
+            StrictMode.setThreadPolicy(previousPolicy);
+            previousPolicy = null;
+        }
+        Log.i(TAG, "Main thread watchdog disabled");
+    }
+
+    // El Looper escribe ">>>>> Dispatching to ..." antes de cada mensaje y
+    // "<<<<< Finished to ..." al terminar
+    private void onDispatchLog(String line) {
+        if (line.startsWith(">")) {
+            dispatchStartedAtMs = SystemClock.uptimeMillis();
+            return;
+        }
+        if (dispatchStartedAtMs < 0) {
+            return;
+        }
+        long elapsed = SystemClock.uptimeMillis() - dispatchStartedAtMs;
+        dispatchStartedAtMs = -1;
+        if (elapsed < SLOW_DISPATCH_MS) {
+            return;
+        }
+        Log.w(TAG, "Slow main thread message (" + elapsed + "ms): " + line);
+        synchronized (this) {
+            slowDispatches++;
+            if (elapsed > worstDispatchMs) {
+                worstDispatchMs = elapsed;
+                worstDispatch = line;
+            }
+        }
+    }
+
+    private void watchStalls() {
+        try {
+            while (enabled) {
+                long postedAtMs = SystemClock.uptimeMillis();
+                mainHandler.post(tick);
+                Thread.sleep(STALL_MS);
+                if (enabled && lastTickAtMs < postedAtMs) {
+                    reportStall();
+                }
+                Thread.sleep(STALL_CHECK_INTERVAL_MS - STALL_MS);
+            }
+        } catch (InterruptedException e) {
+            // Desactivado
+        }
+    }
+
+    private void reportStall() {
+        synchronized (this) {
+            stalls++;
+        }
+        StringBuilder trace = new StringBuilder("Main thread blocked for >" + STALL_MS + "ms at:");
+        for (StackTraceElement element : Looper.getMainLooper().getThread().getStackTrace()) {
+            trace.append("\n    at ").append(element);
+        }
+        Log.w(TAG, trace.toString());
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(enabled, slowDispatches, worstDispatchMs, worstDispatch, stalls);
+    }
+}
@@ -0,0 +1,130 @@
+package com.realstereo.dev;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.MediaPlayer;
+import android.util.Log;
+
+public class MediaPlayerEngine implements PlaybackEngine,
+    MediaPlayer.OnPreparedListener,
+    MediaPlayer.OnErrorListener,
+    MediaPlayer.OnInfoListener {
+
+    private static final String TAG = "MediaPlayerEngine";
+
+    private final MediaPlayer mediaPlayer;
+    private Listener listener;
+    private boolean isPrepared = false;
+    private boolean audioStarted = false;
+
+    public MediaPlayerEngine(Context context) {
+        mediaPlayer = new MediaPlayer();
+
+        AudioAttributes audioAttributes = new AudioAttributes.Builder()
+            .setUsage(AudioAttributes.USAGE_MEDIA)
+            .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
+            .build();
+        mediaPlayer.setAudioAttributes(audioAttributes);
+
+        mediaPlayer.setOnPreparedListener(this);
+        mediaPlayer.setOnErrorListener(this);
+        mediaPlayer.setOnInfoListener(this);
+        // Sin setWakeMode: los locks los gestiona PowerLockManager en AudioService
+    }
+
+    @Override
+    public String getName() {
+        return PlaybackSettings.ENGINE_MEDIA_PLAYER;
+    }
+
+    @Override
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void prepare(String url) throws Exception {
+        isPrepared = false;
+        audioStarted = false;
+        mediaPlayer.reset();
+        mediaPlayer.setDataSource(url);
+        mediaPlayer.prepareAsync();
+    }
+
+    @Override
+    public void start() {
+        // MediaPlayer lanza error si se llama start() antes de onPrepared
+        if (isPrepared && !mediaPlayer.isPlaying()) {
+            mediaPlayer.start();
+            // MediaPlayer no avisa cuando el audio llega a la salida: start() es lo más cercano
+            if (!audioStarted) {
+                audioStarted = true;
+                if (listener != null) {
+                    listener.onAudioStarted();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void pause() {
+        if (mediaPlayer.isPlaying()) {
+            mediaPlayer.pause();
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (mediaPlayer.isPlaying()) {
+            mediaPlayer.stop();
+        }
+        mediaPlayer.reset();
+        isPrepared = false;
+    }
+
+    @Override
+    public void release() {
+        stop();
+        mediaPlayer.release();
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return mediaPlayer.isPlaying();
+    }
+
+    @Override
+    public void setVolume(float volume) {
+        mediaPlayer.setVolume(volume, volume);
+    }
+
+    @Override
+    public void onPrepared(MediaPlayer mp) {
+        isPrepared = true;
+        if (listener != null) {
+            listener.onPrepared();
+        }
+    }
+
+    @Override
+    public boolean onError(MediaPlayer mp, int what, int extra) {
+        isPrepared = false;
+        if (listener != null) {
+            listener.onError(what, extra);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean onInfo(MediaPlayer mp, int what, int extra) {
+        Log.d(TAG, "MediaPlayer info: what=" + what + ", extra=" + extra);
+        if (listener != null) {
+            if (what == MediaPlayer.MEDIA_INFO_BUFFERING_START) {
+                listener.onBufferingStart();
+            } else if (what == MediaPlayer.MEDIA_INFO_BUFFERING_END) {
+                listener.onBufferingEnd();
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,180 @@
+package com.realstereo.dev;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+import android.os.Build;
+import android.os.Handler;
+import android.util.Log;
+
+import com.realstereo.core.NetworkTracker;
+import com.realstereo.core.NetworkType;
+
+// Sigue la conectividad con ConnectivityManager.NetworkCallback y avisa en el
+// hilo del handler indicado, también de los cambios de tipo de red (Wi-Fi, móvil)
+// y de si es de pago por uso.
+public class NetworkMonitor {
+
+    private static final String TAG = "NetworkMonitor";
+
+    public interface Listener {
+        void onNetworkAvailable();
+
+        void onNetworkLost();
+    }
+
+    public interface TypeListener {
+        void onNetworkTypeChanged(NetworkType type, boolean metered);
+    }
+
+    private final ConnectivityManager connectivityManager;
+    private final Handler handler;
+    private final Listener listener;
+    private final TypeListener typeListener;
+    // Android 7+ registra el callback de la red por defecto; antes, uno por petición
+    private final NetworkTracker<Network> tracker =
+        new NetworkTracker<>(Build.VERSION.SDK_INT >= Build.VERSION_CODES.N);
+    private boolean registered = false;
+    // Se leen desde el hilo del plugin
+    private volatile boolean online;
+    private volatile NetworkType networkType;
+    private volatile boolean metered;
+
+    private final ConnectivityManager.NetworkCallback callback = new ConnectivityManager.NetworkCallback() {
+        @Override
+        public void onAvailable(Network network) {
+            handler.post(() -> {
+                tracker.onAvailable(network);
+                if (!online) {
+                    online = true;
+                    Log.d(TAG, "Network available");
+                    listener.onNetworkAvailable();
+                }
+                refreshType();
+            });
+        }
+
+        @Override
+        public void onCapabilitiesChanged(Network network, NetworkCapabilities capabilities) {
+            handler.post(NetworkMonitor.this::refreshType);
+        }
+
+        @Override
+        public void onLost(Network network) {
+            handler.post(() -> {
+                if (tracker.onLost(network) && online) {
+                    online = false;
+                    Log.d(TAG, "Network lost");
+                    listener.onNetworkLost();
+                }
+                refreshType();
+            });
+        }
+    };
+
+    public NetworkMonitor(Context context, Handler handler, Listener listener, TypeListener typeListener) {
+        this.connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        this.handler = handler;
+        this.listener = listener;
+        this.typeListener = typeListener;
+        // Hasta el primer callback se asume el estado actual
+        this.online = connectivityManager == null || connectivityManager.getActiveNetwork() != null;
+        this.networkType = detectType();
+        this.metered = detectMetered();
+    }
+
+    private NetworkCapabilities activeCapabilities() {
+        if (!online || connectivityManager == null) {
+            return null;
+        }
+        Network active = connectivityManager.getActiveNetwork();
+        return active != null ? connectivityManager.getNetworkCapabilities(active) : null;
+    }
+
+    private NetworkType detectType() {
+        if (!online) {
+            return NetworkType.OFFLINE;
+        }
+        NetworkCapabilities capabilities = activeCapabilities();
+        if (capabilities == null) {
+            return NetworkType.OTHER;
+        }
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
+            return NetworkType.WIFI;
+        }
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
+            return NetworkType.CELLULAR;
+        }
+        return NetworkType.OTHER;
+    }
+
+    // Sin datos de la red se supone de pago: es el error barato
+    private boolean detectMetered() {
+        if (!online) {
+            return false;
+        }
+        NetworkCapabilities capabilities = activeCapabilities();
+        if (capabilities == null) {
+            return connectivityManager == null || connectivityManager.isActiveNetworkMetered();
+        }
+        return !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
+    }
+
+    private void refreshType() {
+        NetworkType type = detectType();
+        boolean isMetered = detectMetered();
+        if (type == networkType && isMetered == metered) {
+            return;
+        }
+        networkType = type;
+        metered = isMetered;
+        Log.d(TAG, "Network type: " + type + (isMetered ? " (metered)" : ""));
+        typeListener.onNetworkTypeChanged(type, isMetered);
+    }
+
+    public void register() {
+        if (registered || connectivityManager == null) {
+            return;
+        }
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+                connectivityManager.registerDefaultNetworkCallback(callback);
+            } else {
+                NetworkRequest request = new NetworkRequest.Builder()
+                    .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                    .build();
+                connectivityManager.registerNetworkCallback(request, callback);
+            }
+            registered = true;
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Could not register network callback", e);
+        }
+    }
+
+    public void unregister() {
+        if (!registered) {
+            return;
+        }
+        try {
+            connectivityManager.unregisterNetworkCallback(callback);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Network callback already unregistered", e);
+        }
+        registered = false;
+        tracker.clear();
+    }
+
+    public boolean isOnline() {
+        return online;
+    }
+
+    public NetworkType getNetworkType() {
+        return networkType;
+    }
+
+    public boolean isMetered() {
+        return metered;
+    }
+}
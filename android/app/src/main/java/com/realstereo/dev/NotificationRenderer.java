@@ -0,0 +1,202 @@
+package com.realstereo.dev;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.support.v4.media.session.MediaSessionCompat;
+
+import androidx.core.app.NotificationCompat;
+import androidx.media.app.NotificationCompat.MediaStyle;
+
+import com.realstereo.core.NowPlaying;
+import com.realstereo.core.PlaybackStatus;
+
+// Dibuja la notificación del servicio reutilizando el mismo Builder e intents.
+// Solo llama a NotificationManager.notify cuando cambia lo que se ve, y como mucho
+// una vez por MIN_UPDATE_INTERVAL_MS: en ráfagas de reconexión se publica el último estado.
+public class NotificationRenderer {
+
+    private static final long MIN_UPDATE_INTERVAL_MS = 1000;
+
+    // Lo que se muestra; si no cambia no hay nada que publicar
+    private static final class RenderState {
+        final String text;
+        final boolean showPause;
+
+        RenderState(String text, boolean showPause) {
+            this.text = text;
+            this.showPause = showPause;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof RenderState)) return false;
+            RenderState other = (RenderState) o;
+            return showPause == other.showPause && text.equals(other.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * text.hashCode() + (showPause ? 1 : 0);
+        }
+    }
+
+    private final NotificationManager manager;
+    private final Handler handler;
+    private final int notificationId;
+    private final NotificationCompat.Builder builder;
+    private final NotificationCompat.Action playAction;
+    private final NotificationCompat.Action pauseAction;
+    private final NotificationCompat.Action stopAction;
+    private final Runnable flushRunnable = this::flush;
+    private RenderState rendered;
+    private RenderState pending;
+    private Notification current;
+    private long lastNotifyAtMs = 0;
+
+    public NotificationRenderer(Context context, Handler handler, String channelId, int notificationId,
+                                String title, MediaSessionCompat.Token sessionToken) {
+        this.manager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        this.handler = handler;
+        this.notificationId = notificationId;
+
+        Intent notificationIntent = new Intent(context, MainActivity.class);
+        notificationIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+        PendingIntent contentIntent = PendingIntent.getActivity(context, 0, notificationIntent, pendingIntentFlags());
+
+        playAction = new NotificationCompat.Action(R.drawable.ic_play_arrow, "Reproducir",
+            serviceIntent(context, 1, "PLAY"));
+        pauseAction = new NotificationCompat.Action(R.drawable.ic_pause, "Pausar",
+            serviceIntent(context, 2, "PAUSE"));
+        stopAction = new NotificationCompat.Action(R.drawable.ic_stop, "Detener",
+            serviceIntent(context, 3, "STOP"));
+
+        builder = new NotificationCompat.Builder(context, channelId)
+            .setContentTitle(title)
+            .setSmallIcon(android.R.drawable.ic_media_play)
+            .setContentIntent(contentIntent)
+            .setOngoing(true)
+            .setShowWhen(false)
+            .setOnlyAlertOnce(true)
+            .setPriority(NotificationCompat.PRIORITY_LOW)
+            .setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
+            .setCategory(NotificationCompat.CATEGORY_TRANSPORT)
+            .setStyle(new MediaStyle()
+                .setMediaSession(sessionToken)
+                .setShowActionsInCompactView(0, 1));
+    }
+
+    private static int pendingIntentFlags() {
+        int flags = PendingIntent.FLAG_UPDATE_CURRENT;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            flags |= PendingIntent.FLAG_IMMUTABLE;
+        }
+        return flags;
+    }
+
+    // Las acciones llegan a onStartCommand, que ya entiende PLAY/PAUSE/STOP
+    private static PendingIntent serviceIntent(Context context, int requestCode, String action) {
+        Intent intent = new Intent(context, AudioService.class).setAction(action);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            return PendingIntent.getForegroundService(context, requestCode, intent, pendingIntentFlags());
+        }
+        return PendingIntent.getService(context, requestCode, intent, pendingIntentFlags());
+    }
+
+    private static RenderState stateFor(PlaybackStatus status, NowPlaying nowPlaying) {
+        switch (status) {
+            case PLAYING:
+                return new RenderState(nowPlaying.isEmpty()
+                    ? "🔴 EN VIVO - Radio reproduciéndose"
+                    : "🔴 " + nowPlaying.streamTitle, true);
+            case BUFFERING:
+                return new RenderState("⏳ Cargando...", true);
+            case RECONNECTING:
+                return new RenderState("⏳ Reconectando...", true);
+            case PAUSED:
+            case STOPPED:
+                return new RenderState("⏸ En pausa", false);
+            case ERROR:
+                return new RenderState("⚠️ Sin conexión", false);
+            case IDLE:
+            case CONNECTING:
+            default:
+                return new RenderState("⏳ Conectando...", true);
+        }
+    }
+
+    private Notification build(RenderState state) {
+        builder.setContentText(state.text)
+            .clearActions()
+            .addAction(state.showPause ? pauseAction : playAction)
+            .addAction(stopAction);
+        return builder.build();
+    }
+
+    // Notificación actual para startForeground(); no vuelve a construirla si ya existe
+    public synchronized Notification getCurrent(PlaybackStatus status, NowPlaying nowPlaying) {
+        if (current == null) {
+            rendered = stateFor(status, nowPlaying);
+            current = build(rendered);
+        }
+        return current;
+    }
+
+    // Al cambiar de emisora: se vuelve a publicar en el siguiente update()
+    public synchronized void setTitle(String title) {
+        builder.setContentTitle(title);
+        rendered = null;
+    }
+
+    // update() y flush() corren en el hilo de reproducción; getCurrent() en el principal
+    public synchronized void update(PlaybackStatus status, NowPlaying nowPlaying) {
+        RenderState state = stateFor(status, nowPlaying);
+        if (pending == null && state.equals(rendered)) {
+            return;
+        }
+
+        boolean alreadyScheduled = pending != null;
+        pending = state;
+        if (alreadyScheduled) {
+            return;
+        }
+
+        long wait = lastNotifyAtMs + MIN_UPDATE_INTERVAL_MS - SystemClock.elapsedRealtime();
+        if (wait <= 0) {
+            flush();
+        } else {
+            handler.postDelayed(flushRunnable, wait);
+        }
+    }
+
+    private synchronized void flush() {
+        handler.removeCallbacks(flushRunnable);
+        RenderState state = pending;
+        pending = null;
+        if (state == null || state.equals(rendered) || manager == null) {
+            return;
+        }
+
+        Trace.beginSection("NotificationRenderer.flush");
+        try {
+            current = build(state);
+            rendered = state;
+            lastNotifyAtMs = SystemClock.elapsedRealtime();
+            manager.notify(notificationId, current);
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    public synchronized void cancelPending() {
+        handler.removeCallbacks(flushRunnable);
+        pending = null;
+    }
+}
@@ -0,0 +1,76 @@
+package com.realstereo.dev;
+
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.audio.BaseAudioProcessor;
+import androidx.media3.common.util.UnstableApi;
+
+import com.realstereo.core.PcmChain;
+
+import java.nio.ByteBuffer;
+
+// Inserta la PcmChain entre el decodificador y AudioTrack. ExoPlayer llama a
+// queueInput() en su hilo de reproducción con PCM de 16 bits: se convierte a float
+// en un buffer que solo crece con el primer bloque de cada tamaño, se procesa y se
+// vuelve a 16 bits con saturación en el buffer de salida que recicla la clase base.
+@OptIn(markerClass = UnstableApi.class)
+public class PcmChainAudioProcessor extends BaseAudioProcessor {
+
+    private static final float SHORT_SCALE = 32768f;
+
+    private final PcmChain chain;
+    private float[] samples = new float[0];
+
+    public PcmChainAudioProcessor(PcmChain chain) {
+        this.chain = chain;
+    }
+
+    @Override
+    protected AudioFormat onConfigure(AudioFormat inputAudioFormat) throws UnhandledAudioFormatException {
+        if (inputAudioFormat.encoding != C.ENCODING_PCM_16BIT) {
+            throw new UnhandledAudioFormatException(inputAudioFormat);
+        }
+        chain.configure(inputAudioFormat.sampleRate, inputAudioFormat.channelCount);
+        return inputAudioFormat;
+    }
+
+    @Override
+    public void queueInput(ByteBuffer inputBuffer) {
+        int sampleCount = inputBuffer.remaining() / 2;
+        if (sampleCount == 0) {
+            return;
+        }
+        if (samples.length < sampleCount) {
+            samples = new float[sampleCount];
+        }
+        for (int i = 0; i < sampleCount; i++) {
+            samples[i] = inputBuffer.getShort() / SHORT_SCALE;
+        }
+
+        chain.process(samples, sampleCount / inputAudioFormat.channelCount);
+
+        ByteBuffer output = replaceOutputBuffer(sampleCount * 2);
+        for (int i = 0; i < sampleCount; i++) {
+            float value = samples[i] * SHORT_SCALE;
+            if (value > Short.MAX_VALUE) {
+                value = Short.MAX_VALUE;
+            } else if (value < Short.MIN_VALUE) {
+                value = Short.MIN_VALUE;
+            }
+            output.putShort((short) value);
+        }
+        output.flip();
+    }
+
+    // Salto o cambio de fuente: el audio nuevo no continúa al anterior
+    @Override
+    protected void onFlush() {
+        chain.reset();
+    }
+
+    @Override
+    protected void onReset() {
+        chain.reset();
+        samples = new float[0];
+    }
+}
@@ -0,0 +1,85 @@
+package com.realstereo.dev;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.realstereo.core.CommandCoalescer;
+import com.realstereo.core.PlaybackCommand;
+import com.realstereo.core.PlaybackStatus;
+
+// Cola única de órdenes de reproducción. Se puede llamar desde cualquier hilo (plugin,
+// MediaSession, foco de audio); todas se ejecutan en orden en el hilo del handler,
+// así el servicio nunca ve dos órdenes a la vez. Las ráfagas se juntan con
+// CommandCoalescer para no encadenar preparaciones que se descartan al momento.
+public class PlaybackCommandQueue {
+
+    private static final String TAG = "PlaybackCommandQueue";
+
+    public interface Executor {
+        // En el hilo del handler
+        void execute(PlaybackCommand command);
+    }
+
+    private final Handler handler;
+    private final Executor executor;
+    private final CommandCoalescer coalescer =
+        new CommandCoalescer(SystemClock::elapsedRealtime, CommandCoalescer.DEFAULT_WINDOW_MS);
+    private final Runnable flushRunnable = this::flush;
+    private volatile boolean closed = false;
+
+    public PlaybackCommandQueue(Handler handler, Executor executor) {
+        this.handler = handler;
+        this.executor = executor;
+    }
+
+    public void submit(PlaybackCommand command) {
+        if (closed) {
+            return;
+        }
+        handler.post(() -> offer(command));
+    }
+
+    private void offer(PlaybackCommand command) {
+        if (closed) {
+            return;
+        }
+        PlaybackCommand now = coalescer.offer(command);
+        if (now == null) {
+            Log.d(TAG, "Deferred " + command);
+            return;
+        }
+        run(now);
+    }
+
+    private void flush() {
+        if (closed) {
+            return;
+        }
+        PlaybackCommand command = coalescer.flush();
+        if (command != null) {
+            run(command);
+        }
+    }
+
+    private void run(PlaybackCommand command) {
+        handler.removeCallbacks(flushRunnable);
+        handler.postDelayed(flushRunnable, coalescer.getWindowMs());
+        executor.execute(command);
+    }
+
+    // Desde el hilo del handler, en cada transición y cuando una orden no cambia nada
+    public void onStatusChanged(PlaybackStatus status, boolean playRequested) {
+        coalescer.onStatusChanged(status, playRequested);
+    }
+
+    public long getCoalescedCount() {
+        return coalescer.getCoalescedCount();
+    }
+
+    // El servicio se destruye: las órdenes que queden se descartan
+    public void close() {
+        closed = true;
+        handler.removeCallbacks(flushRunnable);
+    }
+}
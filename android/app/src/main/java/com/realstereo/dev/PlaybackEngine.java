@@ -0,0 +1,48 @@
+package com.realstereo.dev;
+
+// Motor de reproducción que AudioService controla. Permite cambiar entre
+// MediaPlayer y el motor con buffer configurable sin tocar el servicio.
+public interface PlaybackEngine {
+
+    // Error propio para streams en vivo que terminan (el servidor cerró la conexión)
+    int ERROR_STREAM_ENDED = -1000;
+
+    interface Listener {
+        // Primer byte de audio recibido; solo lo emiten los motores que leen los bytes
+        void onFirstByte();
+
+        void onPrepared();
+
+        // El audio empezó a sonar por primera vez tras un prepare()
+        void onAudioStarted();
+
+        void onBufferingStart();
+
+        void onBufferingEnd();
+
+        void onError(int what, int extra);
+
+        // Título ICY del stream; solo lo emiten los motores que leen los bytes
+        void onStreamTitle(String streamTitle);
+    }
+
+    String getName();
+
+    void setListener(Listener listener);
+
+    // Preparación asíncrona: el listener recibe onPrepared() cuando hay audio suficiente
+    void prepare(String url) throws Exception;
+
+    void start();
+
+    void pause();
+
+    // Detiene y deja el motor listo para un nuevo prepare()
+    void stop();
+
+    void release();
+
+    boolean isPlaying();
+
+    void setVolume(float volume);
+}
@@ -0,0 +1,314 @@
+package com.realstereo.dev;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.text.TextUtils;
+
+import com.realstereo.core.BufferConfig;
+import com.realstereo.core.NetworkPolicy;
+import com.realstereo.core.Station;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Ajustes de reproducción persistidos para que el servicio los lea al crearse,
+// aunque el plugin los haya cambiado antes de enlazarse.
+public final class PlaybackSettings {
+
+    public static final String ENGINE_MEDIA_PLAYER = "mediaplayer";
+    public static final String ENGINE_BUFFERED = "buffered";
+    public static final String DEFAULT_STREAM_URL = "https://stream.zeno.fm/oa7brrybk0vuv";
+
+    private static final String PREFS_NAME = "RealStereoPlayback";
+    private static final String KEY_ENGINE = "engine";
+    private static final String KEY_INITIAL_BUFFER_MS = "initialBufferMs";
+    private static final String KEY_REBUFFER_MS = "rebufferMs";
+    private static final String KEY_MAX_BUFFER_BYTES = "maxBufferBytes";
+    private static final String KEY_CONNECT_TIMEOUT_MS = "connectTimeoutMs";
+    private static final String KEY_READ_TIMEOUT_MS = "readTimeoutMs";
+    private static final String KEY_STREAM_ENDPOINTS = "streamEndpoints";
+    private static final String KEY_TIME_SHIFT_ENABLED = "timeShiftEnabled";
+    private static final String KEY_TIME_SHIFT_WINDOW_MINUTES = "timeShiftWindowMinutes";
+    private static final String KEY_MAIN_THREAD_WATCHDOG = "mainThreadWatchdog";
+    private static final String KEY_LOUDNESS_NORMALIZATION = "loudnessNormalization";
+    private static final String KEY_DATA_POLICY = "dataPolicy";
+    private static final String KEY_STATION_CATALOG = "stationCatalog";
+    private static final String KEY_CURRENT_STATION = "currentStation";
+    private static final String KEY_STATION_SWITCHES = "stationSwitches";
+    private static final String KEY_STANDBY_ENABLED = "standbyEnabled";
+    private static final String KEY_STANDBY_MAX_BYTES = "standbyMaxBytes";
+    private static final String KEY_STANDBY_MAX_KBPS = "standbyMaxKbps";
+    private static final String KEY_HLS_LIVE_EDGE_MS = "hlsLiveEdgeMs";
+    private static final String KEY_HLS_PREFETCH_SEGMENTS = "hlsPrefetchSegments";
+
+    public static final int DEFAULT_TIME_SHIFT_WINDOW_MINUTES = 30;
+    public static final int MAX_TIME_SHIFT_WINDOW_MINUTES = 120;
+    // Unos 8 s de un stream de 128 kbps: basta para empezar a sonar al cambiar
+    public static final int DEFAULT_STANDBY_MAX_BYTES = 128 * 1024;
+    public static final int MIN_STANDBY_MAX_BYTES = 16 * 1024;
+    public static final int MAX_STANDBY_MAX_BYTES = 2 * 1024 * 1024;
+    // HLS: distancia al directo al empezar (0 = el último segmento) y segmentos en paralelo
+    public static final int DEFAULT_HLS_LIVE_EDGE_MS = 12000;
+    public static final int MAX_HLS_LIVE_EDGE_MS = 60000;
+    public static final int DEFAULT_HLS_PREFETCH_SEGMENTS = 3;
+    public static final int MAX_HLS_PREFETCH_SEGMENTS = 6;
+
+    private PlaybackSettings() {
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static boolean isValidEngine(String engine) {
+        return ENGINE_MEDIA_PLAYER.equals(engine) || ENGINE_BUFFERED.equals(engine);
+    }
+
+    public static String getEngine(Context context) {
+        String engine = prefs(context).getString(KEY_ENGINE, ENGINE_BUFFERED);
+        return isValidEngine(engine) ? engine : ENGINE_BUFFERED;
+    }
+
+    public static void setEngine(Context context, String engine) {
+        if (!isValidEngine(engine)) {
+            throw new IllegalArgumentException("Unknown engine: " + engine);
+        }
+        prefs(context).edit().putString(KEY_ENGINE, engine).apply();
+    }
+
+    public static BufferConfig getBufferConfig(Context context) {
+        SharedPreferences prefs = prefs(context);
+        try {
+            return new BufferConfig(
+                prefs.getInt(KEY_INITIAL_BUFFER_MS, BufferConfig.DEFAULT_INITIAL_BUFFER_MS),
+                prefs.getInt(KEY_REBUFFER_MS, BufferConfig.DEFAULT_REBUFFER_MS),
+                prefs.getInt(KEY_MAX_BUFFER_BYTES, BufferConfig.DEFAULT_MAX_BUFFER_BYTES),
+                prefs.getInt(KEY_CONNECT_TIMEOUT_MS, BufferConfig.DEFAULT_CONNECT_TIMEOUT_MS),
+                prefs.getInt(KEY_READ_TIMEOUT_MS, BufferConfig.DEFAULT_READ_TIMEOUT_MS)
+            );
+        } catch (IllegalArgumentException e) {
+            return BufferConfig.defaults();
+        }
+    }
+
+    public static void setBufferConfig(Context context, BufferConfig config) {
+        prefs(context).edit()
+            .putInt(KEY_INITIAL_BUFFER_MS, config.initialBufferMs)
+            .putInt(KEY_REBUFFER_MS, config.rebufferMs)
+            .putInt(KEY_MAX_BUFFER_BYTES, config.maxBufferBytes)
+            .putInt(KEY_CONNECT_TIMEOUT_MS, config.connectTimeoutMs)
+            .putInt(KEY_READ_TIMEOUT_MS, config.readTimeoutMs)
+            .apply();
+    }
+
+    public static boolean isValidEndpoint(String url) {
+        return url != null && (url.startsWith("http://") || url.startsWith("https://"));
+    }
+
+    // URLs del stream en el orden de preferencia que dio el plugin; nunca vacía
+    public static List<String> getStreamEndpoints(Context context) {
+        String stored = prefs(context).getString(KEY_STREAM_ENDPOINTS, null);
+        if (TextUtils.isEmpty(stored)) {
+            return Collections.singletonList(DEFAULT_STREAM_URL);
+        }
+        List<String> endpoints = new ArrayList<>();
+        for (String url : stored.split("\n")) {
+            if (isValidEndpoint(url)) {
+                endpoints.add(url);
+            }
+        }
+        return endpoints.isEmpty() ? Collections.singletonList(DEFAULT_STREAM_URL) : endpoints;
+    }
+
+    public static void setStreamEndpoints(Context context, List<String> endpoints) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("At least one endpoint is required");
+        }
+        for (String url : endpoints) {
+            if (!isValidEndpoint(url)) {
+                throw new IllegalArgumentException("Invalid endpoint: " + url);
+            }
+        }
+        prefs(context).edit().putString(KEY_STREAM_ENDPOINTS, TextUtils.join("\n", endpoints)).apply();
+    }
+
+    // Solo tiene efecto con el motor con buffer
+    public static boolean isTimeShiftEnabled(Context context) {
+        return prefs(context).getBoolean(KEY_TIME_SHIFT_ENABLED, false);
+    }
+
+    public static int getTimeShiftWindowMinutes(Context context) {
+        int minutes = prefs(context).getInt(KEY_TIME_SHIFT_WINDOW_MINUTES, DEFAULT_TIME_SHIFT_WINDOW_MINUTES);
+        return minutes >= 1 && minutes <= MAX_TIME_SHIFT_WINDOW_MINUTES ? minutes : DEFAULT_TIME_SHIFT_WINDOW_MINUTES;
+    }
+
+    public static void setTimeShift(Context context, boolean enabled, int windowMinutes) {
+        if (windowMinutes < 1 || windowMinutes > MAX_TIME_SHIFT_WINDOW_MINUTES) {
+            throw new IllegalArgumentException("windowMinutes must be between 1 and " + MAX_TIME_SHIFT_WINDOW_MINUTES);
+        }
+        prefs(context).edit()
+            .putBoolean(KEY_TIME_SHIFT_ENABLED, enabled)
+            .putInt(KEY_TIME_SHIFT_WINDOW_MINUTES, windowMinutes)
+            .apply();
+    }
+
+    // Diagnóstico: MainThreadWatchdog desde el arranque de la app
+    public static boolean isMainThreadWatchdogEnabled(Context context) {
+        return prefs(context).getBoolean(KEY_MAIN_THREAD_WATCHDOG, false);
+    }
+
+    public static void setMainThreadWatchdogEnabled(Context context, boolean enabled) {
+        prefs(context).edit().putBoolean(KEY_MAIN_THREAD_WATCHDOG, enabled).apply();
+    }
+
+    // Solo tiene efecto con el motor con buffer, que es el que procesa el PCM
+    public static boolean isLoudnessNormalizationEnabled(Context context) {
+        return prefs(context).getBoolean(KEY_LOUDNESS_NORMALIZATION, true);
+    }
+
+    public static void setLoudnessNormalizationEnabled(Context context, boolean enabled) {
+        prefs(context).edit().putBoolean(KEY_LOUDNESS_NORMALIZATION, enabled).apply();
+    }
+
+    public static NetworkPolicy.Mode getDataPolicyMode(Context context) {
+        NetworkPolicy.Mode mode = NetworkPolicy.Mode.fromKey(
+            prefs(context).getString(KEY_DATA_POLICY, NetworkPolicy.Mode.AUTO.name()));
+        return mode != null ? mode : NetworkPolicy.Mode.AUTO;
+    }
+
+    public static void setDataPolicyMode(Context context, NetworkPolicy.Mode mode) {
+        prefs(context).edit().putString(KEY_DATA_POLICY, mode.name()).apply();
+    }
+
+    // Emisoras en el orden que dio el plugin, una por línea: "id\tnombre\tfuente\turl\turl...".
+    // Las guardadas antes de existir la fuente no la llevan y son progresivas
+    public static List<Station> getStationCatalog(Context context) {
+        String stored = prefs(context).getString(KEY_STATION_CATALOG, null);
+        List<Station> catalog = new ArrayList<>();
+        if (TextUtils.isEmpty(stored)) {
+            return catalog;
+        }
+        for (String line : stored.split("\n")) {
+            String[] fields = line.split("\t");
+            if (fields.length < 3) {
+                continue;
+            }
+            Station.Source source = isValidEndpoint(fields[2]) ? Station.Source.PROGRESSIVE
+                : Station.Source.fromKey(fields[2]);
+            List<String> endpoints = new ArrayList<>();
+            for (int i = 2; i < fields.length; i++) {
+                if (isValidEndpoint(fields[i])) {
+                    endpoints.add(fields[i]);
+                }
+            }
+            if (!endpoints.isEmpty()) {
+                catalog.add(new Station(fields[0], fields[1], endpoints, source));
+            }
+        }
+        return catalog;
+    }
+
+    public static void setStationCatalog(Context context, List<Station> catalog) {
+        List<String> lines = new ArrayList<>();
+        for (Station station : catalog) {
+            if (hasSeparator(station.id) || hasSeparator(station.name)) {
+                throw new IllegalArgumentException("Invalid characters in station " + station.id);
+            }
+            for (String url : station.endpoints) {
+                if (!isValidEndpoint(url) || hasSeparator(url)) {
+                    throw new IllegalArgumentException("Invalid endpoint: " + url);
+                }
+            }
+            lines.add(station.id + "\t" + station.name + "\t" + station.source.name() + "\t"
+                + TextUtils.join("\t", station.endpoints));
+        }
+        prefs(context).edit().putString(KEY_STATION_CATALOG, TextUtils.join("\n", lines)).apply();
+    }
+
+    private static boolean hasSeparator(String value) {
+        return value.indexOf('\t') >= 0 || value.indexOf('\n') >= 0;
+    }
+
+    // null si no hay catálogo o la emisora guardada ya no está en él
+    public static Station getCurrentStation(Context context) {
+        String id = prefs(context).getString(KEY_CURRENT_STATION, null);
+        return id != null ? Station.find(getStationCatalog(context), id) : null;
+    }
+
+    public static void setCurrentStationId(Context context, String id) {
+        prefs(context).edit().putString(KEY_CURRENT_STATION, id).apply();
+    }
+
+    // URLs de la emisora elegida; sin catálogo, las de setStreamEndpoints
+    public static List<String> getActiveEndpoints(Context context) {
+        Station station = getCurrentStation(context);
+        return station != null ? station.endpoints : getStreamEndpoints(context);
+    }
+
+    // HLS solo con una emisora del catálogo marcada como tal
+    public static boolean isCurrentStationHls(Context context) {
+        Station station = getCurrentStation(context);
+        return station != null && station.isHls();
+    }
+
+    public static String getStationSwitches(Context context) {
+        return prefs(context).getString(KEY_STATION_SWITCHES, null);
+    }
+
+    public static void setStationSwitches(Context context, String serialized) {
+        prefs(context).edit().putString(KEY_STATION_SWITCHES, serialized).apply();
+    }
+
+    public static boolean isStandbyEnabled(Context context) {
+        return prefs(context).getBoolean(KEY_STANDBY_ENABLED, true);
+    }
+
+    public static int getStandbyMaxBytes(Context context) {
+        int bytes = prefs(context).getInt(KEY_STANDBY_MAX_BYTES, DEFAULT_STANDBY_MAX_BYTES);
+        return bytes >= MIN_STANDBY_MAX_BYTES && bytes <= MAX_STANDBY_MAX_BYTES ? bytes : DEFAULT_STANDBY_MAX_BYTES;
+    }
+
+    // 0 = sin límite
+    public static int getStandbyMaxKbps(Context context) {
+        return Math.max(0, prefs(context).getInt(KEY_STANDBY_MAX_KBPS, 0));
+    }
+
+    public static void setStandbyConfig(Context context, boolean enabled, int maxBytes, int maxKbps) {
+        if (maxBytes < MIN_STANDBY_MAX_BYTES || maxBytes > MAX_STANDBY_MAX_BYTES) {
+            throw new IllegalArgumentException("maxBytes must be between " + MIN_STANDBY_MAX_BYTES
+                + " and " + MAX_STANDBY_MAX_BYTES);
+        }
+        if (maxKbps < 0) {
+            throw new IllegalArgumentException("maxKbps must be >= 0");
+        }
+        prefs(context).edit()
+            .putBoolean(KEY_STANDBY_ENABLED, enabled)
+            .putInt(KEY_STANDBY_MAX_BYTES, maxBytes)
+            .putInt(KEY_STANDBY_MAX_KBPS, maxKbps)
+            .apply();
+    }
+
+    public static int getHlsLiveEdgeMs(Context context) {
+        int ms = prefs(context).getInt(KEY_HLS_LIVE_EDGE_MS, DEFAULT_HLS_LIVE_EDGE_MS);
+        return ms >= 0 && ms <= MAX_HLS_LIVE_EDGE_MS ? ms : DEFAULT_HLS_LIVE_EDGE_MS;
+    }
+
+    public static int getHlsPrefetchSegments(Context context) {
+        int segments = prefs(context).getInt(KEY_HLS_PREFETCH_SEGMENTS, DEFAULT_HLS_PREFETCH_SEGMENTS);
+        return segments >= 1 && segments <= MAX_HLS_PREFETCH_SEGMENTS ? segments : DEFAULT_HLS_PREFETCH_SEGMENTS;
+    }
+
+    public static void setHlsConfig(Context context, int liveEdgeMs, int prefetchSegments) {
+        if (liveEdgeMs < 0 || liveEdgeMs > MAX_HLS_LIVE_EDGE_MS) {
+            throw new IllegalArgumentException("liveEdgeMs must be between 0 and " + MAX_HLS_LIVE_EDGE_MS);
+        }
+        if (prefetchSegments < 1 || prefetchSegments > MAX_HLS_PREFETCH_SEGMENTS) {
+            throw new IllegalArgumentException("prefetchSegments must be between 1 and " + MAX_HLS_PREFETCH_SEGMENTS);
+        }
+        prefs(context).edit()
+            .putInt(KEY_HLS_LIVE_EDGE_MS, liveEdgeMs)
+            .putInt(KEY_HLS_PREFETCH_SEGMENTS, prefetchSegments)
+            .apply();
+    }
+}
@@ -0,0 +1,176 @@
+package com.realstereo.dev;
+
+import android.content.Context;
+import android.net.wifi.WifiManager;
+import android.os.Handler;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+// Único dueño de los locks de CPU y Wi-Fi. Se mantienen solo mientras el pipeline
+// está llenando o vaciando el buffer; al pausar o detener se sueltan tras un margen
+// corto (por si el usuario reanuda enseguida). Lleva la cuenta del tiempo retenido.
+public class PowerLockManager {
+
+    private static final String TAG = "PowerLockManager";
+    private static final long RELEASE_GRACE_MS = 5000;
+
+    public static final class Stats {
+        public final long sessionDurationMs;
+        public final long sessionCpuLockMs;
+        public final long sessionWifiLockMs;
+        public final long totalCpuLockMs;
+        public final long totalWifiLockMs;
+        public final boolean cpuLockHeld;
+        public final boolean wifiLockHeld;
+
+        Stats(long sessionDurationMs, long sessionCpuLockMs, long sessionWifiLockMs,
+              long totalCpuLockMs, long totalWifiLockMs, boolean cpuLockHeld, boolean wifiLockHeld) {
+            this.sessionDurationMs = sessionDurationMs;
+            this.sessionCpuLockMs = sessionCpuLockMs;
+            this.sessionWifiLockMs = sessionWifiLockMs;
+            this.totalCpuLockMs = totalCpuLockMs;
+            this.totalWifiLockMs = totalWifiLockMs;
+            this.cpuLockHeld = cpuLockHeld;
+            this.wifiLockHeld = wifiLockHeld;
+        }
+    }
+
+    private final Handler handler;
+    private final PowerManager.WakeLock wakeLock;
+    private final WifiManager.WifiLock wifiLock;
+    private final Runnable releaseRunnable = this::releaseNow;
+
+    private boolean wantCpu = false;
+    private boolean wantWifi = false;
+    private long cpuHeldSinceMs = -1;
+    private long wifiHeldSinceMs = -1;
+    private long sessionStartMs = -1;
+    private long sessionEndMs = -1;
+    private long sessionCpuLockMs = 0;
+    private long sessionWifiLockMs = 0;
+    private long totalCpuLockMs = 0;
+    private long totalWifiLockMs = 0;
+
+    public PowerLockManager(Context context, Handler handler) {
+        this.handler = handler;
+
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        if (powerManager != null) {
+            wakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "RealStereo::AudioWakeLock");
+            wakeLock.setReferenceCounted(false);
+        } else {
+            wakeLock = null;
+        }
+
+        WifiManager wifiManager = (WifiManager) context.getApplicationContext().getSystemService(Context.WIFI_SERVICE);
+        if (wifiManager != null) {
+            wifiLock = wifiManager.createWifiLock(WifiManager.WIFI_MODE_FULL_HIGH_PERF, "RealStereo::AudioWifiLock");
+            wifiLock.setReferenceCounted(false);
+        } else {
+            wifiLock = null;
+        }
+    }
+
+    // Indica qué necesita ahora el pipeline. Adquirir es inmediato; soltar espera el margen.
+    public synchronized void update(boolean needCpu, boolean needWifi) {
+        wantCpu = needCpu;
+        wantWifi = needWifi;
+
+        if (needCpu) {
+            acquireCpu();
+        }
+        if (needWifi) {
+            acquireWifi();
+        }
+
+        boolean releasePending = (!needCpu && cpuHeldSinceMs >= 0) || (!needWifi && wifiHeldSinceMs >= 0);
+        handler.removeCallbacks(releaseRunnable);
+        if (releasePending) {
+            handler.postDelayed(releaseRunnable, RELEASE_GRACE_MS);
+        }
+    }
+
+    private void acquireCpu() {
+        if (wakeLock != null && cpuHeldSinceMs < 0) {
+            // Sin timeout: se suelta explícitamente al pausar, detener o destruir el servicio
+            wakeLock.acquire();
+            cpuHeldSinceMs = SystemClock.elapsedRealtime();
+            Log.d(TAG, "CPU lock acquired");
+        }
+    }
+
+    private void acquireWifi() {
+        if (wifiLock != null && wifiHeldSinceMs < 0) {
+            wifiLock.acquire();
+            wifiHeldSinceMs = SystemClock.elapsedRealtime();
+            Log.d(TAG, "Wi-Fi lock acquired");
+        }
+    }
+
+    // Suelta lo que ya no se necesita
+    private synchronized void releaseNow() {
+        long now = SystemClock.elapsedRealtime();
+        if (!wantCpu && cpuHeldSinceMs >= 0) {
+            long held = now - cpuHeldSinceMs;
+            sessionCpuLockMs += held;
+            totalCpuLockMs += held;
+            cpuHeldSinceMs = -1;
+            if (wakeLock.isHeld()) {
+                wakeLock.release();
+            }
+            Log.d(TAG, "CPU lock released after " + held + "ms");
+        }
+        if (!wantWifi && wifiHeldSinceMs >= 0) {
+            long held = now - wifiHeldSinceMs;
+            sessionWifiLockMs += held;
+            totalWifiLockMs += held;
+            wifiHeldSinceMs = -1;
+            if (wifiLock.isHeld()) {
+                wifiLock.release();
+            }
+            Log.d(TAG, "Wi-Fi lock released after " + held + "ms");
+        }
+    }
+
+    // Suelta todo sin margen (onDestroy)
+    public synchronized void releaseAll() {
+        handler.removeCallbacks(releaseRunnable);
+        wantCpu = false;
+        wantWifi = false;
+        releaseNow();
+    }
+
+    public synchronized void startSession() {
+        sessionStartMs = SystemClock.elapsedRealtime();
+        sessionEndMs = -1;
+        sessionCpuLockMs = 0;
+        sessionWifiLockMs = 0;
+    }
+
+    public synchronized void endSession() {
+        if (sessionStartMs >= 0 && sessionEndMs < 0) {
+            sessionEndMs = SystemClock.elapsedRealtime();
+        }
+    }
+
+    // Se llama desde el hilo del plugin
+    public synchronized Stats getStats() {
+        long now = SystemClock.elapsedRealtime();
+        long cpuRunning = cpuHeldSinceMs >= 0 ? now - cpuHeldSinceMs : 0;
+        long wifiRunning = wifiHeldSinceMs >= 0 ? now - wifiHeldSinceMs : 0;
+        long sessionDuration = 0;
+        if (sessionStartMs >= 0) {
+            sessionDuration = (sessionEndMs >= 0 ? sessionEndMs : now) - sessionStartMs;
+        }
+        return new Stats(
+            sessionDuration,
+            sessionCpuLockMs + cpuRunning,
+            sessionWifiLockMs + wifiRunning,
+            totalCpuLockMs + cpuRunning,
+            totalWifiLockMs + wifiRunning,
+            cpuHeldSinceMs >= 0,
+            wifiHeldSinceMs >= 0
+        );
+    }
+}
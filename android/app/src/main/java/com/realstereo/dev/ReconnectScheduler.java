@@ -0,0 +1,138 @@
+package com.realstereo.dev;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.realstereo.core.BackoffPolicy;
+
+// Programa reconexiones con espera exponencial. Solo hay un intento pendiente a la
+// vez y todo ocurre en un único Handler. Sin red no se reintenta: se espera a que
+// NetworkMonitor avise y entonces se reconecta de inmediato.
+public class ReconnectScheduler implements NetworkMonitor.Listener {
+
+    private static final String TAG = "ReconnectScheduler";
+
+    public enum State {
+        IDLE,
+        SCHEDULED,
+        WAITING_FOR_NETWORK,
+        RECONNECTING
+    }
+
+    private final Handler handler;
+    private BackoffPolicy policy;
+    private final Runnable reconnectAction;
+    private final Runnable attemptRunnable = this::runAttempt;
+    private NetworkMonitor networkMonitor;
+    // Se leen desde el hilo del plugin
+    private volatile State state = State.IDLE;
+    private volatile int attempts = 0;
+    private long scheduledAtMs = 0;
+    private long scheduledDelayMs = 0;
+
+    public ReconnectScheduler(Handler handler, BackoffPolicy policy, Runnable reconnectAction) {
+        this.handler = handler;
+        this.policy = policy;
+        this.reconnectAction = reconnectAction;
+    }
+
+    // Cambia con el tipo de red; el intento ya programado conserva su espera
+    public void setBackoffPolicy(BackoffPolicy policy) {
+        this.policy = policy;
+    }
+
+    public void setNetworkMonitor(NetworkMonitor networkMonitor) {
+        this.networkMonitor = networkMonitor;
+    }
+
+    private boolean isOnline() {
+        return networkMonitor == null || networkMonitor.isOnline();
+    }
+
+    // Llamar tras cada error de reproducción
+    public void onPlaybackFailed() {
+        if (state == State.SCHEDULED || state == State.WAITING_FOR_NETWORK) {
+            // Ya hay un intento pendiente: no se acumulan
+            return;
+        }
+
+        if (!isOnline()) {
+            Log.d(TAG, "Offline, waiting for network before reconnecting");
+            state = State.WAITING_FOR_NETWORK;
+            return;
+        }
+
+        scheduledDelayMs = policy.delayForAttempt(attempts);
+        scheduledAtMs = SystemClock.elapsedRealtime();
+        state = State.SCHEDULED;
+        handler.postDelayed(attemptRunnable, scheduledDelayMs);
+        Log.d(TAG, "Reconnect attempt " + (attempts + 1) + " in " + scheduledDelayMs + "ms");
+    }
+
+    // El intento conectó: deja de estar en curso, pero la espera sigue creciendo hasta
+    // que onPlaybackRecovered() confirme que la conexión aguanta
+    public void onAttemptConnected() {
+        if (state == State.RECONNECTING) {
+            state = State.IDLE;
+        }
+    }
+
+    // La reproducción lleva un rato sonando sin cortes: se reinicia la espera
+    public void onPlaybackRecovered() {
+        handler.removeCallbacks(attemptRunnable);
+        if (attempts > 0) {
+            Log.d(TAG, "Playback recovered after " + attempts + " attempts");
+        }
+        attempts = 0;
+        state = State.IDLE;
+    }
+
+    // El usuario pausó o detuvo: nada que reintentar
+    public void cancel() {
+        handler.removeCallbacks(attemptRunnable);
+        attempts = 0;
+        state = State.IDLE;
+    }
+
+    private void runAttempt() {
+        handler.removeCallbacks(attemptRunnable);
+        attempts++;
+        state = State.RECONNECTING;
+        Log.d(TAG, "Reconnecting (attempt " + attempts + ")");
+        reconnectAction.run();
+    }
+
+    @Override
+    public void onNetworkAvailable() {
+        if (state == State.WAITING_FOR_NETWORK || state == State.SCHEDULED) {
+            Log.d(TAG, "Network back, reconnecting now");
+            runAttempt();
+        }
+    }
+
+    @Override
+    public void onNetworkLost() {
+        if (state == State.SCHEDULED) {
+            handler.removeCallbacks(attemptRunnable);
+            state = State.WAITING_FOR_NETWORK;
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    // Milisegundos hasta el próximo intento, o -1 si no hay ninguno programado
+    public long getNextAttemptInMs() {
+        if (state != State.SCHEDULED) {
+            return -1;
+        }
+        long elapsed = SystemClock.elapsedRealtime() - scheduledAtMs;
+        return Math.max(0, scheduledDelayMs - elapsed);
+    }
+}
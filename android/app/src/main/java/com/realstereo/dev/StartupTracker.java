@@ -0,0 +1,84 @@
+package com.realstereo.dev;
+
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Marcas de tiempo del arranque en frío, en ms desde que arrancó el proceso (desde
+// que se cargó esta clase antes de Android 7). Cada marca se guarda solo la primera
+// vez: un segundo onCreate o una reconexión no la mueven. El plugin las lee con
+// getStartupReport y en Perfetto aparece la sección asíncrona "startup".
+public final class StartupTracker {
+
+    private static final String TAG = "StartupTracker";
+    private static final String TRACE_SECTION = "startup";
+    private static final int TRACE_COOKIE = 1;
+
+    public static final String ACTIVITY_CREATED = "activityCreated";
+    public static final String SERVICE_CREATED = "serviceCreated";
+    public static final String SERVICE_BOUND = "serviceBound";
+    public static final String PLAYBACK_CONNECTING = "playbackConnecting";
+    public static final String WEBVIEW_PAGE_LOADED = "webViewPageLoaded";
+    public static final String WEBVIEW_FIRST_PAINT = "webViewFirstPaint";
+    public static final String SPLASH_DISMISSED = "splashDismissed";
+    public static final String FIRST_AUDIO = "firstAudio";
+
+    private static final StartupTracker INSTANCE = new StartupTracker();
+
+    private final long originMs;
+    private final Map<String, Long> marks = new LinkedHashMap<>();
+    private String splashDismissReason;
+
+    private StartupTracker() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            originMs = Process.getStartElapsedRealtime();
+        } else {
+            originMs = SystemClock.elapsedRealtime();
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(TRACE_SECTION, TRACE_COOKIE);
+        }
+    }
+
+    public static StartupTracker get() {
+        return INSTANCE;
+    }
+
+    // Devuelve false si la marca ya existía
+    public synchronized boolean mark(String name) {
+        if (marks.containsKey(name)) {
+            return false;
+        }
+        long atMs = SystemClock.elapsedRealtime() - originMs;
+        marks.put(name, atMs);
+        Log.d(TAG, name + " at " + atMs + "ms");
+        return true;
+    }
+
+    public synchronized boolean has(String name) {
+        return marks.containsKey(name);
+    }
+
+    // reason: "ready" si llegaron las señales, "timeout" si venció la espera
+    public synchronized void markSplashDismissed(String reason) {
+        if (mark(SPLASH_DISMISSED)) {
+            splashDismissReason = reason;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                Trace.endAsyncSection(TRACE_SECTION, TRACE_COOKIE);
+            }
+        }
+    }
+
+    public synchronized String getSplashDismissReason() {
+        return splashDismissReason;
+    }
+
+    public synchronized Map<String, Long> getMarks() {
+        return new LinkedHashMap<>(marks);
+    }
+}
@@ -0,0 +1,188 @@
+package com.realstereo.dev;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.realstereo.core.BufferConfig;
+import com.realstereo.core.StandbyBuffer;
+import com.realstereo.core.StreamConnection;
+
+import java.io.IOException;
+
+// Conexión en espera a la emisora a la que probablemente se cambie: un hilo lee el
+// stream a un ritmo limitado y guarda solo lo más reciente (StandbyBuffer). Al cambiar
+// de emisora la conexión y esos bytes pasan a StreamPrewarmer, y StreamDataSource
+// empieza a reproducir sin esperar a conectar ni a llenar el buffer.
+public final class StationStandby {
+
+    private static final String TAG = "StationStandby";
+    private static final String ICY_METAINT_HEADER = "icy-metaint";
+    private static final int READ_CHUNK = 4096;
+    private static final long RETRY_DELAY_MS = 5000;
+
+    private final String stationId;
+    private final String url;
+    private final BufferConfig config;
+    private final int maxBytes;
+    private final int maxKbps;
+    private final Thread thread;
+    private volatile boolean stopped = false;
+    private volatile boolean handingOff = false;
+    private volatile StreamConnection connection;
+    private volatile StandbyBuffer buffer;
+
+    // maxKbps 0 = sin límite de lectura
+    public StationStandby(String stationId, String url, BufferConfig config, int maxBytes, int maxKbps) {
+        this.stationId = stationId;
+        this.url = url;
+        this.config = config;
+        this.maxBytes = maxBytes;
+        this.maxKbps = maxKbps;
+        this.thread = new Thread(this::run, "StationStandby");
+    }
+
+    public void start() {
+        Log.d(TAG, "Standby for " + stationId + " at " + url);
+        thread.start();
+    }
+
+    public String getStationId() {
+        return stationId;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getBufferedBytes() {
+        StandbyBuffer current = buffer;
+        return current != null ? current.size() : 0;
+    }
+
+    public boolean isConnected() {
+        return connection != null;
+    }
+
+    // Entrega la conexión a StreamPrewarmer para esta URL. false si aún no hay nada
+    // que entregar; en ese caso la espera se cierra y se conecta como siempre.
+    public boolean handOff() {
+        if (stopped || connection == null) {
+            stop();
+            return false;
+        }
+        // claim() espera a que el hilo suelte la conexión tras su lectura en curso
+        StreamPrewarmer.get().expect(url);
+        handingOff = true;
+        thread.interrupt();
+        return true;
+    }
+
+    public void stop() {
+        stopped = true;
+        thread.interrupt();
+        StreamConnection current = connection;
+        if (current != null) {
+            // Desbloquea la lectura; el hilo cierra lo demás al salir
+            current.close();
+        }
+    }
+
+    private void run() {
+        byte[] chunk = new byte[READ_CHUNK];
+        while (!stopped && !handingOff) {
+            // read() solo termina sin excepción cuando se pide parar o entregar
+            boolean healthy = false;
+            try {
+                connection = ConnectionLayer.get().open(config, url, StreamDataSource.REQUEST_HEADERS);
+                buffer = new StandbyBuffer(maxBytes, parseMetaInterval(connection.getHeaderField(ICY_METAINT_HEADER)));
+                read(chunk);
+                healthy = true;
+            } catch (IOException e) {
+                if (!stopped && !handingOff) {
+                    Log.d(TAG, "Standby stream for " + stationId + " failed: " + e.getMessage());
+                }
+            }
+
+            if (handingOff && !stopped && healthy) {
+                deliver();
+                return;
+            }
+            closeConnection();
+            if (!stopped && !sleep(RETRY_DELAY_MS)) {
+                break;
+            }
+        }
+        closeConnection();
+        if (handingOff) {
+            StreamPrewarmer.get().abandon(url);
+        }
+    }
+
+    private void read(byte[] chunk) throws IOException {
+        long startMs = SystemClock.elapsedRealtime();
+        long total = 0;
+        while (!stopped && !handingOff) {
+            int read = connection.read(chunk, 0, chunk.length);
+            if (read == -1) {
+                throw new IOException("Stream ended");
+            }
+            DataUsageTracker.get().onBytesRead(read);
+            buffer.write(chunk, 0, read);
+            total += read;
+
+            // Tope de ancho de banda: no se lee por delante de maxKbps. El servidor
+            // retiene lo que no se lee, así que la conexión consume lo mismo.
+            if (maxKbps > 0) {
+                long aheadMs = total * 8 / maxKbps - (SystemClock.elapsedRealtime() - startMs);
+                if (aheadMs > 0 && !sleep(aheadMs)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // false si se interrumpió (stop() o handOff())
+    private static boolean sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    private void deliver() {
+        StandbyBuffer current = buffer;
+        if (connection == null || current == null || !current.isAligned()) {
+            // Lo siguiente de la conexión caería a mitad de un bloque ICY
+            closeConnection();
+            StreamPrewarmer.get().abandon(url);
+            return;
+        }
+        byte[] prefix = current.toByteArray();
+        Log.d(TAG, "Handing off " + stationId + " with " + prefix.length + " buffered bytes");
+        StreamPrewarmer.get().adopt(url, connection, prefix, prefix.length);
+        connection = null;
+        buffer = null;
+    }
+
+    private void closeConnection() {
+        StreamConnection current = connection;
+        connection = null;
+        buffer = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    private static int parseMetaInterval(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
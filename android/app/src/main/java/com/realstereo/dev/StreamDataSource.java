@@ -0,0 +1,258 @@
+package com.realstereo.dev;
+
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.BaseDataSource;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
+
+import com.realstereo.core.BufferConfig;
+import com.realstereo.core.IcyMetadataParser;
+import com.realstereo.core.IcyStreamReader;
+import com.realstereo.core.StreamConnection;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Fuente de datos del motor con buffer. Adopta la conexión de StreamPrewarmer
+// si existe; si no, abre la suya con ConnectionLayer. Pide metadatos ICY y los
+// separa del audio antes de entregarlo a ExoPlayer.
+@OptIn(markerClass = UnstableApi.class)
+public class StreamDataSource extends BaseDataSource {
+
+    private static final String TAG = "StreamDataSource";
+    private static final String ICY_METAINT_HEADER = "icy-metaint";
+    private static final String ICY_BITRATE_HEADER = "icy-br";
+
+    // Lo que llega del stream que suena (o se graba en diferido, que es el mismo), para
+    // estimar la velocidad del enlace; no cuenta prewarm, pruebas ni la emisora en espera
+    private static final AtomicLong bytesRead = new AtomicLong();
+    // kbps anunciados por el servidor del último stream abierto; 0 si no los da
+    private static volatile int bitrateKbps = 0;
+
+    // Cabeceras de toda petición al stream, también las de StreamPrewarmer
+    public static final Map<String, String> REQUEST_HEADERS =
+        Collections.singletonMap("Icy-MetaData", "1");
+
+    // Recibe una copia del audio ya sin metadatos ICY (StreamRecorder). Se llama en el
+    // hilo de carga: no debe bloquear.
+    public interface Tap {
+        void onStreamOpened(String contentType);
+
+        void onAudioBytes(byte[] buffer, int offset, int length);
+    }
+
+    private static final Tap NO_TAP = new Tap() {
+        @Override
+        public void onStreamOpened(String contentType) {
+        }
+
+        @Override
+        public void onAudioBytes(byte[] buffer, int offset, int length) {
+        }
+    };
+
+    public static final class Factory implements DataSource.Factory {
+        private final BufferConfig config;
+        private final IcyMetadataParser.Listener metadataListener;
+        private final Runnable firstByteListener;
+        private final Tap tap;
+
+        public Factory(BufferConfig config, IcyMetadataParser.Listener metadataListener,
+                       Runnable firstByteListener, Tap tap) {
+            this.config = config;
+            this.metadataListener = metadataListener;
+            this.firstByteListener = firstByteListener;
+            this.tap = tap;
+        }
+
+        @Override
+        public DataSource createDataSource() {
+            return new StreamDataSource(config, metadataListener, firstByteListener, tap);
+        }
+    }
+
+    private final BufferConfig config;
+    private final IcyMetadataParser.Listener metadataListener;
+    private final Runnable firstByteListener;
+    private final Tap tap;
+    private final IcyStreamReader.Source rawSource = this::readRaw;
+    // Se abre en el hilo de carga (o del grabador) y close() la cierra desde otro para
+    // desbloquear la lectura en curso
+    private volatile StreamConnection connection;
+    private IcyStreamReader icyReader;
+    private Uri uri;
+    private byte[] prefix;
+    private int prefixPosition;
+    private int prefixLength;
+    private boolean opened = false;
+    private boolean firstByteReported = false;
+
+    public StreamDataSource(BufferConfig config, IcyMetadataParser.Listener metadataListener,
+                            Runnable firstByteListener, Tap tap) {
+        super(true);
+        this.config = config;
+        this.metadataListener = metadataListener != null ? metadataListener : title -> { };
+        this.firstByteListener = firstByteListener != null ? firstByteListener : () -> { };
+        this.tap = tap != null ? tap : NO_TAP;
+    }
+
+    @Override
+    public long open(DataSpec dataSpec) throws IOException {
+        transferInitializing(dataSpec);
+        String url = dataSpec.uri.toString();
+
+        StreamPrewarmer.Claim claim = StreamPrewarmer.get().claim(url, config.connectTimeoutMs);
+        if (claim != null) {
+            connection = claim.connection;
+            prefix = claim.prefix;
+            prefixLength = claim.prefixLength;
+            prefixPosition = 0;
+            Log.d(TAG, "Using prewarmed connection with " + prefixLength + " buffered bytes");
+        } else {
+            connection = ConnectionLayer.get().open(config, url, REQUEST_HEADERS);
+        }
+
+        bitrateKbps = parseBitrate(connection.getHeaderField(ICY_BITRATE_HEADER));
+        int metaInterval = parseMetaInterval(connection.getHeaderField(ICY_METAINT_HEADER));
+        if (metaInterval > 0) {
+            icyReader = new IcyStreamReader(metaInterval, new IcyMetadataParser(metadataListener));
+        }
+
+        uri = Uri.parse(connection.getFinalUrl());
+        tap.onStreamOpened(connection.getContentType());
+        opened = true;
+        firstByteReported = false;
+        transferStarted(dataSpec);
+        // Stream en vivo: longitud desconocida
+        return C.LENGTH_UNSET;
+    }
+
+    private static int parseMetaInterval(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            Log.w(TAG, "Invalid icy-metaint: " + value);
+            return 0;
+        }
+    }
+
+    // Algunos servidores envían "128,128" (varias calidades): vale la primera
+    private static int parseBitrate(String value) {
+        if (value == null) {
+            return 0;
+        }
+        int comma = value.indexOf(',');
+        try {
+            return Math.max(0, Integer.parseInt((comma >= 0 ? value.substring(0, comma) : value).trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public static long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    public static int getBitrateKbps() {
+        return bitrateKbps;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+
+        int read = icyReader != null
+            ? icyReader.read(rawSource, buffer, offset, length)
+            : readRaw(buffer, offset, length);
+        if (read == -1) {
+            return C.RESULT_END_OF_INPUT;
+        }
+        if (!firstByteReported && read > 0) {
+            firstByteReported = true;
+            firstByteListener.run();
+        }
+        tap.onAudioBytes(buffer, offset, read);
+        bytesTransferred(read);
+        return read;
+    }
+
+    // Bytes tal como llegan del servidor: primero lo ya leído por el prewarm
+    private int readRaw(byte[] buffer, int offset, int length) throws IOException {
+        if (prefixPosition < prefixLength) {
+            int count = Math.min(length, prefixLength - prefixPosition);
+            System.arraycopy(prefix, prefixPosition, buffer, offset, count);
+            prefixPosition += count;
+            if (prefixPosition == prefixLength) {
+                prefix = null;
+            }
+            return count;
+        }
+
+        // TimeShiftRecorder puede cerrar desde otro hilo para desbloquear la lectura
+        StreamConnection current = connection;
+        if (current == null) {
+            throw new IOException("Data source closed");
+        }
+        int read = current.read(buffer, offset, length);
+        if (read > 0) {
+            DataUsageTracker.get().onBytesRead(read);
+            bytesRead.addAndGet(read);
+        }
+        return read;
+    }
+
+    @Override
+    public Uri getUri() {
+        return uri;
+    }
+
+    @Override
+    public Map<String, List<String>> getResponseHeaders() {
+        if (connection == null) {
+            return Collections.emptyMap();
+        }
+        // HttpURLConnection usa la clave null para la línea de estado. icy-metaint se
+        // oculta porque los metadatos ya se quitaron del audio: si ExoPlayer la viera
+        // intentaría separarlos otra vez.
+        Map<String, List<String>> headers = new HashMap<>();
+        for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+            String name = header.getKey();
+            if (name != null && !ICY_METAINT_HEADER.equalsIgnoreCase(name)) {
+                headers.put(name, header.getValue());
+            }
+        }
+        return headers;
+    }
+
+    @Override
+    public synchronized void close() {
+        StreamConnection current = connection;
+        if (current != null) {
+            current.close();
+            connection = null;
+        }
+        uri = null;
+        icyReader = null;
+        prefix = null;
+        prefixLength = 0;
+        prefixPosition = 0;
+        if (opened) {
+            opened = false;
+            transferEnded();
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.realstereo.dev;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.realstereo.core.BufferConfig;
+import com.realstereo.core.StreamConnection;
+
+import java.io.IOException;
+
+// Conexión anticipada al stream mientras la app arranca: resuelve DNS, abre la
+// conexión y llena un primer buffer. StreamDataSource la adopta en vez de abrir otra.
+public final class StreamPrewarmer {
+
+    private static final String TAG = "StreamPrewarmer";
+    // Tamaño máximo del primer buffer (lo que el servidor envía de golpe al conectar)
+    private static final int PREWARM_BYTES = 64 * 1024;
+    // Una conexión sin leer más tiempo que esto se descarta: el servidor la cortaría
+    private static final long MAX_IDLE_MS = 15000;
+
+    // Conexión adoptada junto con los bytes ya leídos
+    public static final class Claim {
+        public final StreamConnection connection;
+        public final byte[] prefix;
+        public final int prefixLength;
+
+        Claim(StreamConnection connection, byte[] prefix, int prefixLength) {
+            this.connection = connection;
+            this.prefix = prefix;
+            this.prefixLength = prefixLength;
+        }
+    }
+
+    private enum State { IDLE, CONNECTING, READY, FAILED }
+
+    private static final StreamPrewarmer INSTANCE = new StreamPrewarmer();
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private State state = State.IDLE;
+    private String url;
+    private StreamConnection connection;
+    private byte[] prefix;
+    private int prefixLength;
+    private long readyAtMs;
+    // Cada start() es un intento; cancelarlo (otra URL, claim() sin esperar más) lo
+    // invalida y cierra la conexión que ese intento ya tuviera abierta
+    private int attempt = 0;
+    private StreamConnection inFlight;
+
+    private StreamPrewarmer() {
+    }
+
+    public static StreamPrewarmer get() {
+        return INSTANCE;
+    }
+
+    // openConnection = false solo calienta DNS (MediaPlayer no puede adoptar la conexión)
+    public synchronized void start(String streamUrl, BufferConfig config, boolean openConnection) {
+        if (state == State.CONNECTING && streamUrl.equals(url)) {
+            return;
+        }
+        if (state == State.READY && streamUrl.equals(url) && !isStaleLocked()) {
+            return;
+        }
+
+        discardLocked();
+        state = State.CONNECTING;
+        url = streamUrl;
+        int current = attempt;
+        Log.d(TAG, "Prewarming " + streamUrl);
+
+        Thread thread = new Thread(() -> prewarm(current, streamUrl, config, openConnection), "StreamPrewarm");
+        thread.start();
+    }
+
+    private void prewarm(int current, String streamUrl, BufferConfig config, boolean openConnection) {
+        long startMs = SystemClock.elapsedRealtime();
+        StreamConnection opened = null;
+        byte[] buffer = null;
+        int length = 0;
+
+        try {
+            ConnectionLayer.get().resolve(streamUrl);
+
+            if (openConnection) {
+                opened = ConnectionLayer.get().open(config, streamUrl, StreamDataSource.REQUEST_HEADERS);
+                if (!trackInFlight(current, opened)) {
+                    opened.close();
+                    return;
+                }
+                buffer = new byte[PREWARM_BYTES];
+                // Primer bloque bloqueante y luego solo lo que ya haya llegado
+                int read = opened.read(buffer, 0, buffer.length);
+                while (read > 0) {
+                    DataUsageTracker.get().onBytesRead(read);
+                    length += read;
+                    if (length >= buffer.length || opened.available() <= 0) {
+                        break;
+                    }
+                    read = opened.read(buffer, length, buffer.length - length);
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Prewarm failed: " + e.getMessage());
+            if (opened != null) {
+                opened.close();
+            }
+            finishPrewarm(current, streamUrl, State.FAILED, null, null, 0);
+            return;
+        }
+
+        Log.d(TAG, "Prewarm ready in " + (SystemClock.elapsedRealtime() - startMs)
+            + "ms, " + length + " bytes buffered");
+        finishPrewarm(current, streamUrl, State.READY, opened, buffer, length);
+    }
+
+    // false si el intento ya se canceló
+    private synchronized boolean trackInFlight(int current, StreamConnection opened) {
+        if (current != attempt) {
+            return false;
+        }
+        inFlight = opened;
+        return true;
+    }
+
+    private synchronized void finishPrewarm(int current, String streamUrl, State result, StreamConnection opened,
+                                            byte[] buffer, int length) {
+        if (current != attempt) {
+            if (opened != null) {
+                opened.close();
+            }
+            return;
+        }
+        inFlight = null;
+        settle(streamUrl, result, opened, buffer, length);
+    }
+
+    private void settle(String streamUrl, State result, StreamConnection opened, byte[] buffer, int length) {
+        synchronized (this) {
+            if (state != State.CONNECTING || !streamUrl.equals(url)) {
+                // Se canceló o se pidió otra URL mientras tanto
+                if (opened != null) {
+                    opened.close();
+                }
+                return;
+            }
+            state = result;
+            connection = opened;
+            prefix = buffer;
+            prefixLength = length;
+            readyAtMs = SystemClock.elapsedRealtime();
+            notifyAll();
+        }
+
+        if (opened != null) {
+            mainHandler.postDelayed(this::discardIfStale, MAX_IDLE_MS);
+        }
+    }
+
+    // Guarda una conexión ya abierta por otro (EndpointProber) para que se adopte igual
+    // que una anticipada. Sustituye a la que hubiera.
+    public void adopt(String streamUrl, StreamConnection opened, byte[] buffer, int length) {
+        synchronized (this) {
+            discardLocked();
+            state = State.CONNECTING;
+            url = streamUrl;
+        }
+        settle(streamUrl, State.READY, opened, buffer, length);
+    }
+
+    // Reserva la URL mientras otro hilo (StationStandby) termina de entregar su
+    // conexión: claim() espera a adopt() o a abandon() como a un prewarm en curso
+    public synchronized void expect(String streamUrl) {
+        discardLocked();
+        state = State.CONNECTING;
+        url = streamUrl;
+    }
+
+    public void abandon(String streamUrl) {
+        settle(streamUrl, State.FAILED, null, null, 0);
+    }
+
+    // true si hay una conexión en curso o lista para esta URL
+    public synchronized boolean isWarmFor(String streamUrl) {
+        if (!streamUrl.equals(url)) {
+            return false;
+        }
+        return state == State.CONNECTING || (state == State.READY && connection != null && !isStaleLocked());
+    }
+
+    // Entrega la conexión anticipada para esta URL, esperando hasta waitMs si aún
+    // está conectando. Devuelve null si no hay nada que adoptar; si se agota la espera
+    // el prewarm se cancela y su conexión se cierra (el llamante abre la suya).
+    public synchronized Claim claim(String streamUrl, long waitMs) {
+        if (!streamUrl.equals(url)) {
+            return null;
+        }
+
+        long deadline = SystemClock.elapsedRealtime() + waitMs;
+        while (state == State.CONNECTING) {
+            long remaining = deadline - SystemClock.elapsedRealtime();
+            if (remaining <= 0) {
+                Log.d(TAG, "Prewarm not ready in " + waitMs + "ms, cancelled");
+                discardLocked();
+                return null;
+            }
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                discardLocked();
+                return null;
+            }
+        }
+
+        if (state != State.READY || connection == null || isStaleLocked()) {
+            return null;
+        }
+
+        Claim claim = new Claim(connection, prefix, prefixLength);
+        connection = null;
+        prefix = null;
+        prefixLength = 0;
+        state = State.IDLE;
+        Log.d(TAG, "Prewarmed connection adopted");
+        return claim;
+    }
+
+    private boolean isStaleLocked() {
+        return connection != null && SystemClock.elapsedRealtime() - readyAtMs > MAX_IDLE_MS;
+    }
+
+    private synchronized void discardIfStale() {
+        if (state == State.READY && isStaleLocked()) {
+            Log.d(TAG, "Discarding unused prewarmed connection");
+            discardLocked();
+        }
+    }
+
+    private void discardLocked() {
+        attempt++;
+        if (inFlight != null) {
+            // Desbloquea la lectura del primer buffer
+            inFlight.close();
+            inFlight = null;
+        }
+        if (connection != null) {
+            connection.close();
+        }
+        connection = null;
+        prefix = null;
+        prefixLength = 0;
+        state = State.IDLE;
+    }
+}
@@ -0,0 +1,280 @@
+package com.realstereo.dev;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+
+// Graba en disco los bytes que StreamDataSource ya descarga, sin otra conexión ni
+// transcodificar. El hilo de carga copia en buffers directos de un conjunto fijo y
+// un hilo aparte los escribe con FileChannel, así el disco nunca frena la
+// reproducción. Cada grabación es una carpeta con segmentos que rotan por tamaño o
+// tiempo. Si el disco no da abasto se descartan bytes en vez de bloquear.
+public class StreamRecorder implements StreamDataSource.Tap {
+
+    private static final String TAG = "StreamRecorder";
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int BUFFER_COUNT = 8;
+    public static final long SEGMENT_MAX_BYTES = 16L * 1024 * 1024;
+    public static final long SEGMENT_MAX_MS = 10 * 60 * 1000L;
+    private static final String SEGMENT_PREFIX = "part-";
+
+    // Marca de fin para el hilo escritor
+    private static final ByteBuffer END_OF_RECORDING = ByteBuffer.allocate(0);
+
+    public static final class Recording {
+        public final String id;
+        public final long lastModifiedMs;
+        public final int segments;
+        public final long totalBytes;
+        public final boolean active;
+
+        Recording(String id, long lastModifiedMs, int segments, long totalBytes, boolean active) {
+            this.id = id;
+            this.lastModifiedMs = lastModifiedMs;
+            this.segments = segments;
+            this.totalBytes = totalBytes;
+            this.active = active;
+        }
+    }
+
+    private final File rootDir;
+    // Compartidos por todas las grabaciones: la memoria no depende de la duración
+    private final ArrayBlockingQueue<ByteBuffer> freeBuffers = new ArrayBlockingQueue<>(BUFFER_COUNT);
+
+    private Session session;
+    private ByteBuffer current;
+    private volatile String contentType;
+
+    public StreamRecorder(File rootDir) {
+        this.rootDir = rootDir;
+        for (int i = 0; i < BUFFER_COUNT; i++) {
+            freeBuffers.add(ByteBuffer.allocateDirect(BUFFER_BYTES));
+        }
+    }
+
+    public synchronized boolean isRecording() {
+        return session != null;
+    }
+
+    public synchronized String getActiveId() {
+        return session != null ? session.id : null;
+    }
+
+    public synchronized long getDroppedBytes() {
+        return session != null ? session.droppedBytes : 0;
+    }
+
+    public synchronized long getWrittenBytes() {
+        return session != null ? session.writtenBytes : 0;
+    }
+
+    public synchronized String start() throws IOException {
+        if (session != null) {
+            return session.id;
+        }
+
+        String base = "rec-" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+        String id = base;
+        File dir = new File(rootDir, id);
+        for (int suffix = 2; dir.exists(); suffix++) {
+            id = base + "-" + suffix;
+            dir = new File(rootDir, id);
+        }
+        if (!dir.mkdirs()) {
+            throw new IOException("Could not create " + dir);
+        }
+
+        session = new Session(id, dir);
+        new Thread(session::writeLoop, "StreamRecorder").start();
+        Log.d(TAG, "Recording started: " + id);
+        return id;
+    }
+
+    public synchronized void stop() {
+        if (session == null) {
+            return;
+        }
+        if (current != null) {
+            if (current.position() > 0) {
+                session.filled.offer(current);
+            } else {
+                freeBuffers.offer(current);
+            }
+            current = null;
+        }
+        session.filled.offer(END_OF_RECORDING);
+        Log.d(TAG, "Recording stopped: " + session.id + ", dropped " + session.droppedBytes + " bytes");
+        session = null;
+    }
+
+    @Override
+    public void onStreamOpened(String streamContentType) {
+        contentType = streamContentType;
+    }
+
+    // Hilo de carga: solo copia a un buffer directo ya reservado
+    @Override
+    public synchronized void onAudioBytes(byte[] data, int offset, int length) {
+        if (session == null) {
+            return;
+        }
+
+        while (length > 0) {
+            if (current == null) {
+                current = freeBuffers.poll();
+                if (current == null) {
+                    // El escritor va retrasado: se pierde este trozo
+                    session.droppedBytes += length;
+                    return;
+                }
+            }
+            int count = Math.min(length, current.remaining());
+            current.put(data, offset, count);
+            offset += count;
+            length -= count;
+            if (!current.hasRemaining()) {
+                session.filled.offer(current);
+                current = null;
+            }
+        }
+    }
+
+    // Una grabación con su propio hilo escritor y su cola de buffers llenos
+    private final class Session {
+        final String id;
+        final File dir;
+        // Cabe el conjunto entero más la marca de fin, así offer() nunca falla
+        final ArrayBlockingQueue<ByteBuffer> filled = new ArrayBlockingQueue<>(BUFFER_COUNT + 1);
+        long droppedBytes = 0;
+        volatile long writtenBytes = 0;
+
+        private FileChannel channel;
+        private int segmentIndex = 0;
+        private long segmentBytes = 0;
+        private long segmentStartedAtMs = 0;
+
+        Session(String id, File dir) {
+            this.id = id;
+            this.dir = dir;
+        }
+
+        void writeLoop() {
+            try {
+                while (true) {
+                    ByteBuffer buffer = filled.take();
+                    if (buffer == END_OF_RECORDING) {
+                        break;
+                    }
+                    buffer.flip();
+                    try {
+                        write(buffer);
+                    } catch (IOException e) {
+                        Log.e(TAG, "Error writing segment", e);
+                    } finally {
+                        buffer.clear();
+                        freeBuffers.offer(buffer);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                closeSegment();
+            }
+        }
+
+        private void write(ByteBuffer buffer) throws IOException {
+            long now = SystemClock.elapsedRealtime();
+            if (channel == null || segmentBytes >= SEGMENT_MAX_BYTES || now - segmentStartedAtMs >= SEGMENT_MAX_MS) {
+                openNextSegment(now);
+            }
+            while (buffer.hasRemaining()) {
+                int written = channel.write(buffer);
+                segmentBytes += written;
+                writtenBytes += written;
+            }
+        }
+
+        private void openNextSegment(long now) throws IOException {
+            closeSegment();
+            segmentIndex++;
+            File file = new File(dir, String.format(Locale.US, "%s%04d%s",
+                SEGMENT_PREFIX, segmentIndex, extensionFor(contentType)));
+            channel = new FileOutputStream(file).getChannel();
+            segmentBytes = 0;
+            segmentStartedAtMs = now;
+            Log.d(TAG, "New segment " + id + "/" + file.getName());
+        }
+
+        private void closeSegment() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    Log.w(TAG, "Error closing segment", e);
+                }
+                channel = null;
+            }
+        }
+    }
+
+    private static String extensionFor(String contentType) {
+        if (contentType == null) {
+            return ".bin";
+        }
+        String type = contentType.toLowerCase(Locale.US);
+        if (type.contains("mpeg") || type.contains("mp3")) {
+            return ".mp3";
+        }
+        if (type.contains("aac")) {
+            return ".aac";
+        }
+        if (type.contains("ogg")) {
+            return ".ogg";
+        }
+        return ".bin";
+    }
+
+    public List<Recording> list() {
+        List<Recording> recordings = new ArrayList<>();
+        File[] dirs = rootDir.listFiles(File::isDirectory);
+        if (dirs == null) {
+            return recordings;
+        }
+        Arrays.sort(dirs);
+
+        String active = getActiveId();
+        for (File dir : dirs) {
+            File[] segments = dir.listFiles((parent, name) -> name.startsWith(SEGMENT_PREFIX));
+            long totalBytes = 0;
+            if (segments != null) {
+                for (File segment : segments) {
+                    totalBytes += segment.length();
+                }
+            }
+            recordings.add(new Recording(
+                dir.getName(),
+                dir.lastModified(),
+                segments != null ? segments.length : 0,
+                totalBytes,
+                dir.getName().equals(active)
+            ));
+        }
+        return recordings;
+    }
+
+    public File getDirectory(String id) {
+        return new File(rootDir, id);
+    }
+}
@@ -0,0 +1,104 @@
+package com.realstereo.dev;
+
+import android.net.Uri;
+
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.BaseDataSource;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
+
+import com.realstereo.core.IcyMetadataParser;
+import com.realstereo.core.TimeShiftBuffer;
+
+import java.io.IOException;
+
+// Fuente de datos del modo diferido: lee del TimeShiftBuffer en vez de la red.
+// Todas las instancias de una preparación comparten el mismo lector, así que si
+// ExoPlayer reabre tras un error se sigue donde se quedó.
+@OptIn(markerClass = UnstableApi.class)
+public class TimeShiftDataSource extends BaseDataSource {
+
+    public static final Uri URI = Uri.parse("timeshift://buffer");
+
+    public static final class Factory implements DataSource.Factory {
+        private final TimeShiftBuffer.Reader reader;
+        private final TimeShiftBuffer buffer;
+        private final long readTimeoutMs;
+        private final IcyMetadataParser.Listener metadataListener;
+        private final Runnable firstByteListener;
+
+        public Factory(TimeShiftBuffer buffer, TimeShiftBuffer.Reader reader, long readTimeoutMs,
+                       IcyMetadataParser.Listener metadataListener, Runnable firstByteListener) {
+            this.buffer = buffer;
+            this.reader = reader;
+            this.readTimeoutMs = readTimeoutMs;
+            this.metadataListener = metadataListener;
+            this.firstByteListener = firstByteListener;
+        }
+
+        @Override
+        public DataSource createDataSource() {
+            return new TimeShiftDataSource(this);
+        }
+    }
+
+    private final Factory factory;
+    private String lastTitle;
+    private boolean opened = false;
+    private boolean firstByteReported = false;
+
+    private TimeShiftDataSource(Factory factory) {
+        super(false);
+        this.factory = factory;
+    }
+
+    @Override
+    public long open(DataSpec dataSpec) throws IOException {
+        transferInitializing(dataSpec);
+        opened = true;
+        firstByteReported = false;
+        transferStarted(dataSpec);
+        return C.LENGTH_UNSET;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+
+        int read = factory.reader.read(buffer, offset, length, factory.readTimeoutMs);
+        if (read == -1) {
+            return C.RESULT_END_OF_INPUT;
+        }
+        if (!firstByteReported) {
+            firstByteReported = true;
+            factory.firstByteListener.run();
+        }
+
+        // Los títulos se publican cuando se reproduce su parte, no cuando se grabó
+        String title = factory.buffer.titleAt(factory.reader.getPosition());
+        if (title != null && !title.equals(lastTitle)) {
+            lastTitle = title;
+            factory.metadataListener.onStreamTitle(title);
+        }
+
+        bytesTransferred(read);
+        return read;
+    }
+
+    @Override
+    public Uri getUri() {
+        return opened ? URI : null;
+    }
+
+    @Override
+    public void close() {
+        if (opened) {
+            opened = false;
+            transferEnded();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.realstereo.dev;
+
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.DataSpec;
+
+import com.realstereo.core.BufferConfig;
+import com.realstereo.core.TimeShiftBuffer;
+
+import java.io.IOException;
+
+// Hilo que lee el stream en vivo (con StreamDataSource: conexión anticipada, ICY...)
+// y lo escribe en el TimeShiftBuffer, siga sonando o no. Si la conexión cae, se
+// detiene: el lector se quedará sin datos y el motor avisará del error.
+@OptIn(markerClass = UnstableApi.class)
+public class TimeShiftRecorder {
+
+    private static final String TAG = "TimeShiftRecorder";
+    private static final int CHUNK_BYTES = 16 * 1024;
+
+    private final TimeShiftBuffer buffer;
+    private final BufferConfig config;
+    private final StreamDataSource.Tap tap;
+    // Se llama en el hilo de grabación cuando esta termina por cualquier motivo
+    private final Runnable stoppedListener;
+    private StreamDataSource source;
+    private volatile boolean running = false;
+    private String url;
+
+    public TimeShiftRecorder(TimeShiftBuffer buffer, BufferConfig config, StreamDataSource.Tap tap,
+                             Runnable stoppedListener) {
+        this.buffer = buffer;
+        this.config = config;
+        this.tap = tap;
+        this.stoppedListener = stoppedListener;
+    }
+
+    public TimeShiftBuffer getBuffer() {
+        return buffer;
+    }
+
+    public synchronized void start(String streamUrl) {
+        stop();
+        url = streamUrl;
+        running = true;
+        StreamDataSource dataSource = new StreamDataSource(config, buffer::markTitle, null, tap);
+        source = dataSource;
+        new Thread(() -> record(dataSource, streamUrl), "TimeShiftRecorder").start();
+    }
+
+    private void record(StreamDataSource dataSource, String streamUrl) {
+        byte[] chunk = new byte[CHUNK_BYTES];
+        try {
+            dataSource.open(new DataSpec(Uri.parse(streamUrl)));
+            Log.d(TAG, "Recording " + streamUrl);
+            while (isCurrent(dataSource)) {
+                int read = dataSource.read(chunk, 0, chunk.length);
+                if (read == C.RESULT_END_OF_INPUT) {
+                    Log.w(TAG, "Stream ended");
+                    break;
+                }
+                // Tras un stop() o un nuevo start() no se mezclan bytes de la conexión vieja
+                if (!isCurrent(dataSource)) {
+                    break;
+                }
+                buffer.write(chunk, 0, read);
+            }
+        } catch (IOException e) {
+            if (isCurrent(dataSource)) {
+                Log.w(TAG, "Recording stopped: " + e.getMessage());
+            }
+        } finally {
+            dataSource.close();
+            synchronized (this) {
+                // Un start() posterior ya puso en marcha otra fuente
+                if (source == dataSource) {
+                    source = null;
+                    running = false;
+                }
+            }
+            stoppedListener.run();
+        }
+    }
+
+    private synchronized boolean isCurrent(StreamDataSource dataSource) {
+        return source == dataSource;
+    }
+
+    public boolean isRecording() {
+        return running;
+    }
+
+    public synchronized String getUrl() {
+        return url;
+    }
+
+    // Cerrar la conexión desbloquea la lectura en curso
+    public synchronized void stop() {
+        running = false;
+        if (source != null) {
+            source.close();
+            source = null;
+        }
+    }
+}
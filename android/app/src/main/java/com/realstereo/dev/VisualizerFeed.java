@@ -0,0 +1,173 @@
+package com.realstereo.dev;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.realstereo.core.SpectrumAnalyzer;
+import com.realstereo.core.VisualizerRing;
+
+import org.json.JSONException;
+
+// Lleva los cuadros del SpectrumAnalyzer (en la cadena PCM del motor con buffer) a
+// JS: en cada frame de pantalla se envían juntos los que haya, así que el bridge se
+// cruza como mucho a la tasa de refresco. El análisis solo está activo con la app
+// en primer plano y algún oyente de EVENT; sin audio el bucle de frames se para.
+public final class VisualizerFeed {
+
+    public static final String EVENT = "visualizerFrame";
+    private static final int RING_FRAMES = 64;
+    // A 48 kHz salen ~94 cuadros por segundo: unos pocos por frame de pantalla
+    private static final int MAX_FRAMES_PER_BATCH = 8;
+    // Frames de pantalla sin cuadros nuevos antes de parar el bucle
+    private static final int IDLE_FRAMES = 30;
+    // Comprobación de oyentes y de audio mientras el bucle está parado
+    private static final long POLL_MS = 500;
+
+    public interface ListenerCheck {
+        boolean hasListeners();
+    }
+
+    private static final VisualizerFeed INSTANCE = new VisualizerFeed();
+
+    private final VisualizerRing ring = new VisualizerRing(RING_FRAMES, SpectrumAnalyzer.FRAME_SIZE);
+    private final SpectrumAnalyzer analyzer = new SpectrumAnalyzer(ring);
+    private final float[] batch = new float[MAX_FRAMES_PER_BATCH * SpectrumAnalyzer.FRAME_SIZE];
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Choreographer.FrameCallback frameCallback = this::onFrame;
+    private final Runnable pollRunnable = this::poll;
+
+    // Solo del hilo principal
+    private BridgeEventCoalescer.Emitter emitter;
+    private ListenerCheck listenerCheck;
+    private boolean foreground = false;
+    private boolean looping = false;
+    private int idleFrames = 0;
+    // Se leen desde el hilo del plugin
+    private volatile long batchesSent = 0;
+    private volatile long framesSent = 0;
+
+    private VisualizerFeed() {
+    }
+
+    public static VisualizerFeed get() {
+        return INSTANCE;
+    }
+
+    // El motor con buffer la añade a su cadena PCM
+    public SpectrumAnalyzer getAnalyzer() {
+        return analyzer;
+    }
+
+    // Hilo principal; emitter null al destruirse el plugin
+    public void attach(BridgeEventCoalescer.Emitter emitter, ListenerCheck listenerCheck) {
+        this.emitter = emitter;
+        this.listenerCheck = listenerCheck;
+        poll();
+    }
+
+    // Hilo principal
+    public void setForeground(boolean foreground) {
+        this.foreground = foreground;
+        poll();
+    }
+
+    public boolean isActive() {
+        return analyzer.isEnabled();
+    }
+
+    public long getBatchesSent() {
+        return batchesSent;
+    }
+
+    public long getFramesSent() {
+        return framesSent;
+    }
+
+    public long getDroppedFrames() {
+        return ring.getDropped();
+    }
+
+    private boolean isWanted() {
+        return emitter != null && foreground && listenerCheck.hasListeners();
+    }
+
+    private void poll() {
+        mainHandler.removeCallbacks(pollRunnable);
+        boolean wanted = isWanted();
+        analyzer.setEnabled(wanted);
+        if (!wanted) {
+            stopLoop();
+            // Lo que quede ya es viejo cuando vuelva a mirarse
+            ring.skipPending();
+            if (emitter != null && foreground) {
+                mainHandler.postDelayed(pollRunnable, POLL_MS);
+            }
+            return;
+        }
+
+        if (!looping && ring.hasPending()) {
+            looping = true;
+            idleFrames = 0;
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+        }
+        if (!looping) {
+            mainHandler.postDelayed(pollRunnable, POLL_MS);
+        }
+    }
+
+    private void stopLoop() {
+        if (looping) {
+            looping = false;
+            Choreographer.getInstance().removeFrameCallback(frameCallback);
+        }
+    }
+
+    private void onFrame(long frameTimeNanos) {
+        if (!looping) {
+            return;
+        }
+        if (!isWanted()) {
+            poll();
+            return;
+        }
+
+        int count = ring.drain(batch, MAX_FRAMES_PER_BATCH);
+        if (count > 0) {
+            idleFrames = 0;
+            emitter.emit(EVENT, toJSObject(count));
+            batchesSent++;
+            framesSent += count;
+        } else if (++idleFrames >= IDLE_FRAMES) {
+            // Sin audio (pausa, reconexión): se vuelve a comprobar a ritmo lento
+            stopLoop();
+            poll();
+            return;
+        }
+        Choreographer.getInstance().postFrameCallback(frameCallback);
+    }
+
+    // {bands, frames: [[rms, banda0, ..., banda15], ...]} con valores en [0, 1]
+    private JSObject toJSObject(int count) {
+        JSArray frames = new JSArray();
+        int index = 0;
+        try {
+            for (int i = 0; i < count; i++) {
+                JSArray frame = new JSArray();
+                for (int value = 0; value < SpectrumAnalyzer.FRAME_SIZE; value++) {
+                    // Tres decimales bastan para dibujar y reducen el JSON
+                    frame.put(Math.round(batch[index++] * 1000) / 1000.0);
+                }
+                frames.put(frame);
+            }
+        } catch (JSONException e) {
+            // Solo con NaN o infinitos, que el análisis no produce
+        }
+        JSObject data = new JSObject();
+        data.put("bands", SpectrumAnalyzer.BANDS);
+        data.put("frames", frames);
+        return data;
+    }
+}
@@ -0,0 +1,102 @@
+package com.realstereo.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Camino de lectura del stream: audio con bloques ICY intercalados, leído como lo
+// hace StreamDataSource. Una operación es un segundo de audio al bitrate indicado,
+// así que con -prof gc "gc.alloc.rate.norm" son bytes reservados por segundo de audio.
+// Como en un stream real, el servidor repite el título en cada bloque.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IcyReadPathBenchmark {
+
+    // Con 8000 bytes cada bitrate probado da un número entero de bloques por segundo
+    private static final int META_INTERVAL = 8000;
+    // Tamaño habitual de las lecturas de ExoPlayer
+    private static final int READ_CHUNK = 8 * 1024;
+
+    @Param({"64", "128", "320"})
+    public int bitrateKbps;
+
+    private byte[] oneSecond;
+    private final byte[] readBuffer = new byte[READ_CHUNK];
+    private IcyStreamReader reader;
+    private MemorySource source;
+    private int titles;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        oneSecond = buildStream(bitrateKbps * 1000 / 8);
+        source = new MemorySource(oneSecond);
+        reader = new IcyStreamReader(META_INTERVAL, new IcyMetadataParser(title -> titles++));
+    }
+
+    @Benchmark
+    public int readOneSecond() throws IOException {
+        source.rewind();
+        int total = 0;
+        int read;
+        while ((read = reader.read(source, readBuffer, 0, readBuffer.length)) != -1) {
+            total += read;
+        }
+        return total;
+    }
+
+    // El segundo de audio empieza y acaba en frontera de bloque para que al repetirlo
+    // el lector siga sincronizado
+    private static byte[] buildStream(int audioBytesPerSecond) {
+        int blocks = audioBytesPerSecond / META_INTERVAL;
+        byte[] metadata = "StreamTitle='Artista - Canción';StreamUrl='';".getBytes(StandardCharsets.UTF_8);
+        int lengthBlocks = (metadata.length + 15) / 16;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int block = 0; block < blocks; block++) {
+            for (int i = 0; i < META_INTERVAL; i++) {
+                out.write(i & 0xFF);
+            }
+            out.write(lengthBlocks);
+            out.write(metadata, 0, metadata.length);
+            for (int i = metadata.length; i < lengthBlocks * 16; i++) {
+                out.write(0);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static final class MemorySource implements IcyStreamReader.Source {
+        private final byte[] data;
+        private int position;
+
+        MemorySource(byte[] data) {
+            this.data = data;
+        }
+
+        void rewind() {
+            position = 0;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (position >= data.length) {
+                return -1;
+            }
+            int count = Math.min(length, data.length - position);
+            System.arraycopy(data, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+    }
+}
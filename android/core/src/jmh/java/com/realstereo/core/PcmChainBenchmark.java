@@ -0,0 +1,106 @@
+package com.realstereo.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Coste de la cadena PCM por bloque de 10 ms de audio estéreo, completa y por
+// procesador. Con -prof gc la asignación por operación debe ser 0.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PcmChainBenchmark {
+
+    @Param({"44100", "48000"})
+    public int sampleRate;
+
+    private int frames;
+    private float[] source;
+    private float[] samples;
+    private PcmChain chain;
+    private LoudnessNormalizer normalizer;
+    private GainRamp ramp;
+    private PeakLimiter limiter;
+    private SpectrumAnalyzer spectrum;
+    private VisualizerRing ring;
+    private float[] drained;
+
+    @Setup
+    public void setUp() {
+        frames = sampleRate / 100;
+        source = new float[frames * 2];
+        samples = new float[frames * 2];
+        for (int frame = 0; frame < frames; frame++) {
+            float value = 0.8f * (float) Math.sin(2 * Math.PI * 440 * frame / sampleRate);
+            source[frame * 2] = value;
+            source[frame * 2 + 1] = value;
+        }
+
+        normalizer = new LoudnessNormalizer();
+        ramp = new GainRamp();
+        limiter = new PeakLimiter();
+        chain = new PcmChain(new LoudnessNormalizer(), new GainRamp(), new PeakLimiter());
+        chain.configure(sampleRate, 2);
+        normalizer.configure(sampleRate, 2);
+        ramp.configure(sampleRate, 2);
+        limiter.configure(sampleRate, 2);
+        ring = new VisualizerRing(64, SpectrumAnalyzer.FRAME_SIZE);
+        drained = new float[64 * SpectrumAnalyzer.FRAME_SIZE];
+        spectrum = new SpectrumAnalyzer(ring);
+        spectrum.configure(sampleRate, 2);
+        spectrum.setEnabled(true);
+        // Ducking a medias: la rampa trabaja por frame en vez de tomar el atajo
+        ramp.setTarget(0.3f);
+    }
+
+    private float[] block() {
+        System.arraycopy(source, 0, samples, 0, samples.length);
+        return samples;
+    }
+
+    @Benchmark
+    public float[] chain() {
+        float[] block = block();
+        chain.process(block, frames);
+        return block;
+    }
+
+    @Benchmark
+    public float[] loudness() {
+        float[] block = block();
+        normalizer.process(block, frames);
+        return block;
+    }
+
+    @Benchmark
+    public float[] gainRamp() {
+        float[] block = block();
+        ramp.process(block, frames);
+        // Alterna el objetivo para medir siempre la rampa activa
+        ramp.setTarget(ramp.getGain() < 0.5f ? 1f : 0.3f);
+        return block;
+    }
+
+    @Benchmark
+    public float[] limiter() {
+        float[] block = block();
+        limiter.process(block, frames);
+        return block;
+    }
+
+    // Incluye una FFT cada FFT_SIZE frames, repartida entre los bloques
+    @Benchmark
+    public float[] spectrum() {
+        float[] block = block();
+        spectrum.process(block, frames);
+        ring.drain(drained, 64);
+        return block;
+    }
+}
@@ -0,0 +1,59 @@
+package com.realstereo.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Coste de las transiciones de estado y de las métricas que las acompañan. Una
+// operación es una sesión típica: arranque, un corte, un error con reconexión y parada.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PlaybackStateMachineBenchmark {
+
+    private Blackhole blackhole;
+    private final PlaybackStateMachine machine =
+        new PlaybackStateMachine((previous, current) -> blackhole.consume(current));
+    private final PlaybackStats stats = new PlaybackStats(Clock.MONOTONIC);
+
+    @Benchmark
+    public PlaybackStatus session(Blackhole bh) {
+        blackhole = bh;
+        machine.onStartRequested();
+        stats.onStartRequested();
+        stats.onFirstByte();
+        stats.onPrepared();
+        machine.onPrepared(true);
+        stats.onAudioStarted();
+
+        if (machine.onBufferingStarted()) {
+            stats.onBufferingStart();
+        }
+        machine.onBufferingEnded();
+        stats.onBufferingEnd();
+
+        stats.onError(2001, machine.isPlayRequested());
+        if (machine.onError()) {
+            machine.onReconnecting();
+        }
+        machine.onPrepared(true);
+        stats.onAudioStarted();
+
+        machine.onFocusLostTransient();
+        machine.onFocusRegained();
+        machine.onStopRequested();
+        stats.onStopped();
+        return machine.getStatus();
+    }
+
+    @Benchmark
+    public PlaybackStats.Snapshot statsSnapshot() {
+        return stats.snapshot();
+    }
+}
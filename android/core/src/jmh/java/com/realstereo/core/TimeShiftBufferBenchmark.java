@@ -0,0 +1,67 @@
+package com.realstereo.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// Escritura y lectura del buffer diferido. Una operación es un segundo de audio a
+// 192 kbps escrito en trozos de 16 KB y leído a continuación por un lector.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TimeShiftBufferBenchmark {
+
+    private static final int BYTES_PER_SECOND = 192000 / 8;
+    private static final int CHUNK = 16 * 1024;
+
+    @Param({"10", "30"})
+    public int windowMinutes;
+
+    private TimeShiftBuffer buffer;
+    private TimeShiftBuffer.Reader reader;
+    private final byte[] chunk = new byte[CHUNK];
+    private final byte[] readBuffer = new byte[CHUNK];
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        int windowSeconds = windowMinutes * 60;
+        File file = File.createTempFile("timeshift-bench", ".buf");
+        buffer = new TimeShiftBuffer(Clock.MONOTONIC, file, windowSeconds * BYTES_PER_SECOND, windowSeconds);
+        reader = buffer.newReader(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        buffer.close();
+    }
+
+    @Benchmark
+    public long writeAndReadOneSecond() throws IOException {
+        int remaining = BYTES_PER_SECOND;
+        while (remaining > 0) {
+            int length = Math.min(remaining, CHUNK);
+            buffer.write(chunk, 0, length);
+            remaining -= length;
+        }
+        while (reader.getPosition() < buffer.getWritePosition()) {
+            reader.read(readBuffer, 0, readBuffer.length, 0);
+        }
+        return reader.getPosition();
+    }
+
+    @Benchmark
+    public long positionForDelay() {
+        return buffer.positionForDelay(30000);
+    }
+}
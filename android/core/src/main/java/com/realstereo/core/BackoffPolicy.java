@@ -0,0 +1,47 @@
+package com.realstereo.core;
+
+import java.util.Random;
+
+// Espera exponencial con tope y jitter ("equal jitter"): la mitad del retardo es
+// fija y la otra mitad aleatoria, para que muchos oyentes no reconecten a la vez.
+public final class BackoffPolicy {
+
+    public static final long DEFAULT_BASE_DELAY_MS = 1000;
+    public static final long DEFAULT_MAX_DELAY_MS = 30000;
+
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final Random random;
+
+    public BackoffPolicy(long baseDelayMs, long maxDelayMs, Random random) {
+        if (baseDelayMs <= 0 || maxDelayMs < baseDelayMs) {
+            throw new IllegalArgumentException("Invalid backoff bounds");
+        }
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.random = random;
+    }
+
+    public BackoffPolicy() {
+        this(DEFAULT_BASE_DELAY_MS, DEFAULT_MAX_DELAY_MS, new Random());
+    }
+
+    // attempt empieza en 0 para el primer reintento
+    public long delayForAttempt(int attempt) {
+        long ceiling = maxDelayMs;
+        // A partir de 2^30 el tope siempre gana; evita desbordar el shift
+        if (attempt < 30) {
+            ceiling = Math.min(maxDelayMs, baseDelayMs << attempt);
+        }
+        long half = ceiling / 2;
+        return half + (long) (random.nextDouble() * (ceiling - half));
+    }
+
+    public long getBaseDelayMs() {
+        return baseDelayMs;
+    }
+
+    public long getMaxDelayMs() {
+        return maxDelayMs;
+    }
+}
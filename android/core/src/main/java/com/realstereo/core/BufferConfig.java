@@ -0,0 +1,74 @@
+package com.realstereo.core;
+
+// Parámetros de carga del motor con buffer. Valores en milisegundos salvo maxBufferBytes.
+public final class BufferConfig {
+
+    public static final int DEFAULT_INITIAL_BUFFER_MS = 1000;
+    public static final int DEFAULT_REBUFFER_MS = 3000;
+    public static final int DEFAULT_MAX_BUFFER_BYTES = 2 * 1024 * 1024;
+    public static final int DEFAULT_CONNECT_TIMEOUT_MS = 8000;
+    public static final int DEFAULT_READ_TIMEOUT_MS = 10000;
+
+    // Audio acumulado antes del primer sonido
+    public final int initialBufferMs;
+    // Audio acumulado antes de reanudar tras un corte
+    public final int rebufferMs;
+    // Techo de memoria del buffer
+    public final int maxBufferBytes;
+    public final int connectTimeoutMs;
+    public final int readTimeoutMs;
+
+    public BufferConfig(int initialBufferMs, int rebufferMs, int maxBufferBytes,
+                        int connectTimeoutMs, int readTimeoutMs) {
+        if (initialBufferMs < 0 || rebufferMs < 0) {
+            throw new IllegalArgumentException("Buffer durations must be >= 0");
+        }
+        if (maxBufferBytes <= 0 || connectTimeoutMs <= 0 || readTimeoutMs <= 0) {
+            throw new IllegalArgumentException("Buffer size and timeouts must be > 0");
+        }
+        this.initialBufferMs = initialBufferMs;
+        this.rebufferMs = rebufferMs;
+        this.maxBufferBytes = maxBufferBytes;
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+    }
+
+    public static BufferConfig defaults() {
+        return new BufferConfig(
+            DEFAULT_INITIAL_BUFFER_MS,
+            DEFAULT_REBUFFER_MS,
+            DEFAULT_MAX_BUFFER_BYTES,
+            DEFAULT_CONNECT_TIMEOUT_MS,
+            DEFAULT_READ_TIMEOUT_MS
+        );
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BufferConfig)) return false;
+        BufferConfig other = (BufferConfig) o;
+        return initialBufferMs == other.initialBufferMs
+            && rebufferMs == other.rebufferMs
+            && maxBufferBytes == other.maxBufferBytes
+            && connectTimeoutMs == other.connectTimeoutMs
+            && readTimeoutMs == other.readTimeoutMs;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = initialBufferMs;
+        result = 31 * result + rebufferMs;
+        result = 31 * result + maxBufferBytes;
+        result = 31 * result + connectTimeoutMs;
+        result = 31 * result + readTimeoutMs;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "BufferConfig{initial=" + initialBufferMs + "ms, rebuffer=" + rebufferMs
+            + "ms, maxBytes=" + maxBufferBytes + ", connectTimeout=" + connectTimeoutMs
+            + "ms, readTimeout=" + readTimeoutMs + "ms}";
+    }
+}
@@ -0,0 +1,80 @@
+package com.realstereo.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Cuerpo HTTP/1.1 con Transfer-Encoding: chunked. Algunos servidores lo usan
+// aunque el stream no tenga fin; las extensiones y los trailers se ignoran (los
+// trailers se leen para que la conexión quede lista para otra petición).
+final class ChunkedInputStream extends InputStream {
+
+    private final InputStream in;
+    private long chunkRemaining = 0;
+    private boolean finished = false;
+
+    ChunkedInputStream(InputStream in) {
+        this.in = in;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (chunkRemaining == 0 && !nextChunk()) {
+            return -1;
+        }
+        int read = in.read(buffer, offset, (int) Math.min(length, chunkRemaining));
+        if (read == -1) {
+            throw new IOException("Stream ended inside a chunk");
+        }
+        chunkRemaining -= read;
+        if (chunkRemaining == 0) {
+            // CRLF que cierra el trozo
+            StreamConnector.readLine(in);
+        }
+        return read;
+    }
+
+    private boolean nextChunk() throws IOException {
+        if (finished) {
+            return false;
+        }
+        String line = StreamConnector.readLine(in);
+        if (line == null) {
+            throw new IOException("Stream ended before chunk size");
+        }
+        int extension = line.indexOf(';');
+        String size = (extension >= 0 ? line.substring(0, extension) : line).trim();
+        try {
+            chunkRemaining = Long.parseLong(size, 16);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid chunk size: " + line);
+        }
+        if (chunkRemaining == 0) {
+            finished = true;
+            String trailer;
+            do {
+                trailer = StreamConnector.readLine(in);
+            } while (trailer != null && !trailer.isEmpty());
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(in.available(), chunkRemaining);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,10 @@
+package com.realstereo.core;
+
+// Reloj monótono en milisegundos. En Android se pasa SystemClock::elapsedRealtime
+// (sigue contando con el dispositivo dormido); en pruebas, uno manual.
+public interface Clock {
+
+    Clock MONOTONIC = () -> System.nanoTime() / 1000000L;
+
+    long elapsedMs();
+}
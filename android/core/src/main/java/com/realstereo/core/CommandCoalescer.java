@@ -0,0 +1,99 @@
+package com.realstereo.core;
+
+// Junta las órdenes que llegan en ráfaga. La primera tras un rato de calma se ejecuta
+// en el acto; las que llegan durante la ventana solo actualizan la orden pendiente, y
+// al cerrarse la ventana se ejecuta la última si cambia algo respecto a lo ya hecho.
+// Así PLAY, PAUSE, PLAY en 200 ms se queda en un único PLAY. Lo "ya hecho" sigue al
+// estado real (onStatusChanged): una orden que falló o se rechazó no cuenta como
+// aplicada. No es seguro entre hilos: lo usa solo el hilo que ejecuta las órdenes.
+public final class CommandCoalescer {
+
+    public static final long DEFAULT_WINDOW_MS = 200;
+
+    private final Clock clock;
+    private final long windowMs;
+    private PlaybackCommand applied;
+    private PlaybackCommand pending;
+    // Fin de la ventana abierta (-1 si no hay ninguna)
+    private long windowEndsAtMs = -1;
+    // Solo escribe el hilo de las órdenes; se lee para estadísticas
+    private volatile long coalescedCount = 0;
+
+    public CommandCoalescer(Clock clock, long windowMs) {
+        this.clock = clock;
+        this.windowMs = windowMs;
+    }
+
+    public long getWindowMs() {
+        return windowMs;
+    }
+
+    // Órdenes que no llegaron a ejecutarse por quedar absorbidas en una ráfaga
+    public long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    // Hay una orden esperando a flush()
+    public boolean hasPending() {
+        return pending != null;
+    }
+
+    public boolean isWindowOpen() {
+        return windowEndsAtMs >= 0 && clock.elapsedMs() < windowEndsAtMs;
+    }
+
+    // Devuelve la orden a ejecutar ya, o null si queda pendiente hasta flush()
+    public PlaybackCommand offer(PlaybackCommand command) {
+        if (!isWindowOpen()) {
+            if (pending != null) {
+                // La ventana anterior venció sin flush(): su orden queda sustituida
+                coalescedCount++;
+                pending = null;
+            }
+            return apply(command);
+        }
+        if (pending != null) {
+            coalescedCount++;
+        }
+        pending = command;
+        return null;
+    }
+
+    // Al cerrar la ventana: la orden pendiente si cambia el resultado, o null
+    public PlaybackCommand flush() {
+        PlaybackCommand command = pending;
+        pending = null;
+        windowEndsAtMs = -1;
+        if (command == null) {
+            return null;
+        }
+        if (command == applied) {
+            coalescedCount++;
+            return null;
+        }
+        // Abre otra ventana para que una ráfaga larga tampoco ejecute cada orden
+        return apply(command);
+    }
+
+    // Cada transición de PlaybackStateMachine, y cuando una orden no cambia el estado
+    // (foco denegado). Sin intención de sonar, un PLAY ya no es un duplicado; la
+    // orden pendiente y la ventana no se tocan.
+    public void onStatusChanged(PlaybackStatus status, boolean playRequested) {
+        if (playRequested) {
+            applied = PlaybackCommand.PLAY;
+        } else if (status == PlaybackStatus.PAUSED) {
+            applied = PlaybackCommand.PAUSE;
+        } else if (status == PlaybackStatus.STOPPED) {
+            applied = PlaybackCommand.STOP;
+        } else {
+            // ERROR, IDLE: ninguna orden describe el estado, la siguiente se ejecuta
+            applied = null;
+        }
+    }
+
+    private PlaybackCommand apply(PlaybackCommand command) {
+        applied = command;
+        windowEndsAtMs = clock.elapsedMs() + windowMs;
+        return command;
+    }
+}
@@ -0,0 +1,194 @@
+package com.realstereo.core;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Lo que cuesta viajes de ida y vuelta antes del primer byte: las direcciones de
+// cada host y el destino final de las redirecciones (stream.zeno.fm manda a un
+// nodo de borde). Se guarda en disco con serialize() para que un arranque en frío
+// no repita DNS ni saltos. Los TTL van con reloj de pared porque sobreviven a
+// reinicios. Si la resolución falla se usa la entrada caducada: mejor probar las
+// direcciones de antes que no conectar.
+public final class ConnectionCache {
+
+    public static final long DEFAULT_DNS_TTL_MS = 10 * 60 * 1000L;
+    public static final long DEFAULT_REDIRECT_TTL_MS = 5 * 60 * 1000L;
+    private static final int MAX_ENTRIES = 32;
+
+    public interface Resolver {
+        InetAddress[] resolve(String host) throws UnknownHostException;
+    }
+
+    public static final Resolver SYSTEM_RESOLVER = InetAddress::getAllByName;
+
+    private static final class Entry {
+        final String[] values;
+        final long expiresAtMs;
+
+        Entry(String[] values, long expiresAtMs) {
+            this.values = values;
+            this.expiresAtMs = expiresAtMs;
+        }
+    }
+
+    private final Clock wallClock;
+    private final Resolver resolver;
+    private final long dnsTtlMs;
+    private final long redirectTtlMs;
+    // Orden de acceso: al pasar del límite sale la menos usada
+    private final LinkedHashMap<String, Entry> hosts = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Entry> redirects = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean dirty = false;
+
+    public ConnectionCache(Clock wallClock, Resolver resolver, long dnsTtlMs, long redirectTtlMs) {
+        this.wallClock = wallClock;
+        this.resolver = resolver;
+        this.dnsTtlMs = dnsTtlMs;
+        this.redirectTtlMs = redirectTtlMs;
+    }
+
+    public ConnectionCache(Clock wallClock) {
+        this(wallClock, SYSTEM_RESOLVER, DEFAULT_DNS_TTL_MS, DEFAULT_REDIRECT_TTL_MS);
+    }
+
+    public List<InetAddress> resolve(String host) throws UnknownHostException {
+        Entry cached;
+        synchronized (this) {
+            cached = hosts.get(host);
+        }
+        if (cached != null && wallClock.elapsedMs() < cached.expiresAtMs) {
+            return toAddresses(host, cached.values);
+        }
+
+        InetAddress[] resolved;
+        try {
+            resolved = resolver.resolve(host);
+        } catch (UnknownHostException e) {
+            if (cached != null) {
+                return toAddresses(host, cached.values);
+            }
+            throw e;
+        }
+        String[] values = new String[resolved.length];
+        for (int i = 0; i < resolved.length; i++) {
+            values[i] = resolved[i].getHostAddress();
+        }
+        synchronized (this) {
+            put(hosts, host, new Entry(values, wallClock.elapsedMs() + dnsTtlMs));
+        }
+        List<InetAddress> addresses = new ArrayList<>(resolved.length);
+        Collections.addAll(addresses, resolved);
+        return addresses;
+    }
+
+    // Las direcciones guardadas son literales: getByName no consulta el DNS
+    private static List<InetAddress> toAddresses(String host, String[] values) throws UnknownHostException {
+        List<InetAddress> addresses = new ArrayList<>(values.length);
+        for (String value : values) {
+            addresses.add(InetAddress.getByAddress(host, InetAddress.getByName(value).getAddress()));
+        }
+        return addresses;
+    }
+
+    // Ninguna dirección respondió: la próxima vez se vuelve a resolver
+    public synchronized void invalidateHost(String host) {
+        if (hosts.remove(host) != null) {
+            dirty = true;
+        }
+    }
+
+    // Destino final vigente de url, o null
+    public synchronized String redirectFor(String url) {
+        Entry entry = redirects.get(url);
+        if (entry == null || wallClock.elapsedMs() >= entry.expiresAtMs) {
+            return null;
+        }
+        return entry.values[0];
+    }
+
+    public synchronized void putRedirect(String url, String finalUrl) {
+        if (url.equals(finalUrl)) {
+            if (redirects.remove(url) != null) {
+                dirty = true;
+            }
+            return;
+        }
+        put(redirects, url, new Entry(new String[] {finalUrl}, wallClock.elapsedMs() + redirectTtlMs));
+    }
+
+    public synchronized void invalidateRedirect(String url) {
+        if (redirects.remove(url) != null) {
+            dirty = true;
+        }
+    }
+
+    private void put(LinkedHashMap<String, Entry> map, String key, Entry entry) {
+        map.put(key, entry);
+        Iterator<String> oldest = map.keySet().iterator();
+        while (map.size() > MAX_ENTRIES) {
+            oldest.next();
+            oldest.remove();
+        }
+        dirty = true;
+    }
+
+    // true si hubo cambios desde la última llamada
+    public synchronized boolean takeDirty() {
+        boolean wasDirty = dirty;
+        dirty = false;
+        return wasDirty;
+    }
+
+    // Una línea por entrada: "host <caduca> <nombre> <ip,ip>" o "redirect <caduca> <url> <destino>"
+    public synchronized String serialize() {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, Entry> host : hosts.entrySet()) {
+            out.append("host ").append(host.getValue().expiresAtMs).append(' ').append(host.getKey()).append(' ');
+            String[] values = host.getValue().values;
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                out.append(values[i]);
+            }
+            out.append('\n');
+        }
+        for (Map.Entry<String, Entry> redirect : redirects.entrySet()) {
+            out.append("redirect ").append(redirect.getValue().expiresAtMs).append(' ')
+                .append(redirect.getKey()).append(' ').append(redirect.getValue().values[0]).append('\n');
+        }
+        return out.toString();
+    }
+
+    // Las líneas que no se entienden se ignoran
+    public synchronized void restore(String serialized) {
+        hosts.clear();
+        redirects.clear();
+        if (serialized == null) {
+            return;
+        }
+        for (String line : serialized.split("\n")) {
+            String[] fields = line.trim().split(" ");
+            if (fields.length != 4) {
+                continue;
+            }
+            long expiresAtMs;
+            try {
+                expiresAtMs = Long.parseLong(fields[1]);
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            if ("host".equals(fields[0])) {
+                hosts.put(fields[2], new Entry(fields[3].split(","), expiresAtMs));
+            } else if ("redirect".equals(fields[0])) {
+                redirects.put(fields[2], new Entry(new String[] {fields[3]}, expiresAtMs));
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.realstereo.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+// Conexiones HTTP/1.1 que el servidor dejó abiertas (keep-alive) tras entregar una
+// respuesta completa, por esquema, host y puerto. Las peticiones cortas seguidas
+// (listas y segmentos HLS) reutilizan el socket y la sesión TLS en vez de pagar otra
+// vez TCP y el handshake. Las que llevan idleMs sin usar se cierran al buscar.
+public final class ConnectionPool {
+
+    public static final long DEFAULT_IDLE_MS = 30000;
+    // Una por descarga en paralelo de HlsStream es suficiente
+    static final int MAX_IDLE_PER_KEY = 6;
+
+    static final class Idle {
+        final Socket socket;
+        // El lector con buffer de la conexión: puede tener ya bytes de la siguiente respuesta
+        final InputStream in;
+        final long idleSinceMs;
+
+        Idle(Socket socket, InputStream in, long idleSinceMs) {
+            this.socket = socket;
+            this.in = in;
+            this.idleSinceMs = idleSinceMs;
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Se descarta igualmente
+            }
+        }
+    }
+
+    private final Clock clock;
+    private final long idleMs;
+    private final Map<String, ArrayDeque<Idle>> idle = new HashMap<>();
+    private long reused = 0;
+
+    public ConnectionPool(Clock clock, long idleMs) {
+        this.clock = clock;
+        this.idleMs = idleMs;
+    }
+
+    static String key(String scheme, String host, int port) {
+        return scheme.toLowerCase() + "://" + host.toLowerCase() + ":" + port;
+    }
+
+    // La conexión libre más reciente para key, o null
+    synchronized Idle take(String key) {
+        ArrayDeque<Idle> connections = idle.get(key);
+        if (connections == null) {
+            return null;
+        }
+        long now = clock.elapsedMs();
+        Idle found = null;
+        while (found == null && !connections.isEmpty()) {
+            Idle candidate = connections.pollLast();
+            if (now - candidate.idleSinceMs < idleMs && !candidate.socket.isClosed()) {
+                found = candidate;
+            } else {
+                candidate.close();
+            }
+        }
+        if (connections.isEmpty()) {
+            idle.remove(key);
+        }
+        if (found != null) {
+            reused++;
+        }
+        return found;
+    }
+
+    synchronized void put(String key, Socket socket, InputStream in) {
+        ArrayDeque<Idle> connections = idle.get(key);
+        if (connections == null) {
+            connections = new ArrayDeque<>();
+            idle.put(key, connections);
+        }
+        if (connections.size() >= MAX_IDLE_PER_KEY) {
+            connections.pollFirst().close();
+        }
+        connections.addLast(new Idle(socket, in, clock.elapsedMs()));
+    }
+
+    public synchronized int getIdleCount() {
+        int count = 0;
+        for (ArrayDeque<Idle> connections : idle.values()) {
+            count += connections.size();
+        }
+        return count;
+    }
+
+    // Peticiones servidas por una conexión reutilizada
+    public synchronized long getReusedCount() {
+        return reused;
+    }
+
+    // Cambio de red: las conexiones abiertas pertenecen a la anterior
+    public synchronized void evictAll() {
+        Iterator<ArrayDeque<Idle>> iterator = idle.values().iterator();
+        while (iterator.hasNext()) {
+            for (Idle connection : iterator.next()) {
+                connection.close();
+            }
+            iterator.remove();
+        }
+    }
+}
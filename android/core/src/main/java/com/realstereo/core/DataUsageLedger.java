@@ -0,0 +1,174 @@
+package com.realstereo.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Cuenta los bytes descargados del stream por tipo de red, por sesión y por día.
+// addBytes() se llama desde los hilos de lectura en cada read(): solo suma a un
+// contador atómico de la red actual. drain() pasa lo pendiente a la sesión y al día
+// indicado; lo llama el servicio de vez en cuando y antes de guardar.
+public final class DataUsageLedger {
+
+    public static final int RETENTION_DAYS = 31;
+    private static final int TYPES = NetworkType.values().length;
+
+    public static final class Day {
+        public final String date;
+        private final long[] bytes;
+
+        Day(String date, long[] bytes) {
+            this.date = date;
+            this.bytes = bytes;
+        }
+
+        public long getBytes(NetworkType type) {
+            return bytes[type.ordinal()];
+        }
+
+        public long getTotalBytes() {
+            long total = 0;
+            for (long value : bytes) {
+                total += value;
+            }
+            return total;
+        }
+    }
+
+    private final AtomicLongArray pending = new AtomicLongArray(TYPES);
+    private volatile NetworkType networkType = NetworkType.OTHER;
+    private final long[] session = new long[TYPES];
+    private long sessionStartedAtMs = 0;
+    // Fecha (yyyy-MM-dd, ordena bien como texto) -> bytes por tipo de red
+    private final TreeMap<String, long[]> days = new TreeMap<>();
+    private boolean dirty = false;
+
+    public void setNetworkType(NetworkType type) {
+        networkType = type;
+    }
+
+    public NetworkType getNetworkType() {
+        return networkType;
+    }
+
+    public void addBytes(long bytes) {
+        if (bytes > 0) {
+            pending.addAndGet(networkType.ordinal(), bytes);
+        }
+    }
+
+    public synchronized void drain(String date) {
+        long[] day = null;
+        for (int i = 0; i < TYPES; i++) {
+            long bytes = pending.getAndSet(i, 0);
+            if (bytes == 0) {
+                continue;
+            }
+            if (day == null) {
+                day = days.get(date);
+                if (day == null) {
+                    day = new long[TYPES];
+                    days.put(date, day);
+                    while (days.size() > RETENTION_DAYS) {
+                        days.pollFirstEntry();
+                    }
+                }
+            }
+            day[i] += bytes;
+            session[i] += bytes;
+            dirty = true;
+        }
+    }
+
+    public synchronized void startSession(long nowMs) {
+        for (int i = 0; i < TYPES; i++) {
+            session[i] = 0;
+        }
+        sessionStartedAtMs = nowMs;
+    }
+
+    public synchronized long getSessionStartedAtMs() {
+        return sessionStartedAtMs;
+    }
+
+    public synchronized long getSessionBytes(NetworkType type) {
+        return session[type.ordinal()];
+    }
+
+    public synchronized long getSessionTotalBytes() {
+        long total = 0;
+        for (long value : session) {
+            total += value;
+        }
+        return total;
+    }
+
+    // Del más reciente al más antiguo
+    public synchronized List<Day> getDays() {
+        List<Day> result = new ArrayList<>(days.size());
+        for (Map.Entry<String, long[]> entry : days.descendingMap().entrySet()) {
+            result.add(new Day(entry.getKey(), entry.getValue().clone()));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    // true si hubo cambios desde la última llamada: solo entonces merece la pena guardar
+    public synchronized boolean takeDirty() {
+        boolean wasDirty = dirty;
+        dirty = false;
+        return wasDirty;
+    }
+
+    // Una línea por día: "2026-10-18 wifi=123 cellular=45"
+    public synchronized String serialize() {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, long[]> entry : days.entrySet()) {
+            out.append(entry.getKey());
+            long[] bytes = entry.getValue();
+            for (NetworkType type : NetworkType.values()) {
+                if (bytes[type.ordinal()] > 0) {
+                    out.append(' ').append(type.key).append('=').append(bytes[type.ordinal()]);
+                }
+            }
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    // Las líneas o campos que no se entienden se ignoran: mejor perder un día que todo
+    public synchronized void restore(String serialized) {
+        days.clear();
+        if (serialized == null) {
+            return;
+        }
+        for (String line : serialized.split("\n")) {
+            String[] fields = line.trim().split(" ");
+            if (fields.length < 2 || fields[0].isEmpty()) {
+                continue;
+            }
+            long[] bytes = new long[TYPES];
+            for (int i = 1; i < fields.length; i++) {
+                int separator = fields[i].indexOf('=');
+                if (separator <= 0) {
+                    continue;
+                }
+                NetworkType type = NetworkType.fromKey(fields[i].substring(0, separator));
+                if (type == null) {
+                    continue;
+                }
+                try {
+                    bytes[type.ordinal()] = Long.parseLong(fields[i].substring(separator + 1));
+                } catch (NumberFormatException ignored) {
+                    // Campo corrupto
+                }
+            }
+            days.put(fields[0], bytes);
+        }
+        while (days.size() > RETENTION_DAYS) {
+            days.pollFirstEntry();
+        }
+    }
+}
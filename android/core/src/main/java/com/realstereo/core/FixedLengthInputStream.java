@@ -0,0 +1,49 @@
+package com.realstereo.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Cuerpo HTTP con Content-Length: termina al llegar a la longitud aunque la conexión
+// siga abierta (keep-alive)
+final class FixedLengthInputStream extends InputStream {
+
+    private final InputStream in;
+    private long remaining;
+
+    FixedLengthInputStream(InputStream in, long length) {
+        this.in = in;
+        this.remaining = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (remaining == 0) {
+            return -1;
+        }
+        int read = in.read(buffer, offset, (int) Math.min(length, remaining));
+        if (read == -1) {
+            throw new IOException("Stream ended " + remaining + " bytes before Content-Length");
+        }
+        remaining -= read;
+        return read;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(in.available(), remaining);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
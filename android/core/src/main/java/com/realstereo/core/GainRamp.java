@@ -0,0 +1,89 @@
+package com.realstereo.core;
+
+// Ganancia con rampa lineal hacia el valor pedido, para bajar el volumen al
+// perder el foco (ducking) y recuperarlo sin saltos audibles. setTarget() se
+// puede llamar desde cualquier hilo.
+public final class GainRamp implements PcmProcessor {
+
+    public static final long DEFAULT_RAMP_MS = 300;
+
+    private final long rampMs;
+    private volatile float target = 1f;
+    private float gain = 1f;
+    // Paso por frame de la rampa en curso y objetivo para el que se calculó
+    private float step = 0f;
+    private float stepTarget = 1f;
+    private int sampleRate = 44100;
+    private int channelCount = 2;
+
+    public GainRamp(long rampMs) {
+        this.rampMs = rampMs;
+    }
+
+    public GainRamp() {
+        this(DEFAULT_RAMP_MS);
+    }
+
+    @Override
+    public String getName() {
+        return "gainRamp";
+    }
+
+    public void setTarget(float gain) {
+        target = Math.max(0f, gain);
+    }
+
+    public float getTarget() {
+        return target;
+    }
+
+    public float getGain() {
+        return gain;
+    }
+
+    @Override
+    public void configure(int sampleRate, int channelCount) {
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+    }
+
+    @Override
+    public void process(float[] samples, int frames) {
+        float goal = target;
+        if (gain == goal) {
+            if (gain != 1f) {
+                int count = frames * channelCount;
+                for (int i = 0; i < count; i++) {
+                    samples[i] *= gain;
+                }
+            }
+            return;
+        }
+
+        if (goal != stepTarget) {
+            long rampFrames = Math.max(1, rampMs * sampleRate / 1000);
+            step = (goal - gain) / rampFrames;
+            stepTarget = goal;
+        }
+        int index = 0;
+        for (int frame = 0; frame < frames; frame++) {
+            if (gain != goal) {
+                gain += step;
+                if ((step > 0f && gain >= goal) || (step < 0f && gain <= goal)) {
+                    gain = goal;
+                }
+            }
+            for (int channel = 0; channel < channelCount; channel++) {
+                samples[index++] *= gain;
+            }
+        }
+    }
+
+    // Tras un salto no tiene sentido seguir la rampa: se aplica ya el objetivo
+    @Override
+    public void reset() {
+        gain = target;
+        stepTarget = gain;
+        step = 0f;
+    }
+}
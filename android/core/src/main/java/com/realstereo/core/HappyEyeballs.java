@@ -0,0 +1,152 @@
+package com.realstereo.core;
+
+import java.io.IOException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Conexión TCP al estilo "Happy Eyeballs" (RFC 8305): las direcciones se alternan
+// entre IPv6 e IPv4 y cada intento arranca 250 ms después del anterior, o enseguida
+// si todos los que están en marcha han fallado. Gana el primero que conecta y el
+// resto se cierra. Así una ruta IPv6 rota no cuesta el timeout entero.
+public final class HappyEyeballs {
+
+    public static final long DEFAULT_ATTEMPT_DELAY_MS = 250;
+
+    private HappyEyeballs() {
+    }
+
+    // Empieza por la familia de la primera dirección (la preferida por el sistema)
+    static List<InetAddress> interleave(List<InetAddress> addresses) {
+        if (addresses.isEmpty()) {
+            return addresses;
+        }
+        boolean firstIsV6 = addresses.get(0) instanceof Inet6Address;
+        List<InetAddress> preferred = new ArrayList<>();
+        List<InetAddress> other = new ArrayList<>();
+        for (InetAddress address : addresses) {
+            if ((address instanceof Inet6Address) == firstIsV6) {
+                preferred.add(address);
+            } else {
+                other.add(address);
+            }
+        }
+        List<InetAddress> ordered = new ArrayList<>(addresses.size());
+        for (int i = 0; i < Math.max(preferred.size(), other.size()); i++) {
+            if (i < preferred.size()) {
+                ordered.add(preferred.get(i));
+            }
+            if (i < other.size()) {
+                ordered.add(other.get(i));
+            }
+        }
+        return ordered;
+    }
+
+    private static final class Race {
+        final List<Socket> sockets = new ArrayList<>();
+        Socket winner;
+        IOException lastError;
+        int failures = 0;
+        boolean finished = false;
+    }
+
+    public static Socket connect(List<InetAddress> addresses, int port, int timeoutMs,
+                                 long attemptDelayMs) throws IOException {
+        if (addresses.isEmpty()) {
+            throw new IOException("No addresses");
+        }
+        if (addresses.size() == 1) {
+            Socket socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(addresses.get(0), port), timeoutMs);
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+            return socket;
+        }
+
+        List<InetAddress> ordered = interleave(addresses);
+        Race race = new Race();
+        long deadlineMs = System.nanoTime() / 1000000L + timeoutMs;
+        long nextStartMs = 0;
+        int started = 0;
+
+        synchronized (race) {
+            try {
+                while (race.winner == null) {
+                    long nowMs = System.nanoTime() / 1000000L;
+                    if (nowMs >= deadlineMs || race.failures == ordered.size()) {
+                        break;
+                    }
+                    boolean allFailed = race.failures == started;
+                    if (started < ordered.size() && (allFailed || nowMs >= nextStartMs)) {
+                        startAttempt(race, ordered.get(started), port, (int) (deadlineMs - nowMs));
+                        started++;
+                        nextStartMs = nowMs + attemptDelayMs;
+                        continue;
+                    }
+                    long waitUntilMs = started < ordered.size() ? Math.min(nextStartMs, deadlineMs) : deadlineMs;
+                    race.wait(Math.max(1, waitUntilMs - nowMs));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                race.finished = true;
+                // Cerrar un socket que aún conecta aborta su connect()
+                for (Socket socket : race.sockets) {
+                    if (socket != race.winner) {
+                        closeQuietly(socket);
+                    }
+                }
+            }
+
+            if (race.winner != null) {
+                return race.winner;
+            }
+            if (race.lastError != null && race.failures == ordered.size()) {
+                throw race.lastError;
+            }
+            throw new SocketTimeoutException("Connect timed out after " + timeoutMs + "ms");
+        }
+    }
+
+    // Se llama con el monitor de race tomado
+    private static void startAttempt(Race race, InetAddress address, int port, int timeoutMs) {
+        Socket socket = new Socket();
+        race.sockets.add(socket);
+        new Thread(() -> {
+            try {
+                socket.connect(new InetSocketAddress(address, port), timeoutMs);
+                synchronized (race) {
+                    if (race.winner == null && !race.finished) {
+                        race.winner = socket;
+                        race.notifyAll();
+                        return;
+                    }
+                }
+                closeQuietly(socket);
+            } catch (IOException e) {
+                closeQuietly(socket);
+                synchronized (race) {
+                    race.failures++;
+                    race.lastError = e;
+                    race.notifyAll();
+                }
+            }
+        }, "Connect-" + address.getHostAddress()).start();
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // Nada que hacer con un socket perdedor
+        }
+    }
+}
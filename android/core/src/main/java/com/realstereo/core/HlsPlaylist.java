@@ -0,0 +1,217 @@
+package com.realstereo.core;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Lista HLS (RFC 8216) reducida a lo que necesita la radio: de una lista maestra las
+// variantes, y de una de medios los segmentos con su número de secuencia, duración y
+// segmento de inicialización (EXT-X-MAP). Las URIs se devuelven ya absolutas.
+public final class HlsPlaylist {
+
+    public static final class Variant {
+        public final String uri;
+        public final int bandwidth;
+
+        Variant(String uri, int bandwidth) {
+            this.uri = uri;
+            this.bandwidth = bandwidth;
+        }
+    }
+
+    public static final class Segment {
+        public final long sequence;
+        public final String uri;
+        public final long durationMs;
+        // null si el formato no lo necesita (TS, ADTS); si no, va antes del primer segmento
+        public final String initUri;
+        // Cambio de codificación o de origen: el lector puede necesitar reiniciarse
+        public final boolean discontinuity;
+
+        Segment(long sequence, String uri, long durationMs, String initUri, boolean discontinuity) {
+            this.sequence = sequence;
+            this.uri = uri;
+            this.durationMs = durationMs;
+            this.initUri = initUri;
+            this.discontinuity = discontinuity;
+        }
+
+        @Override
+        public String toString() {
+            return "Segment{" + sequence + ", " + durationMs + "ms}";
+        }
+    }
+
+    public final boolean master;
+    public final List<Variant> variants;
+    public final long targetDurationMs;
+    public final long mediaSequence;
+    public final List<Segment> segments;
+    // La emisión terminó (EXT-X-ENDLIST): no hace falta volver a pedir la lista
+    public final boolean ended;
+
+    private HlsPlaylist(boolean master, List<Variant> variants, long targetDurationMs, long mediaSequence,
+                        List<Segment> segments, boolean ended) {
+        this.master = master;
+        this.variants = Collections.unmodifiableList(variants);
+        this.targetDurationMs = targetDurationMs;
+        this.mediaSequence = mediaSequence;
+        this.segments = Collections.unmodifiableList(segments);
+        this.ended = ended;
+    }
+
+    public static HlsPlaylist parse(String baseUrl, String text) throws IOException {
+        String[] lines = text.split("\r?\n");
+        if (lines.length == 0 || !lines[0].trim().startsWith("#EXTM3U")) {
+            throw new IOException("Not an HLS playlist: " + baseUrl);
+        }
+
+        List<Variant> variants = new ArrayList<>();
+        List<Segment> segments = new ArrayList<>();
+        long targetDurationMs = 0;
+        long mediaSequence = 0;
+        boolean ended = false;
+        int pendingBandwidth = -1;
+        long pendingDurationMs = -1;
+        boolean pendingDiscontinuity = false;
+        String initUri = null;
+
+        for (int i = 1; i < lines.length; i++) {
+            String line = lines[i].trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.startsWith("#EXT-X-STREAM-INF:")) {
+                pendingBandwidth = (int) Math.min(Integer.MAX_VALUE,
+                    parseLong(attribute(line, "BANDWIDTH"), 0));
+            } else if (line.startsWith("#EXT-X-TARGETDURATION:")) {
+                targetDurationMs = parseLong(value(line), 0) * 1000;
+            } else if (line.startsWith("#EXT-X-MEDIA-SEQUENCE:")) {
+                mediaSequence = parseLong(value(line), 0);
+            } else if (line.startsWith("#EXTINF:")) {
+                String duration = value(line);
+                int comma = duration.indexOf(',');
+                pendingDurationMs = parseDurationMs(comma >= 0 ? duration.substring(0, comma) : duration);
+            } else if (line.startsWith("#EXT-X-DISCONTINUITY")
+                && !line.startsWith("#EXT-X-DISCONTINUITY-SEQUENCE")) {
+                pendingDiscontinuity = true;
+            } else if (line.startsWith("#EXT-X-MAP:")) {
+                String uri = attribute(line, "URI");
+                initUri = uri != null ? resolve(baseUrl, uri) : null;
+            } else if (line.startsWith("#EXT-X-KEY:")) {
+                String method = attribute(line, "METHOD");
+                if (method != null && !"NONE".equals(method)) {
+                    throw new IOException("Encrypted HLS is not supported: " + method);
+                }
+            } else if (line.startsWith("#EXT-X-ENDLIST")) {
+                ended = true;
+            } else if (!line.startsWith("#")) {
+                if (pendingBandwidth >= 0) {
+                    variants.add(new Variant(resolve(baseUrl, line), pendingBandwidth));
+                    pendingBandwidth = -1;
+                } else if (pendingDurationMs >= 0) {
+                    segments.add(new Segment(mediaSequence + segments.size(), resolve(baseUrl, line),
+                        pendingDurationMs, initUri, pendingDiscontinuity));
+                    pendingDurationMs = -1;
+                    pendingDiscontinuity = false;
+                }
+            }
+        }
+
+        boolean master = !variants.isEmpty();
+        if (!master && targetDurationMs <= 0) {
+            throw new IOException("Missing EXT-X-TARGETDURATION in " + baseUrl);
+        }
+        return new HlsPlaylist(master, variants, targetDurationMs, mediaSequence, segments, ended);
+    }
+
+    // La de más calidad que no pase de maxBandwidth (0 = sin límite); si todas pasan,
+    // la más ligera
+    public static Variant chooseVariant(List<Variant> variants, int maxBandwidth) {
+        Variant best = null;
+        Variant lightest = null;
+        for (Variant variant : variants) {
+            if (lightest == null || variant.bandwidth < lightest.bandwidth) {
+                lightest = variant;
+            }
+            boolean fits = maxBandwidth <= 0 || variant.bandwidth <= maxBandwidth;
+            if (fits && (best == null || variant.bandwidth > best.bandwidth)) {
+                best = variant;
+            }
+        }
+        return best != null ? best : lightest;
+    }
+
+    public long getDurationMs() {
+        long total = 0;
+        for (Segment segment : segments) {
+            total += segment.durationMs;
+        }
+        return total;
+    }
+
+    private static String value(String line) {
+        return line.substring(line.indexOf(':') + 1).trim();
+    }
+
+    // Atributo de una etiqueta (NOMBRE=valor o NOMBRE="valor"); null si no está
+    static String attribute(String line, String name) {
+        String attributes = value(line);
+        int index = 0;
+        while (index < attributes.length()) {
+            int equals = attributes.indexOf('=', index);
+            if (equals < 0) {
+                return null;
+            }
+            String key = attributes.substring(index, equals).trim();
+            int start = equals + 1;
+            int end;
+            String found;
+            if (start < attributes.length() && attributes.charAt(start) == '"') {
+                end = attributes.indexOf('"', start + 1);
+                if (end < 0) {
+                    return null;
+                }
+                found = attributes.substring(start + 1, end);
+                end = attributes.indexOf(',', end);
+            } else {
+                end = attributes.indexOf(',', start);
+                found = attributes.substring(start, end >= 0 ? end : attributes.length()).trim();
+            }
+            if (key.equals(name)) {
+                return found;
+            }
+            if (end < 0) {
+                return null;
+            }
+            index = end + 1;
+        }
+        return null;
+    }
+
+    private static long parseDurationMs(String seconds) {
+        try {
+            return Math.max(0, Math.round(Double.parseDouble(seconds.trim()) * 1000));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static long parseLong(String value, long fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static String resolve(String baseUrl, String uri) throws MalformedURLException {
+        return new URL(new URL(baseUrl), uri).toString();
+    }
+}
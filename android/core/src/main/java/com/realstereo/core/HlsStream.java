@@ -0,0 +1,537 @@
+package com.realstereo.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Emisión HLS en directo leída como un stream continuo: un hilo vuelve a pedir la
+// lista cada EXT-X-TARGETDURATION y añade solo los segmentos nuevos; varios hilos
+// descargan en paralelo los próximos (como mucho prefetchSegments en memoria) y
+// read() los entrega uno tras otro, con el segmento de inicialización delante si lo
+// hay. Un segmento que falla se reintenta él solo; si no llega tras MAX_SEGMENT_RETRIES
+// se salta (un hueco corto) en vez de cortar la reproducción. Se mantiene a
+// liveEdgeMs del final de la lista: al empezar y si el lector se queda atrás. En un
+// EXT-X-DISCONTINUITY (o un salto al directo) read() devuelve DISCONTINUITY: lo que
+// sigue puede tener otro códec o marcas de tiempo y necesita un extractor nuevo, al
+// que se entrega otra vez el segmento de inicialización.
+public final class HlsStream {
+
+    public interface Opener {
+        StreamConnection open(String url) throws IOException;
+    }
+
+    public interface Listener {
+        // Bytes recibidos de la red (listas y segmentos), desde los hilos de descarga
+        void onBytesFetched(int bytes);
+    }
+
+    // Lo devuelve read() una vez antes del primer byte tras una discontinuidad
+    public static final int DISCONTINUITY = -2;
+    public static final int MAX_SEGMENT_RETRIES = 3;
+    static final int MAX_PLAYLIST_RETRIES = 3;
+    private static final int MAX_PLAYLIST_BYTES = 1024 * 1024;
+    private static final int MAX_SEGMENT_BYTES = 16 * 1024 * 1024;
+    private static final int READ_CHUNK = 16 * 1024;
+
+    private static final class Slot {
+        final HlsPlaylist.Segment segment;
+        byte[] data;
+        // El de inicialización de este segmento (EXT-X-MAP), compartido entre segmentos
+        byte[] initData;
+        // Empieza tras una discontinuidad (pendiente de señalar)
+        boolean discontinuity;
+        boolean fetching;
+        boolean failed;
+        int attempts;
+        long retryAtMs;
+
+        Slot(HlsPlaylist.Segment segment) {
+            this.segment = segment;
+            this.discontinuity = segment.discontinuity;
+        }
+    }
+
+    private final Opener opener;
+    private final String url;
+    private final long liveEdgeMs;
+    private final int prefetchSegments;
+    private final int maxBandwidth;
+    private final Listener listener;
+    private final BackoffPolicy retryPolicy;
+    private final List<Thread> threads = new ArrayList<>();
+    private final Set<StreamConnection> openConnections = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    // Todo lo de abajo va protegido por this
+    private final ArrayDeque<Slot> queue = new ArrayDeque<>();
+    private long lastQueuedSequence = -1;
+    private long targetDurationMs;
+    private boolean loaded = false;
+    private boolean ended = false;
+    private boolean closed = false;
+    private IOException fatal;
+    // Último segmento de inicialización descargado: suele ser el mismo toda la emisión
+    private String initUri;
+    private byte[] initData;
+    // Lo que read() está entregando: el segmento de inicialización o los datos de reading,
+    // la cabeza de la cola
+    private Slot reading;
+    private byte[] current;
+    private int currentOffset;
+    private String deliveredInitUri;
+    // Se entregó algo desde el inicio o la última discontinuidad
+    private boolean deliveredAny = false;
+    private long segmentsFetched = 0;
+    private long segmentRetries = 0;
+    private long segmentsSkipped = 0;
+    private long liveEdgeJumps = 0;
+    private long playlistReloads = 0;
+
+    // maxBandwidth: tope para elegir variante de una lista maestra (0 = la mejor)
+    public HlsStream(Opener opener, String url, long liveEdgeMs, int prefetchSegments, int maxBandwidth,
+                     Listener listener) {
+        this(opener, url, liveEdgeMs, prefetchSegments, maxBandwidth, listener,
+            new BackoffPolicy(250, 2000, new Random()));
+    }
+
+    HlsStream(Opener opener, String url, long liveEdgeMs, int prefetchSegments, int maxBandwidth,
+              Listener listener, BackoffPolicy retryPolicy) {
+        if (prefetchSegments < 1) {
+            throw new IllegalArgumentException("prefetchSegments must be >= 1");
+        }
+        this.opener = opener;
+        this.url = url;
+        this.liveEdgeMs = Math.max(0, liveEdgeMs);
+        this.prefetchSegments = prefetchSegments;
+        this.maxBandwidth = maxBandwidth;
+        this.listener = listener;
+        this.retryPolicy = retryPolicy;
+    }
+
+    public synchronized void start() {
+        if (!threads.isEmpty() || closed) {
+            return;
+        }
+        threads.add(new Thread(this::playlistLoop, "HlsPlaylist"));
+        for (int i = 0; i < prefetchSegments; i++) {
+            threads.add(new Thread(this::fetchLoop, "HlsSegment-" + i));
+        }
+        for (Thread thread : threads) {
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        // Desbloquea las descargas en curso
+        for (StreamConnection connection : openConnections) {
+            connection.close();
+        }
+    }
+
+    // Bytes del stream continuo; -1 al terminar una emisión con EXT-X-ENDLIST o al cerrar;
+    // DISCONTINUITY antes del primer segmento tras un corte del stream
+    public synchronized int read(byte[] buffer, int offset, int length, long timeoutMs) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        long deadline = Clock.MONOTONIC.elapsedMs() + timeoutMs;
+        while (true) {
+            if (closed) {
+                return -1;
+            }
+            if (current != null && currentOffset < current.length) {
+                int count = Math.min(length, current.length - currentOffset);
+                System.arraycopy(current, currentOffset, buffer, offset, count);
+                currentOffset += count;
+                deliveredAny = true;
+                return count;
+            }
+            if (current != null) {
+                finishCurrent();
+            }
+
+            Slot head = queue.peekFirst();
+            if (head != null && head.failed) {
+                queue.pollFirst();
+                segmentsSkipped++;
+                notifyAll();
+                continue;
+            }
+            if (head != null && head.data != null) {
+                if (head.discontinuity) {
+                    head.discontinuity = false;
+                    if (deliveredAny) {
+                        deliveredAny = false;
+                        deliveredInitUri = null;
+                        return DISCONTINUITY;
+                    }
+                }
+                String headInit = head.segment.initUri;
+                if (headInit != null && !headInit.equals(deliveredInitUri)) {
+                    deliveredInitUri = headInit;
+                    current = head.initData;
+                } else {
+                    current = head.data;
+                }
+                reading = head;
+                currentOffset = 0;
+                continue;
+            }
+            if (fatal != null) {
+                throw fatal;
+            }
+            if (head == null && ended) {
+                return -1;
+            }
+
+            long remaining = deadline - Clock.MONOTONIC.elapsedMs();
+            if (remaining <= 0) {
+                throw new IOException("Timed out waiting for HLS segment");
+            }
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+    // El segmento leído sale de la cola y deja sitio en la ventana de descarga
+    private void finishCurrent() {
+        if (reading != null && current == reading.data) {
+            queue.remove(reading);
+            reading = null;
+            notifyAll();
+        }
+        current = null;
+        currentOffset = 0;
+    }
+
+    private void playlistLoop() {
+        String mediaUrl = url;
+        int failures = 0;
+        while (!isClosed()) {
+            long delayMs;
+            try {
+                HlsPlaylist playlist = HlsPlaylist.parse(mediaUrl, new String(fetch(mediaUrl, MAX_PLAYLIST_BYTES),
+                    StandardCharsets.UTF_8));
+                if (playlist.master) {
+                    if (!mediaUrl.equals(url)) {
+                        throw new IOException("Nested master playlist: " + mediaUrl);
+                    }
+                    HlsPlaylist.Variant variant = HlsPlaylist.chooseVariant(playlist.variants, maxBandwidth);
+                    if (variant == null) {
+                        throw new IOException("Master playlist without variants: " + url);
+                    }
+                    mediaUrl = variant.uri;
+                    continue;
+                }
+                failures = 0;
+                boolean grew = onPlaylist(playlist);
+                if (playlist.ended) {
+                    return;
+                }
+                // RFC 8216 6.3.4: sin cambios se vuelve a mirar a la mitad del tiempo
+                delayMs = grew ? playlist.targetDurationMs : playlist.targetDurationMs / 2;
+            } catch (IOException e) {
+                if (isClosed()) {
+                    return;
+                }
+                failures++;
+                synchronized (this) {
+                    // Sin ninguna lista no hay nada que reproducir; después se sigue
+                    // intentando mientras suena lo que ya está en la cola
+                    if (!loaded && failures > MAX_PLAYLIST_RETRIES) {
+                        fatal = e;
+                        notifyAll();
+                        return;
+                    }
+                }
+                delayMs = retryPolicy.delayForAttempt(Math.min(failures - 1, 10));
+            }
+            if (!sleep(Math.max(100, delayMs))) {
+                return;
+            }
+        }
+    }
+
+    // Devuelve true si llegaron segmentos nuevos
+    synchronized boolean onPlaylist(HlsPlaylist playlist) {
+        playlistReloads++;
+        targetDurationMs = playlist.targetDurationMs;
+        ended = playlist.ended;
+        List<HlsPlaylist.Segment> segments = playlist.segments;
+        if (segments.isEmpty()) {
+            loaded = true;
+            notifyAll();
+            return false;
+        }
+
+        int start;
+        boolean jumped = false;
+        long lastSequence = segments.get(segments.size() - 1).sequence;
+        if (!loaded || lastQueuedSequence < playlist.mediaSequence - 1 || lastQueuedSequence > lastSequence) {
+            // Al empezar, si la lista ya no contiene lo siguiente que tocaba o si la
+            // numeración volvió atrás (servidor reiniciado): al directo
+            if (loaded) {
+                liveEdgeJumps++;
+                dropUnread();
+                jumped = true;
+            }
+            start = playlist.ended && !loaded ? 0 : liveEdgeStart(segments);
+        } else {
+            start = (int) Math.max(0, lastQueuedSequence + 1 - playlist.mediaSequence);
+        }
+        loaded = true;
+
+        boolean grew = false;
+        for (int i = start; i < segments.size(); i++) {
+            Slot slot = new Slot(segments.get(i));
+            // Tras un salto el siguiente segmento no continúa lo anterior
+            slot.discontinuity |= jumped && !grew;
+            queue.addLast(slot);
+            lastQueuedSequence = segments.get(i).sequence;
+            grew = true;
+        }
+        if (trimToLiveEdge()) {
+            liveEdgeJumps++;
+            Slot first = queue.peekFirst();
+            if (first != reading) {
+                first.discontinuity = true;
+            }
+        }
+        notifyAll();
+        return grew;
+    }
+
+    // Primer segmento que deja al menos liveEdgeMs hasta el final (y siempre uno)
+    private int liveEdgeStart(List<HlsPlaylist.Segment> segments) {
+        long distance = 0;
+        int index = segments.size() - 1;
+        while (index > 0) {
+            distance += segments.get(index).durationMs;
+            if (distance >= liveEdgeMs) {
+                break;
+            }
+            index--;
+        }
+        return index;
+    }
+
+    // Si lo pendiente pasa de liveEdgeMs más dos segmentos (el reproductor se quedó
+    // atrás tras un corte), se descartan los más viejos que aún no se leen
+    private boolean trimToLiveEdge() {
+        long slack = 2 * targetDurationMs;
+        boolean trimmed = false;
+        while (queue.size() > 1 && unreadMs() > liveEdgeMs + slack) {
+            if (queue.peekFirst() == reading) {
+                break;
+            }
+            queue.pollFirst();
+            trimmed = true;
+        }
+        return trimmed;
+    }
+
+    private void dropUnread() {
+        Iterator<Slot> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            Slot slot = iterator.next();
+            if (slot != reading) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private long unreadMs() {
+        long total = 0;
+        for (Slot slot : queue) {
+            total += slot.segment.durationMs;
+        }
+        return total;
+    }
+
+    private void fetchLoop() {
+        while (true) {
+            Slot slot;
+            String needInit;
+            byte[] cachedInit;
+            synchronized (this) {
+                slot = nextToFetch();
+                while (slot == null) {
+                    if (closed) {
+                        return;
+                    }
+                    try {
+                        wait(nextRetryWaitMs());
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    slot = nextToFetch();
+                }
+                slot.fetching = true;
+                String segmentInit = slot.segment.initUri;
+                needInit = segmentInit != null && !segmentInit.equals(initUri) ? segmentInit : null;
+                cachedInit = segmentInit != null && needInit == null ? initData : null;
+            }
+
+            byte[] data = null;
+            byte[] init = null;
+            IOException error = null;
+            try {
+                if (needInit != null) {
+                    init = fetch(needInit, MAX_SEGMENT_BYTES);
+                }
+                data = fetch(slot.segment.uri, MAX_SEGMENT_BYTES);
+            } catch (IOException e) {
+                error = e;
+            }
+
+            synchronized (this) {
+                slot.fetching = false;
+                if (closed) {
+                    return;
+                }
+                if (init != null) {
+                    initUri = needInit;
+                    initData = init;
+                }
+                if (error == null) {
+                    slot.initData = init != null ? init : cachedInit;
+                    slot.data = data;
+                    segmentsFetched++;
+                } else if (++slot.attempts > MAX_SEGMENT_RETRIES) {
+                    slot.failed = true;
+                } else {
+                    segmentRetries++;
+                    slot.retryAtMs = Clock.MONOTONIC.elapsedMs() + retryPolicy.delayForAttempt(slot.attempts - 1);
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    // Solo los primeros prefetchSegments de la cola: la ventana limita la memoria
+    private Slot nextToFetch() {
+        if (closed) {
+            return null;
+        }
+        long now = Clock.MONOTONIC.elapsedMs();
+        int index = 0;
+        for (Slot slot : queue) {
+            if (index++ >= prefetchSegments) {
+                break;
+            }
+            if (slot.data == null && !slot.fetching && !slot.failed && slot.retryAtMs <= now) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    private long nextRetryWaitMs() {
+        long now = Clock.MONOTONIC.elapsedMs();
+        long wait = 1000;
+        for (Slot slot : queue) {
+            if (slot.retryAtMs > now && !slot.fetching && slot.data == null && !slot.failed) {
+                wait = Math.min(wait, slot.retryAtMs - now);
+            }
+        }
+        return Math.max(1, wait);
+    }
+
+    private byte[] fetch(String target, int maxBytes) throws IOException {
+        StreamConnection connection = opener.open(target);
+        openConnections.add(connection);
+        boolean complete = false;
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[READ_CHUNK];
+            int read;
+            while ((read = connection.read(chunk, 0, chunk.length)) != -1) {
+                out.write(chunk, 0, read);
+                if (listener != null) {
+                    listener.onBytesFetched(read);
+                }
+                if (out.size() > maxBytes) {
+                    throw new IOException("Response too large: " + target);
+                }
+            }
+            complete = true;
+            return out.toByteArray();
+        } finally {
+            openConnections.remove(connection);
+            // Leída entera, la conexión sirve para el siguiente segmento
+            if (complete && !isClosed()) {
+                connection.release();
+            } else {
+                connection.close();
+            }
+        }
+    }
+
+    private synchronized boolean isClosed() {
+        return closed;
+    }
+
+    // false si se interrumpió (close())
+    private static boolean sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    // Audio pendiente en la cola, sin contar lo que ya tenga el reproductor
+    public synchronized long getLiveEdgeDistanceMs() {
+        return unreadMs();
+    }
+
+    public synchronized int getPrefetchedSegments() {
+        int count = 0;
+        for (Slot slot : queue) {
+            if (slot.data != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public synchronized long getSegmentsFetched() {
+        return segmentsFetched;
+    }
+
+    public synchronized long getSegmentRetries() {
+        return segmentRetries;
+    }
+
+    public synchronized long getSegmentsSkipped() {
+        return segmentsSkipped;
+    }
+
+    public synchronized long getLiveEdgeJumps() {
+        return liveEdgeJumps;
+    }
+
+    public synchronized long getPlaylistReloads() {
+        return playlistReloads;
+    }
+}
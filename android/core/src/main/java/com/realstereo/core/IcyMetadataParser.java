@@ -0,0 +1,166 @@
+package com.realstereo.core;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Decodifica bloques de metadatos ICY (StreamTitle='...';StreamUrl='...';) a medida
+// que llegan los bytes, sin armar el bloque completo. Solo se crea un String cuando
+// el título cambia; si el servidor repite el mismo título no se reserva memoria.
+public final class IcyMetadataParser {
+
+    public interface Listener {
+        void onStreamTitle(String streamTitle);
+    }
+
+    private static final byte[] STREAM_TITLE_KEY = "StreamTitle".getBytes(StandardCharsets.US_ASCII);
+    private static final int MAX_KEY_LENGTH = 32;
+    // Un bloque ICY mide como máximo 255 * 16 bytes
+    private static final int MAX_VALUE_LENGTH = 255 * 16;
+
+    private enum State { KEY, EXPECT_QUOTE, VALUE, SKIP_TO_SEPARATOR }
+
+    private final Listener listener;
+    private final byte[] key = new byte[MAX_KEY_LENGTH];
+    private final byte[] value = new byte[MAX_VALUE_LENGTH];
+    private byte[] lastTitle = new byte[0];
+    private State state = State.KEY;
+    private int keyLength = 0;
+    private int valueLength = 0;
+    private boolean pendingQuote = false;
+    private String lastTitleString = null;
+
+    public IcyMetadataParser(Listener listener) {
+        this.listener = listener;
+    }
+
+    public String getLastTitle() {
+        return lastTitleString;
+    }
+
+    // Alimenta bytes de un bloque de metadatos. Puede llamarse varias veces por bloque.
+    public void feed(byte[] data, int offset, int length) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            byte b = data[i];
+            switch (state) {
+                case KEY:
+                    if (b == '=') {
+                        state = State.EXPECT_QUOTE;
+                    } else if (b == ';' || b == 0) {
+                        keyLength = 0;
+                    } else if (keyLength < MAX_KEY_LENGTH) {
+                        key[keyLength++] = b;
+                    }
+                    break;
+
+                case EXPECT_QUOTE:
+                    valueLength = 0;
+                    pendingQuote = false;
+                    state = b == '\'' ? State.VALUE : State.SKIP_TO_SEPARATOR;
+                    break;
+
+                case VALUE:
+                    if (pendingQuote) {
+                        pendingQuote = false;
+                        if (b == ';') {
+                            finishValue();
+                            break;
+                        }
+                        // Comilla dentro del valor ("Guns N' Roses")
+                        appendValue((byte) '\'');
+                    }
+                    if (b == '\'') {
+                        pendingQuote = true;
+                    } else {
+                        appendValue(b);
+                    }
+                    break;
+
+                case SKIP_TO_SEPARATOR:
+                    if (b == ';') {
+                        keyLength = 0;
+                        state = State.KEY;
+                    }
+                    break;
+            }
+        }
+    }
+
+    // Fin del bloque: cierra un valor que terminó en comilla sin ';'
+    public void endBlock() {
+        if (state == State.VALUE && pendingQuote) {
+            finishValue();
+        }
+        state = State.KEY;
+        keyLength = 0;
+        valueLength = 0;
+        pendingQuote = false;
+    }
+
+    private void appendValue(byte b) {
+        if (valueLength < MAX_VALUE_LENGTH) {
+            value[valueLength++] = b;
+        }
+    }
+
+    private void finishValue() {
+        if (isStreamTitleKey()) {
+            publishTitle();
+        }
+        keyLength = 0;
+        valueLength = 0;
+        pendingQuote = false;
+        state = State.KEY;
+    }
+
+    private boolean isStreamTitleKey() {
+        if (keyLength != STREAM_TITLE_KEY.length) {
+            return false;
+        }
+        for (int i = 0; i < keyLength; i++) {
+            if (key[i] != STREAM_TITLE_KEY[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void publishTitle() {
+        if (isSameAsLastTitle()) {
+            return;
+        }
+        lastTitle = Arrays.copyOf(value, valueLength);
+        lastTitleString = decode(value, valueLength).trim();
+        listener.onStreamTitle(lastTitleString);
+    }
+
+    private boolean isSameAsLastTitle() {
+        if (valueLength != lastTitle.length) {
+            return false;
+        }
+        for (int i = 0; i < valueLength; i++) {
+            if (value[i] != lastTitle[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Muchos servidores envían Latin-1 aunque la norma no lo diga: UTF-8 si es válido
+    private static String decode(byte[] bytes, int length) {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+        try {
+            CharBuffer chars = decoder.decode(ByteBuffer.wrap(bytes, 0, length));
+            return chars.toString();
+        } catch (CharacterCodingException e) {
+            return new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.realstereo.core;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+// Separa los bloques de metadatos ICY del audio. El audio se lee directamente en el
+// buffer de quien llama (sin copias intermedias); solo los bytes de metadatos pasan
+// por un buffer propio hacia IcyMetadataParser.
+public final class IcyStreamReader {
+
+    public interface Source {
+        int read(byte[] buffer, int offset, int length) throws IOException;
+    }
+
+    private final int metaInterval;
+    private final IcyMetadataParser parser;
+    private final byte[] metaChunk = new byte[512];
+    private final byte[] lengthByte = new byte[1];
+    private int audioRemaining;
+
+    public IcyStreamReader(int metaInterval, IcyMetadataParser parser) {
+        if (metaInterval <= 0) {
+            throw new IllegalArgumentException("icy-metaint must be > 0");
+        }
+        this.metaInterval = metaInterval;
+        this.parser = parser;
+        this.audioRemaining = metaInterval;
+    }
+
+    // Devuelve bytes de audio leídos, o -1 al final del stream
+    public int read(Source source, byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+
+        if (audioRemaining == 0) {
+            if (!skipMetadataBlock(source)) {
+                return -1;
+            }
+            audioRemaining = metaInterval;
+        }
+
+        int read = source.read(buffer, offset, Math.min(length, audioRemaining));
+        if (read > 0) {
+            audioRemaining -= read;
+        }
+        return read;
+    }
+
+    private boolean skipMetadataBlock(Source source) throws IOException {
+        int read = source.read(lengthByte, 0, 1);
+        while (read == 0) {
+            read = source.read(lengthByte, 0, 1);
+        }
+        if (read == -1) {
+            return false;
+        }
+
+        int remaining = (lengthByte[0] & 0xFF) * 16;
+        while (remaining > 0) {
+            int chunk = source.read(metaChunk, 0, Math.min(remaining, metaChunk.length));
+            if (chunk == -1) {
+                throw new EOFException("Stream ended inside ICY metadata block");
+            }
+            parser.feed(metaChunk, 0, chunk);
+            remaining -= chunk;
+        }
+        parser.endBlock();
+        return true;
+    }
+}
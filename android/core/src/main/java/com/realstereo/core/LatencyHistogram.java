@@ -0,0 +1,110 @@
+package com.realstereo.core;
+
+// Histograma de cubetas fijas para tiempos en milisegundos. record() no reserva
+// memoria: solo incrementa contadores. Quien lo use debe sincronizar el acceso.
+public class LatencyHistogram {
+
+    // Límite superior (inclusive) de cada cubeta; la última recoge todo lo que pase de 30 s
+    public static final long[] BUCKET_BOUNDS_MS = {
+        50, 100, 200, 300, 500, 750, 1000, 1500, 2000, 3000, 5000, 10000, 30000
+    };
+
+    public static final class Snapshot {
+        public final long count;
+        public final long sumMs;
+        public final long minMs;
+        public final long maxMs;
+        public final long p50Ms;
+        public final long p95Ms;
+        // Una entrada más que BUCKET_BOUNDS_MS: la última es el desbordamiento
+        public final long[] bucketCounts;
+
+        Snapshot(long count, long sumMs, long minMs, long maxMs, long p50Ms, long p95Ms, long[] bucketCounts) {
+            this.count = count;
+            this.sumMs = sumMs;
+            this.minMs = minMs;
+            this.maxMs = maxMs;
+            this.p50Ms = p50Ms;
+            this.p95Ms = p95Ms;
+            this.bucketCounts = bucketCounts;
+        }
+
+        public long getMeanMs() {
+            return count > 0 ? sumMs / count : 0;
+        }
+    }
+
+    private final long[] counts = new long[BUCKET_BOUNDS_MS.length + 1];
+    private long count = 0;
+    private long sumMs = 0;
+    private long minMs = Long.MAX_VALUE;
+    private long maxMs = 0;
+
+    public void record(long valueMs) {
+        if (valueMs < 0) {
+            valueMs = 0;
+        }
+        counts[bucketFor(valueMs)]++;
+        count++;
+        sumMs += valueMs;
+        if (valueMs < minMs) {
+            minMs = valueMs;
+        }
+        if (valueMs > maxMs) {
+            maxMs = valueMs;
+        }
+    }
+
+    private static int bucketFor(long valueMs) {
+        for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+            if (valueMs <= BUCKET_BOUNDS_MS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS_MS.length;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+        count = 0;
+        sumMs = 0;
+        minMs = Long.MAX_VALUE;
+        maxMs = 0;
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(
+            count,
+            sumMs,
+            count > 0 ? minMs : 0,
+            maxMs,
+            percentile(0.50),
+            percentile(0.95),
+            counts.clone()
+        );
+    }
+
+    // Estimación por cubetas: límite superior de la cubeta donde cae el percentil,
+    // acotado por el máximo real para no exagerar en la última
+    private long percentile(double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(count * fraction);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                long bound = i < BUCKET_BOUNDS_MS.length ? BUCKET_BOUNDS_MS[i] : maxMs;
+                return Math.min(bound, maxMs);
+            }
+        }
+        return maxMs;
+    }
+}
@@ -0,0 +1,120 @@
+package com.realstereo.core;
+
+// Control automático de ganancia por sonoridad. Mide el nivel RMS con una ventana
+// deslizante de ~400 ms y mueve la ganancia hacia el nivel objetivo: baja rápido
+// cuando algo suena fuerte (anuncios) y sube despacio cuando baja (locutor), sin
+// pasar de ±12 dB. Por debajo del umbral de silencio no sube, para no amplificar
+// ruido en pausas. La ganancia se interpola dentro de cada bloque.
+public final class LoudnessNormalizer implements PcmProcessor {
+
+    public static final float DEFAULT_TARGET_DBFS = -18f;
+    private static final float MAX_GAIN_DB = 12f;
+    private static final float MIN_GAIN_DB = -12f;
+    private static final float GATE_DBFS = -50f;
+    private static final float WINDOW_MS = 400f;
+    // Velocidad máxima del cambio de ganancia
+    private static final float ATTACK_DB_PER_SECOND = 12f;
+    private static final float RELEASE_DB_PER_SECOND = 3f;
+
+    private final float targetDbfs;
+    private volatile boolean enabled = true;
+    private int sampleRate = 44100;
+    private int channelCount = 2;
+    private float meanSquare = 0f;
+    private float gainDb = 0f;
+    // Copias para leer desde otro hilo
+    private volatile float publishedGainDb = 0f;
+    private volatile float publishedLevelDbfs = -120f;
+
+    public LoudnessNormalizer(float targetDbfs) {
+        this.targetDbfs = targetDbfs;
+    }
+
+    public LoudnessNormalizer() {
+        this(DEFAULT_TARGET_DBFS);
+    }
+
+    @Override
+    public String getName() {
+        return "loudness";
+    }
+
+    // Al desactivarlo la ganancia vuelve a 0 dB con la misma velocidad limitada
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public float getGainDb() {
+        return publishedGainDb;
+    }
+
+    public float getLevelDbfs() {
+        return publishedLevelDbfs;
+    }
+
+    @Override
+    public void configure(int sampleRate, int channelCount) {
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+    }
+
+    @Override
+    public void process(float[] samples, int frames) {
+        if (frames == 0) {
+            return;
+        }
+        int count = frames * channelCount;
+        float blockMs = frames * 1000f / sampleRate;
+
+        float desiredDb = 0f;
+        if (enabled) {
+            float sum = 0f;
+            for (int i = 0; i < count; i++) {
+                sum += samples[i] * samples[i];
+            }
+            float alpha = 1f - (float) Math.exp(-blockMs / WINDOW_MS);
+            meanSquare += alpha * (sum / count - meanSquare);
+            float levelDbfs = 10f * (float) Math.log10(meanSquare + 1e-12f);
+            publishedLevelDbfs = levelDbfs;
+
+            desiredDb = levelDbfs < GATE_DBFS
+                ? gainDb
+                : Math.max(MIN_GAIN_DB, Math.min(MAX_GAIN_DB, targetDbfs - levelDbfs));
+        }
+
+        float rate = desiredDb < gainDb ? ATTACK_DB_PER_SECOND : RELEASE_DB_PER_SECOND;
+        float maxChange = rate * blockMs / 1000f;
+        float nextGainDb = gainDb + Math.max(-maxChange, Math.min(maxChange, desiredDb - gainDb));
+
+        if (gainDb == 0f && nextGainDb == 0f) {
+            return;
+        }
+        float from = dbToLinear(gainDb);
+        float to = dbToLinear(nextGainDb);
+        float step = (to - from) / frames;
+        float gain = from;
+        int index = 0;
+        for (int frame = 0; frame < frames; frame++) {
+            gain += step;
+            for (int channel = 0; channel < channelCount; channel++) {
+                samples[index++] *= gain;
+            }
+        }
+        gainDb = nextGainDb;
+        publishedGainDb = nextGainDb;
+    }
+
+    // Se conserva la ganancia (la emisora suena igual tras el salto) pero no la medida
+    @Override
+    public void reset() {
+        meanSquare = 0f;
+    }
+
+    private static float dbToLinear(float db) {
+        return (float) Math.pow(10.0, db / 20.0);
+    }
+}
@@ -0,0 +1,85 @@
+package com.realstereo.core;
+
+import java.util.Random;
+
+// Decide cómo se comporta la reproducción según la red. En redes de pago por uso
+// el buffer por delante se limita (lo descargado y no oído se pierde al parar), los
+// reintentos se espacian más y no se prueban varias URLs en paralelo. Sin red no se
+// descarga nada y ReconnectScheduler espera a que vuelva.
+public final class NetworkPolicy {
+
+    public enum Mode {
+        // Según la red: ahorro solo si es de pago por uso
+        AUTO,
+        // Ahorro siempre, también en Wi-Fi (puntos de acceso de un móvil)
+        SAVER,
+        // Nunca ahorro
+        UNRESTRICTED;
+
+        public static Mode fromKey(String key) {
+            for (Mode mode : values()) {
+                if (mode.name().equalsIgnoreCase(key)) {
+                    return mode;
+                }
+            }
+            return null;
+        }
+    }
+
+    public enum Profile {
+        UNMETERED,
+        METERED,
+        OFFLINE
+    }
+
+    // ~30 s de audio a 128 kbps
+    public static final int METERED_MAX_BUFFER_BYTES = 512 * 1024;
+    public static final long METERED_BASE_DELAY_MS = 2000;
+    public static final long METERED_MAX_DELAY_MS = 120000;
+
+    private final Mode mode;
+
+    public NetworkPolicy(Mode mode) {
+        this.mode = mode;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public Profile profileFor(boolean online, boolean metered) {
+        if (!online) {
+            return Profile.OFFLINE;
+        }
+        switch (mode) {
+            case SAVER:
+                return Profile.METERED;
+            case UNRESTRICTED:
+                return Profile.UNMETERED;
+            default:
+                return metered ? Profile.METERED : Profile.UNMETERED;
+        }
+    }
+
+    // Los ajustes del usuario son el techo; la política solo recorta.
+    // Sin red se mantiene el de pago por uso: la red que vuelva suele ser la móvil.
+    public BufferConfig bufferConfigFor(Profile profile, BufferConfig configured) {
+        if (profile == Profile.UNMETERED || configured.maxBufferBytes <= METERED_MAX_BUFFER_BYTES) {
+            return configured;
+        }
+        return new BufferConfig(configured.initialBufferMs, configured.rebufferMs,
+            METERED_MAX_BUFFER_BYTES, configured.connectTimeoutMs, configured.readTimeoutMs);
+    }
+
+    public BackoffPolicy backoffFor(Profile profile) {
+        if (profile == Profile.UNMETERED) {
+            return new BackoffPolicy();
+        }
+        return new BackoffPolicy(METERED_BASE_DELAY_MS, METERED_MAX_DELAY_MS, new Random());
+    }
+
+    // Probar N URLs a la vez multiplica los bytes del arranque
+    public boolean allowsParallelProbes(Profile profile) {
+        return profile == Profile.UNMETERED;
+    }
+}
@@ -0,0 +1,54 @@
+package com.realstereo.core;
+
+import java.util.HashSet;
+import java.util.Set;
+
+// Decide si hay red a partir de los avisos onAvailable/onLost de un NetworkCallback,
+// sin Android (N es el Network). Con el callback de la red por defecto solo llega
+// onLost de la última red anunciada y solo si nada la sustituye: al pasar de Wi-Fi
+// a móvil la Wi-Fi no se pierde nunca, así que se sigue solo la red actual. Con un
+// callback por petición (antes de Android 7) llegan todas y se cuentan las que quedan.
+// Un solo hilo (el del handler de NetworkMonitor).
+public final class NetworkTracker<N> {
+
+    private final boolean defaultNetworkOnly;
+    private final Set<N> networks = new HashSet<>();
+    private N current;
+
+    public NetworkTracker(boolean defaultNetworkOnly) {
+        this.defaultNetworkOnly = defaultNetworkOnly;
+    }
+
+    // true si con ella se pasa de no tener red a tenerla
+    public boolean onAvailable(N network) {
+        boolean wasOnline = isOnline();
+        if (defaultNetworkOnly) {
+            current = network;
+        } else {
+            networks.add(network);
+        }
+        return !wasOnline;
+    }
+
+    // true si con ella se queda sin red
+    public boolean onLost(N network) {
+        boolean wasOnline = isOnline();
+        if (defaultNetworkOnly) {
+            if (network.equals(current)) {
+                current = null;
+            }
+        } else {
+            networks.remove(network);
+        }
+        return wasOnline && !isOnline();
+    }
+
+    public boolean isOnline() {
+        return defaultNetworkOnly ? current != null : !networks.isEmpty();
+    }
+
+    public void clear() {
+        current = null;
+        networks.clear();
+    }
+}
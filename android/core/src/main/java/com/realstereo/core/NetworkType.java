@@ -0,0 +1,24 @@
+package com.realstereo.core;
+
+// Red por la que salen los bytes del stream, para repartir el consumo
+public enum NetworkType {
+    WIFI("wifi"),
+    CELLULAR("cellular"),
+    OTHER("other"),
+    OFFLINE("offline");
+
+    public final String key;
+
+    NetworkType(String key) {
+        this.key = key;
+    }
+
+    public static NetworkType fromKey(String key) {
+        for (NetworkType type : values()) {
+            if (type.key.equals(key)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
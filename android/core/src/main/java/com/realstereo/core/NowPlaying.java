@@ -0,0 +1,35 @@
+package com.realstereo.core;
+
+// Lo que suena ahora según el StreamTitle ICY. La convención habitual es
+// "Artista - Título"; si no hay separador todo se toma como título.
+public final class NowPlaying {
+
+    private static final String SEPARATOR = " - ";
+
+    public final String streamTitle;
+    public final String artist;
+    public final String title;
+
+    private NowPlaying(String streamTitle, String artist, String title) {
+        this.streamTitle = streamTitle;
+        this.artist = artist;
+        this.title = title;
+    }
+
+    public static NowPlaying fromStreamTitle(String streamTitle) {
+        String value = streamTitle == null ? "" : streamTitle.trim();
+        int separator = value.indexOf(SEPARATOR);
+        if (separator > 0 && separator + SEPARATOR.length() < value.length()) {
+            return new NowPlaying(
+                value,
+                value.substring(0, separator).trim(),
+                value.substring(separator + SEPARATOR.length()).trim()
+            );
+        }
+        return new NowPlaying(value, "", value);
+    }
+
+    public boolean isEmpty() {
+        return streamTitle.isEmpty();
+    }
+}
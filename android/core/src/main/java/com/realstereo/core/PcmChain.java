@@ -0,0 +1,82 @@
+package com.realstereo.core;
+
+// Cadena de procesadores PCM con medida de coste: cada procesador acumula el
+// tiempo que tarda, normalizado a bloques de 10 ms de audio, para comprobar que
+// sigue siendo barato en móviles modestos. process() no reserva memoria.
+public final class PcmChain {
+
+    public static final class ProcessorStats {
+        public final String name;
+        // Bloques de 10 ms procesados
+        public final long blocks;
+        public final long meanNanosPer10ms;
+        public final long maxNanosPer10ms;
+
+        ProcessorStats(String name, long blocks, long meanNanosPer10ms, long maxNanosPer10ms) {
+            this.name = name;
+            this.blocks = blocks;
+            this.meanNanosPer10ms = meanNanosPer10ms;
+            this.maxNanosPer10ms = maxNanosPer10ms;
+        }
+    }
+
+    private final PcmProcessor[] processors;
+    private final long[] totalNanos;
+    private final long[] maxNanosPer10ms;
+    private long totalFrames = 0;
+    private int framesPer10ms = 441;
+
+    public PcmChain(PcmProcessor... processors) {
+        this.processors = processors.clone();
+        this.totalNanos = new long[processors.length];
+        this.maxNanosPer10ms = new long[processors.length];
+    }
+
+    public synchronized void configure(int sampleRate, int channelCount) {
+        framesPer10ms = Math.max(1, sampleRate / 100);
+        for (PcmProcessor processor : processors) {
+            processor.configure(sampleRate, channelCount);
+        }
+    }
+
+    public synchronized void process(float[] samples, int frames) {
+        if (frames == 0) {
+            return;
+        }
+        for (int i = 0; i < processors.length; i++) {
+            long start = System.nanoTime();
+            processors[i].process(samples, frames);
+            long elapsed = System.nanoTime() - start;
+            totalNanos[i] += elapsed;
+            long per10ms = elapsed * framesPer10ms / frames;
+            if (per10ms > maxNanosPer10ms[i]) {
+                maxNanosPer10ms[i] = per10ms;
+            }
+        }
+        totalFrames += frames;
+    }
+
+    public synchronized void reset() {
+        for (PcmProcessor processor : processors) {
+            processor.reset();
+        }
+    }
+
+    public synchronized void resetStats() {
+        for (int i = 0; i < processors.length; i++) {
+            totalNanos[i] = 0;
+            maxNanosPer10ms[i] = 0;
+        }
+        totalFrames = 0;
+    }
+
+    public synchronized ProcessorStats[] snapshot() {
+        long blocks = totalFrames / framesPer10ms;
+        ProcessorStats[] stats = new ProcessorStats[processors.length];
+        for (int i = 0; i < processors.length; i++) {
+            long mean = totalFrames > 0 ? totalNanos[i] * framesPer10ms / totalFrames : 0;
+            stats[i] = new ProcessorStats(processors[i].getName(), blocks, mean, maxNanosPer10ms[i]);
+        }
+        return stats;
+    }
+}
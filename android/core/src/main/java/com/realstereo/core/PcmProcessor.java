@@ -0,0 +1,18 @@
+package com.realstereo.core;
+
+// Etapa de la cadena de audio decodificado. Trabaja sobre muestras float
+// intercaladas en [-1, 1] y las modifica en el sitio: no debe reservar memoria en
+// process(), que corre en el hilo de audio del reproductor una vez por buffer.
+public interface PcmProcessor {
+
+    String getName();
+
+    // Antes del primer bloque y cada vez que cambia el formato
+    void configure(int sampleRate, int channelCount);
+
+    // samples contiene frames * channelCount valores
+    void process(float[] samples, int frames);
+
+    // Salto en el stream (flush del reproductor): se olvida el estado medido
+    void reset();
+}
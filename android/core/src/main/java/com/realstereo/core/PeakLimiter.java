@@ -0,0 +1,77 @@
+package com.realstereo.core;
+
+// Limitador de picos al final de la cadena: si un frame pasaría del techo, la
+// ganancia baja al instante lo justo y después se recupera con caída exponencial.
+// Evita que la subida del control de sonoridad acabe en recortes en AudioTrack.
+public final class PeakLimiter implements PcmProcessor {
+
+    // -1 dBFS
+    public static final float DEFAULT_CEILING = 0.891f;
+    private static final float RELEASE_MS = 150f;
+
+    private final float ceiling;
+    private int channelCount = 2;
+    private float releaseCoefficient;
+    private float gain = 1f;
+    private volatile float minGainSinceRead = 1f;
+
+    public PeakLimiter(float ceiling) {
+        this.ceiling = ceiling;
+        configure(44100, 2);
+    }
+
+    public PeakLimiter() {
+        this(DEFAULT_CEILING);
+    }
+
+    @Override
+    public String getName() {
+        return "limiter";
+    }
+
+    // Máxima reducción aplicada desde la última consulta, en dB (0 o negativo)
+    public float takeMaxReductionDb() {
+        float min = minGainSinceRead;
+        minGainSinceRead = 1f;
+        return 20f * (float) Math.log10(min);
+    }
+
+    @Override
+    public void configure(int sampleRate, int channelCount) {
+        this.channelCount = channelCount;
+        releaseCoefficient = (float) Math.exp(-1000.0 / (RELEASE_MS * sampleRate));
+    }
+
+    @Override
+    public void process(float[] samples, int frames) {
+        float minGain = minGainSinceRead;
+        int index = 0;
+        for (int frame = 0; frame < frames; frame++) {
+            float peak = 0f;
+            for (int channel = 0; channel < channelCount; channel++) {
+                float value = Math.abs(samples[index + channel]);
+                if (value > peak) {
+                    peak = value;
+                }
+            }
+
+            gain = 1f - (1f - gain) * releaseCoefficient;
+            if (peak * gain > ceiling) {
+                gain = ceiling / peak;
+            }
+            if (gain < minGain) {
+                minGain = gain;
+            }
+
+            for (int channel = 0; channel < channelCount; channel++) {
+                samples[index++] *= gain;
+            }
+        }
+        minGainSinceRead = minGain;
+    }
+
+    @Override
+    public void reset() {
+        gain = 1f;
+    }
+}
@@ -0,0 +1,8 @@
+package com.realstereo.core;
+
+// Órdenes de control que llegan al servicio (plugin, MediaSession, notificación, foco)
+public enum PlaybackCommand {
+    PLAY,
+    PAUSE,
+    STOP
+}
@@ -0,0 +1,37 @@
+package com.realstereo.core;
+
+// Lo necesario para volver al mismo punto si el sistema mata el proceso: si el
+// usuario estaba escuchando, qué emisora y URL sonaban, el último título y cuánto
+// por detrás del directo iba. savedAtMs es del reloj de pared: sobrevive al reinicio.
+public final class PlaybackSnapshot {
+
+    public final boolean playRequested;
+    // null sin catálogo de emisoras
+    public final String stationId;
+    // null si aún no se había conectado
+    public final String endpoint;
+    public final String streamTitle;
+    public final long behindLiveMs;
+    public final long savedAtMs;
+
+    public PlaybackSnapshot(boolean playRequested, String stationId, String endpoint,
+                            String streamTitle, long behindLiveMs, long savedAtMs) {
+        this.playRequested = playRequested;
+        this.stationId = stationId;
+        this.endpoint = endpoint;
+        this.streamTitle = streamTitle != null ? streamTitle : "";
+        this.behindLiveMs = Math.max(0, behindLiveMs);
+        this.savedAtMs = savedAtMs;
+    }
+
+    // Un reinicio mucho después no debe poner la radio a sonar por sorpresa
+    public boolean shouldResume(long nowMs, long maxAgeMs) {
+        return playRequested && Math.abs(nowMs - savedAtMs) <= maxAgeMs;
+    }
+
+    @Override
+    public String toString() {
+        return "PlaybackSnapshot{playRequested=" + playRequested + ", station=" + stationId
+            + ", endpoint=" + endpoint + ", behindLiveMs=" + behindLiveMs + "}";
+    }
+}
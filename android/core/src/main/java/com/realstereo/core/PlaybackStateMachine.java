@@ -0,0 +1,130 @@
+package com.realstereo.core;
+
+// Reglas de transición del estado de reproducción, sin Android. El servicio avisa de
+// lo que pasa (petición del usuario, eventos del motor, foco de audio) y la máquina
+// decide el estado publicado. playRequested es la intención del usuario: sigue activa
+// durante cortes y reconexiones y solo la quitan pausa, parada o un fallo al arrancar.
+public class PlaybackStateMachine {
+
+    public interface Listener {
+        void onStatusChanged(PlaybackStatus previous, PlaybackStatus current);
+    }
+
+    private final Listener listener;
+    // Se leen desde el hilo del plugin
+    private volatile PlaybackStatus status = PlaybackStatus.IDLE;
+    private volatile boolean playRequested = false;
+
+    public PlaybackStateMachine(Listener listener) {
+        this.listener = listener;
+    }
+
+    public PlaybackStatus getStatus() {
+        return status;
+    }
+
+    public boolean isPlayRequested() {
+        return playRequested;
+    }
+
+    public void onStartRequested() {
+        playRequested = true;
+        moveTo(PlaybackStatus.CONNECTING);
+    }
+
+    public void onStartFailed() {
+        playRequested = false;
+        moveTo(PlaybackStatus.ERROR);
+    }
+
+    // Reanudación de un motor que sigue preparado (modo diferido)
+    public void onResumed() {
+        playRequested = true;
+        moveTo(PlaybackStatus.PLAYING);
+    }
+
+    public void onPauseRequested() {
+        playRequested = false;
+        moveTo(PlaybackStatus.PAUSED);
+    }
+
+    public void onStopRequested() {
+        playRequested = false;
+        moveTo(PlaybackStatus.STOPPED);
+    }
+
+    // Nuevo intento de conexión (reintento o cambio de URL). Sin foco sigue en pausa
+    public void onReconnecting() {
+        if (playRequested && status != PlaybackStatus.PAUSED) {
+            moveTo(PlaybackStatus.RECONNECTING);
+        }
+    }
+
+    // Salto dentro del buffer diferido mientras suena
+    public void onSeeking() {
+        if (playRequested) {
+            moveTo(PlaybackStatus.BUFFERING);
+        }
+    }
+
+    // canPlay: el servicio tiene el foco de audio y puede arrancar el motor
+    public void onPrepared(boolean canPlay) {
+        if (canPlay) {
+            moveTo(PlaybackStatus.PLAYING);
+        }
+    }
+
+    // Devuelve true si hay que reintentar (el usuario quería oír la radio)
+    public boolean onError() {
+        if (playRequested) {
+            // Sin foco se reconecta igual, pero en pausa hasta recuperarlo
+            if (status != PlaybackStatus.PAUSED) {
+                moveTo(PlaybackStatus.RECONNECTING);
+            }
+            return true;
+        }
+        moveTo(PlaybackStatus.ERROR);
+        return false;
+    }
+
+    // Devuelve true si es un corte de audio que estaba sonando
+    public boolean onBufferingStarted() {
+        if (status == PlaybackStatus.PLAYING) {
+            moveTo(PlaybackStatus.BUFFERING);
+            return true;
+        }
+        return false;
+    }
+
+    public void onBufferingEnded() {
+        if (status == PlaybackStatus.BUFFERING) {
+            moveTo(PlaybackStatus.PLAYING);
+        }
+    }
+
+    // Pérdida temporal del foco (llamada, notificación): el motor se pausa sin quitar la
+    // intención, también en un corte o una reconexión. Devuelve true si hay que pausarlo
+    public boolean onFocusLostTransient() {
+        if (status == PlaybackStatus.PLAYING || status == PlaybackStatus.BUFFERING
+            || status == PlaybackStatus.RECONNECTING) {
+            moveTo(PlaybackStatus.PAUSED);
+            return true;
+        }
+        return false;
+    }
+
+    public void onFocusRegained() {
+        if (playRequested && status == PlaybackStatus.PAUSED) {
+            moveTo(PlaybackStatus.PLAYING);
+        }
+    }
+
+    private void moveTo(PlaybackStatus next) {
+        PlaybackStatus previous = status;
+        if (previous == next) {
+            return;
+        }
+        status = next;
+        listener.onStatusChanged(previous, next);
+    }
+}
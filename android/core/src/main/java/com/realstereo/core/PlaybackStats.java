@@ -0,0 +1,208 @@
+package com.realstereo.core;
+
+// Métricas de calidad de reproducción: arranque (primer byte, preparado, audio
+// audible), cortes de buffer, errores y tiempo de reconexión. Los eventos llegan
+// del hilo de reproducción de AudioService (HandlerThread "Playback", donde también
+// entrega ExoPlayer sus callbacks) y se leen desde el plugin, en otro hilo,
+// por eso todo va sincronizado.
+// Registrar un evento no reserva memoria.
+public class PlaybackStats {
+
+    // Códigos de error distintos que se cuentan por separado; el resto va a "otros"
+    static final int MAX_ERROR_CODES = 16;
+
+    public static final class Snapshot {
+        public final long sinceResetMs;
+        public final long startAttempts;
+        public final long rebufferCount;
+        public final long errorCount;
+        public final long reconnectCount;
+        public final LatencyHistogram.Snapshot timeToFirstByte;
+        public final LatencyHistogram.Snapshot timeToPrepared;
+        public final LatencyHistogram.Snapshot timeToFirstAudio;
+        public final LatencyHistogram.Snapshot rebufferDuration;
+        public final LatencyHistogram.Snapshot reconnectLatency;
+        public final int[] errorCodes;
+        public final long[] errorCodeCounts;
+        public final long otherErrorCount;
+
+        Snapshot(long sinceResetMs, long startAttempts, long rebufferCount, long errorCount,
+                 long reconnectCount, LatencyHistogram.Snapshot timeToFirstByte,
+                 LatencyHistogram.Snapshot timeToPrepared, LatencyHistogram.Snapshot timeToFirstAudio,
+                 LatencyHistogram.Snapshot rebufferDuration, LatencyHistogram.Snapshot reconnectLatency,
+                 int[] errorCodes, long[] errorCodeCounts, long otherErrorCount) {
+            this.sinceResetMs = sinceResetMs;
+            this.startAttempts = startAttempts;
+            this.rebufferCount = rebufferCount;
+            this.errorCount = errorCount;
+            this.reconnectCount = reconnectCount;
+            this.timeToFirstByte = timeToFirstByte;
+            this.timeToPrepared = timeToPrepared;
+            this.timeToFirstAudio = timeToFirstAudio;
+            this.rebufferDuration = rebufferDuration;
+            this.reconnectLatency = reconnectLatency;
+            this.errorCodes = errorCodes;
+            this.errorCodeCounts = errorCodeCounts;
+            this.otherErrorCount = otherErrorCount;
+        }
+    }
+
+    private final LatencyHistogram timeToFirstByte = new LatencyHistogram();
+    private final LatencyHistogram timeToPrepared = new LatencyHistogram();
+    private final LatencyHistogram timeToFirstAudio = new LatencyHistogram();
+    private final LatencyHistogram rebufferDuration = new LatencyHistogram();
+    private final LatencyHistogram reconnectLatency = new LatencyHistogram();
+
+    private final int[] errorCodes = new int[MAX_ERROR_CODES];
+    private final long[] errorCodeCounts = new long[MAX_ERROR_CODES];
+    private int errorCodeSlots = 0;
+    private long otherErrorCount = 0;
+
+    private final Clock clock;
+    private long resetAtMs;
+    private long startAttempts = 0;
+    private long rebufferCount = 0;
+    private long errorCount = 0;
+    private long reconnectCount = 0;
+
+    // Marcas del arranque en curso (-1 si no hay ninguno)
+    private long startRequestedAtMs = -1;
+    private boolean firstByteSeen = false;
+    private boolean preparedSeen = false;
+    // Inicio del corte actual: primer error con la radio sonando
+    private long outageStartedAtMs = -1;
+    private long rebufferStartedAtMs = -1;
+
+    public PlaybackStats(Clock clock) {
+        this.clock = clock;
+        this.resetAtMs = clock.elapsedMs();
+    }
+
+    public synchronized void onStartRequested() {
+        startAttempts++;
+        startRequestedAtMs = clock.elapsedMs();
+        firstByteSeen = false;
+        preparedSeen = false;
+    }
+
+    public synchronized void onFirstByte() {
+        if (startRequestedAtMs >= 0 && !firstByteSeen) {
+            firstByteSeen = true;
+            timeToFirstByte.record(clock.elapsedMs() - startRequestedAtMs);
+        }
+    }
+
+    public synchronized void onPrepared() {
+        if (startRequestedAtMs >= 0 && !preparedSeen) {
+            preparedSeen = true;
+            timeToPrepared.record(clock.elapsedMs() - startRequestedAtMs);
+        }
+    }
+
+    public synchronized void onAudioStarted() {
+        long now = clock.elapsedMs();
+        if (startRequestedAtMs >= 0) {
+            timeToFirstAudio.record(now - startRequestedAtMs);
+            startRequestedAtMs = -1;
+        }
+        if (outageStartedAtMs >= 0) {
+            reconnectCount++;
+            reconnectLatency.record(now - outageStartedAtMs);
+            outageStartedAtMs = -1;
+        }
+    }
+
+    public synchronized void onBufferingStart() {
+        if (rebufferStartedAtMs < 0) {
+            rebufferCount++;
+            rebufferStartedAtMs = clock.elapsedMs();
+        }
+    }
+
+    public synchronized void onBufferingEnd() {
+        closeRebuffer();
+    }
+
+    // willReconnect: la radio estaba sonando y se va a reintentar
+    public synchronized void onError(int code, boolean willReconnect) {
+        errorCount++;
+        countErrorCode(code);
+        closeRebuffer();
+        if (willReconnect && outageStartedAtMs < 0) {
+            outageStartedAtMs = clock.elapsedMs();
+        }
+    }
+
+    // Pausa o parada del usuario: lo que estuviera midiéndose ya no tiene sentido
+    public synchronized void onStopped() {
+        closeRebuffer();
+        startRequestedAtMs = -1;
+        outageStartedAtMs = -1;
+    }
+
+    private void closeRebuffer() {
+        if (rebufferStartedAtMs >= 0) {
+            rebufferDuration.record(clock.elapsedMs() - rebufferStartedAtMs);
+            rebufferStartedAtMs = -1;
+        }
+    }
+
+    private void countErrorCode(int code) {
+        for (int i = 0; i < errorCodeSlots; i++) {
+            if (errorCodes[i] == code) {
+                errorCodeCounts[i]++;
+                return;
+            }
+        }
+        if (errorCodeSlots < MAX_ERROR_CODES) {
+            errorCodes[errorCodeSlots] = code;
+            errorCodeCounts[errorCodeSlots] = 1;
+            errorCodeSlots++;
+        } else {
+            otherErrorCount++;
+        }
+    }
+
+    // Borra lo acumulado; las mediciones en curso siguen su curso
+    public synchronized void reset() {
+        timeToFirstByte.reset();
+        timeToPrepared.reset();
+        timeToFirstAudio.reset();
+        rebufferDuration.reset();
+        reconnectLatency.reset();
+        for (int i = 0; i < MAX_ERROR_CODES; i++) {
+            errorCodes[i] = 0;
+            errorCodeCounts[i] = 0;
+        }
+        errorCodeSlots = 0;
+        otherErrorCount = 0;
+        startAttempts = 0;
+        rebufferCount = 0;
+        errorCount = 0;
+        reconnectCount = 0;
+        resetAtMs = clock.elapsedMs();
+    }
+
+    public synchronized Snapshot snapshot() {
+        int[] codes = new int[errorCodeSlots];
+        long[] codeCounts = new long[errorCodeSlots];
+        System.arraycopy(errorCodes, 0, codes, 0, errorCodeSlots);
+        System.arraycopy(errorCodeCounts, 0, codeCounts, 0, errorCodeSlots);
+
+        return new Snapshot(
+            clock.elapsedMs() - resetAtMs,
+            startAttempts,
+            rebufferCount,
+            errorCount,
+            reconnectCount,
+            timeToFirstByte.snapshot(),
+            timeToPrepared.snapshot(),
+            timeToFirstAudio.snapshot(),
+            rebufferDuration.snapshot(),
+            reconnectLatency.snapshot(),
+            codes,
+            codeCounts,
+            otherErrorCount
+        );
+    }
+}
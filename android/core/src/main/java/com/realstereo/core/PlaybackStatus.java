@@ -0,0 +1,13 @@
+package com.realstereo.core;
+
+// Estado de reproducción que el servicio publica hacia la MediaSession y JS
+public enum PlaybackStatus {
+    IDLE,
+    CONNECTING,
+    BUFFERING,
+    PLAYING,
+    PAUSED,
+    STOPPED,
+    ERROR,
+    RECONNECTING
+}
@@ -0,0 +1,166 @@
+package com.realstereo.core;
+
+// Decide cuánto audio acumular antes de seguir tras un corte. Sube un nivel
+// (el doble) cuando los cortes se repiten o cuando el stream llega más despacio
+// que su tasa con el buffer por debajo del objetivo; baja uno tras un rato largo
+// sin problemas, para volver a estar cerca del directo. Nivel 0 = los umbrales
+// de BufferConfig, sin espera adicional. Un solo hilo (el de reproducción).
+public final class RebufferController {
+
+    public enum Reason { STALLS, SLOW_LINK, STABLE, RESET }
+
+    public static final class Decision {
+        public final int level;
+        public final int targetMs;
+        public final Reason reason;
+        // Estimación de la velocidad de lectura del stream, 0 si aún no hay
+        public final int throughputKbps;
+        public final int stallsInWindow;
+
+        Decision(int level, int targetMs, Reason reason, int throughputKbps, int stallsInWindow) {
+            this.level = level;
+            this.targetMs = targetMs;
+            this.reason = reason;
+            this.throughputKbps = throughputKbps;
+            this.stallsInWindow = stallsInWindow;
+        }
+
+        @Override
+        public String toString() {
+            return "Decision{level=" + level + ", targetMs=" + targetMs + ", " + reason
+                + ", " + throughputKbps + "kbps, stalls=" + stallsInWindow + "}";
+        }
+    }
+
+    public static final int MAX_LEVEL = 3;
+    // Lo que ExoPlayer llega a cargar siempre (su minBuffer): más no se alcanzaría
+    public static final int MAX_TARGET_MS = 15000;
+    // Dos cortes en esta ventana suben un nivel
+    static final long STALL_WINDOW_MS = 5 * 60 * 1000;
+    static final int STALLS_TO_RAISE = 2;
+    // Sin cortes ni lentitud durante este tiempo se baja un nivel
+    static final long STABLE_MS = 10 * 60 * 1000;
+    // Muestras lentas seguidas (de SAMPLE_MS) antes de subir por adelantado
+    public static final long SAMPLE_MS = 5000;
+    static final int SLOW_SAMPLES_TO_RAISE = 4;
+    private static final float SLOW_RATIO = 0.9f;
+    private static final float EWMA_WEIGHT = 0.3f;
+
+    private final Clock clock;
+    private final int baseTargetMs;
+    private final long[] stallTimes = new long[STALLS_TO_RAISE];
+    private int stallCount = 0;
+    private int level = 0;
+    private long lastProblemMs;
+    private long lastChangeMs;
+    private float throughputKbps = 0f;
+    private int bitrateKbps = 0;
+    private int slowSamples = 0;
+
+    // baseTargetMs: el umbral de rebuffer configurado
+    public RebufferController(Clock clock, int baseTargetMs) {
+        this.clock = clock;
+        this.baseTargetMs = Math.max(1, Math.min(MAX_TARGET_MS, baseTargetMs));
+        this.lastProblemMs = clock.elapsedMs();
+        this.lastChangeMs = lastProblemMs;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    // 0 en el nivel 0: basta con lo que decide ExoPlayer
+    public int getTargetMs() {
+        return level == 0 ? 0 : targetForLevel(level);
+    }
+
+    public int getThroughputKbps() {
+        return Math.round(throughputKbps);
+    }
+
+    // Tasa nominal del stream (cabecera icy-br); 0 si no se conoce
+    public void setBitrateKbps(int kbps) {
+        bitrateKbps = Math.max(0, kbps);
+    }
+
+    private int targetForLevel(int forLevel) {
+        return Math.min(MAX_TARGET_MS, baseTargetMs << forLevel);
+    }
+
+    // Corte con el audio ya sonando. Devuelve la decisión si cambia el nivel.
+    public Decision onStall() {
+        long now = clock.elapsedMs();
+        lastProblemMs = now;
+        stallTimes[stallCount % STALLS_TO_RAISE] = now;
+        stallCount++;
+        int recent = stallsInWindow(now);
+        if (recent >= STALLS_TO_RAISE && level < MAX_LEVEL) {
+            // Cada subida necesita cortes nuevos
+            stallCount = 0;
+            return change(level + 1, Reason.STALLS, recent);
+        }
+        return null;
+    }
+
+    private int stallsInWindow(long now) {
+        int recent = 0;
+        for (int i = 0; i < Math.min(stallCount, STALLS_TO_RAISE); i++) {
+            if (now - stallTimes[i] <= STALL_WINDOW_MS) {
+                recent++;
+            }
+        }
+        return recent;
+    }
+
+    // Cada SAMPLE_MS mientras suena: bytes leídos de la red desde la muestra anterior
+    // y audio en el buffer. Devuelve la decisión si cambia el nivel.
+    public Decision onSample(long bytes, long elapsedMs, long bufferedMs) {
+        long now = clock.elapsedMs();
+        if (elapsedMs > 0) {
+            float kbps = bytes * 8f / elapsedMs;
+            throughputKbps = throughputKbps == 0f ? kbps : throughputKbps + EWMA_WEIGHT * (kbps - throughputKbps);
+        }
+
+        // Con el buffer por debajo del objetivo el lector no está frenado por el
+        // reproductor: si aun así llega menos que la tasa, el enlace no da para más
+        int target = level == 0 ? baseTargetMs : targetForLevel(level);
+        boolean slow = bitrateKbps > 0 && bufferedMs < target && throughputKbps < bitrateKbps * SLOW_RATIO;
+        if (slow) {
+            lastProblemMs = now;
+            if (++slowSamples >= SLOW_SAMPLES_TO_RAISE && level < MAX_LEVEL) {
+                slowSamples = 0;
+                return change(level + 1, Reason.SLOW_LINK, stallsInWindow(now));
+            }
+            return null;
+        }
+        slowSamples = 0;
+
+        if (level > 0 && now - lastProblemMs >= STABLE_MS && now - lastChangeMs >= STABLE_MS) {
+            return change(level - 1, Reason.STABLE, stallsInWindow(now));
+        }
+        return null;
+    }
+
+    // Otro stream (cambio de emisora o de URL): la tasa y la velocidad ya no valen,
+    // pero el nivel se mantiene porque el enlace suele ser el mismo
+    public void onStreamChanged() {
+        throughputKbps = 0f;
+        bitrateKbps = 0;
+        slowSamples = 0;
+    }
+
+    // Cambio de red: lo aprendido era del enlace anterior
+    public Decision reset() {
+        stallCount = 0;
+        slowSamples = 0;
+        throughputKbps = 0f;
+        lastProblemMs = clock.elapsedMs();
+        return level != 0 ? change(0, Reason.RESET, 0) : null;
+    }
+
+    private Decision change(int newLevel, Reason reason, int stalls) {
+        level = newLevel;
+        lastChangeMs = clock.elapsedMs();
+        return new Decision(level, getTargetMs(), reason, getThroughputKbps(), stalls);
+    }
+}
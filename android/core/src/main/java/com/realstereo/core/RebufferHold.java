@@ -0,0 +1,89 @@
+package com.realstereo.core;
+
+// Retención tras un corte: el reproductor ya podría seguir, pero con menos audio del
+// objetivo de RebufferController. Mientras dura, la reproducción queda parada (sigue
+// cargando) y se comprueba cada CHECK_MS; se suelta al llegar al objetivo o si el
+// buffer deja de crecer STALLED_MS. Solo deja sonar si playAllowed: una pausa del
+// usuario o una pérdida de foco durante la retención no se deshace al soltarla.
+// Un solo hilo (el del reproductor).
+public final class RebufferHold {
+
+    public enum Action {
+        // Sin retención en curso
+        NONE,
+        // Volver a comprobar dentro de CHECK_MS
+        WAIT,
+        // Fin de la retención: reanudar la reproducción
+        RELEASE
+    }
+
+    public static final long CHECK_MS = 250;
+    // Si el buffer deja de crecer (el reproductor ya no carga más) se sigue igualmente
+    public static final long STALLED_MS = 2000;
+
+    // ms de audio que acumular antes de seguir; 0 = lo que decida el reproductor
+    private int targetMs = 0;
+    private boolean holding = false;
+    private boolean playAllowed = false;
+    private long lastBufferedMs;
+    private long lastGrowthAtMs;
+
+    public void setTargetMs(int targetMs) {
+        this.targetMs = Math.max(0, targetMs);
+    }
+
+    public int getTargetMs() {
+        return targetMs;
+    }
+
+    // true tras start() del motor; false tras pausa, parada, nueva preparación o
+    // pérdida del foco. Quitarlo cancela la retención sin reanudar.
+    public void setPlayAllowed(boolean allowed) {
+        playAllowed = allowed;
+        if (!allowed) {
+            holding = false;
+        }
+    }
+
+    public boolean isPlayAllowed() {
+        return playAllowed;
+    }
+
+    public boolean isHolding() {
+        return holding;
+    }
+
+    // El reproductor vuelve a estar listo tras un corte. true = retener (el llamante
+    // para la reproducción y comprueba con check() cada CHECK_MS)
+    public boolean start(long bufferedMs, long nowMs) {
+        if (holding) {
+            return true;
+        }
+        if (targetMs <= 0 || !playAllowed || bufferedMs >= targetMs) {
+            return false;
+        }
+        holding = true;
+        lastBufferedMs = bufferedMs;
+        lastGrowthAtMs = nowMs;
+        return true;
+    }
+
+    public Action check(long bufferedMs, long nowMs) {
+        if (!holding) {
+            return Action.NONE;
+        }
+        if (bufferedMs > lastBufferedMs) {
+            lastBufferedMs = bufferedMs;
+            lastGrowthAtMs = nowMs;
+        }
+        if (bufferedMs < targetMs && nowMs - lastGrowthAtMs < STALLED_MS) {
+            return Action.WAIT;
+        }
+        holding = false;
+        return playAllowed ? Action.RELEASE : Action.NONE;
+    }
+
+    public void cancel() {
+        holding = false;
+    }
+}
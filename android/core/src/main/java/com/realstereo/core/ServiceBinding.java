@@ -0,0 +1,64 @@
+package com.realstereo.core;
+
+// Cuentas de un enlace a un servicio (bindService/unbindService) para que haya como
+// mucho uno, se llame a startService las veces que se llame. Tras onServiceDisconnected
+// el enlace sigue vivo (el sistema reconecta solo si el servicio vuelve): no se pide
+// otro, pero sí hay que soltarlo al terminar. Un solo hilo (el principal).
+public final class ServiceBinding {
+
+    public enum State { UNBOUND, BINDING, CONNECTED, DISCONNECTED }
+
+    private State state = State.UNBOUND;
+    private long bindCalls = 0;
+    private long unbindCalls = 0;
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isConnected() {
+        return state == State.CONNECTED;
+    }
+
+    // true si hay que llamar a bindService; false si ya hay un enlace pedido o activo
+    public boolean requestBind() {
+        if (state != State.UNBOUND) {
+            return false;
+        }
+        state = State.BINDING;
+        bindCalls++;
+        return true;
+    }
+
+    public void onConnected() {
+        if (state != State.UNBOUND) {
+            state = State.CONNECTED;
+        }
+    }
+
+    public void onDisconnected() {
+        if (state == State.CONNECTED) {
+            state = State.DISCONNECTED;
+        }
+    }
+
+    // true si hay que llamar a unbindService: también tras un bindService que devolvió
+    // false o tras una desconexión, porque el sistema guarda la conexión igualmente
+    public boolean requestUnbind() {
+        if (state == State.UNBOUND) {
+            return false;
+        }
+        state = State.UNBOUND;
+        unbindCalls++;
+        return true;
+    }
+
+    // Enlaces pedidos y aún no soltados: 0 o 1
+    public long getOutstanding() {
+        return bindCalls - unbindCalls;
+    }
+
+    public long getBindCalls() {
+        return bindCalls;
+    }
+}
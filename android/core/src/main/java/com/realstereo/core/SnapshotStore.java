@@ -0,0 +1,152 @@
+package com.realstereo.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+// Último PlaybackSnapshot en un fichero mapeado en memoria de dos ranuras. Guardar es
+// copiar unos cientos de bytes a páginas que el sistema escribe a disco por su cuenta
+// (no hay fsync): sirve en cada transición sin frenar el hilo de reproducción, y las
+// páginas sobreviven a la muerte del proceso. Se escribe alternando ranuras con un
+// CRC, así que una escritura a medias deja válida la anterior.
+public final class SnapshotStore {
+
+    private static final int MAGIC = 0x52535350;
+    private static final int VERSION = 1;
+    private static final int SLOT_SIZE = 4096;
+    // magic, versión, secuencia, longitud, crc
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4;
+    // Con UTF-8 caben de sobra las tres cadenas en la ranura
+    static final int MAX_STRING_CHARS = 256;
+
+    private final RandomAccessFile randomAccessFile;
+    private final MappedByteBuffer map;
+    private final ByteBuffer payload = ByteBuffer.allocate(SLOT_SIZE - HEADER_SIZE);
+    private final CRC32 crc = new CRC32();
+    private long sequence;
+
+    public SnapshotStore(File file) throws IOException {
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.setLength(2 * SLOT_SIZE);
+        map = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, 2 * SLOT_SIZE);
+        sequence = Math.max(slotSequence(0), slotSequence(1));
+    }
+
+    public synchronized void write(PlaybackSnapshot snapshot) {
+        payload.clear();
+        payload.put((byte) (snapshot.playRequested ? 1 : 0));
+        payload.putLong(snapshot.savedAtMs);
+        payload.putLong(snapshot.behindLiveMs);
+        putString(snapshot.stationId);
+        putString(snapshot.endpoint);
+        putString(snapshot.streamTitle);
+        payload.flip();
+        int length = payload.remaining();
+
+        sequence++;
+        crc.reset();
+        crc.update(payload.array(), 0, length);
+        crc.update((int) sequence);
+
+        int base = (int) (sequence % 2) * SLOT_SIZE;
+        // La cabecera se completa al final: hasta entonces la ranura no valida
+        map.putInt(base, 0);
+        map.position(base + HEADER_SIZE);
+        map.put(payload.array(), 0, length);
+        map.putInt(base + 4, VERSION);
+        map.putLong(base + 8, sequence);
+        map.putInt(base + 16, length);
+        map.putInt(base + 20, (int) crc.getValue());
+        map.putInt(base, MAGIC);
+    }
+
+    // La copia válida más reciente, o null si no hay ninguna
+    public synchronized PlaybackSnapshot read() {
+        long first = slotSequence(0);
+        long second = slotSequence(1);
+        if (first < 0 && second < 0) {
+            return null;
+        }
+        return decode(first > second ? 0 : SLOT_SIZE);
+    }
+
+    public synchronized void close() {
+        try {
+            randomAccessFile.close();
+        } catch (IOException ignored) {
+            // El mapeo sigue siendo válido hasta que se recoja
+        }
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            payload.putShort((short) -1);
+            return;
+        }
+        if (value.length() > MAX_STRING_CHARS) {
+            int end = MAX_STRING_CHARS;
+            // No partir un par sustituto
+            if (Character.isHighSurrogate(value.charAt(end - 1))) {
+                end--;
+            }
+            value = value.substring(0, end);
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        payload.putShort((short) bytes.length);
+        payload.put(bytes);
+    }
+
+    // Secuencia de la ranura, o -1 si no es válida
+    private long slotSequence(int slot) {
+        int base = slot * SLOT_SIZE;
+        if (map.getInt(base) != MAGIC || map.getInt(base + 4) != VERSION) {
+            return -1;
+        }
+        int length = map.getInt(base + 16);
+        if (length < 0 || length > SLOT_SIZE - HEADER_SIZE) {
+            return -1;
+        }
+        long slotSequence = map.getLong(base + 8);
+        byte[] data = new byte[length];
+        ByteBuffer view = map.duplicate();
+        view.position(base + HEADER_SIZE);
+        view.get(data);
+        CRC32 check = new CRC32();
+        check.update(data);
+        check.update((int) slotSequence);
+        return (int) check.getValue() == map.getInt(base + 20) ? slotSequence : -1;
+    }
+
+    private PlaybackSnapshot decode(int base) {
+        ByteBuffer view = map.duplicate();
+        view.position(base + HEADER_SIZE);
+        view.limit(base + HEADER_SIZE + map.getInt(base + 16));
+        try {
+            boolean playRequested = view.get() == 1;
+            long savedAtMs = view.getLong();
+            long behindLiveMs = view.getLong();
+            String stationId = getString(view);
+            String endpoint = getString(view);
+            String streamTitle = getString(view);
+            return new PlaybackSnapshot(playRequested, stationId, endpoint, streamTitle, behindLiveMs, savedAtMs);
+        } catch (RuntimeException e) {
+            // CRC correcto con contenido inesperado: se trata como si no hubiera copia
+            return null;
+        }
+    }
+
+    private static String getString(ByteBuffer view) {
+        int length = view.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,154 @@
+package com.realstereo.core;
+
+// Etapa de análisis para el visualizador: no modifica el audio. Mezcla a mono, y
+// por cada ventana de FFT_SIZE frames calcula el nivel RMS y un espectro de BANDS
+// bandas logarítmicas, que deja en un VisualizerRing. Todo sobre buffers reservados
+// al crearse; desactivada, process() vuelve sin tocar las muestras.
+public final class SpectrumAnalyzer implements PcmProcessor {
+
+    public static final int FFT_SIZE = 512;
+    public static final int BANDS = 16;
+    // RMS y después las bandas, todo en [0, 1]
+    public static final int FRAME_SIZE = 1 + BANDS;
+    private static final float MIN_HZ = 40f;
+    private static final float MAX_HZ = 16000f;
+    // Nivel de banda que se muestra como 0
+    private static final float FLOOR_DB = -70f;
+
+    private final VisualizerRing ring;
+    private final float[] window = new float[FFT_SIZE];
+    private final float[] cos = new float[FFT_SIZE / 2];
+    private final float[] sin = new float[FFT_SIZE / 2];
+    private final int[] bitReverse = new int[FFT_SIZE];
+    private final float[] mono = new float[FFT_SIZE];
+    private final float[] re = new float[FFT_SIZE];
+    private final float[] im = new float[FFT_SIZE];
+    private final float[] frame = new float[FRAME_SIZE];
+    // Primer bin de cada banda; la última acaba en bandEdges[BANDS]
+    private final int[] bandEdges = new int[BANDS + 1];
+    private int channelCount = 2;
+    private int filled = 0;
+    private volatile boolean enabled = false;
+
+    public SpectrumAnalyzer(VisualizerRing ring) {
+        if (ring.getFrameSize() != FRAME_SIZE) {
+            throw new IllegalArgumentException("Ring frame size must be " + FRAME_SIZE);
+        }
+        this.ring = ring;
+        int bits = Integer.numberOfTrailingZeros(FFT_SIZE);
+        for (int i = 0; i < FFT_SIZE; i++) {
+            // Ventana de Hann: sin ella el tono de una banda se reparte por todas
+            window[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * i / (FFT_SIZE - 1)));
+            bitReverse[i] = Integer.reverse(i) >>> (32 - bits);
+        }
+        for (int i = 0; i < FFT_SIZE / 2; i++) {
+            cos[i] = (float) Math.cos(2 * Math.PI * i / FFT_SIZE);
+            sin[i] = (float) -Math.sin(2 * Math.PI * i / FFT_SIZE);
+        }
+        configure(44100, 2);
+    }
+
+    @Override
+    public String getName() {
+        return "spectrum";
+    }
+
+    // Lo decide el hilo principal según haya alguien mirando
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void configure(int sampleRate, int channelCount) {
+        this.channelCount = channelCount;
+        filled = 0;
+        float maxHz = Math.min(MAX_HZ, sampleRate / 2f);
+        int lastBin = FFT_SIZE / 2;
+        for (int band = 0; band <= BANDS; band++) {
+            double hz = MIN_HZ * Math.pow(maxHz / MIN_HZ, (double) band / BANDS);
+            int bin = (int) Math.round(hz * FFT_SIZE / sampleRate);
+            // Sin el bin 0 (continua) y al menos un bin por banda
+            int min = band == 0 ? 1 : bandEdges[band - 1] + 1;
+            bandEdges[band] = Math.min(lastBin - BANDS + band, Math.max(min, bin));
+        }
+    }
+
+    @Override
+    public void process(float[] samples, int frames) {
+        if (!enabled) {
+            return;
+        }
+        float scale = 1f / channelCount;
+        int index = 0;
+        for (int i = 0; i < frames; i++) {
+            float sum = 0f;
+            for (int channel = 0; channel < channelCount; channel++) {
+                sum += samples[index++];
+            }
+            mono[filled++] = sum * scale;
+            if (filled == FFT_SIZE) {
+                analyze();
+                filled = 0;
+            }
+        }
+    }
+
+    private void analyze() {
+        float sumSquares = 0f;
+        for (int i = 0; i < FFT_SIZE; i++) {
+            float value = mono[i];
+            sumSquares += value * value;
+            re[bitReverse[i]] = value * window[i];
+            im[bitReverse[i]] = 0f;
+        }
+        frame[0] = Math.min(1f, (float) Math.sqrt(sumSquares / FFT_SIZE));
+
+        fft();
+
+        // Un seno de amplitud 1 da |X| = FFT_SIZE / 4 con la ventana de Hann
+        float norm = 4f / FFT_SIZE;
+        for (int band = 0; band < BANDS; band++) {
+            float peak = 0f;
+            for (int bin = bandEdges[band]; bin < bandEdges[band + 1]; bin++) {
+                float power = re[bin] * re[bin] + im[bin] * im[bin];
+                if (power > peak) {
+                    peak = power;
+                }
+            }
+            float db = 10f * (float) Math.log10(peak * norm * norm + 1e-12f);
+            frame[1 + band] = Math.max(0f, Math.min(1f, 1f - db / FLOOR_DB));
+        }
+        ring.write(frame);
+    }
+
+    // Radix-2 iterativa sobre re/im ya reordenados
+    private void fft() {
+        for (int size = 2; size <= FFT_SIZE; size <<= 1) {
+            int half = size >> 1;
+            int step = FFT_SIZE / size;
+            for (int start = 0; start < FFT_SIZE; start += size) {
+                for (int k = 0; k < half; k++) {
+                    float wr = cos[k * step];
+                    float wi = sin[k * step];
+                    int even = start + k;
+                    int odd = even + half;
+                    float tr = re[odd] * wr - im[odd] * wi;
+                    float ti = re[odd] * wi + im[odd] * wr;
+                    re[odd] = re[even] - tr;
+                    im[odd] = im[even] - ti;
+                    re[even] += tr;
+                    im[even] += ti;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        filled = 0;
+    }
+}
@@ -0,0 +1,155 @@
+package com.realstereo.core;
+
+// Lo más reciente de un stream en espera, tal como llega del servidor (con los
+// bloques ICY), hasta capacityBytes. Con metadatos ICY el principio solo avanza
+// hasta un inicio de bloque de audio: quien adopte estos bytes puede separarlos con
+// un IcyStreamReader nuevo, que espera empezar justo ahí. La memoria es fija.
+public final class StandbyBuffer {
+
+    private enum Phase { AUDIO, LENGTH, METADATA }
+
+    private final byte[] ring;
+    private final int metaInterval;
+    // Inicios de bloque de audio pendientes (posiciones absolutas), en orden
+    private final long[] boundaries;
+    private int boundaryHead = 0;
+    private int boundaryCount = 0;
+
+    private Phase phase = Phase.AUDIO;
+    private int phaseRemaining;
+    // Posición absoluta del primer byte guardado; -1 si se espera al próximo inicio
+    private long start = 0;
+    private long end = 0;
+
+    // metaInterval 0: stream sin metadatos ICY
+    public StandbyBuffer(int capacityBytes, int metaInterval) {
+        if (capacityBytes <= 0 || metaInterval < 0) {
+            throw new IllegalArgumentException("Invalid standby buffer size");
+        }
+        this.ring = new byte[capacityBytes];
+        this.metaInterval = metaInterval;
+        this.phaseRemaining = metaInterval;
+        // Caben todos los inicios de bloque que puede haber en la capacidad
+        this.boundaries = new long[metaInterval > 0 ? capacityBytes / metaInterval + 2 : 1];
+    }
+
+    public synchronized void write(byte[] data, int offset, int length) {
+        if (metaInterval == 0) {
+            append(data, offset, length);
+            return;
+        }
+        while (length > 0) {
+            int count;
+            switch (phase) {
+                case AUDIO:
+                    count = Math.min(length, phaseRemaining);
+                    append(data, offset, count);
+                    phaseRemaining -= count;
+                    if (phaseRemaining == 0) {
+                        phase = Phase.LENGTH;
+                    }
+                    break;
+                case LENGTH:
+                    count = 1;
+                    phaseRemaining = (data[offset] & 0xFF) * 16;
+                    append(data, offset, 1);
+                    if (phaseRemaining == 0) {
+                        startAudioBlock();
+                    } else {
+                        phase = Phase.METADATA;
+                    }
+                    break;
+                default:
+                    count = Math.min(length, phaseRemaining);
+                    append(data, offset, count);
+                    phaseRemaining -= count;
+                    if (phaseRemaining == 0) {
+                        startAudioBlock();
+                    }
+                    break;
+            }
+            offset += count;
+            length -= count;
+        }
+    }
+
+    private void startAudioBlock() {
+        phase = Phase.AUDIO;
+        phaseRemaining = metaInterval;
+        if (start < 0) {
+            start = end;
+            return;
+        }
+        if (boundaryCount == boundaries.length) {
+            boundaryHead = (boundaryHead + 1) % boundaries.length;
+            boundaryCount--;
+        }
+        boundaries[(boundaryHead + boundaryCount) % boundaries.length] = end;
+        boundaryCount++;
+    }
+
+    private void append(byte[] data, int offset, int length) {
+        while (length > 0) {
+            int position = (int) (end % ring.length);
+            int count = Math.min(length, ring.length - position);
+            System.arraycopy(data, offset, ring, position, count);
+            end += count;
+            offset += count;
+            length -= count;
+        }
+        trim();
+    }
+
+    private void trim() {
+        if (start < 0 || end - start <= ring.length) {
+            return;
+        }
+        long oldest = end - ring.length;
+        if (metaInterval == 0) {
+            start = oldest;
+            return;
+        }
+        while (boundaryCount > 0 && boundaries[boundaryHead] < oldest) {
+            boundaryHead = (boundaryHead + 1) % boundaries.length;
+            boundaryCount--;
+        }
+        if (boundaryCount > 0) {
+            start = boundaries[boundaryHead];
+            boundaryHead = (boundaryHead + 1) % boundaries.length;
+            boundaryCount--;
+        } else {
+            // El bloque en curso empezó antes de lo que cabe: se guarda desde el siguiente
+            start = -1;
+        }
+    }
+
+    // false mientras se descarta hasta el próximo inicio de bloque: los bytes
+    // siguientes de la conexión no empezarían donde el lector los espera
+    public synchronized boolean isAligned() {
+        return start >= 0;
+    }
+
+    public synchronized int size() {
+        return start < 0 ? 0 : (int) (end - start);
+    }
+
+    // Bytes recibidos en total, también los ya descartados
+    public synchronized long getTotalBytes() {
+        return end;
+    }
+
+    // Copia contigua de lo guardado, lista para usarse como prefijo de la conexión
+    public synchronized byte[] toByteArray() {
+        byte[] out = new byte[size()];
+        int copied = 0;
+        long position = start;
+        while (copied < out.length) {
+            int index = (int) (position % ring.length);
+            int count = Math.min(out.length - copied, ring.length - index);
+            System.arraycopy(ring, index, out, copied, count);
+            copied += count;
+            position += count;
+        }
+        return out;
+    }
+}
@@ -0,0 +1,77 @@
+package com.realstereo.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+// Emisora del catálogo: un id estable para JS, el nombre que se muestra y sus URLs
+// en orden de preferencia (las mismas reglas que los endpoints de una sola emisora)
+public final class Station {
+
+    public enum Source {
+        // Icecast/Shoutcast: un stream HTTP continuo con metadatos ICY
+        PROGRESSIVE,
+        // Lista HLS en directo (.m3u8): segmentos descargados por HlsStream
+        HLS;
+
+        public static Source fromKey(String key) {
+            for (Source source : values()) {
+                if (source.name().equalsIgnoreCase(key)) {
+                    return source;
+                }
+            }
+            return null;
+        }
+
+        // Sin indicarlo: HLS si la primera URL es una lista .m3u8
+        public static Source guess(List<String> endpoints) {
+            String path = endpoints.isEmpty() ? "" : endpoints.get(0);
+            int query = path.indexOf('?');
+            if (query >= 0) {
+                path = path.substring(0, query);
+            }
+            return path.toLowerCase(Locale.ROOT).endsWith(".m3u8") ? HLS : PROGRESSIVE;
+        }
+    }
+
+    public final String id;
+    public final String name;
+    public final List<String> endpoints;
+    public final Source source;
+
+    public Station(String id, String name, List<String> endpoints) {
+        this(id, name, endpoints, Source.PROGRESSIVE);
+    }
+
+    public Station(String id, String name, List<String> endpoints, Source source) {
+        if (id == null || id.isEmpty()) {
+            throw new IllegalArgumentException("Station id is required");
+        }
+        if (endpoints == null || endpoints.isEmpty()) {
+            throw new IllegalArgumentException("Station " + id + " has no endpoints");
+        }
+        this.id = id;
+        this.name = name != null && !name.isEmpty() ? name : id;
+        this.endpoints = Collections.unmodifiableList(new ArrayList<>(endpoints));
+        this.source = source != null ? source : Source.PROGRESSIVE;
+    }
+
+    public boolean isHls() {
+        return source == Source.HLS;
+    }
+
+    public static Station find(List<Station> catalog, String id) {
+        for (Station station : catalog) {
+            if (station.id.equals(id)) {
+                return station;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "Station{" + id + ", " + source + ", " + endpoints.size() + " endpoints}";
+    }
+}
@@ -0,0 +1,83 @@
+package com.realstereo.core;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Adivina a qué emisora cambiará el usuario después de la actual, para tenerla en
+// espera. Cuenta los cambios hechos (de -> a); sin historial desde la actual se
+// elige la siguiente del catálogo, que es lo que la lista invita a tocar.
+public final class StationPredictor {
+
+    private static final int MAX_PAIRS = 256;
+
+    // "de\ta" -> veces
+    private final Map<String, Integer> switches = new HashMap<>();
+
+    public synchronized void recordSwitch(String fromId, String toId) {
+        if (fromId == null || fromId.equals(toId)) {
+            return;
+        }
+        String key = fromId + '\t' + toId;
+        Integer count = switches.get(key);
+        if (count == null && switches.size() >= MAX_PAIRS) {
+            // Historial lleno: se empieza de nuevo en vez de crecer sin fin
+            switches.clear();
+        }
+        switches.put(key, count != null ? count + 1 : 1);
+    }
+
+    // null si el catálogo no tiene otra emisora
+    public synchronized Station predictNext(List<Station> catalog, String currentId) {
+        Station best = null;
+        int bestCount = 0;
+        for (Station station : catalog) {
+            if (station.id.equals(currentId)) {
+                continue;
+            }
+            Integer count = switches.get(currentId + '\t' + station.id);
+            if (count != null && count > bestCount) {
+                best = station;
+                bestCount = count;
+            }
+        }
+        if (best != null) {
+            return best;
+        }
+
+        for (int i = 0; i < catalog.size(); i++) {
+            if (catalog.get(i).id.equals(currentId)) {
+                Station next = catalog.get((i + 1) % catalog.size());
+                return next.id.equals(currentId) ? null : next;
+            }
+        }
+        return catalog.isEmpty() ? null : catalog.get(0);
+    }
+
+    // Una línea por par: "de\ta\tveces"
+    public synchronized String serialize() {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, Integer> entry : switches.entrySet()) {
+            out.append(entry.getKey()).append('\t').append(entry.getValue()).append('\n');
+        }
+        return out.toString();
+    }
+
+    public synchronized void restore(String serialized) {
+        switches.clear();
+        if (serialized == null) {
+            return;
+        }
+        for (String line : serialized.split("\n")) {
+            String[] fields = line.split("\t");
+            if (fields.length != 3) {
+                continue;
+            }
+            try {
+                switches.put(fields[0] + '\t' + fields[1], Integer.parseInt(fields[2]));
+            } catch (NumberFormatException ignored) {
+                // Línea corrupta
+            }
+        }
+    }
+}
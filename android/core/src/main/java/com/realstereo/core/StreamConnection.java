@@ -0,0 +1,147 @@
+package com.realstereo.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Conexión HTTP abierta al stream, con la respuesta ya recibida y lista para leer.
+// close() se puede llamar desde otro hilo para desbloquear una lectura; release()
+// devuelve la conexión al ConnectionPool si la respuesta se leyó entera. A través de
+// un proxy va sobre HttpURLConnection en vez de un socket propio.
+public class StreamConnection {
+
+    // Uno de los dos: socket propio o, con proxy, HttpURLConnection
+    private final Socket socket;
+    private final HttpURLConnection urlConnection;
+    private final InputStream inputStream;
+    private final String finalUrl;
+    private final int responseCode;
+    private final String statusLine;
+    // Nombres tal como llegaron; las búsquedas no distinguen mayúsculas
+    private final Map<String, List<String>> headers;
+    private final long openedAtMs;
+    // null si la conexión no se puede reutilizar
+    private final ConnectionPool pool;
+    private final String poolKey;
+    // Lector de la conexión, bajo el cuerpo: es lo que se guarda en el pool
+    private final InputStream connectionInput;
+    private boolean bodyEnded = false;
+
+    StreamConnection(Socket socket, InputStream inputStream, String finalUrl, String statusLine,
+                     int responseCode, Map<String, List<String>> headers) {
+        this(socket, inputStream, finalUrl, statusLine, responseCode, headers, null, null, null);
+    }
+
+    StreamConnection(Socket socket, InputStream inputStream, String finalUrl, String statusLine,
+                     int responseCode, Map<String, List<String>> headers, ConnectionPool pool,
+                     String poolKey, InputStream connectionInput) {
+        this.socket = socket;
+        this.urlConnection = null;
+        this.inputStream = inputStream;
+        this.finalUrl = finalUrl;
+        this.statusLine = statusLine;
+        this.responseCode = responseCode;
+        this.headers = headers;
+        this.openedAtMs = System.currentTimeMillis();
+        this.pool = pool;
+        this.poolKey = poolKey;
+        this.connectionInput = connectionInput;
+    }
+
+    StreamConnection(HttpURLConnection urlConnection, InputStream inputStream, String statusLine,
+                     int responseCode, Map<String, List<String>> headers) {
+        this.socket = null;
+        this.urlConnection = urlConnection;
+        this.inputStream = inputStream;
+        this.finalUrl = urlConnection.getURL().toString();
+        this.statusLine = statusLine;
+        this.responseCode = responseCode;
+        this.headers = headers;
+        this.openedAtMs = System.currentTimeMillis();
+        this.pool = null;
+        this.poolKey = null;
+        this.connectionInput = null;
+    }
+
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int read = inputStream.read(buffer, offset, length);
+        if (read == -1) {
+            bodyEnded = true;
+        }
+        return read;
+    }
+
+    public int available() throws IOException {
+        return inputStream.available();
+    }
+
+    public String getFinalUrl() {
+        return finalUrl;
+    }
+
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    public String getContentType() {
+        return getHeaderField("Content-Type");
+    }
+
+    // Como HttpURLConnection: el último valor si la cabecera se repite
+    public String getHeaderField(String name) {
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (header.getKey().equalsIgnoreCase(name)) {
+                List<String> values = header.getValue();
+                return values.get(values.size() - 1);
+            }
+        }
+        return null;
+    }
+
+    // Como HttpURLConnection, la línea de estado va con la clave null
+    public Map<String, List<String>> getHeaderFields() {
+        Map<String, List<String>> fields = new LinkedHashMap<>();
+        fields.put(null, Collections.singletonList(statusLine));
+        fields.putAll(headers);
+        return Collections.unmodifiableMap(fields);
+    }
+
+    // null a través de un proxy
+    public String getRemoteAddress() {
+        if (socket == null) {
+            return null;
+        }
+        return socket.getInetAddress() != null ? socket.getInetAddress().getHostAddress() : null;
+    }
+
+    public long getOpenedAtMs() {
+        return openedAtMs;
+    }
+
+    // Fin de uso tras leer la respuesta: al pool si el cuerpo se leyó hasta el final y el
+    // servidor admite keep-alive; si no, se cierra
+    public void release() {
+        if (pool != null && bodyEnded && !socket.isClosed()) {
+            pool.put(poolKey, socket, connectionInput);
+        } else {
+            close();
+        }
+    }
+
+    public void close() {
+        if (urlConnection != null) {
+            urlConnection.disconnect();
+            return;
+        }
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // La conexión se descarta de todos modos
+        }
+    }
+}
@@ -0,0 +1,432 @@
+package com.realstereo.core;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.Socket;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SNIHostName;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+// Abre conexiones al stream con un cliente HTTP/1.1 propio sobre sockets, para
+// controlar lo que cuesta el arranque: las direcciones y el destino de las
+// redirecciones salen de ConnectionCache, IPv4 e IPv6 compiten (HappyEyeballs) y
+// TLS usa la fábrica que se le pase, con SNI y comprobación del certificado en el
+// handshake. Sigue redirecciones de http a https, pero no de https a http. Entiende
+// "ICY 200 OK". Si ProxySelector da un proxy para la URL, esa petición va por
+// HttpURLConnection, que sabe atravesarlo.
+// Con un ConnectionPool pide keep-alive y reutiliza las conexiones que se devuelven
+// con StreamConnection.release() (peticiones cortas seguidas, como los segmentos HLS).
+public class StreamConnector {
+
+    private static final int MAX_REDIRECTS = 5;
+    private static final int MAX_LINE_BYTES = 8192;
+    private static final int MAX_HEADERS = 100;
+    private static final int INPUT_BUFFER_BYTES = 16 * 1024;
+    private static final String USER_AGENT = "RealStereo-Android";
+    private static final Charset LATIN_1 = Charset.forName("ISO-8859-1");
+
+    private final int connectTimeoutMs;
+    private final int readTimeoutMs;
+    private final ConnectionCache cache;
+    private final SSLSocketFactory sslSocketFactory;
+    private final HostnameVerifier hostnameVerifier;
+    private final ConnectionPool pool;
+
+    public StreamConnector(int connectTimeoutMs, int readTimeoutMs, ConnectionCache cache,
+                           SSLSocketFactory sslSocketFactory, HostnameVerifier hostnameVerifier) {
+        this(connectTimeoutMs, readTimeoutMs, cache, sslSocketFactory, hostnameVerifier, null);
+    }
+
+    // pool: null = una conexión por petición ("Connection: close")
+    public StreamConnector(int connectTimeoutMs, int readTimeoutMs, ConnectionCache cache,
+                           SSLSocketFactory sslSocketFactory, HostnameVerifier hostnameVerifier,
+                           ConnectionPool pool) {
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+        this.cache = cache;
+        this.sslSocketFactory = sslSocketFactory;
+        this.hostnameVerifier = hostnameVerifier;
+        this.pool = pool;
+    }
+
+    // Sin caché y con el TLS por defecto de la plataforma
+    public StreamConnector(int connectTimeoutMs, int readTimeoutMs) {
+        this(connectTimeoutMs, readTimeoutMs, null,
+            HttpsURLConnection.getDefaultSSLSocketFactory(), HttpsURLConnection.getDefaultHostnameVerifier());
+    }
+
+    public StreamConnector(BufferConfig config) {
+        this(config.connectTimeoutMs, config.readTimeoutMs);
+    }
+
+    public StreamConnection open(String url, Map<String, String> headers) throws IOException {
+        // El nodo de borde de la última vez, sin pasar por las redirecciones
+        String cached = cache != null ? cache.redirectFor(url) : null;
+        // Una entrada guardada antes de rechazar el paso de https a http no se usa
+        if (cached != null && !isDowngrade(url, cached)) {
+            try {
+                return follow(url, cached, headers);
+            } catch (IOException e) {
+                // El destino pudo caducar o cambiar: se vuelve a empezar por la URL original
+                cache.invalidateRedirect(url);
+            }
+        }
+        return follow(url, url, headers);
+    }
+
+    private StreamConnection follow(String originalUrl, String startUrl, Map<String, String> headers)
+        throws IOException {
+        String currentUrl = startUrl;
+
+        for (int redirects = 0; redirects <= MAX_REDIRECTS; redirects++) {
+            StreamConnection connection = request(currentUrl, headers);
+            int code = connection.getResponseCode();
+            if (code >= 300 && code < 400) {
+                String location = connection.getHeaderField("Location");
+                connection.close();
+                if (location == null) {
+                    throw new IOException("Redirect without Location from " + currentUrl);
+                }
+                String next = new URL(new URL(currentUrl), location).toString();
+                if (isDowngrade(currentUrl, next)) {
+                    throw new IOException("Refusing redirect from " + currentUrl + " to " + next);
+                }
+                currentUrl = next;
+                continue;
+            }
+
+            if (code < 200 || code >= 300) {
+                connection.close();
+                throw new IOException("HTTP " + code + " from " + currentUrl);
+            }
+
+            if (cache != null) {
+                cache.putRedirect(originalUrl, currentUrl);
+            }
+            return connection;
+        }
+
+        throw new IOException("Too many redirects for " + originalUrl);
+    }
+
+    static boolean isDowngrade(String fromUrl, String toUrl) {
+        return fromUrl.regionMatches(true, 0, "https:", 0, 6) && !toUrl.regionMatches(true, 0, "https:", 0, 6);
+    }
+
+    private StreamConnection request(String url, Map<String, String> headers) throws IOException {
+        URL parsed = new URL(url);
+        boolean secure = "https".equalsIgnoreCase(parsed.getProtocol());
+        if (!secure && !"http".equalsIgnoreCase(parsed.getProtocol())) {
+            throw new IOException("Unsupported protocol: " + url);
+        }
+        Proxy proxy = selectProxy(parsed);
+        if (proxy != null) {
+            return requestViaProxy(parsed, proxy, headers);
+        }
+        String host = parsed.getHost();
+        // Literal IPv6 entre corchetes en la URL
+        String bareHost = host.startsWith("[") ? host.substring(1, host.length() - 1) : host;
+        int port = parsed.getPort() != -1 ? parsed.getPort() : parsed.getDefaultPort();
+        String poolKey = ConnectionPool.key(parsed.getProtocol(), bareHost, port);
+
+        if (pool != null) {
+            ConnectionPool.Idle idle = pool.take(poolKey);
+            if (idle != null) {
+                try {
+                    writeRequest(idle.socket, parsed, headers);
+                    return readResponse(idle.socket, idle.in, url, poolKey);
+                } catch (IOException e) {
+                    // El servidor la cerró mientras esperaba: se abre otra
+                    idle.close();
+                }
+            }
+        }
+
+        List<InetAddress> addresses = cache != null
+            ? cache.resolve(bareHost)
+            : Arrays.asList(InetAddress.getAllByName(bareHost));
+        Socket socket;
+        try {
+            socket = HappyEyeballs.connect(addresses, port, connectTimeoutMs, HappyEyeballs.DEFAULT_ATTEMPT_DELAY_MS);
+        } catch (IOException e) {
+            if (cache != null) {
+                cache.invalidateHost(bareHost);
+            }
+            throw e;
+        }
+
+        try {
+            socket.setSoTimeout(readTimeoutMs);
+            socket.setTcpNoDelay(true);
+            if (secure) {
+                // Con host y puerto la fábrica puede reanudar la sesión
+                SSLSocket sslSocket = (SSLSocket) sslSocketFactory.createSocket(socket, bareHost, port, true);
+                configureTls(sslSocket, bareHost);
+                sslSocket.startHandshake();
+                if (!hostnameVerifier.verify(bareHost, sslSocket.getSession())) {
+                    throw new SSLPeerUnverifiedException("Hostname " + bareHost + " not verified");
+                }
+                socket = sslSocket;
+            }
+
+            writeRequest(socket, parsed, headers);
+            InputStream in = new BufferedInputStream(socket.getInputStream(), INPUT_BUFFER_BYTES);
+            return readResponse(socket, in, url, poolKey);
+        } catch (IOException | RuntimeException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    // SNI y comprobación del nombre en el propio handshake. En Android son de la API 24;
+    // antes la fábrica envía SNI con el host de createSocket() y el nombre se comprueba
+    // después con hostnameVerifier
+    private static void configureTls(SSLSocket socket, String host) {
+        try {
+            SSLParameters parameters = socket.getSSLParameters();
+            parameters.setEndpointIdentificationAlgorithm("HTTPS");
+            if (!isIpLiteral(host)) {
+                parameters.setServerNames(Collections.singletonList(new SNIHostName(host)));
+            }
+            socket.setSSLParameters(parameters);
+        } catch (NoSuchMethodError | NoClassDefFoundError e) {
+            // Plataforma anterior: se queda con lo que ponga la fábrica
+        }
+    }
+
+    private static boolean isIpLiteral(String host) {
+        if (host.indexOf(':') >= 0) {
+            return true;
+        }
+        for (int i = 0; i < host.length(); i++) {
+            char c = host.charAt(i);
+            if (c != '.' && (c < '0' || c > '9')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // null = conexión directa
+    private static Proxy selectProxy(URL url) {
+        ProxySelector selector = ProxySelector.getDefault();
+        if (selector == null) {
+            return null;
+        }
+        List<Proxy> proxies;
+        try {
+            proxies = selector.select(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+        if (proxies == null) {
+            return null;
+        }
+        for (Proxy proxy : proxies) {
+            if (proxy.type() == Proxy.Type.DIRECT) {
+                return null;
+            }
+            return proxy;
+        }
+        return null;
+    }
+
+    // Las redirecciones las sigue follow(), como en la conexión directa
+    private StreamConnection requestViaProxy(URL url, Proxy proxy, Map<String, String> headers)
+        throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection(proxy);
+        try {
+            connection.setConnectTimeout(connectTimeoutMs);
+            connection.setReadTimeout(readTimeoutMs);
+            connection.setInstanceFollowRedirects(false);
+            connection.setUseCaches(false);
+            if (connection instanceof HttpsURLConnection) {
+                if (sslSocketFactory != null) {
+                    ((HttpsURLConnection) connection).setSSLSocketFactory(sslSocketFactory);
+                }
+                if (hostnameVerifier != null) {
+                    ((HttpsURLConnection) connection).setHostnameVerifier(hostnameVerifier);
+                }
+            }
+            connection.setRequestProperty("User-Agent", USER_AGENT);
+            connection.setRequestProperty("Accept-Encoding", "identity");
+            if (headers != null) {
+                for (Map.Entry<String, String> header : headers.entrySet()) {
+                    connection.setRequestProperty(header.getKey(), header.getValue());
+                }
+            }
+
+            int code = connection.getResponseCode();
+            Map<String, List<String>> responseHeaders = new LinkedHashMap<>();
+            String statusLine = null;
+            for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+                if (header.getKey() == null) {
+                    statusLine = header.getValue().isEmpty() ? null : header.getValue().get(0);
+                } else {
+                    responseHeaders.put(header.getKey(), new ArrayList<>(header.getValue()));
+                }
+            }
+            InputStream body = code >= 200 && code < 300 ? connection.getInputStream() : null;
+            if (body == null) {
+                body = new ByteArrayInputStream(new byte[0]);
+            }
+            return new StreamConnection(connection, body, statusLine != null ? statusLine : "HTTP/1.1 " + code,
+                code, responseHeaders);
+        } catch (IOException | RuntimeException e) {
+            connection.disconnect();
+            throw e;
+        }
+    }
+
+    private void writeRequest(Socket socket, URL parsed, Map<String, String> headers) throws IOException {
+        String path = parsed.getFile().isEmpty() ? "/" : parsed.getFile();
+        String hostHeader = parsed.getPort() != -1 ? parsed.getHost() + ":" + parsed.getPort() : parsed.getHost();
+        StringBuilder request = new StringBuilder()
+            .append("GET ").append(path).append(" HTTP/1.1\r\n")
+            .append("Host: ").append(hostHeader).append("\r\n")
+            .append("User-Agent: ").append(USER_AGENT).append("\r\n")
+            .append("Accept-Encoding: identity\r\n")
+            .append(pool != null ? "Connection: keep-alive\r\n" : "Connection: close\r\n");
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                request.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+            }
+        }
+        request.append("\r\n");
+        OutputStream out = socket.getOutputStream();
+        out.write(request.toString().getBytes(LATIN_1));
+        out.flush();
+    }
+
+    private StreamConnection readResponse(Socket socket, InputStream in, String url, String poolKey)
+        throws IOException {
+        String statusLine = readLine(in);
+        if (statusLine == null) {
+            throw new IOException("Empty response from " + url);
+        }
+        // "HTTP/1.1 200 OK" o, en servidores SHOUTcast antiguos, "ICY 200 OK"
+        String[] status = statusLine.split(" ", 3);
+        int code;
+        try {
+            code = status.length >= 2 ? Integer.parseInt(status[1]) : -1;
+        } catch (NumberFormatException e) {
+            code = -1;
+        }
+        if (code < 100 || !(status[0].startsWith("HTTP/") || status[0].equals("ICY"))) {
+            throw new IOException("Invalid status line from " + url + ": " + statusLine);
+        }
+
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (int count = 0; ; count++) {
+            String line = readLine(in);
+            if (line == null) {
+                throw new IOException("Response headers truncated from " + url);
+            }
+            if (line.isEmpty()) {
+                break;
+            }
+            if (count >= MAX_HEADERS) {
+                throw new IOException("Too many response headers from " + url);
+            }
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String name = line.substring(0, colon).trim();
+            String value = line.substring(colon + 1).trim();
+            List<String> values = null;
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                if (header.getKey().equalsIgnoreCase(name)) {
+                    values = header.getValue();
+                    break;
+                }
+            }
+            if (values == null) {
+                values = new ArrayList<>(1);
+                headers.put(name, values);
+            }
+            values.add(value);
+        }
+
+        InputStream body = in;
+        // Solo si se sabe dónde acaba el cuerpo puede la conexión servir otra petición
+        boolean delimited = false;
+        boolean keepAlive = statusLine.startsWith("HTTP/1.1");
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            String value = header.getValue().get(header.getValue().size() - 1);
+            if (header.getKey().equalsIgnoreCase("Transfer-Encoding") && value.equalsIgnoreCase("chunked")) {
+                body = new ChunkedInputStream(in);
+                delimited = true;
+            } else if (header.getKey().equalsIgnoreCase("Connection") && value.equalsIgnoreCase("close")) {
+                keepAlive = false;
+            }
+        }
+        if (!delimited) {
+            long length = contentLength(headers);
+            if (length >= 0) {
+                body = new FixedLengthInputStream(in, length);
+                delimited = true;
+            }
+        }
+        boolean reusable = pool != null && keepAlive && delimited && code >= 200 && code < 300;
+        return new StreamConnection(socket, body, url, statusLine, code, headers,
+            reusable ? pool : null, poolKey, in);
+    }
+
+    // -1 si no hay o no es válida
+    private static long contentLength(Map<String, List<String>> headers) {
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (header.getKey().equalsIgnoreCase("Content-Length")) {
+                try {
+                    return Long.parseLong(header.getValue().get(header.getValue().size() - 1));
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // Línea terminada en LF (con o sin CR), o null si el stream acaba antes
+    static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        while (true) {
+            int value = in.read();
+            if (value == -1) {
+                return line.length() > 0 ? line.toString() : null;
+            }
+            if (value == '\n') {
+                int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                return line.toString();
+            }
+            if (line.length() >= MAX_LINE_BYTES) {
+                throw new IOException("Header line too long");
+            }
+            line.append((char) value);
+        }
+    }
+}
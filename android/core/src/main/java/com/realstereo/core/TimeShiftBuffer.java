@@ -0,0 +1,274 @@
+package com.realstereo.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Buffer circular del stream sobre un fichero mapeado en memoria. Las páginas las
+// gestiona el sistema, así que el uso de memoria no crece con la ventana. Un único
+// hilo escribe (TimeShiftRecorder); cada lector lleva su propia posición absoluta
+// (bytes desde el inicio de la grabación) y espera a que haya datos nuevos.
+public class TimeShiftBuffer {
+
+    // Una muestra tiempo -> posición por segundo para traducir "hace N ms" a bytes
+    private static final long INDEX_INTERVAL_MS = 1000;
+    private static final int MAX_TITLE_MARKS = 32;
+
+    private final Clock clock;
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final MappedByteBuffer map;
+    private final ByteBuffer writeView;
+    private final int capacity;
+
+    // Índice circular de muestras (tiempo, posición)
+    private final long[] indexTimes;
+    private final long[] indexPositions;
+    private int indexNext = 0;
+    private int indexCount = 0;
+
+    // Cambios de título ICY y la posición donde ocurrieron
+    private final long[] markPositions = new long[MAX_TITLE_MARKS];
+    private final String[] markTitles = new String[MAX_TITLE_MARKS];
+    private int markNext = 0;
+    private int markCount = 0;
+
+    private long writePosition = 0;
+    // Fin de la zona que el escritor está copiando; lo anterior a reservedEnd - capacity
+    // puede estar sobrescrito
+    private long reservedEnd = 0;
+    private long overruns = 0;
+    private boolean closed = false;
+
+    public TimeShiftBuffer(Clock clock, File file, int capacityBytes, int windowSeconds) throws IOException {
+        this.clock = clock;
+        this.file = file;
+        this.capacity = capacityBytes;
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.setLength(capacityBytes);
+        map = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacityBytes);
+        writeView = map.duplicate();
+
+        // El doble de la ventana por si la tasa real es menor que la supuesta
+        int indexSize = Math.max(16, windowSeconds * 2);
+        indexTimes = new long[indexSize];
+        indexPositions = new long[indexSize];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // Un solo hilo escritor
+    public void write(byte[] data, int offset, int length) {
+        while (length > 0) {
+            int chunk;
+            int index;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                index = (int) (writePosition % capacity);
+                chunk = Math.min(length, capacity - index);
+                reservedEnd = writePosition + chunk;
+            }
+
+            writeView.position(index);
+            writeView.put(data, offset, chunk);
+
+            synchronized (this) {
+                writePosition += chunk;
+                sampleIndexLocked(clock.elapsedMs());
+                notifyAll();
+            }
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    private void sampleIndexLocked(long now) {
+        int last = (indexNext - 1 + indexTimes.length) % indexTimes.length;
+        if (indexCount > 0 && now - indexTimes[last] < INDEX_INTERVAL_MS) {
+            return;
+        }
+        indexTimes[indexNext] = now;
+        indexPositions[indexNext] = writePosition;
+        indexNext = (indexNext + 1) % indexTimes.length;
+        if (indexCount < indexTimes.length) {
+            indexCount++;
+        }
+    }
+
+    public synchronized void markTitle(String title) {
+        markPositions[markNext] = writePosition;
+        markTitles[markNext] = title;
+        markNext = (markNext + 1) % MAX_TITLE_MARKS;
+        if (markCount < MAX_TITLE_MARKS) {
+            markCount++;
+        }
+    }
+
+    // Último título grabado en o antes de esa posición (null si no hay)
+    public synchronized String titleAt(long position) {
+        String title = null;
+        long best = -1;
+        for (int i = 0; i < markCount; i++) {
+            if (markPositions[i] <= position && markPositions[i] > best) {
+                best = markPositions[i];
+                title = markTitles[i];
+            }
+        }
+        return title;
+    }
+
+    public synchronized long getWritePosition() {
+        return writePosition;
+    }
+
+    public synchronized long getOldestPosition() {
+        return Math.max(0, reservedEnd - capacity);
+    }
+
+    public synchronized long getOverruns() {
+        return overruns;
+    }
+
+    // Posición del audio grabado hace delayMs, sin salir de lo que aún está en el buffer
+    public synchronized long positionForDelay(long delayMs) {
+        if (delayMs <= 0 || indexCount == 0) {
+            return writePosition;
+        }
+        long target = clock.elapsedMs() - delayMs;
+        long position = getOldestPosition();
+        for (int i = 0; i < indexCount; i++) {
+            int slot = (indexNext - indexCount + i + indexTimes.length) % indexTimes.length;
+            if (indexTimes[slot] > target) {
+                break;
+            }
+            position = indexPositions[slot];
+        }
+        return Math.max(position, getOldestPosition());
+    }
+
+    // Momento (elapsedRealtime) en que se grabó esa posición, interpolando entre muestras
+    public synchronized long timeAtPosition(long position) {
+        if (indexCount == 0) {
+            return clock.elapsedMs();
+        }
+        long previousTime = -1;
+        long previousPosition = 0;
+        for (int i = 0; i < indexCount; i++) {
+            int slot = (indexNext - indexCount + i + indexTimes.length) % indexTimes.length;
+            if (indexPositions[slot] >= position) {
+                if (previousTime < 0 || indexPositions[slot] == previousPosition) {
+                    return indexTimes[slot];
+                }
+                double fraction = (double) (position - previousPosition)
+                    / (indexPositions[slot] - previousPosition);
+                return previousTime + Math.round(fraction * (indexTimes[slot] - previousTime));
+            }
+            previousTime = indexTimes[slot];
+            previousPosition = indexPositions[slot];
+        }
+        return clock.elapsedMs();
+    }
+
+    // Milisegundos de audio que se pueden recuperar hacia atrás
+    public synchronized long getAvailableMs() {
+        if (indexCount == 0) {
+            return 0;
+        }
+        return clock.elapsedMs() - timeAtPosition(getOldestPosition());
+    }
+
+    public Reader newReader(long position) {
+        return new Reader(position);
+    }
+
+    // Devuelve false si el fichero no se pudo borrar
+    public boolean close() {
+        synchronized (this) {
+            if (closed) {
+                return true;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            randomAccessFile.close();
+        } catch (IOException ignored) {
+            // El fichero se borra igualmente
+        }
+        // El mapeo se libera cuando el recolector suelte el MappedByteBuffer
+        return file.delete();
+    }
+
+    // Lector con posición propia. Si el escritor le adelanta una vuelta entera, salta
+    // a lo más antiguo que quede.
+    public final class Reader {
+        private final ByteBuffer readView = map.duplicate();
+        private long position;
+
+        Reader(long position) {
+            this.position = position;
+        }
+
+        public long getPosition() {
+            return position;
+        }
+
+        // Devuelve -1 si el buffer se cerró; lanza si no llegan datos en timeoutMs
+        public int read(byte[] buffer, int offset, int length, long timeoutMs) throws IOException {
+            while (true) {
+                int index;
+                int count;
+                synchronized (TimeShiftBuffer.this) {
+                    long deadline = clock.elapsedMs() + timeoutMs;
+                    while (!closed && position >= writePosition) {
+                        long remaining = deadline - clock.elapsedMs();
+                        if (remaining <= 0) {
+                            throw new InterruptedIOException("No data in time-shift buffer for " + timeoutMs + "ms");
+                        }
+                        try {
+                            TimeShiftBuffer.this.wait(remaining);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new InterruptedIOException("Interrupted");
+                        }
+                    }
+                    if (closed) {
+                        return -1;
+                    }
+                    skipOverwrittenLocked();
+                    index = (int) (position % capacity);
+                    count = (int) Math.min(Math.min(length, writePosition - position), capacity - index);
+                }
+
+                readView.position(index);
+                readView.get(buffer, offset, count);
+
+                synchronized (TimeShiftBuffer.this) {
+                    // Si el escritor pisó la zona mientras se copiaba, se descarta y se repite
+                    if (position < getOldestPosition()) {
+                        skipOverwrittenLocked();
+                        continue;
+                    }
+                }
+                position += count;
+                return count;
+            }
+        }
+
+        private void skipOverwrittenLocked() {
+            long oldest = getOldestPosition();
+            if (position < oldest) {
+                position = oldest;
+                overruns++;
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.realstereo.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cuadros del visualizador entre el hilo de audio (único escritor) y el principal
+// (único lector), sin bloqueos. El escritor copia el cuadro a su ranura y después
+// publica el contador; el lector copia y descarta lo que el escritor haya podido
+// reescribir mientras tanto. Si el lector se queda atrás pierde los más viejos.
+public final class VisualizerRing {
+
+    private final int capacity;
+    private final int frameSize;
+    private final float[] values;
+    // Cuadros escritos desde el principio
+    private final AtomicLong published = new AtomicLong();
+    // Solo del lector
+    private long readCount = 0;
+    private long dropped = 0;
+
+    public VisualizerRing(int capacity, int frameSize) {
+        if (capacity < 2 || frameSize < 1) {
+            throw new IllegalArgumentException("Invalid visualizer ring size");
+        }
+        this.capacity = capacity;
+        this.frameSize = frameSize;
+        this.values = new float[capacity * frameSize];
+    }
+
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    // Hilo de audio
+    public void write(float[] frame) {
+        long index = published.get();
+        System.arraycopy(frame, 0, values, (int) (index % capacity) * frameSize, frameSize);
+        published.lazySet(index + 1);
+    }
+
+    // Hilo principal: true si hay cuadros sin leer
+    public boolean hasPending() {
+        return published.get() > readCount;
+    }
+
+    // Hilo principal: olvida lo pendiente (al volver de segundo plano ya es viejo)
+    public void skipPending() {
+        readCount = published.get();
+    }
+
+    // Copia a out hasta maxFrames cuadros, los más recientes, en orden. Devuelve cuántos.
+    public int drain(float[] out, int maxFrames) {
+        long available = published.get();
+        long start = Math.max(readCount, available - Math.min(capacity - 1, maxFrames));
+        int count = (int) (available - start);
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(values, (int) ((start + i) % capacity) * frameSize, out, i * frameSize, frameSize);
+        }
+
+        // La ranura de un cuadro se reescribe cuando el escritor empieza el cuadro
+        // capacity posiciones más adelante
+        long firstValid = Math.max(start, published.get() - capacity + 1);
+        int skipped = (int) Math.min(count, firstValid - start);
+        if (skipped > 0) {
+            count -= skipped;
+            System.arraycopy(out, skipped * frameSize, out, 0, count * frameSize);
+        }
+        dropped += start + skipped - readCount;
+        readCount = available;
+        return count;
+    }
+
+    // Cuadros que el lector no llegó a ver
+    public long getDropped() {
+        return dropped;
+    }
+}
@@ -0,0 +1,32 @@
+package com.realstereo.core;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BackoffPolicyTest {
+
+    @Test
+    public void delayStaysBetweenHalfAndCeiling() {
+        BackoffPolicy policy = new BackoffPolicy(1000, 30000, new Random(42));
+        for (int attempt = 0; attempt < 40; attempt++) {
+            long ceiling = attempt < 30 ? Math.min(30000, 1000L << attempt) : 30000;
+            long delay = policy.delayForAttempt(attempt);
+            assertTrue("attempt " + attempt + ": " + delay, delay >= ceiling / 2 && delay <= ceiling);
+        }
+    }
+
+    @Test
+    public void largeAttemptsDoNotOverflow() {
+        BackoffPolicy policy = new BackoffPolicy(1000, 30000, new Random(1));
+        long delay = policy.delayForAttempt(Integer.MAX_VALUE);
+        assertTrue(delay >= 15000 && delay <= 30000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMaxBelowBase() {
+        new BackoffPolicy(5000, 1000, new Random());
+    }
+}
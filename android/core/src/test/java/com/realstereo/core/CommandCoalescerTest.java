@@ -0,0 +1,103 @@
+package com.realstereo.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class CommandCoalescerTest {
+
+    private final FakeClock clock = new FakeClock(0);
+    private final CommandCoalescer coalescer = new CommandCoalescer(clock, 200);
+
+    @Test
+    public void firstCommandRunsImmediately() {
+        assertEquals(PlaybackCommand.PLAY, coalescer.offer(PlaybackCommand.PLAY));
+    }
+
+    @Test
+    public void playPausePlayCollapsesToOnePlay() {
+        assertEquals(PlaybackCommand.PLAY, coalescer.offer(PlaybackCommand.PLAY));
+        clock.advance(50);
+        assertNull(coalescer.offer(PlaybackCommand.PAUSE));
+        clock.advance(50);
+        assertNull(coalescer.offer(PlaybackCommand.PLAY));
+        clock.advance(100);
+        assertNull(coalescer.flush());
+        assertEquals(2, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void lastCommandOfBurstRunsAtWindowEnd() {
+        coalescer.offer(PlaybackCommand.PLAY);
+        assertNull(coalescer.offer(PlaybackCommand.PAUSE));
+        assertNull(coalescer.offer(PlaybackCommand.PLAY));
+        assertNull(coalescer.offer(PlaybackCommand.STOP));
+        clock.advance(200);
+        assertEquals(PlaybackCommand.STOP, coalescer.flush());
+    }
+
+    @Test
+    public void trailingCommandOpensNewWindow() {
+        coalescer.offer(PlaybackCommand.PLAY);
+        coalescer.offer(PlaybackCommand.PAUSE);
+        clock.advance(200);
+        assertEquals(PlaybackCommand.PAUSE, coalescer.flush());
+        clock.advance(10);
+        assertNull(coalescer.offer(PlaybackCommand.PLAY));
+        clock.advance(200);
+        assertEquals(PlaybackCommand.PLAY, coalescer.flush());
+    }
+
+    @Test
+    public void commandsAfterQuietPeriodRunImmediately() {
+        coalescer.offer(PlaybackCommand.PLAY);
+        clock.advance(200);
+        assertNull(coalescer.flush());
+        clock.advance(500);
+        assertEquals(PlaybackCommand.PAUSE, coalescer.offer(PlaybackCommand.PAUSE));
+        clock.advance(300);
+        assertEquals(PlaybackCommand.PLAY, coalescer.offer(PlaybackCommand.PLAY));
+    }
+
+    // PLAY que falla al arrancar (o sin foco) y el usuario lo repite en la misma ventana:
+    // el segundo PLAY se ejecuta
+    @Test
+    public void playAfterFailedPlayIsNotDropped() {
+        assertEquals(PlaybackCommand.PLAY, coalescer.offer(PlaybackCommand.PLAY));
+        coalescer.onStatusChanged(PlaybackStatus.CONNECTING, true);
+        coalescer.onStatusChanged(PlaybackStatus.ERROR, false);
+        clock.advance(50);
+        assertNull(coalescer.offer(PlaybackCommand.PLAY));
+        clock.advance(150);
+        assertEquals(PlaybackCommand.PLAY, coalescer.flush());
+        assertEquals(0, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void playAfterDeniedFocusIsNotDropped() {
+        coalescer.onStatusChanged(PlaybackStatus.STOPPED, false);
+        assertEquals(PlaybackCommand.PLAY, coalescer.offer(PlaybackCommand.PLAY));
+        // Foco denegado: el estado sigue en STOPPED
+        coalescer.onStatusChanged(PlaybackStatus.STOPPED, false);
+        assertNull(coalescer.offer(PlaybackCommand.PLAY));
+        clock.advance(200);
+        assertEquals(PlaybackCommand.PLAY, coalescer.flush());
+    }
+
+    // Lo que sí repite el estado real se sigue descartando, y la orden pendiente no se pierde
+    @Test
+    public void statusSyncKeepsPendingCommand() {
+        assertEquals(PlaybackCommand.PAUSE, coalescer.offer(PlaybackCommand.PAUSE));
+        assertNull(coalescer.offer(PlaybackCommand.PLAY));
+        coalescer.onStatusChanged(PlaybackStatus.PAUSED, false);
+        clock.advance(200);
+        assertEquals(PlaybackCommand.PLAY, coalescer.flush());
+
+        coalescer.onStatusChanged(PlaybackStatus.CONNECTING, true);
+        clock.advance(10);
+        assertNull(coalescer.offer(PlaybackCommand.PLAY));
+        clock.advance(200);
+        assertNull(coalescer.flush());
+    }
+}
@@ -0,0 +1,77 @@
+package com.realstereo.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ConnectionCacheTest {
+
+    private final FakeClock clock = new FakeClock(1000);
+    private int lookups = 0;
+    private boolean dnsDown = false;
+
+    private final ConnectionCache cache = new ConnectionCache(clock, host -> {
+        lookups++;
+        if (dnsDown) {
+            throw new UnknownHostException(host);
+        }
+        return new InetAddress[] {
+            InetAddress.getByAddress(host, new byte[] {10, 0, 0, 1}),
+            InetAddress.getByAddress(host, new byte[] {0x20, 0x01, 0x0d, (byte) 0xb8, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1})
+        };
+    }, 60000, 30000);
+
+    @Test
+    public void addressesAreCachedUntilTtl() throws UnknownHostException {
+        cache.resolve("stream.example");
+        cache.resolve("stream.example");
+        assertEquals(1, lookups);
+
+        clock.advance(60000);
+        cache.resolve("stream.example");
+        assertEquals(2, lookups);
+    }
+
+    @Test
+    public void staleAddressesAreUsedWhenDnsFails() throws UnknownHostException {
+        cache.resolve("stream.example");
+        clock.advance(120000);
+        dnsDown = true;
+        List<InetAddress> addresses = cache.resolve("stream.example");
+        assertEquals(2, addresses.size());
+        assertEquals("10.0.0.1", addresses.get(0).getHostAddress());
+        assertEquals("stream.example", addresses.get(0).getHostName());
+    }
+
+    @Test(expected = UnknownHostException.class)
+    public void unknownHostWithoutCacheFails() throws UnknownHostException {
+        dnsDown = true;
+        cache.resolve("stream.example");
+    }
+
+    @Test
+    public void serializeRoundTrips() throws UnknownHostException {
+        cache.resolve("stream.example");
+        cache.putRedirect("https://stream.example/live", "https://edge-3.example/live?token=abc");
+
+        ConnectionCache restored = new ConnectionCache(clock, host -> {
+            throw new UnknownHostException(host);
+        }, 60000, 30000);
+        restored.restore(cache.serialize() + "nonsense line\n");
+        assertEquals("https://edge-3.example/live?token=abc", restored.redirectFor("https://stream.example/live"));
+        assertEquals(2, restored.resolve("stream.example").size());
+        assertFalse(restored.takeDirty());
+    }
+
+    @Test
+    public void redirectToSameUrlIsNotStored() {
+        cache.putRedirect("https://a/", "https://a/");
+        assertNull(cache.redirectFor("https://a/"));
+    }
+}
@@ -0,0 +1,81 @@
+package com.realstereo.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class DataUsageLedgerTest {
+
+    private final DataUsageLedger ledger = new DataUsageLedger();
+
+    @Test
+    public void bytesGoToTheNetworkActiveWhenRead() {
+        ledger.setNetworkType(NetworkType.WIFI);
+        ledger.addBytes(1000);
+        ledger.setNetworkType(NetworkType.CELLULAR);
+        ledger.addBytes(300);
+        ledger.drain("2026-10-18");
+
+        assertEquals(1000, ledger.getSessionBytes(NetworkType.WIFI));
+        assertEquals(300, ledger.getSessionBytes(NetworkType.CELLULAR));
+        List<DataUsageLedger.Day> days = ledger.getDays();
+        assertEquals(1, days.size());
+        assertEquals(1300, days.get(0).getTotalBytes());
+    }
+
+    @Test
+    public void newSessionKeepsDailyTotals() {
+        ledger.addBytes(500);
+        ledger.drain("2026-10-18");
+        ledger.startSession(10);
+        ledger.addBytes(200);
+        ledger.drain("2026-10-18");
+
+        assertEquals(200, ledger.getSessionTotalBytes());
+        assertEquals(700, ledger.getDays().get(0).getTotalBytes());
+        assertEquals(10, ledger.getSessionStartedAtMs());
+    }
+
+    @Test
+    public void daysAreNewestFirstAndTrimmed() {
+        for (int day = 1; day <= DataUsageLedger.RETENTION_DAYS + 5; day++) {
+            ledger.addBytes(day);
+            ledger.drain(String.format("2026-%02d-%02d", 1 + day / 28, 1 + day % 28));
+        }
+        List<DataUsageLedger.Day> days = ledger.getDays();
+        assertEquals(DataUsageLedger.RETENTION_DAYS, days.size());
+        assertTrue(days.get(0).date.compareTo(days.get(1).date) > 0);
+    }
+
+    @Test
+    public void serializeRoundTripsAndSkipsGarbage() {
+        ledger.setNetworkType(NetworkType.CELLULAR);
+        ledger.addBytes(42);
+        ledger.drain("2026-10-17");
+        ledger.setNetworkType(NetworkType.WIFI);
+        ledger.addBytes(7);
+        ledger.drain("2026-10-18");
+
+        DataUsageLedger restored = new DataUsageLedger();
+        restored.restore(ledger.serialize() + "garbage\n2026-10-19 bogus=1 wifi=x\n");
+        List<DataUsageLedger.Day> days = restored.getDays();
+        assertEquals(3, days.size());
+        assertEquals(0, days.get(0).getTotalBytes());
+        assertEquals(7, days.get(1).getBytes(NetworkType.WIFI));
+        assertEquals(42, days.get(2).getBytes(NetworkType.CELLULAR));
+    }
+
+    @Test
+    public void dirtyOnlyAfterNewBytes() {
+        ledger.drain("2026-10-18");
+        assertFalse(ledger.takeDirty());
+        ledger.addBytes(1);
+        ledger.drain("2026-10-18");
+        assertTrue(ledger.takeDirty());
+        assertFalse(ledger.takeDirty());
+    }
+}
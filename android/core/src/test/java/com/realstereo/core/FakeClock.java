@@ -0,0 +1,20 @@
+package com.realstereo.core;
+
+// Reloj manual para pruebas: solo avanza cuando se pide
+final class FakeClock implements Clock {
+
+    private long nowMs;
+
+    FakeClock(long startMs) {
+        this.nowMs = startMs;
+    }
+
+    void advance(long ms) {
+        nowMs += ms;
+    }
+
+    @Override
+    public long elapsedMs() {
+        return nowMs;
+    }
+}
@@ -0,0 +1,293 @@
+package com.realstereo.core;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Servidor Icecast local para pruebas: sirve en bucle un audio (MP3 silencioso por
+// defecto) con metadatos ICY, a la tasa del stream tras una ráfaga inicial como hace
+// Icecast. Los fallos se cambian en caliente desde la prueba: latencia antes de
+// responder, tope de ancho de banda, cortes a mitad del stream, errores 5xx y
+// cadenas de redirecciones.
+final class FakeIcecastServer {
+
+    static final int META_INTERVAL = 8192;
+    static final int BITRATE_KBPS = 128;
+    static final int BYTES_PER_SECOND = BITRATE_KBPS * 1000 / 8;
+    // Icecast manda unos segundos de golpe al conectar
+    static final int BURST_BYTES = BYTES_PER_SECOND * 2;
+    private static final int WRITE_CHUNK = 1024;
+
+    private final ServerSocket serverSocket;
+    private final byte[] audio;
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger streamsServed = new AtomicInteger();
+    private final AtomicInteger activeHandlers = new AtomicInteger();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private volatile boolean closed = false;
+
+    // Fallos configurables; se aplican a las conexiones nuevas salvo el tope y el corte,
+    // que también afectan a las que ya están sirviendo
+    private volatile long latencyMs = 0;
+    private volatile int maxBytesPerSecond = 0;
+    private volatile long disconnectAfterBytes = 0;
+    private final AtomicInteger errorsToServe = new AtomicInteger();
+    private volatile int errorStatus = 503;
+    private volatile int redirects = 0;
+
+    FakeIcecastServer() throws IOException {
+        this(silentMp3(BYTES_PER_SECOND * 10));
+    }
+
+    FakeIcecastServer(byte[] audio) throws IOException {
+        this.audio = audio;
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread thread = new Thread(this::acceptLoop, "FakeIcecastServer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + serverSocket.getLocalPort() + "/stream";
+    }
+
+    // Espera antes de mandar la cabecera de respuesta
+    void setLatencyMs(long ms) {
+        latencyMs = ms;
+    }
+
+    // 0 = sin tope (solo la tasa del stream)
+    void setMaxBytesPerSecond(int bytesPerSecond) {
+        maxBytesPerSecond = bytesPerSecond;
+    }
+
+    // Cierra cada conexión tras mandar este número de bytes del cuerpo; 0 = nunca
+    void setDisconnectAfterBytes(long bytes) {
+        disconnectAfterBytes = bytes;
+    }
+
+    // Las próximas count peticiones reciben status en vez del stream
+    void failNextRequests(int count, int status) {
+        errorStatus = status;
+        errorsToServe.set(count);
+    }
+
+    // Cada petición al stream pasa antes por count redirecciones 302
+    void setRedirects(int count) {
+        redirects = count;
+    }
+
+    // Corta todas las conexiones abiertas, como un reinicio del servidor
+    void dropClients() {
+        for (Socket client : clients) {
+            closeQuietly(client);
+        }
+    }
+
+    int getRequests() {
+        return requests.get();
+    }
+
+    int getStreamsServed() {
+        return streamsServed.get();
+    }
+
+    int getActiveHandlers() {
+        return activeHandlers.get();
+    }
+
+    long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    void close() {
+        closed = true;
+        closeQuietly(serverSocket);
+        dropClients();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                return;
+            }
+            clients.add(socket);
+            activeHandlers.incrementAndGet();
+            Thread handler = new Thread(() -> handle(socket), "FakeIcecastClient");
+            handler.setDaemon(true);
+            handler.start();
+        }
+    }
+
+    private void handle(Socket socket) {
+        try {
+            String path = readRequest(socket);
+            requests.incrementAndGet();
+            sleep(latencyMs);
+            OutputStream out = socket.getOutputStream();
+
+            int hop = hopOf(path);
+            if (hop < redirects) {
+                write(out, "HTTP/1.1 302 Found\r\nLocation: /stream/hop" + (hop + 1)
+                    + "\r\nContent-Length: 0\r\nConnection: close\r\n\r\n");
+                return;
+            }
+            if (errorsToServe.getAndDecrement() > 0) {
+                write(out, "HTTP/1.1 " + errorStatus + " Fault\r\nContent-Length: 0\r\nConnection: close\r\n\r\n");
+                return;
+            }
+
+            streamsServed.incrementAndGet();
+            write(out, "ICY 200 OK\r\nContent-Type: audio/mpeg\r\nicy-br: " + BITRATE_KBPS
+                + "\r\nicy-metaint: " + META_INTERVAL + "\r\nicy-name: Fake\r\n\r\n");
+            stream(out);
+        } catch (IOException e) {
+            // El cliente cerró o la prueba cortó la conexión
+        } finally {
+            clients.remove(socket);
+            closeQuietly(socket);
+            activeHandlers.decrementAndGet();
+        }
+    }
+
+    private static String readRequest(Socket socket) throws IOException {
+        BufferedReader reader = new BufferedReader(
+            new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+        String requestLine = reader.readLine();
+        if (requestLine == null) {
+            throw new IOException("Empty request");
+        }
+        String line;
+        while ((line = reader.readLine()) != null && !line.isEmpty()) {
+            // Cabeceras de la petición
+        }
+        String[] parts = requestLine.split(" ");
+        return parts.length > 1 ? parts[1] : "/";
+    }
+
+    private static int hopOf(String path) {
+        int index = path.indexOf("/hop");
+        if (index < 0) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(path.substring(index + 4));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // Audio en bucle con un bloque de metadatos cada META_INTERVAL bytes; el título
+    // cambia en cada vuelta
+    private void stream(OutputStream out) throws IOException {
+        long startNs = System.nanoTime();
+        long sent = 0;
+        int audioPosition = 0;
+        int untilMeta = META_INTERVAL;
+        int loop = 0;
+        byte[] chunk = new byte[WRITE_CHUNK];
+
+        while (!closed) {
+            long limit = disconnectAfterBytes;
+            if (limit > 0 && sent >= limit) {
+                return;
+            }
+
+            int length = Math.min(chunk.length, untilMeta);
+            for (int i = 0; i < length; i++) {
+                chunk[i] = audio[audioPosition++];
+                if (audioPosition == audio.length) {
+                    audioPosition = 0;
+                    loop++;
+                }
+            }
+            out.write(chunk, 0, length);
+            sent += length;
+            untilMeta -= length;
+            if (untilMeta == 0) {
+                byte[] metadata = metadataBlock("StreamTitle='Fake - Track " + loop + "';");
+                out.write(metadata);
+                sent += metadata.length;
+                untilMeta = META_INTERVAL;
+            }
+            out.flush();
+            bytesSent.addAndGet(length);
+
+            pace(startNs, sent);
+        }
+    }
+
+    // Después de la ráfaga no se adelanta a la tasa del stream ni al tope configurado
+    private void pace(long startNs, long sent) {
+        int cap = maxBytesPerSecond;
+        int rate = cap > 0 ? Math.min(cap, BYTES_PER_SECOND) : BYTES_PER_SECOND;
+        long allowance = cap > 0 ? 0 : BURST_BYTES;
+        long dueMs = (sent - allowance) * 1000 / rate;
+        long elapsedMs = (System.nanoTime() - startNs) / 1000000L;
+        if (dueMs > elapsedMs) {
+            sleep(dueMs - elapsedMs);
+        }
+    }
+
+    private static byte[] metadataBlock(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int blocks = (bytes.length + 15) / 16;
+        byte[] block = new byte[1 + blocks * 16];
+        block[0] = (byte) blocks;
+        System.arraycopy(bytes, 0, block, 1, bytes.length);
+        return block;
+    }
+
+    // Tramas MPEG-1 Layer III de 128 kbps a 44,1 kHz con el cuerpo a cero
+    static byte[] silentMp3(int approxBytes) {
+        int frameLength = 417;
+        int frames = Math.max(1, approxBytes / frameLength);
+        byte[] data = new byte[frames * frameLength];
+        for (int i = 0; i < frames; i++) {
+            int offset = i * frameLength;
+            data[offset] = (byte) 0xFF;
+            data[offset + 1] = (byte) 0xFB;
+            data[offset + 2] = (byte) 0x90;
+            data[offset + 3] = (byte) 0x64;
+        }
+        return data;
+    }
+
+    private static void write(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+    }
+
+    private static void sleep(long ms) {
+        if (ms <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Ya estaba cerrado
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.realstereo.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class HappyEyeballsTest {
+
+    private static InetAddress address(String literal) throws IOException {
+        return InetAddress.getByName(literal);
+    }
+
+    @Test
+    public void interleavesFamiliesStartingWithTheFirst() throws IOException {
+        List<InetAddress> ordered = HappyEyeballs.interleave(Arrays.asList(
+            address("2001:db8::1"), address("2001:db8::2"), address("10.0.0.1"), address("10.0.0.2"),
+            address("10.0.0.3")));
+        assertEquals(Arrays.asList(
+            address("2001:db8::1"), address("10.0.0.1"), address("2001:db8::2"), address("10.0.0.2"),
+            address("10.0.0.3")), ordered);
+    }
+
+    @Test
+    public void refusedAddressFallsThroughWithoutWaiting() throws IOException {
+        try (ServerSocket server = new ServerSocket(0, 10, address("127.0.0.1"))) {
+            // Nadie escucha en ::1 en ese puerto: falla enseguida y se pasa a IPv4
+            long startMs = System.currentTimeMillis();
+            Socket socket = HappyEyeballs.connect(
+                Arrays.asList(address("::1"), address("127.0.0.1")), server.getLocalPort(), 2000, 1000);
+            long elapsedMs = System.currentTimeMillis() - startMs;
+            assertEquals(address("127.0.0.1"), socket.getInetAddress());
+            socket.close();
+            assertTrue(elapsedMs < 1000);
+        }
+    }
+
+    @Test
+    public void allRefusedReportsLastError() throws IOException {
+        int port;
+        try (ServerSocket probe = new ServerSocket(0, 1, address("127.0.0.1"))) {
+            port = probe.getLocalPort();
+        }
+        try {
+            HappyEyeballs.connect(Arrays.asList(address("::1"), address("127.0.0.1")), port, 2000, 100);
+            fail("Expected IOException");
+        } catch (IOException expected) {
+            // Conexión rechazada
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.realstereo.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class HlsPlaylistTest {
+
+    private static final String BASE = "https://cdn.example.com/radio/live.m3u8";
+
+    @Test
+    public void parsesLiveMediaPlaylist() throws IOException {
+        HlsPlaylist playlist = HlsPlaylist.parse(BASE, "#EXTM3U\n"
+            + "#EXT-X-VERSION:3\n"
+            + "#EXT-X-TARGETDURATION:6\n"
+            + "#EXT-X-MEDIA-SEQUENCE:120\n"
+            + "#EXTINF:6.006,\n"
+            + "seg120.aac\n"
+            + "#EXT-X-DISCONTINUITY\n"
+            + "#EXTINF:5.5,Title\n"
+            + "/other/seg121.aac\n"
+            + "\n"
+            + "#EXTINF:6,\n"
+            + "https://edge.example.com/seg122.aac\n");
+
+        assertFalse(playlist.master);
+        assertFalse(playlist.ended);
+        assertEquals(6000, playlist.targetDurationMs);
+        assertEquals(120, playlist.mediaSequence);
+        assertEquals(3, playlist.segments.size());
+        assertEquals(120, playlist.segments.get(0).sequence);
+        assertEquals(6006, playlist.segments.get(0).durationMs);
+        assertEquals("https://cdn.example.com/radio/seg120.aac", playlist.segments.get(0).uri);
+        assertFalse(playlist.segments.get(0).discontinuity);
+        assertEquals("https://cdn.example.com/other/seg121.aac", playlist.segments.get(1).uri);
+        assertTrue(playlist.segments.get(1).discontinuity);
+        assertEquals(122, playlist.segments.get(2).sequence);
+        assertEquals("https://edge.example.com/seg122.aac", playlist.segments.get(2).uri);
+        assertEquals(17506, playlist.getDurationMs());
+        assertNull(playlist.segments.get(0).initUri);
+    }
+
+    @Test
+    public void parsesMasterPlaylistAndChoosesVariant() throws IOException {
+        HlsPlaylist playlist = HlsPlaylist.parse(BASE, "#EXTM3U\r\n"
+            + "#EXT-X-STREAM-INF:BANDWIDTH=64000,CODECS=\"mp4a.40.5\"\r\n"
+            + "low/index.m3u8\r\n"
+            + "#EXT-X-STREAM-INF:CODECS=\"mp4a.40.2\",BANDWIDTH=192000\r\n"
+            + "high/index.m3u8\r\n"
+            + "#EXT-X-STREAM-INF:BANDWIDTH=128000\r\n"
+            + "mid/index.m3u8\r\n");
+
+        assertTrue(playlist.master);
+        assertEquals(3, playlist.variants.size());
+        assertEquals(192000, playlist.variants.get(1).bandwidth);
+        assertEquals("https://cdn.example.com/radio/high/index.m3u8",
+            HlsPlaylist.chooseVariant(playlist.variants, 0).uri);
+        assertEquals("https://cdn.example.com/radio/mid/index.m3u8",
+            HlsPlaylist.chooseVariant(playlist.variants, 150000).uri);
+        // Ninguna cabe: la más ligera
+        assertEquals("https://cdn.example.com/radio/low/index.m3u8",
+            HlsPlaylist.chooseVariant(playlist.variants, 32000).uri);
+    }
+
+    @Test
+    public void attachesInitSegmentAndEndList() throws IOException {
+        HlsPlaylist playlist = HlsPlaylist.parse(BASE, "#EXTM3U\n"
+            + "#EXT-X-TARGETDURATION:4\n"
+            + "#EXT-X-MAP:URI=\"init.mp4\",BYTERANGE=\"720@0\"\n"
+            + "#EXTINF:4,\n"
+            + "a.m4s\n"
+            + "#EXTINF:4,\n"
+            + "b.m4s\n"
+            + "#EXT-X-ENDLIST\n");
+
+        assertTrue(playlist.ended);
+        assertEquals(0, playlist.mediaSequence);
+        assertEquals("https://cdn.example.com/radio/init.mp4", playlist.segments.get(0).initUri);
+        assertEquals(1, playlist.segments.get(1).sequence);
+        assertEquals(playlist.segments.get(0).initUri, playlist.segments.get(1).initUri);
+    }
+
+    @Test
+    public void rejectsInvalidPlaylists() {
+        for (String text : Arrays.asList(
+            "ICY 200 OK",
+            "#EXTM3U\n#EXTINF:6,\nseg.aac\n",
+            "#EXTM3U\n#EXT-X-TARGETDURATION:6\n#EXT-X-KEY:METHOD=AES-128,URI=\"k\"\n#EXTINF:6,\nseg.aac\n")) {
+            try {
+                HlsPlaylist.parse(BASE, text);
+                fail("Accepted " + text);
+            } catch (IOException expected) {
+                // Ni stream progresivo, ni sin duración objetivo, ni cifrado
+            }
+        }
+    }
+
+    @Test
+    public void readsQuotedAndPlainAttributes() {
+        String line = "#EXT-X-STREAM-INF:CODECS=\"mp4a.40.2,ac-3\",BANDWIDTH=96000,NAME=\"a=b\"";
+        assertEquals("mp4a.40.2,ac-3", HlsPlaylist.attribute(line, "CODECS"));
+        assertEquals("96000", HlsPlaylist.attribute(line, "BANDWIDTH"));
+        assertEquals("a=b", HlsPlaylist.attribute(line, "NAME"));
+        assertNull(HlsPlaylist.attribute(line, "RESOLUTION"));
+    }
+}
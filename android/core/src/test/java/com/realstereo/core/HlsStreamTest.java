@@ -0,0 +1,303 @@
+package com.realstereo.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HlsStreamTest {
+
+    // Servidor HLS mínimo: una lista en directo de segmentos de 2 s que se puede hacer
+    // avanzar, segmentos con su número como contenido y fallos por segmento
+    private static final class FakeHlsServer {
+        final ServerSocket serverSocket;
+        final Map<String, Integer> failuresLeft = new ConcurrentHashMap<>();
+        final AtomicInteger activeSegments = new AtomicInteger();
+        final AtomicInteger maxActiveSegments = new AtomicInteger();
+        volatile long firstSequence = 0;
+        volatile int windowSize = 10;
+        volatile boolean withInit = false;
+        // Segmento precedido de EXT-X-DISCONTINUITY, -1 = ninguno
+        volatile long discontinuityAt = -1;
+        volatile long segmentDelayMs = 0;
+
+        FakeHlsServer() throws IOException {
+            serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            Thread thread = new Thread(this::acceptLoop, "FakeHlsServer");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        String url() {
+            return "http://127.0.0.1:" + serverSocket.getLocalPort() + "/live.m3u8";
+        }
+
+        void advance(int segments) {
+            firstSequence += segments;
+        }
+
+        private String playlist() {
+            StringBuilder text = new StringBuilder("#EXTM3U\n#EXT-X-TARGETDURATION:2\n#EXT-X-MEDIA-SEQUENCE:")
+                .append(firstSequence).append('\n');
+            if (withInit) {
+                text.append("#EXT-X-MAP:URI=\"init.mp4\"\n");
+            }
+            for (long i = firstSequence; i < firstSequence + windowSize; i++) {
+                if (i == discontinuityAt) {
+                    text.append("#EXT-X-DISCONTINUITY\n");
+                }
+                text.append("#EXTINF:2.0,\nseg").append(i).append(".ts\n");
+            }
+            return text.toString();
+        }
+
+        private void acceptLoop() {
+            while (true) {
+                Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (IOException e) {
+                    return;
+                }
+                Thread handler = new Thread(() -> handle(socket), "FakeHlsClient");
+                handler.setDaemon(true);
+                handler.start();
+            }
+        }
+
+        private void handle(Socket socket) {
+            try (Socket client = socket) {
+                BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(client.getInputStream(), StandardCharsets.ISO_8859_1));
+                String path = reader.readLine().split(" ")[1].substring(1);
+                String line;
+                while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                    // Cabeceras de la petición
+                }
+                OutputStream out = client.getOutputStream();
+
+                if (path.endsWith(".ts")) {
+                    int active = activeSegments.incrementAndGet();
+                    maxActiveSegments.accumulateAndGet(active, Math::max);
+                    try {
+                        Thread.sleep(segmentDelayMs);
+                        Integer left = failuresLeft.get(path);
+                        if (left != null && left != 0) {
+                            failuresLeft.put(path, left - 1);
+                            respond(out, "503 Service Unavailable", "");
+                            return;
+                        }
+                    } finally {
+                        activeSegments.decrementAndGet();
+                    }
+                    respond(out, "200 OK", "[" + path.substring(0, path.length() - 3) + "]");
+                } else if (path.equals("init.mp4")) {
+                    respond(out, "200 OK", "[init]");
+                } else {
+                    respond(out, "200 OK", playlist());
+                }
+            } catch (IOException | InterruptedException | RuntimeException e) {
+                // El cliente cerró
+            }
+        }
+
+        private static void respond(OutputStream out, String status, String body) throws IOException {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            out.write(("HTTP/1.1 " + status + "\r\nContent-Length: " + bytes.length
+                + "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            out.write(bytes);
+            out.flush();
+        }
+
+        void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+
+    private static final long READ_TIMEOUT_MS = 5000;
+
+    private final StreamConnector connector = new StreamConnector(2000, 2000);
+    private final AtomicInteger bytesFetched = new AtomicInteger();
+    private FakeHlsServer server;
+    private HlsStream stream;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new FakeHlsServer();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (stream != null) {
+            stream.close();
+        }
+        server.close();
+    }
+
+    private HlsStream open(long liveEdgeMs, int prefetchSegments) {
+        stream = new HlsStream(url -> connector.open(url, null), server.url(), liveEdgeMs, prefetchSegments, 0,
+            bytesFetched::addAndGet, new BackoffPolicy(10, 50, new Random(1)));
+        stream.start();
+        return stream;
+    }
+
+    private static String read(HlsStream stream, int bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[3];
+        while (out.size() < bytes) {
+            int read = stream.read(chunk, 0, Math.min(chunk.length, bytes - out.size()), READ_TIMEOUT_MS);
+            if (read == -1) {
+                break;
+            }
+            if (read == HlsStream.DISCONTINUITY) {
+                out.write('|');
+                continue;
+            }
+            out.write(chunk, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void startsAtLiveEdgeDistanceAndReadsInOrder() throws IOException {
+        // 6 s del final con segmentos de 2 s: los tres últimos (7, 8 y 9)
+        open(6000, 2);
+
+        assertEquals("[seg7][seg8][seg9]", read(stream, 18));
+        assertTrue(bytesFetched.get() > 18);
+    }
+
+    @Test
+    public void picksUpNewSegmentsOnReload() throws IOException {
+        open(2000, 2);
+        assertEquals("[seg9]", read(stream, 6));
+
+        server.advance(2);
+        // La lista se vuelve a pedir sola: llegan solo los nuevos
+        assertEquals("[seg10][seg11]", read(stream, 14));
+        assertTrue(stream.getPlaylistReloads() >= 2);
+    }
+
+    @Test
+    public void retriesFailedSegmentOnItsOwn() throws IOException {
+        server.failuresLeft.put("seg8.ts", 2);
+        open(6000, 3);
+
+        assertEquals("[seg7][seg8][seg9]", read(stream, 18));
+        assertEquals(2, stream.getSegmentRetries());
+        assertEquals(0, stream.getSegmentsSkipped());
+    }
+
+    @Test
+    public void skipsSegmentThatKeepsFailing() throws IOException {
+        server.failuresLeft.put("seg8.ts", -1);
+        open(6000, 3);
+
+        assertEquals("[seg7][seg9]", read(stream, 12));
+        assertEquals(1, stream.getSegmentsSkipped());
+        assertEquals(HlsStream.MAX_SEGMENT_RETRIES, stream.getSegmentRetries());
+    }
+
+    @Test
+    public void prefetchWindowBoundsParallelDownloads() throws IOException {
+        server.segmentDelayMs = 50;
+        open(20000, 3);
+
+        assertEquals("[seg0][seg1][seg2][seg3][seg4]", read(stream, 30));
+        assertTrue("parallel " + server.maxActiveSegments.get(), server.maxActiveSegments.get() <= 3);
+        assertTrue(server.maxActiveSegments.get() >= 2);
+        assertTrue(stream.getPrefetchedSegments() <= 3);
+    }
+
+    @Test
+    public void prependsInitSegmentOnce() throws IOException {
+        server.withInit = true;
+        open(4000, 2);
+
+        assertEquals("[init][seg8][seg9]", read(stream, 18));
+        server.advance(1);
+        assertEquals("[seg10]", read(stream, 7));
+    }
+
+    @Test
+    public void signalsDiscontinuityAndResendsInit() throws IOException {
+        server.withInit = true;
+        server.discontinuityAt = 9;
+        open(4000, 2);
+
+        // "|" marca DISCONTINUITY: el extractor nuevo recibe otra vez la inicialización
+        assertEquals("[init][seg8]|[init][seg9]", read(stream, 25));
+        server.advance(1);
+        assertEquals("[seg10]", read(stream, 7));
+    }
+
+    @Test
+    public void discontinuityBeforeFirstSegmentIsNotSignalled() throws IOException {
+        server.discontinuityAt = 8;
+        open(4000, 2);
+
+        assertEquals("[seg8][seg9]", read(stream, 12));
+    }
+
+    @Test
+    public void failsWhenPlaylistNeverLoads() {
+        String missing = "http://127.0.0.1:" + server.serverSocket.getLocalPort() + "/missing.txt";
+        stream = new HlsStream(url -> {
+            throw new IOException("HTTP 404 from " + url);
+        }, missing, 6000, 2, 0, null, new BackoffPolicy(10, 50, new Random(1)));
+        stream.start();
+
+        try {
+            read(stream, 1);
+            fail("Read from a playlist that never loaded");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("404"));
+        }
+    }
+
+    // Lógica de la cola sin red: lo que se añade con cada lista
+    @Test
+    public void jumpsToLiveEdgeWhenPlaylistMovesPast() throws IOException {
+        HlsStream queue = new HlsStream(url -> {
+            throw new IOException("No network in this test");
+        }, "http://example.com/live.m3u8", 4000, 2, 0, null);
+
+        assertTrue(queue.onPlaylist(playlist(0, 10)));
+        assertEquals(4000, queue.getLiveEdgeDistanceMs());
+        // Sin cambios
+        assertTrue(!queue.onPlaylist(playlist(0, 10)));
+        // Dos nuevos: se añaden y lo pendiente se recorta hasta el directo
+        assertTrue(queue.onPlaylist(playlist(2, 10)));
+        assertTrue(queue.getLiveEdgeDistanceMs() <= 4000 + 2 * 2000);
+        // La lista salta por delante de lo último en cola
+        assertTrue(queue.onPlaylist(playlist(40, 10)));
+        assertEquals(4000, queue.getLiveEdgeDistanceMs());
+        assertTrue(queue.getLiveEdgeJumps() >= 1);
+    }
+
+    private static HlsPlaylist playlist(long first, int count) throws IOException {
+        StringBuilder text = new StringBuilder("#EXTM3U\n#EXT-X-TARGETDURATION:2\n#EXT-X-MEDIA-SEQUENCE:")
+            .append(first).append('\n');
+        for (long i = first; i < first + count; i++) {
+            text.append("#EXTINF:2,\nseg").append(i).append(".ts\n");
+        }
+        return HlsPlaylist.parse("http://example.com/live.m3u8", text.toString());
+    }
+}
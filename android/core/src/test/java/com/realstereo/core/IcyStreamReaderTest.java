@@ -0,0 +1,97 @@
+package com.realstereo.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class IcyStreamReaderTest {
+
+    private static final int META_INTERVAL = 16;
+
+    @Test
+    public void separatesAudioFromMetadata() throws IOException {
+        List<String> titles = new ArrayList<>();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        ByteArrayOutputStream expectedAudio = new ByteArrayOutputStream();
+        appendAudio(stream, expectedAudio, 0);
+        appendMetadata(stream, "StreamTitle='Guns N' Roses - Patience';");
+        appendAudio(stream, expectedAudio, 1);
+        appendMetadata(stream, "");
+        appendAudio(stream, expectedAudio, 2);
+        appendMetadata(stream, "StreamTitle='Guns N' Roses - Patience';");
+        appendAudio(stream, expectedAudio, 3);
+        appendMetadata(stream, "StreamTitle='Canción';StreamUrl='';");
+
+        byte[] audio = readAll(stream.toByteArray(), new IcyMetadataParser(titles::add), 5);
+
+        assertArrayEquals(expectedAudio.toByteArray(), audio);
+        // El título repetido no se vuelve a publicar
+        assertEquals(2, titles.size());
+        assertEquals("Guns N' Roses - Patience", titles.get(0));
+        assertEquals("Canción", titles.get(1));
+    }
+
+    @Test
+    public void fallsBackToLatin1() throws IOException {
+        List<String> titles = new ArrayList<>();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        appendAudio(stream, new ByteArrayOutputStream(), 0);
+        appendMetadata(stream, "StreamTitle='Canción';", StandardCharsets.ISO_8859_1.name());
+
+        readAll(stream.toByteArray(), new IcyMetadataParser(titles::add), 64);
+
+        assertEquals(1, titles.size());
+        assertEquals("Canción", titles.get(0));
+    }
+
+    private static byte[] readAll(byte[] data, IcyMetadataParser parser, int chunk) throws IOException {
+        int[] position = {0};
+        IcyStreamReader.Source source = (buffer, offset, length) -> {
+            if (position[0] >= data.length) {
+                return -1;
+            }
+            int count = Math.min(length, data.length - position[0]);
+            System.arraycopy(data, position[0], buffer, offset, count);
+            position[0] += count;
+            return count;
+        };
+        IcyStreamReader reader = new IcyStreamReader(META_INTERVAL, parser);
+        ByteArrayOutputStream audio = new ByteArrayOutputStream();
+        byte[] buffer = new byte[chunk];
+        int read;
+        while ((read = reader.read(source, buffer, 0, buffer.length)) != -1) {
+            audio.write(buffer, 0, read);
+        }
+        return audio.toByteArray();
+    }
+
+    private static void appendAudio(ByteArrayOutputStream stream, ByteArrayOutputStream audio, int seed) {
+        for (int i = 0; i < META_INTERVAL; i++) {
+            int b = (seed * 31 + i) & 0xFF;
+            stream.write(b);
+            audio.write(b);
+        }
+    }
+
+    private static void appendMetadata(ByteArrayOutputStream stream, String metadata) throws IOException {
+        appendMetadata(stream, metadata, StandardCharsets.UTF_8.name());
+    }
+
+    private static void appendMetadata(ByteArrayOutputStream stream, String metadata, String charset)
+            throws IOException {
+        byte[] bytes = metadata.getBytes(charset);
+        int blocks = (bytes.length + 15) / 16;
+        stream.write(blocks);
+        stream.write(bytes);
+        for (int i = bytes.length; i < blocks * 16; i++) {
+            stream.write(0);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.realstereo.core;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptySnapshotIsZero() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+        assertEquals(0, snapshot.count);
+        assertEquals(0, snapshot.minMs);
+        assertEquals(0, snapshot.p95Ms);
+        assertEquals(0, snapshot.getMeanMs());
+    }
+
+    @Test
+    public void percentilesUseBucketBoundsCappedByMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            histogram.record(80);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(2500);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100, snapshot.count);
+        assertEquals(80, snapshot.minMs);
+        assertEquals(2500, snapshot.maxMs);
+        assertEquals(100, snapshot.p50Ms);
+        assertEquals(2500, snapshot.p95Ms);
+        assertEquals(322, snapshot.getMeanMs());
+    }
+
+    @Test
+    public void overflowBucketCollectsLargeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(45000);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1, snapshot.bucketCounts[0]);
+        assertEquals(1, snapshot.bucketCounts[LatencyHistogram.BUCKET_BOUNDS_MS.length]);
+        assertEquals(45000, snapshot.p95Ms);
+
+        histogram.reset();
+        assertEquals(0, histogram.snapshot().count);
+    }
+}
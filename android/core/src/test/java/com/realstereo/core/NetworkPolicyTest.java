@@ -0,0 +1,51 @@
+package com.realstereo.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class NetworkPolicyTest {
+
+    private final BufferConfig configured = BufferConfig.defaults();
+
+    @Test
+    public void autoFollowsMeteredFlag() {
+        NetworkPolicy policy = new NetworkPolicy(NetworkPolicy.Mode.AUTO);
+        assertEquals(NetworkPolicy.Profile.UNMETERED, policy.profileFor(true, false));
+        assertEquals(NetworkPolicy.Profile.METERED, policy.profileFor(true, true));
+        assertEquals(NetworkPolicy.Profile.OFFLINE, policy.profileFor(false, false));
+    }
+
+    @Test
+    public void modesOverrideTheNetwork() {
+        assertEquals(NetworkPolicy.Profile.METERED,
+            new NetworkPolicy(NetworkPolicy.Mode.SAVER).profileFor(true, false));
+        assertEquals(NetworkPolicy.Profile.UNMETERED,
+            new NetworkPolicy(NetworkPolicy.Mode.UNRESTRICTED).profileFor(true, true));
+    }
+
+    @Test
+    public void meteredCapsBufferAndSlowsReconnects() {
+        NetworkPolicy policy = new NetworkPolicy(NetworkPolicy.Mode.AUTO);
+        assertSame(configured, policy.bufferConfigFor(NetworkPolicy.Profile.UNMETERED, configured));
+
+        BufferConfig metered = policy.bufferConfigFor(NetworkPolicy.Profile.METERED, configured);
+        assertEquals(NetworkPolicy.METERED_MAX_BUFFER_BYTES, metered.maxBufferBytes);
+        assertEquals(configured.initialBufferMs, metered.initialBufferMs);
+
+        BackoffPolicy backoff = policy.backoffFor(NetworkPolicy.Profile.METERED);
+        assertTrue(backoff.getBaseDelayMs() > new BackoffPolicy().getBaseDelayMs());
+        assertFalse(policy.allowsParallelProbes(NetworkPolicy.Profile.METERED));
+        assertTrue(policy.allowsParallelProbes(NetworkPolicy.Profile.UNMETERED));
+    }
+
+    @Test
+    public void smallerUserBufferIsKept() {
+        BufferConfig small = new BufferConfig(1000, 3000, 256 * 1024, 8000, 10000);
+        assertSame(small, new NetworkPolicy(NetworkPolicy.Mode.SAVER)
+            .bufferConfigFor(NetworkPolicy.Profile.METERED, small));
+    }
+}
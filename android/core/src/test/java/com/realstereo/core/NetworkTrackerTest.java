@@ -0,0 +1,44 @@
+package com.realstereo.core;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class NetworkTrackerTest {
+
+    @Test
+    public void switchThenLoseGoesOffline() {
+        NetworkTracker<String> tracker = new NetworkTracker<>(true);
+        assertTrue(tracker.onAvailable("wifi"));
+        // Traspaso a móvil: el callback por defecto no avisa de que se perdió la Wi-Fi
+        assertFalse(tracker.onAvailable("cellular"));
+        assertTrue(tracker.isOnline());
+
+        assertTrue(tracker.onLost("cellular"));
+        assertFalse(tracker.isOnline());
+        assertTrue(tracker.onAvailable("wifi"));
+    }
+
+    @Test
+    public void lateLossOfReplacedNetworkIsIgnored() {
+        NetworkTracker<String> tracker = new NetworkTracker<>(true);
+        tracker.onAvailable("wifi");
+        tracker.onAvailable("cellular");
+
+        assertFalse(tracker.onLost("wifi"));
+        assertTrue(tracker.isOnline());
+    }
+
+    @Test
+    public void perRequestCallbackCountsEveryNetwork() {
+        NetworkTracker<String> tracker = new NetworkTracker<>(false);
+        assertTrue(tracker.onAvailable("wifi"));
+        assertFalse(tracker.onAvailable("cellular"));
+
+        assertFalse(tracker.onLost("wifi"));
+        assertTrue(tracker.isOnline());
+        assertTrue(tracker.onLost("cellular"));
+        assertFalse(tracker.isOnline());
+    }
+}
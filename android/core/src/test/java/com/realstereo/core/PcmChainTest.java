@@ -0,0 +1,124 @@
+package com.realstereo.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PcmChainTest {
+
+    private static final int RATE = 44100;
+    private static final int BLOCK_FRAMES = RATE / 100;
+
+    // Seno estéreo de amplitud dada, continuando la fase entre bloques
+    private static void fillSine(float[] samples, int frames, float amplitude, int startFrame) {
+        for (int frame = 0; frame < frames; frame++) {
+            float value = amplitude * (float) Math.sin(2 * Math.PI * 1000 * (startFrame + frame) / RATE);
+            samples[frame * 2] = value;
+            samples[frame * 2 + 1] = value;
+        }
+    }
+
+    private static float peak(float[] samples, int count) {
+        float peak = 0f;
+        for (int i = 0; i < count; i++) {
+            peak = Math.max(peak, Math.abs(samples[i]));
+        }
+        return peak;
+    }
+
+    @Test
+    public void gainRampReachesTargetWithoutJump() {
+        GainRamp ramp = new GainRamp(100);
+        ramp.configure(RATE, 2);
+        float[] samples = new float[BLOCK_FRAMES * 2];
+        ramp.setTarget(0.3f);
+
+        java.util.Arrays.fill(samples, 1f);
+        ramp.process(samples, BLOCK_FRAMES);
+        // 10 ms de una rampa de 100 ms: ha bajado un 10 % del recorrido
+        assertEquals(0.93f, samples[samples.length - 1], 0.01f);
+        assertTrue(samples[0] > 0.99f);
+
+        for (int i = 0; i < 10; i++) {
+            java.util.Arrays.fill(samples, 1f);
+            ramp.process(samples, BLOCK_FRAMES);
+        }
+        assertEquals(0.3f, ramp.getGain(), 1e-6f);
+        assertEquals(0.3f, samples[samples.length - 1], 1e-6f);
+    }
+
+    @Test
+    public void normalizerRaisesQuietAudioTowardsTarget() {
+        LoudnessNormalizer normalizer = new LoudnessNormalizer(-18f);
+        normalizer.configure(RATE, 2);
+        float[] samples = new float[BLOCK_FRAMES * 2];
+        // Seno de -30 dBFS RMS: pide +12 dB, el tope
+        float amplitude = (float) (Math.pow(10, -30 / 20.0) * Math.sqrt(2));
+        for (int block = 0; block < 600; block++) {
+            fillSine(samples, BLOCK_FRAMES, amplitude, block * BLOCK_FRAMES);
+            normalizer.process(samples, BLOCK_FRAMES);
+        }
+        assertEquals(12f, normalizer.getGainDb(), 0.1f);
+    }
+
+    @Test
+    public void normalizerLowersLoudAudioQuickly() {
+        LoudnessNormalizer normalizer = new LoudnessNormalizer(-18f);
+        normalizer.configure(RATE, 2);
+        float[] samples = new float[BLOCK_FRAMES * 2];
+        // -10 dBFS RMS: pide -8 dB; a 12 dB/s se alcanza en menos de dos segundos
+        float amplitude = (float) (Math.pow(10, -10 / 20.0) * Math.sqrt(2));
+        for (int block = 0; block < 200; block++) {
+            fillSine(samples, BLOCK_FRAMES, amplitude, block * BLOCK_FRAMES);
+            normalizer.process(samples, BLOCK_FRAMES);
+        }
+        assertEquals(-8f, normalizer.getGainDb(), 0.3f);
+    }
+
+    @Test
+    public void normalizerDoesNotAmplifySilence() {
+        LoudnessNormalizer normalizer = new LoudnessNormalizer();
+        normalizer.configure(RATE, 2);
+        float[] samples = new float[BLOCK_FRAMES * 2];
+        for (int block = 0; block < 300; block++) {
+            fillSine(samples, BLOCK_FRAMES, 0.0001f, block * BLOCK_FRAMES);
+            normalizer.process(samples, BLOCK_FRAMES);
+        }
+        assertEquals(0f, normalizer.getGainDb(), 0f);
+    }
+
+    @Test
+    public void limiterKeepsPeaksUnderCeiling() {
+        PeakLimiter limiter = new PeakLimiter(0.5f);
+        limiter.configure(RATE, 2);
+        float[] samples = new float[BLOCK_FRAMES * 2];
+        fillSine(samples, BLOCK_FRAMES, 1f, 0);
+        limiter.process(samples, BLOCK_FRAMES);
+        assertTrue(peak(samples, samples.length) <= 0.5f + 1e-6f);
+        assertEquals(-6f, limiter.takeMaxReductionDb(), 0.1f);
+        assertEquals(0f, limiter.takeMaxReductionDb(), 0f);
+    }
+
+    @Test
+    public void chainMeasuresEveryProcessorPer10msBlock() {
+        PcmChain chain = new PcmChain(new LoudnessNormalizer(), new GainRamp(), new PeakLimiter());
+        chain.configure(RATE, 2);
+        // Bloques de 20 ms: cuentan como dos de 10 ms
+        float[] samples = new float[BLOCK_FRAMES * 4];
+        for (int block = 0; block < 50; block++) {
+            fillSine(samples, BLOCK_FRAMES * 2, 0.5f, block * BLOCK_FRAMES * 2);
+            chain.process(samples, BLOCK_FRAMES * 2);
+        }
+
+        PcmChain.ProcessorStats[] stats = chain.snapshot();
+        assertEquals(3, stats.length);
+        assertEquals("loudness", stats[0].name);
+        assertEquals("gainRamp", stats[1].name);
+        assertEquals("limiter", stats[2].name);
+        for (PcmChain.ProcessorStats processor : stats) {
+            assertEquals(100, processor.blocks);
+            assertTrue(processor.maxNanosPer10ms >= processor.meanNanosPer10ms);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.realstereo.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PlaybackStateMachineTest {
+
+    private final List<PlaybackStatus> transitions = new ArrayList<>();
+    private final PlaybackStateMachine machine =
+        new PlaybackStateMachine((previous, current) -> transitions.add(current));
+
+    @Test
+    public void normalStartAndRebuffer() {
+        machine.onStartRequested();
+        machine.onPrepared(true);
+        assertTrue(machine.onBufferingStarted());
+        machine.onBufferingEnded();
+        machine.onStopRequested();
+
+        assertEquals(listOf(PlaybackStatus.CONNECTING, PlaybackStatus.PLAYING, PlaybackStatus.BUFFERING,
+            PlaybackStatus.PLAYING, PlaybackStatus.STOPPED), transitions);
+        assertFalse(machine.isPlayRequested());
+    }
+
+    @Test
+    public void errorWhilePlayingReconnects() {
+        machine.onStartRequested();
+        machine.onPrepared(true);
+        assertTrue(machine.onError());
+        assertEquals(PlaybackStatus.RECONNECTING, machine.getStatus());
+        // Un segundo error no repite la transición
+        assertTrue(machine.onError());
+        assertEquals(3, transitions.size());
+    }
+
+    @Test
+    public void errorAfterStopIsTerminal() {
+        machine.onStartRequested();
+        machine.onStopRequested();
+        assertFalse(machine.onError());
+        assertEquals(PlaybackStatus.ERROR, machine.getStatus());
+        machine.onReconnecting();
+        assertEquals(PlaybackStatus.ERROR, machine.getStatus());
+    }
+
+    @Test
+    public void bufferingOnlyCountsWhilePlaying() {
+        machine.onStartRequested();
+        assertFalse(machine.onBufferingStarted());
+        assertEquals(PlaybackStatus.CONNECTING, machine.getStatus());
+    }
+
+    @Test
+    public void transientFocusLossKeepsIntent() {
+        machine.onStartRequested();
+        machine.onPrepared(true);
+        machine.onFocusLostTransient();
+        assertEquals(PlaybackStatus.PAUSED, machine.getStatus());
+        assertTrue(machine.isPlayRequested());
+        machine.onFocusRegained();
+        assertEquals(PlaybackStatus.PLAYING, machine.getStatus());
+    }
+
+    // Una llamada durante un corte o una reconexión también pausa; los reintentos
+    // siguen en pausa hasta recuperar el foco
+    @Test
+    public void transientFocusLossWhileStalledPauses() {
+        machine.onStartRequested();
+        machine.onPrepared(true);
+        machine.onBufferingStarted();
+        assertTrue(machine.onFocusLostTransient());
+        assertEquals(PlaybackStatus.PAUSED, machine.getStatus());
+
+        assertTrue(machine.onError());
+        machine.onReconnecting();
+        machine.onPrepared(false);
+        assertEquals(PlaybackStatus.PAUSED, machine.getStatus());
+        assertTrue(machine.isPlayRequested());
+        machine.onFocusRegained();
+        assertEquals(PlaybackStatus.PLAYING, machine.getStatus());
+    }
+
+    @Test
+    public void transientFocusLossWhileReconnectingPauses() {
+        machine.onStartRequested();
+        machine.onPrepared(true);
+        machine.onError();
+        assertTrue(machine.onFocusLostTransient());
+        assertEquals(PlaybackStatus.PAUSED, machine.getStatus());
+        // Ya en pausa o sin intención de sonar no hay nada que pausar
+        assertFalse(machine.onFocusLostTransient());
+        machine.onStopRequested();
+        assertFalse(machine.onFocusLostTransient());
+    }
+
+    @Test
+    public void userPauseIsNotUndoneByFocusGain() {
+        machine.onStartRequested();
+        machine.onPrepared(true);
+        machine.onPauseRequested();
+        machine.onFocusRegained();
+        assertEquals(PlaybackStatus.PAUSED, machine.getStatus());
+    }
+
+    @Test
+    public void preparedWithoutFocusStaysConnecting() {
+        machine.onStartRequested();
+        machine.onPrepared(false);
+        assertEquals(PlaybackStatus.CONNECTING, machine.getStatus());
+    }
+
+    private static List<PlaybackStatus> listOf(PlaybackStatus... statuses) {
+        List<PlaybackStatus> list = new ArrayList<>();
+        for (PlaybackStatus status : statuses) {
+            list.add(status);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,64 @@
+package com.realstereo.core;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class PlaybackStatsTest {
+
+    @Test
+    public void measuresStartupFromRequest() {
+        FakeClock clock = new FakeClock(1000);
+        PlaybackStats stats = new PlaybackStats(clock);
+        stats.onStartRequested();
+        clock.advance(120);
+        stats.onFirstByte();
+        clock.advance(300);
+        stats.onPrepared();
+        clock.advance(80);
+        stats.onAudioStarted();
+
+        PlaybackStats.Snapshot snapshot = stats.snapshot();
+        assertEquals(1, snapshot.startAttempts);
+        assertEquals(120, snapshot.timeToFirstByte.maxMs);
+        assertEquals(420, snapshot.timeToPrepared.maxMs);
+        assertEquals(500, snapshot.timeToFirstAudio.maxMs);
+        assertEquals(500, snapshot.sinceResetMs);
+    }
+
+    @Test
+    public void measuresReconnectLatencyFromFirstError() {
+        FakeClock clock = new FakeClock(0);
+        PlaybackStats stats = new PlaybackStats(clock);
+        stats.onBufferingStart();
+        clock.advance(700);
+        stats.onError(2001, true);
+        clock.advance(1000);
+        stats.onError(2001, true);
+        clock.advance(1000);
+        stats.onAudioStarted();
+
+        PlaybackStats.Snapshot snapshot = stats.snapshot();
+        assertEquals(1, snapshot.rebufferCount);
+        assertEquals(700, snapshot.rebufferDuration.maxMs);
+        assertEquals(2, snapshot.errorCount);
+        assertEquals(1, snapshot.errorCodes.length);
+        assertEquals(2, snapshot.errorCodeCounts[0]);
+        assertEquals(1, snapshot.reconnectCount);
+        assertEquals(2000, snapshot.reconnectLatency.maxMs);
+    }
+
+    @Test
+    public void extraErrorCodesGoToOther() {
+        PlaybackStats stats = new PlaybackStats(new FakeClock(0));
+        for (int code = 0; code < 20; code++) {
+            stats.onError(code, false);
+        }
+        PlaybackStats.Snapshot snapshot = stats.snapshot();
+        assertEquals(16, snapshot.errorCodes.length);
+        assertEquals(4, snapshot.otherErrorCount);
+
+        stats.reset();
+        assertEquals(0, stats.snapshot().errorCount);
+    }
+}
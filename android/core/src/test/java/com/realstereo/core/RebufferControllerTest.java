@@ -0,0 +1,109 @@
+package com.realstereo.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class RebufferControllerTest {
+
+    private final FakeClock clock = new FakeClock(0);
+
+    @Test
+    public void repeatedStallsDeepenTheBuffer() {
+        RebufferController controller = new RebufferController(clock, 2500);
+        assertEquals(0, controller.getTargetMs());
+
+        assertNull(controller.onStall());
+        clock.advance(60000);
+        RebufferController.Decision decision = controller.onStall();
+        assertNotNull(decision);
+        assertEquals(1, decision.level);
+        assertEquals(5000, decision.targetMs);
+        assertEquals(RebufferController.Reason.STALLS, decision.reason);
+
+        // Cada subida necesita dos cortes nuevos
+        clock.advance(1000);
+        assertNull(controller.onStall());
+        clock.advance(1000);
+        assertEquals(10000, controller.onStall().targetMs);
+        clock.advance(1000);
+        controller.onStall();
+        clock.advance(1000);
+        // El objetivo no pasa de lo que ExoPlayer llega a cargar
+        assertEquals(RebufferController.MAX_TARGET_MS, controller.onStall().targetMs);
+        clock.advance(1000);
+        controller.onStall();
+        clock.advance(1000);
+        assertNull(controller.onStall());
+        assertEquals(RebufferController.MAX_LEVEL, controller.getLevel());
+    }
+
+    @Test
+    public void spreadOutStallsDoNotDeepen() {
+        RebufferController controller = new RebufferController(clock, 2500);
+        controller.onStall();
+        clock.advance(RebufferController.STALL_WINDOW_MS + 1);
+        assertNull(controller.onStall());
+        assertEquals(0, controller.getLevel());
+    }
+
+    @Test
+    public void slowLinkDeepensBeforeStalling() {
+        RebufferController controller = new RebufferController(clock, 2500);
+        controller.setBitrateKbps(128);
+
+        RebufferController.Decision decision = null;
+        for (int i = 0; i < RebufferController.SLOW_SAMPLES_TO_RAISE; i++) {
+            clock.advance(RebufferController.SAMPLE_MS);
+            // 96 kbps con el buffer casi vacío
+            decision = controller.onSample(60000, RebufferController.SAMPLE_MS, 1000);
+        }
+        assertNotNull(decision);
+        assertEquals(RebufferController.Reason.SLOW_LINK, decision.reason);
+        assertEquals(96, decision.throughputKbps);
+    }
+
+    @Test
+    public void fullBufferIsNotASlowLink() {
+        RebufferController controller = new RebufferController(clock, 2500);
+        controller.setBitrateKbps(128);
+        for (int i = 0; i < 10; i++) {
+            clock.advance(RebufferController.SAMPLE_MS);
+            // El reproductor frena la lectura porque ya tiene de sobra
+            assertNull(controller.onSample(20000, RebufferController.SAMPLE_MS, 14000));
+        }
+        assertEquals(0, controller.getLevel());
+    }
+
+    @Test
+    public void stableLinkReturnsTowardsLive() {
+        RebufferController controller = new RebufferController(clock, 2500);
+        controller.onStall();
+        controller.onStall();
+        assertEquals(1, controller.getLevel());
+
+        clock.advance(RebufferController.STABLE_MS - RebufferController.SAMPLE_MS);
+        assertNull(controller.onSample(80000, RebufferController.SAMPLE_MS, 5000));
+        clock.advance(RebufferController.SAMPLE_MS);
+        RebufferController.Decision decision = controller.onSample(80000, RebufferController.SAMPLE_MS, 5000);
+        assertNotNull(decision);
+        assertEquals(RebufferController.Reason.STABLE, decision.reason);
+        assertEquals(0, decision.level);
+        assertEquals(0, decision.targetMs);
+    }
+
+    @Test
+    public void resetForgetsTheOldLink() {
+        RebufferController controller = new RebufferController(clock, 2500);
+        assertNull(controller.reset());
+        controller.onStall();
+        controller.onStall();
+
+        RebufferController.Decision decision = controller.reset();
+        assertEquals(RebufferController.Reason.RESET, decision.reason);
+        assertEquals(0, controller.getLevel());
+        assertNull(controller.onStall());
+    }
+}
@@ -0,0 +1,71 @@
+package com.realstereo.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class RebufferHoldTest {
+
+    private final RebufferHold hold = new RebufferHold();
+
+    private void playingWithTarget(int targetMs) {
+        hold.setTargetMs(targetMs);
+        hold.setPlayAllowed(true);
+    }
+
+    @Test
+    public void holdsUntilTargetIsBuffered() {
+        playingWithTarget(4000);
+        assertTrue(hold.start(1000, 0));
+        assertEquals(RebufferHold.Action.WAIT, hold.check(2500, 250));
+        assertEquals(RebufferHold.Action.WAIT, hold.check(3900, 500));
+        assertEquals(RebufferHold.Action.RELEASE, hold.check(4000, 750));
+        assertFalse(hold.isHolding());
+        assertEquals(RebufferHold.Action.NONE, hold.check(4000, 1000));
+    }
+
+    @Test
+    public void releasesWhenBufferStopsGrowing() {
+        playingWithTarget(8000);
+        assertTrue(hold.start(1000, 0));
+        assertEquals(RebufferHold.Action.WAIT, hold.check(3000, 500));
+        assertEquals(RebufferHold.Action.WAIT, hold.check(3000, 500 + RebufferHold.STALLED_MS - 1));
+        assertEquals(RebufferHold.Action.RELEASE, hold.check(3000, 500 + RebufferHold.STALLED_MS));
+    }
+
+    @Test
+    public void noHoldWithoutTargetOrWithEnoughBuffered() {
+        playingWithTarget(0);
+        assertFalse(hold.start(0, 0));
+        hold.setTargetMs(2000);
+        assertFalse(hold.start(2000, 0));
+        assertFalse(hold.isHolding());
+    }
+
+    // Llamada entrante durante la retención: al llegar al objetivo no vuelve a sonar
+    @Test
+    public void focusLossDuringHoldNeverResumes() {
+        playingWithTarget(4000);
+        assertTrue(hold.start(1000, 0));
+        hold.setPlayAllowed(false);
+
+        assertFalse(hold.isHolding());
+        assertEquals(RebufferHold.Action.NONE, hold.check(4000, 250));
+        assertEquals(RebufferHold.Action.NONE, hold.check(9000, 5000));
+        // Un nuevo corte mientras sigue sin foco tampoco retiene
+        assertFalse(hold.start(1000, 6000));
+    }
+
+    @Test
+    public void pausedBeforeStallDoesNotHold() {
+        hold.setTargetMs(4000);
+        assertFalse(hold.start(1000, 0));
+        hold.setPlayAllowed(true);
+        assertTrue(hold.start(1000, 0));
+        // start() del motor durante la retención: sigue esperando al objetivo
+        hold.setPlayAllowed(true);
+        assertEquals(RebufferHold.Action.WAIT, hold.check(2000, 250));
+    }
+}
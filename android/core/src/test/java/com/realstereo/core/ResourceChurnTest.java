@@ -0,0 +1,243 @@
+package com.realstereo.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+// Miles de ciclos de reproducir, pausar, parar y fallar: lo que queda vivo al final
+// (hilos, memoria, conexiones, órdenes pendientes) no depende de cuántos ciclos haya.
+// Más ciclos: ./gradlew :core:test --tests '*ResourceChurnTest' -PchurnCycles=20000
+public class ResourceChurnTest {
+
+    private static final int CYCLES = Integer.getInteger("churn.cycles", 2000);
+    private static final int MAX_THREAD_GROWTH = 2;
+    private static final long MAX_HEAP_GROWTH_BYTES = 32L * 1024 * 1024;
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private int threadsBefore;
+    private long heapBefore;
+
+    @Before
+    public void setUp() {
+        threadsBefore = threads.getThreadCount();
+        heapBefore = usedHeap();
+    }
+
+    // Órdenes de control en ráfagas como las del plugin, MediaSession y el foco de
+    // audio: cada orden se ejecuta o queda absorbida (ninguna se pierde ni se queda
+    // pendiente) y al final el estado es el pedido
+    @Test
+    public void commandChurnCoalescesAndEndsInRequestedState() {
+        FakeClock clock = new FakeClock(0);
+        CommandCoalescer coalescer = new CommandCoalescer(clock, CommandCoalescer.DEFAULT_WINDOW_MS);
+        PlaybackStateMachine[] holder = new PlaybackStateMachine[1];
+        // Como AudioService: lo aplicado sigue al estado real
+        PlaybackStateMachine stateMachine = new PlaybackStateMachine(
+            (previous, current) -> coalescer.onStatusChanged(current, holder[0].isPlayRequested()));
+        holder[0] = stateMachine;
+        PlaybackStats stats = new PlaybackStats(clock);
+        Random random = new Random(3);
+        PlaybackCommand[] commands = PlaybackCommand.values();
+        int offered = 0;
+        int executed = 0;
+        int errors = 0;
+
+        for (int i = 0; i < CYCLES * 10; i++) {
+            clock.advance(random.nextInt(150));
+            if (random.nextInt(8) == 0) {
+                // Error del motor con un código cualquiera: reintento si el usuario quería oír la radio
+                stats.onError(random.nextInt(1000), stateMachine.onError());
+                errors++;
+                continue;
+            }
+            offered++;
+            PlaybackCommand now = coalescer.offer(commands[random.nextInt(commands.length)]);
+            if (now != null) {
+                apply(now, stateMachine, stats);
+                executed++;
+            }
+            // Lo que hace el flushRunnable de PlaybackCommandQueue al cerrar la ventana
+            if (!coalescer.isWindowOpen()) {
+                PlaybackCommand flushed = coalescer.flush();
+                if (flushed != null) {
+                    apply(flushed, stateMachine, stats);
+                    executed++;
+                }
+            }
+        }
+
+        clock.advance(CommandCoalescer.DEFAULT_WINDOW_MS);
+        PlaybackCommand flushed = coalescer.flush();
+        if (flushed != null) {
+            apply(flushed, stateMachine, stats);
+            executed++;
+        }
+        clock.advance(CommandCoalescer.DEFAULT_WINDOW_MS);
+        offered++;
+        assertEquals(PlaybackCommand.STOP, coalescer.offer(PlaybackCommand.STOP));
+        apply(PlaybackCommand.STOP, stateMachine, stats);
+        executed++;
+        clock.advance(CommandCoalescer.DEFAULT_WINDOW_MS);
+        assertNull(coalescer.flush());
+
+        assertEquals(PlaybackStatus.STOPPED, stateMachine.getStatus());
+        assertFalse(coalescer.hasPending());
+        assertTrue(executed < offered);
+        assertEquals(offered, executed + coalescer.getCoalescedCount());
+        // Todos los errores contados, con una tabla de códigos de tamaño fijo
+        PlaybackStats.Snapshot snapshot = stats.snapshot();
+        assertEquals(errors, snapshot.errorCount);
+        long byCode = snapshot.otherErrorCount;
+        for (long count : snapshot.errorCodeCounts) {
+            byCode += count;
+        }
+        assertEquals(errors, byCode);
+        assertEquals(PlaybackStats.MAX_ERROR_CODES, snapshot.errorCodes.length);
+        assertTrue(snapshot.otherErrorCount > 0);
+    }
+
+    private static void apply(PlaybackCommand command, PlaybackStateMachine stateMachine, PlaybackStats stats) {
+        switch (command) {
+            case PLAY:
+                if (!stateMachine.isPlayRequested()) {
+                    stats.onStartRequested();
+                    stateMachine.onStartRequested();
+                    stateMachine.onPrepared(true);
+                    stats.onAudioStarted();
+                }
+                break;
+            case PAUSE:
+                stats.onStopped();
+                stateMachine.onPauseRequested();
+                break;
+            case STOP:
+                stats.onStopped();
+                stateMachine.onStopRequested();
+                break;
+        }
+    }
+
+    // Enlaces al servicio con startService repetidos, desconexiones y destrucciones
+    // de la actividad: nunca más de un enlace y ninguno vivo al terminar
+    @Test
+    public void bindChurnLeavesNoBinding() {
+        ServiceBinding binding = new ServiceBinding();
+        Random random = new Random(5);
+        long binds = 0;
+        long unbinds = 0;
+
+        for (int i = 0; i < CYCLES * 10; i++) {
+            switch (random.nextInt(4)) {
+                case 0:
+                    if (binding.requestBind()) {
+                        binds++;
+                    }
+                    break;
+                case 1:
+                    binding.onConnected();
+                    break;
+                case 2:
+                    binding.onDisconnected();
+                    break;
+                default:
+                    if (binding.requestUnbind()) {
+                        unbinds++;
+                    }
+                    break;
+            }
+            assertTrue(binding.getOutstanding() == 0 || binding.getOutstanding() == 1);
+        }
+        if (binding.requestUnbind()) {
+            unbinds++;
+        }
+
+        assertEquals(ServiceBinding.State.UNBOUND, binding.getState());
+        assertEquals(0, binding.getOutstanding());
+        assertEquals(binds, binding.getBindCalls());
+        assertEquals(binds, unbinds);
+        assertTrue(binds > CYCLES);
+    }
+
+    // Reproductores reales contra el servidor local, con errores y cortes mezclados:
+    // mientras suena hay una sola conexión y al parar el servidor la ve cerrarse
+    @Test
+    public void playStopErrorCyclesLeaveNothingBehind() throws Exception {
+        FakeIcecastServer server = new FakeIcecastServer();
+        Random random = new Random(11);
+        int maxHandlers = 0;
+        // Ciclos de red más caros: una fracción de los de órdenes
+        int cycles = Math.max(50, CYCLES / 20);
+        try {
+            for (int i = 0; i < cycles; i++) {
+                int fault = random.nextInt(4);
+                server.failNextRequests(fault == 1 ? 1 : 0, 503);
+                // Corte justo después de la ráfaga, con el audio ya empezado
+                server.setDisconnectAfterBytes(fault == 2 ? FakeIcecastServer.BURST_BYTES : 0);
+
+                SoakPlayer player = new SoakPlayer(server.url(), BufferConfig.defaults(),
+                    FakeIcecastServer.BYTES_PER_SECOND);
+                player.start();
+                if (fault == 3) {
+                    Thread.sleep(5);
+                    server.dropClients();
+                }
+                awaitAudio(player, 2000);
+                maxHandlers = Math.max(maxHandlers, server.getActiveHandlers());
+                player.stop();
+                // El servidor nota el cierre en su siguiente escritura
+                awaitNoConnections(server, 1000);
+                assertEquals(0, server.getActiveHandlers());
+            }
+        } finally {
+            server.close();
+        }
+
+        awaitThreads(server);
+        assertTrue("open connections " + maxHandlers, maxHandlers <= 1);
+        assertEquals(0, server.getActiveHandlers());
+        assertTrue("threads " + threadsBefore + " -> " + threads.getThreadCount(),
+            threads.getThreadCount() <= threadsBefore + MAX_THREAD_GROWTH);
+        long growth = usedHeap() - heapBefore;
+        assertTrue("heap growth " + growth, growth < MAX_HEAP_GROWTH_BYTES);
+    }
+
+    private static void awaitAudio(SoakPlayer player, long timeoutMs) throws InterruptedException {
+        long deadline = Clock.MONOTONIC.elapsedMs() + timeoutMs;
+        while (player.getStats().timeToFirstAudio.count == 0) {
+            if (Clock.MONOTONIC.elapsedMs() >= deadline) {
+                fail("No audio within " + timeoutMs + "ms: " + player.getStatus());
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private static void awaitNoConnections(FakeIcecastServer server, long timeoutMs) throws InterruptedException {
+        long deadline = Clock.MONOTONIC.elapsedMs() + timeoutMs;
+        while (server.getActiveHandlers() > 0 && Clock.MONOTONIC.elapsedMs() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private void awaitThreads(FakeIcecastServer server) throws InterruptedException {
+        long deadline = Clock.MONOTONIC.elapsedMs() + 5000;
+        while ((server.getActiveHandlers() > 0 || threads.getThreadCount() > threadsBefore + MAX_THREAD_GROWTH)
+            && Clock.MONOTONIC.elapsedMs() < deadline) {
+            Thread.sleep(50);
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
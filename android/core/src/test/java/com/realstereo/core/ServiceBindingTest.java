@@ -0,0 +1,96 @@
+package com.realstereo.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ServiceBindingTest {
+
+    @Test
+    public void bindsOnceUntilUnbound() {
+        ServiceBinding binding = new ServiceBinding();
+
+        assertTrue(binding.requestBind());
+        assertFalse(binding.requestBind());
+        binding.onConnected();
+        assertFalse(binding.requestBind());
+        assertEquals(1, binding.getOutstanding());
+
+        assertTrue(binding.requestUnbind());
+        assertFalse(binding.requestUnbind());
+        assertEquals(0, binding.getOutstanding());
+        assertTrue(binding.requestBind());
+    }
+
+    @Test
+    public void disconnectedBindingIsStillReleased() {
+        ServiceBinding binding = new ServiceBinding();
+        binding.requestBind();
+        binding.onConnected();
+        binding.onDisconnected();
+
+        // El sistema reconecta solo: no se pide otro enlace
+        assertFalse(binding.requestBind());
+        assertFalse(binding.isConnected());
+        binding.onConnected();
+        assertTrue(binding.isConnected());
+
+        assertTrue(binding.requestUnbind());
+        assertEquals(ServiceBinding.State.UNBOUND, binding.getState());
+    }
+
+    @Test
+    public void lateCallbacksAfterUnbindAreIgnored() {
+        ServiceBinding binding = new ServiceBinding();
+        binding.requestBind();
+        binding.requestUnbind();
+
+        binding.onConnected();
+        binding.onDisconnected();
+
+        assertEquals(ServiceBinding.State.UNBOUND, binding.getState());
+        assertEquals(0, binding.getOutstanding());
+    }
+
+    // Miles de llamadas de JS y del sistema en cualquier orden: nunca más de un enlace
+    @Test
+    public void churnNeverHoldsMoreThanOneBinding() {
+        ServiceBinding binding = new ServiceBinding();
+        Random random = new Random(7);
+        long binderCalls = 0;
+
+        for (int i = 0; i < 20000; i++) {
+            switch (random.nextInt(5)) {
+                case 0:
+                case 1:
+                    // startService
+                    if (binding.requestBind()) {
+                        binderCalls++;
+                    }
+                    break;
+                case 2:
+                    binding.onConnected();
+                    break;
+                case 3:
+                    binding.onDisconnected();
+                    break;
+                default:
+                    // stopService, destrucción del plugin o enlace muerto
+                    if (binding.requestUnbind()) {
+                        binderCalls--;
+                    }
+                    break;
+            }
+            assertTrue(binderCalls == 0 || binderCalls == 1);
+            assertEquals(binderCalls, binding.getOutstanding());
+        }
+
+        binding.requestUnbind();
+        assertEquals(0, binding.getOutstanding());
+        assertTrue(binding.getBindCalls() > 1000);
+    }
+}
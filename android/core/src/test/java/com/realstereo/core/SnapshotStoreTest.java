@@ -0,0 +1,108 @@
+package com.realstereo.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SnapshotStoreTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("playback", ".snapshot");
+        // Fichero nuevo: sin copias válidas
+        assertTrue(file.delete());
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void emptyFileHasNoSnapshot() throws IOException {
+        SnapshotStore store = new SnapshotStore(file);
+        assertNull(store.read());
+        store.close();
+    }
+
+    @Test
+    public void latestSnapshotSurvivesReopening() throws IOException {
+        SnapshotStore store = new SnapshotStore(file);
+        store.write(new PlaybackSnapshot(true, "a", "http://a/1", "Canción", 0, 1000));
+        store.write(new PlaybackSnapshot(false, "b", "http://b/1", "Otra – ñ", 4500, 2000));
+        store.write(new PlaybackSnapshot(true, null, null, "", 0, 3000));
+        store.write(new PlaybackSnapshot(false, "b", "http://b/2", "Otra – ñ", 4500, 4000));
+        store.close();
+
+        SnapshotStore reopened = new SnapshotStore(file);
+        PlaybackSnapshot snapshot = reopened.read();
+        assertFalse(snapshot.playRequested);
+        assertEquals("b", snapshot.stationId);
+        assertEquals("http://b/2", snapshot.endpoint);
+        assertEquals("Otra – ñ", snapshot.streamTitle);
+        assertEquals(4500, snapshot.behindLiveMs);
+        assertEquals(4000, snapshot.savedAtMs);
+
+        // Sigue alternando ranuras tras reabrir
+        reopened.write(new PlaybackSnapshot(true, null, null, null, 0, 5000));
+        PlaybackSnapshot latest = reopened.read();
+        assertTrue(latest.playRequested);
+        assertNull(latest.stationId);
+        assertEquals("", latest.streamTitle);
+        reopened.close();
+    }
+
+    @Test
+    public void tornWriteFallsBackToPreviousSnapshot() throws IOException {
+        SnapshotStore store = new SnapshotStore(file);
+        store.write(new PlaybackSnapshot(true, "a", "http://a/1", "Uno", 0, 1000));
+        store.write(new PlaybackSnapshot(false, "b", "http://b/1", "Dos", 0, 2000));
+        store.close();
+
+        // La segunda escritura fue a la ranura 1 (desde el byte 4096): se corrompe su contenido
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.seek(4096 + 40);
+            raw.write(0x7F);
+        }
+
+        SnapshotStore reopened = new SnapshotStore(file);
+        PlaybackSnapshot snapshot = reopened.read();
+        assertEquals("a", snapshot.stationId);
+        assertEquals("Uno", snapshot.streamTitle);
+        reopened.close();
+    }
+
+    @Test
+    public void longStringsAreTruncated() throws IOException {
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            title.append('é');
+        }
+        SnapshotStore store = new SnapshotStore(file);
+        store.write(new PlaybackSnapshot(true, "a", "http://a/1", title.toString(), 0, 1000));
+
+        assertEquals(SnapshotStore.MAX_STRING_CHARS, store.read().streamTitle.length());
+        store.close();
+    }
+
+    @Test
+    public void resumesOnlyRecentListening() {
+        PlaybackSnapshot listening = new PlaybackSnapshot(true, null, null, "", 0, 10000);
+        PlaybackSnapshot paused = new PlaybackSnapshot(false, null, null, "", 0, 10000);
+
+        assertTrue(listening.shouldResume(20000, 60000));
+        assertFalse(listening.shouldResume(100000, 60000));
+        assertFalse(paused.shouldResume(20000, 60000));
+    }
+}
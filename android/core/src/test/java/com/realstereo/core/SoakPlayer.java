@@ -0,0 +1,213 @@
+package com.realstereo.core;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Reproductor de pruebas que junta las piezas de core como lo hace AudioService:
+// StreamConnector e IcyStreamReader para leer, PlaybackStateMachine y PlaybackStats
+// para el estado y las métricas, BackoffPolicy para reintentar y RebufferController
+// para el objetivo tras un corte. El audio no se decodifica: un cabezal virtual
+// consume el buffer a la tasa del stream en tiempo real.
+final class SoakPlayer {
+
+    private static final Map<String, String> REQUEST_HEADERS = Collections.singletonMap("Icy-MetaData", "1");
+    private static final int READ_CHUNK = 4096;
+    // Más corto que RebufferController.SAMPLE_MS para que las pruebas no duren minutos
+    static final long SAMPLE_MS = 500;
+
+    private final String url;
+    private final BufferConfig config;
+    private final int bytesPerSecond;
+    private final StreamConnector connector;
+    private final BackoffPolicy backoff = new BackoffPolicy(50, 500, new Random(1));
+    private final PlaybackStats stats = new PlaybackStats(Clock.MONOTONIC);
+    private final PlaybackStateMachine stateMachine = new PlaybackStateMachine((previous, current) -> { });
+    private final RebufferController rebufferController;
+    private final List<String> titles = new CopyOnWriteArrayList<>();
+    private final Thread thread;
+    private volatile boolean stopped = false;
+    private volatile StreamConnection connection;
+    private volatile int stalls = 0;
+    private volatile long audioBytes = 0;
+
+    // Cabezal virtual: bytes en el buffer y si está sonando. Solo del hilo del reproductor.
+    private long bufferedBytes;
+    private boolean playing;
+    private boolean audioStartedOnConnection;
+    private long lastTickMs;
+    private long lastSampleMs;
+    private long sampleBytes;
+
+    SoakPlayer(String url, BufferConfig config, int bytesPerSecond) {
+        this.url = url;
+        this.config = config;
+        this.bytesPerSecond = bytesPerSecond;
+        this.connector = new StreamConnector(config);
+        this.rebufferController = new RebufferController(Clock.MONOTONIC, config.rebufferMs);
+        this.thread = new Thread(this::run, "SoakPlayer");
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void stop() throws InterruptedException {
+        stopped = true;
+        StreamConnection current = connection;
+        if (current != null) {
+            current.close();
+        }
+        thread.interrupt();
+        thread.join(5000);
+    }
+
+    PlaybackStats.Snapshot getStats() {
+        return stats.snapshot();
+    }
+
+    PlaybackStatus getStatus() {
+        return stateMachine.getStatus();
+    }
+
+    int getStalls() {
+        return stalls;
+    }
+
+    long getAudioBytes() {
+        return audioBytes;
+    }
+
+    List<String> getTitles() {
+        return titles;
+    }
+
+    RebufferController getRebufferController() {
+        return rebufferController;
+    }
+
+    private void run() {
+        stats.onStartRequested();
+        stateMachine.onStartRequested();
+        byte[] chunk = new byte[READ_CHUNK];
+        int attempt = 0;
+
+        while (!stopped) {
+            audioStartedOnConnection = false;
+            try {
+                connection = connector.open(url, REQUEST_HEADERS);
+                play(connection, chunk);
+            } catch (IOException e) {
+                if (stopped) {
+                    break;
+                }
+                boolean wasPlaying = audioStartedOnConnection;
+                stats.onError(0, true);
+                stateMachine.onError();
+                // Como ReconnectScheduler: la espera vuelve a empezar tras oír audio
+                if (wasPlaying) {
+                    attempt = 0;
+                }
+                if (!sleep(backoff.delayForAttempt(attempt++))) {
+                    break;
+                }
+                stateMachine.onReconnecting();
+            } finally {
+                StreamConnection current = connection;
+                connection = null;
+                if (current != null) {
+                    current.close();
+                }
+            }
+        }
+        stats.onStopped();
+        stateMachine.onStopRequested();
+    }
+
+    // Como prepare(): cada conexión empieza con el buffer vacío
+    private void play(StreamConnection current, byte[] chunk) throws IOException {
+        String metaint = current.getHeaderField("icy-metaint");
+        String bitrate = current.getHeaderField("icy-br");
+        IcyStreamReader reader = new IcyStreamReader(Integer.parseInt(metaint.trim()),
+            new IcyMetadataParser(titles::add));
+        rebufferController.onStreamChanged();
+        rebufferController.setBitrateKbps(bitrate != null ? Integer.parseInt(bitrate.trim()) : 0);
+
+        bufferedBytes = 0;
+        playing = false;
+        lastTickMs = Clock.MONOTONIC.elapsedMs();
+        boolean firstByte = true;
+
+        while (!stopped) {
+            int read = reader.read(current::read, chunk, 0, chunk.length);
+            if (read == -1) {
+                throw new IOException("Stream ended");
+            }
+            if (firstByte) {
+                firstByte = false;
+                stats.onFirstByte();
+            }
+            audioBytes += read;
+            sampleBytes += read;
+            advance(read);
+        }
+    }
+
+    private void advance(int read) {
+        long now = Clock.MONOTONIC.elapsedMs();
+        if (playing) {
+            bufferedBytes -= (now - lastTickMs) * bytesPerSecond / 1000;
+            if (bufferedBytes <= 0) {
+                bufferedBytes = 0;
+                playing = false;
+                stalls++;
+                stats.onBufferingStart();
+                if (stateMachine.onBufferingStarted()) {
+                    rebufferController.onStall();
+                }
+            }
+        }
+        lastTickMs = now;
+        bufferedBytes += read;
+
+        if (!playing) {
+            // Al conectar basta el umbral inicial; tras un corte, el de rebuffer o el
+            // objetivo del controlador si es mayor
+            int thresholdMs = !audioStartedOnConnection ? config.initialBufferMs
+                : Math.max(config.rebufferMs, rebufferController.getTargetMs());
+            if (bufferedBytes * 1000 / bytesPerSecond >= thresholdMs) {
+                playing = true;
+                if (!audioStartedOnConnection) {
+                    audioStartedOnConnection = true;
+                    stats.onPrepared();
+                    stateMachine.onPrepared(true);
+                    stats.onAudioStarted();
+                    lastSampleMs = now;
+                    sampleBytes = 0;
+                } else {
+                    stats.onBufferingEnd();
+                    stateMachine.onBufferingEnded();
+                }
+            }
+        }
+
+        if (audioStartedOnConnection && now - lastSampleMs >= SAMPLE_MS) {
+            rebufferController.onSample(sampleBytes, now - lastSampleMs, bufferedBytes * 1000 / bytesPerSecond);
+            sampleBytes = 0;
+            lastSampleMs = now;
+        }
+    }
+
+    // false si se interrumpió
+    private static boolean sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+}
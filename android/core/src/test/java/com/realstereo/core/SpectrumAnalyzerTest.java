@@ -0,0 +1,100 @@
+package com.realstereo.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SpectrumAnalyzerTest {
+
+    private static final int SAMPLE_RATE = 44100;
+
+    @Test
+    public void disabledAnalyzerProducesNothing() {
+        VisualizerRing ring = new VisualizerRing(8, SpectrumAnalyzer.FRAME_SIZE);
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(ring);
+        analyzer.configure(SAMPLE_RATE, 2);
+        float[] block = sine(1000, 0.5f, 4096);
+        float[] copy = block.clone();
+
+        analyzer.process(block, 2048);
+
+        assertFalse(ring.hasPending());
+        assertEquals(copy[100], block[100], 0f);
+    }
+
+    @Test
+    public void toneLandsInItsBand() {
+        VisualizerRing ring = new VisualizerRing(8, SpectrumAnalyzer.FRAME_SIZE);
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(ring);
+        analyzer.configure(SAMPLE_RATE, 2);
+        analyzer.setEnabled(true);
+
+        analyzer.process(sine(1000, 0.5f, SpectrumAnalyzer.FFT_SIZE * 2), SpectrumAnalyzer.FFT_SIZE);
+
+        float[] frame = new float[SpectrumAnalyzer.FRAME_SIZE * 8];
+        assertEquals(1, ring.drain(frame, 8));
+        // RMS de un seno de amplitud 0.5
+        assertEquals(0.354f, frame[0], 0.01f);
+
+        int loudest = 1;
+        for (int band = 2; band <= SpectrumAnalyzer.BANDS; band++) {
+            if (frame[band] > frame[loudest]) {
+                loudest = band;
+            }
+        }
+        // 1 kHz entre 40 Hz y 16 kHz en 16 bandas logarítmicas cae en la novena
+        assertEquals(9, loudest);
+        assertTrue(frame[loudest] > 0.8f);
+        assertTrue(frame[SpectrumAnalyzer.BANDS] < 0.3f);
+    }
+
+    @Test
+    public void silenceIsZero() {
+        VisualizerRing ring = new VisualizerRing(8, SpectrumAnalyzer.FRAME_SIZE);
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(ring);
+        analyzer.configure(SAMPLE_RATE, 1);
+        analyzer.setEnabled(true);
+
+        analyzer.process(new float[SpectrumAnalyzer.FFT_SIZE * 3], SpectrumAnalyzer.FFT_SIZE * 3);
+
+        float[] frames = new float[SpectrumAnalyzer.FRAME_SIZE * 8];
+        assertEquals(3, ring.drain(frames, 8));
+        for (float value : frames) {
+            assertEquals(0f, value, 0f);
+        }
+    }
+
+    @Test
+    public void ringKeepsNewestFramesWhenReaderFallsBehind() {
+        VisualizerRing ring = new VisualizerRing(4, 1);
+        for (int i = 0; i < 10; i++) {
+            ring.write(new float[] {i});
+        }
+
+        float[] out = new float[8];
+        int count = ring.drain(out, 8);
+        assertEquals(3, count);
+        assertEquals(7f, out[0], 0f);
+        assertEquals(9f, out[2], 0f);
+        assertEquals(7, ring.getDropped());
+        assertFalse(ring.hasPending());
+
+        ring.write(new float[] {10});
+        ring.write(new float[] {11});
+        assertEquals(1, ring.drain(out, 1));
+        assertEquals(11f, out[0], 0f);
+        assertEquals(8, ring.getDropped());
+    }
+
+    private static float[] sine(float hz, float amplitude, int frames) {
+        float[] samples = new float[frames * 2];
+        for (int i = 0; i < frames; i++) {
+            float value = amplitude * (float) Math.sin(2 * Math.PI * hz * i / SAMPLE_RATE);
+            samples[i * 2] = value;
+            samples[i * 2 + 1] = value;
+        }
+        return samples;
+    }
+}
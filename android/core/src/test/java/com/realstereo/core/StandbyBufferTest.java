@@ -0,0 +1,131 @@
+package com.realstereo.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class StandbyBufferTest {
+
+    private static final int META_INTERVAL = 32;
+
+    @Test
+    public void keepsNewestBytesWithoutMetadata() {
+        StandbyBuffer buffer = new StandbyBuffer(8, 0);
+        byte[] data = sequence(20);
+
+        buffer.write(data, 0, 5);
+        buffer.write(data, 5, 15);
+
+        assertEquals(8, buffer.size());
+        assertEquals(20, buffer.getTotalBytes());
+        byte[] expected = new byte[8];
+        System.arraycopy(data, 12, expected, 0, 8);
+        assertArrayEquals(expected, buffer.toByteArray());
+    }
+
+    @Test
+    public void trimsOnlyAtAudioBlockStarts() throws IOException {
+        List<String> titles = new ArrayList<>();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (int block = 0; block < 20; block++) {
+            appendAudio(stream, block);
+            appendMetadata(stream, block % 3 == 0 ? "StreamTitle='Bloque " + block + "';" : "");
+        }
+        byte[] data = stream.toByteArray();
+
+        StandbyBuffer buffer = new StandbyBuffer(200, META_INTERVAL);
+        for (int offset = 0; offset < data.length; offset += 7) {
+            buffer.write(data, offset, Math.min(7, data.length - offset));
+        }
+
+        assertTrue(buffer.isAligned());
+        assertTrue(buffer.size() <= 200);
+        assertTrue(buffer.size() > 200 - META_INTERVAL - 64);
+
+        // Un lector nuevo encuentra audio entero de cada bloque y los títulos intactos
+        byte[] audio = readAudio(buffer.toByteArray(), new IcyMetadataParser(titles::add));
+        assertEquals(0, audio.length % META_INTERVAL);
+        int firstBlock = 20 - audio.length / META_INTERVAL;
+        for (int i = 0; i < audio.length; i++) {
+            assertEquals((byte) (firstBlock + i / META_INTERVAL), audio[i]);
+        }
+        assertFalse(titles.isEmpty());
+        assertEquals("Bloque 18", titles.get(titles.size() - 1));
+    }
+
+    @Test
+    public void waitsForNextBlockWhenOneBlockExceedsCapacity() {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        appendAudio(stream, 1);
+        appendMetadata(stream, "");
+        byte[] data = stream.toByteArray();
+
+        StandbyBuffer buffer = new StandbyBuffer(16, META_INTERVAL);
+        buffer.write(data, 0, 20);
+        assertFalse(buffer.isAligned());
+        assertEquals(0, buffer.size());
+
+        // El byte de longitud cierra el bloque: se vuelve a guardar desde el siguiente
+        buffer.write(data, 20, data.length - 20);
+        assertTrue(buffer.isAligned());
+        assertEquals(0, buffer.size());
+
+        byte[] audio = sequence(4);
+        buffer.write(audio, 0, audio.length);
+        assertArrayEquals(audio, buffer.toByteArray());
+    }
+
+    private static byte[] sequence(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+    private static void appendAudio(ByteArrayOutputStream stream, int block) {
+        for (int i = 0; i < META_INTERVAL; i++) {
+            stream.write(block);
+        }
+    }
+
+    private static void appendMetadata(ByteArrayOutputStream stream, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int blocks = (bytes.length + 15) / 16;
+        stream.write(blocks);
+        stream.write(bytes, 0, bytes.length);
+        for (int i = bytes.length; i < blocks * 16; i++) {
+            stream.write(0);
+        }
+    }
+
+    private static byte[] readAudio(byte[] data, IcyMetadataParser parser) throws IOException {
+        int[] position = {0};
+        IcyStreamReader.Source source = (buffer, offset, length) -> {
+            if (position[0] >= data.length) {
+                return -1;
+            }
+            int count = Math.min(length, data.length - position[0]);
+            System.arraycopy(data, position[0], buffer, offset, count);
+            position[0] += count;
+            return count;
+        };
+        IcyStreamReader reader = new IcyStreamReader(META_INTERVAL, parser);
+        ByteArrayOutputStream audio = new ByteArrayOutputStream();
+        byte[] chunk = new byte[11];
+        int read;
+        while ((read = reader.read(source, chunk, 0, chunk.length)) != -1) {
+            audio.write(chunk, 0, read);
+        }
+        return audio.toByteArray();
+    }
+}
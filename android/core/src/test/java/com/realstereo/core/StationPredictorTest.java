@@ -0,0 +1,51 @@
+package com.realstereo.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class StationPredictorTest {
+
+    private static final List<Station> CATALOG = Arrays.asList(
+        new Station("a", "A", Collections.singletonList("http://a")),
+        new Station("b", "B", Collections.singletonList("http://b")),
+        new Station("c", "C", Collections.singletonList("http://c")));
+
+    @Test
+    public void fallsBackToNextInCatalog() {
+        StationPredictor predictor = new StationPredictor();
+
+        assertEquals("b", predictor.predictNext(CATALOG, "a").id);
+        assertEquals("a", predictor.predictNext(CATALOG, "c").id);
+        assertEquals("a", predictor.predictNext(CATALOG, "unknown").id);
+        assertNull(predictor.predictNext(CATALOG.subList(0, 1), "a"));
+    }
+
+    @Test
+    public void prefersMostFrequentSwitch() {
+        StationPredictor predictor = new StationPredictor();
+        predictor.recordSwitch("a", "c");
+        predictor.recordSwitch("a", "c");
+        predictor.recordSwitch("a", "b");
+        predictor.recordSwitch("a", "a");
+
+        assertEquals("c", predictor.predictNext(CATALOG, "a").id);
+        assertEquals("c", predictor.predictNext(CATALOG, "b").id);
+    }
+
+    @Test
+    public void survivesSerialization() {
+        StationPredictor predictor = new StationPredictor();
+        predictor.recordSwitch("b", "a");
+
+        StationPredictor restored = new StationPredictor();
+        restored.restore(predictor.serialize() + "corrupta\n");
+
+        assertEquals("a", restored.predictNext(CATALOG, "b").id);
+    }
+}
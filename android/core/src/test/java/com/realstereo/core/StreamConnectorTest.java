@@ -0,0 +1,356 @@
+package com.realstereo.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class StreamConnectorTest {
+
+    // Servidor HTTP mínimo: a cada petición responde con la siguiente respuesta de la lista
+    private static final class FakeServer {
+        final ServerSocket serverSocket;
+        final List<String> requests = new CopyOnWriteArrayList<>();
+        private final List<String> responses;
+
+        FakeServer(String... responses) throws IOException {
+            this.responses = new ArrayList<>();
+            Collections.addAll(this.responses, responses);
+            serverSocket = new ServerSocket(0, 10, InetAddress.getLoopbackAddress());
+            Thread thread = new Thread(this::serve, "FakeServer");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        String url(String path) {
+            return "http://127.0.0.1:" + serverSocket.getLocalPort() + path;
+        }
+
+        private void serve() {
+            for (int i = 0; i < responses.size(); i++) {
+                try (Socket socket = serverSocket.accept()) {
+                    BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+                    requests.add(reader.readLine());
+                    String line;
+                    while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                        // Cabeceras de la petición
+                    }
+                    OutputStream out = socket.getOutputStream();
+                    out.write(responses.get(i).getBytes(StandardCharsets.ISO_8859_1));
+                    out.flush();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+
+    // Servidor keep-alive: responde con la ruta como cuerpo (Content-Length) a todas las
+    // peticiones de cada conexión; con closeAfterResponse la cierra sin avisar
+    private static final class KeepAliveServer {
+        final ServerSocket serverSocket;
+        final AtomicInteger accepted = new AtomicInteger();
+        final boolean closeAfterResponse;
+
+        KeepAliveServer(boolean closeAfterResponse) throws IOException {
+            this.closeAfterResponse = closeAfterResponse;
+            serverSocket = new ServerSocket(0, 10, InetAddress.getLoopbackAddress());
+            Thread thread = new Thread(this::acceptLoop, "KeepAliveServer");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        String url(String path) {
+            return "http://127.0.0.1:" + serverSocket.getLocalPort() + path;
+        }
+
+        private void acceptLoop() {
+            while (true) {
+                Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (IOException e) {
+                    return;
+                }
+                accepted.incrementAndGet();
+                Thread handler = new Thread(() -> handle(socket), "KeepAliveClient");
+                handler.setDaemon(true);
+                handler.start();
+            }
+        }
+
+        private void handle(Socket socket) {
+            try (Socket client = socket) {
+                BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(client.getInputStream(), StandardCharsets.ISO_8859_1));
+                String requestLine;
+                while ((requestLine = reader.readLine()) != null) {
+                    String line;
+                    while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                        // Cabeceras de la petición
+                    }
+                    byte[] body = requestLine.split(" ")[1].getBytes(StandardCharsets.ISO_8859_1);
+                    OutputStream out = client.getOutputStream();
+                    out.write(("HTTP/1.1 200 OK\r\nContent-Length: " + body.length + "\r\n\r\n")
+                        .getBytes(StandardCharsets.ISO_8859_1));
+                    out.write(body);
+                    out.flush();
+                    if (closeAfterResponse) {
+                        return;
+                    }
+                }
+            } catch (IOException e) {
+                // El cliente cerró
+            }
+        }
+
+        void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+
+    private final List<FakeServer> servers = new ArrayList<>();
+    private final FakeClock clock = new FakeClock(1000);
+    private final ConnectionCache cache = new ConnectionCache(clock);
+
+    private FakeServer server(String... responses) throws IOException {
+        FakeServer server = new FakeServer(responses);
+        servers.add(server);
+        return server;
+    }
+
+    private StreamConnector connector() {
+        return new StreamConnector(2000, 2000, cache, null, null);
+    }
+
+    private static String readAll(StreamConnection connection) throws IOException {
+        StringBuilder out = new StringBuilder();
+        byte[] buffer = new byte[64];
+        int read;
+        while ((read = connection.read(buffer, 0, buffer.length)) != -1) {
+            out.append(new String(buffer, 0, read, StandardCharsets.ISO_8859_1));
+        }
+        return out.toString();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (FakeServer server : servers) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void readsIcyResponse() throws IOException {
+        FakeServer server = server("ICY 200 OK\r\nicy-metaint: 8000\r\nContent-Type: audio/mpeg\r\n\r\nAUDIO");
+        StreamConnection connection = connector().open(server.url("/live?x=1"), null);
+
+        assertEquals("GET /live?x=1 HTTP/1.1", server.requests.get(0));
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("8000", connection.getHeaderField("Icy-MetaInt"));
+        assertEquals("audio/mpeg", connection.getContentType());
+        assertEquals("ICY 200 OK", connection.getHeaderFields().get(null).get(0));
+        assertEquals("AUDIO", readAll(connection));
+        connection.close();
+    }
+
+    @Test
+    public void decodesChunkedBody() throws IOException {
+        FakeServer server = server("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n"
+            + "3\r\nabc\r\n5;ext=1\r\ndefgh\r\n0\r\n\r\n");
+        StreamConnection connection = connector().open(server.url("/"), null);
+        assertEquals("abcdefgh", readAll(connection));
+        connection.close();
+    }
+
+    @Test
+    public void cachedRedirectSkipsTheHop() throws IOException {
+        FakeServer edge = server(
+            "HTTP/1.1 200 OK\r\n\r\nfirst",
+            "HTTP/1.1 200 OK\r\n\r\nsecond");
+        FakeServer origin = server(
+            "HTTP/1.1 302 Found\r\nLocation: " + edge.url("/edge") + "\r\n\r\n");
+
+        StreamConnection first = connector().open(origin.url("/stream"), null);
+        assertEquals(edge.url("/edge"), first.getFinalUrl());
+        assertEquals("first", readAll(first));
+        first.close();
+
+        StreamConnection second = connector().open(origin.url("/stream"), null);
+        assertEquals("second", readAll(second));
+        second.close();
+        assertEquals(1, origin.requests.size());
+        assertTrue(cache.takeDirty());
+    }
+
+    @Test
+    public void failedCachedRedirectFallsBackToOrigin() throws IOException {
+        FakeServer edge = server("HTTP/1.1 404 Not Found\r\n\r\n");
+        FakeServer origin = server("HTTP/1.1 200 OK\r\n\r\norigin");
+        cache.putRedirect(origin.url("/stream"), edge.url("/gone"));
+
+        StreamConnection connection = connector().open(origin.url("/stream"), null);
+        assertEquals("origin", readAll(connection));
+        connection.close();
+        assertNull(cache.redirectFor(origin.url("/stream")));
+    }
+
+    @Test
+    public void httpsToHttpIsADowngrade() {
+        assertTrue(StreamConnector.isDowngrade("https://a/live", "http://b/live"));
+        assertTrue(StreamConnector.isDowngrade("HTTPS://a/live", "http://a/live"));
+        assertFalse(StreamConnector.isDowngrade("http://a/live", "https://b/live"));
+        assertFalse(StreamConnector.isDowngrade("https://a/live", "https://b/live"));
+        assertFalse(StreamConnector.isDowngrade("http://a/live", "http://b/live"));
+    }
+
+    @Test
+    public void cachedDowngradeIsIgnored() throws IOException {
+        FakeServer edge = server("HTTP/1.1 200 OK\r\n\r\nplain");
+        cache.putRedirect("https://127.0.0.1:1/stream", edge.url("/stream"));
+        try {
+            connector().open("https://127.0.0.1:1/stream", null);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // El origen https no responde y el destino http no se usa
+        }
+        assertTrue(edge.requests.isEmpty());
+    }
+
+    @Test
+    public void goesThroughSelectedProxy() throws IOException {
+        FakeServer proxy = server("HTTP/1.1 200 OK\r\nContent-Length: 7\r\n\r\nproxied");
+        ProxySelector previous = ProxySelector.getDefault();
+        ProxySelector.setDefault(new ProxySelector() {
+            @Override
+            public List<Proxy> select(URI uri) {
+                return Collections.singletonList(new Proxy(Proxy.Type.HTTP,
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), proxy.serverSocket.getLocalPort())));
+            }
+
+            @Override
+            public void connectFailed(URI uri, SocketAddress address, IOException e) {
+            }
+        });
+        try {
+            StreamConnection connection = connector().open("http://stream.example/live", null);
+            assertEquals(200, connection.getResponseCode());
+            assertEquals("proxied", readAll(connection));
+            connection.close();
+        } finally {
+            ProxySelector.setDefault(previous);
+        }
+        // Al proxy se le pide la URL completa
+        assertEquals("GET http://stream.example/live HTTP/1.1", proxy.requests.get(0));
+    }
+
+    @Test
+    public void redirectEntryExpires() throws IOException {
+        cache.putRedirect("http://a/", "http://b/");
+        assertEquals("http://b/", cache.redirectFor("http://a/"));
+        clock.advance(ConnectionCache.DEFAULT_REDIRECT_TTL_MS);
+        assertNull(cache.redirectFor("http://a/"));
+    }
+
+    @Test
+    public void httpErrorIsReported() throws IOException {
+        FakeServer server = server("HTTP/1.1 503 Service Unavailable\r\n\r\n");
+        try {
+            connector().open(server.url("/"), null);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("HTTP 503"));
+        }
+    }
+
+    @Test
+    public void reusesReleasedKeepAliveConnection() throws IOException {
+        KeepAliveServer server = new KeepAliveServer(false);
+        ConnectionPool pool = new ConnectionPool(clock, ConnectionPool.DEFAULT_IDLE_MS);
+        StreamConnector connector = new StreamConnector(2000, 2000, cache, null, null, pool);
+        try {
+            for (int i = 0; i < 3; i++) {
+                StreamConnection connection = connector.open(server.url("/seg" + i + ".ts"), null);
+                assertEquals("/seg" + i + ".ts", readAll(connection));
+                connection.release();
+                assertEquals(1, pool.getIdleCount());
+            }
+            assertEquals(1, server.accepted.get());
+            assertEquals(2, pool.getReusedCount());
+        } finally {
+            pool.evictAll();
+            server.close();
+        }
+    }
+
+    @Test
+    public void replacesIdleConnectionClosedByServer() throws IOException {
+        KeepAliveServer server = new KeepAliveServer(true);
+        ConnectionPool pool = new ConnectionPool(clock, ConnectionPool.DEFAULT_IDLE_MS);
+        StreamConnector connector = new StreamConnector(2000, 2000, cache, null, null, pool);
+        try {
+            StreamConnection first = connector.open(server.url("/a"), null);
+            assertEquals("/a", readAll(first));
+            first.release();
+            StreamConnection second = connector.open(server.url("/b"), null);
+            assertEquals("/b", readAll(second));
+            second.close();
+            assertEquals(2, server.accepted.get());
+        } finally {
+            pool.evictAll();
+            server.close();
+        }
+    }
+
+    @Test
+    public void unfinishedOrExpiredConnectionsAreNotReused() throws IOException {
+        KeepAliveServer server = new KeepAliveServer(false);
+        ConnectionPool pool = new ConnectionPool(clock, ConnectionPool.DEFAULT_IDLE_MS);
+        StreamConnector connector = new StreamConnector(2000, 2000, cache, null, null, pool);
+        try {
+            // Sin leer el cuerpo entero la conexión no está lista para otra petición
+            connector.open(server.url("/a"), null).release();
+            assertEquals(0, pool.getIdleCount());
+
+            StreamConnection connection = connector.open(server.url("/b"), null);
+            readAll(connection);
+            connection.release();
+            assertEquals(1, pool.getIdleCount());
+            clock.advance(ConnectionPool.DEFAULT_IDLE_MS);
+            readAll(connector.open(server.url("/c"), null));
+            assertEquals(3, server.accepted.get());
+            assertEquals(0, pool.getReusedCount());
+        } finally {
+            pool.evictAll();
+            server.close();
+        }
+    }
+}
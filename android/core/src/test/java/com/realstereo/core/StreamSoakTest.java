@@ -0,0 +1,168 @@
+package com.realstereo.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// Pruebas de resistencia contra FakeIcecastServer: cada escenario reproduce durante un
+// rato con un tipo de fallo y comprueba latencia de reconexión, cortes y que no crecen
+// hilos ni memoria. Por defecto son cortas; para una pasada larga antes de publicar:
+// ./gradlew :core:test --tests '*StreamSoakTest' -PsoakDurationMs=600000 (con el informe)
+public class StreamSoakTest {
+
+    private static final long DURATION_MS = Long.getLong("soak.durationMs", 2000);
+    private static final BufferConfig CONFIG = BufferConfig.defaults();
+    // Tras un corte del servidor se vuelve a oír antes de esto
+    private static final long MAX_RECONNECT_P95_MS = 3000;
+    private static final int MAX_THREAD_GROWTH = 2;
+    private static final long MAX_HEAP_GROWTH_BYTES = 32L * 1024 * 1024;
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private FakeIcecastServer server;
+    private SoakPlayer player;
+    private int threadsBefore;
+    private long heapBefore;
+
+    @Before
+    public void setUp() throws Exception {
+        threadsBefore = threads.getThreadCount();
+        heapBefore = usedHeap();
+        server = new FakeIcecastServer();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (player != null) {
+            player.stop();
+        }
+        server.close();
+    }
+
+    @Test
+    public void cleanStreamPlaysWithoutStalls() throws Exception {
+        soak("clean", DURATION_MS);
+
+        PlaybackStats.Snapshot stats = player.getStats();
+        assertEquals(PlaybackStatus.PLAYING, player.getStatus());
+        assertEquals(0, player.getStalls());
+        assertEquals(0, stats.errorCount);
+        assertEquals(1, server.getStreamsServed());
+        assertFalse(player.getTitles().isEmpty());
+    }
+
+    @Test
+    public void recoversFromMidStreamDisconnects() throws Exception {
+        // Cada conexión da la ráfaga y medio segundo más
+        server.setDisconnectAfterBytes(FakeIcecastServer.BURST_BYTES + FakeIcecastServer.BYTES_PER_SECOND / 2);
+        soak("disconnects", DURATION_MS);
+
+        PlaybackStats.Snapshot stats = player.getStats();
+        assertTrue(stats.reconnectCount >= 1);
+        assertTrue("reconnect p95 " + stats.reconnectLatency.p95Ms,
+            stats.reconnectLatency.p95Ms <= MAX_RECONNECT_P95_MS);
+        assertTrue(server.getStreamsServed() >= 2);
+    }
+
+    @Test
+    public void survivesErrorsAndRedirectChains() throws Exception {
+        server.setRedirects(3);
+        server.failNextRequests(3, 503);
+        soak("errors+redirects", DURATION_MS);
+
+        PlaybackStats.Snapshot stats = player.getStats();
+        assertEquals(PlaybackStatus.PLAYING, player.getStatus());
+        assertEquals(3, stats.errorCount);
+        assertEquals(1, stats.timeToFirstAudio.count);
+        // Cada intento repite los tres saltos antes de llegar al error o al stream
+        assertEquals(4 * (3 + 1), server.getRequests());
+    }
+
+    @Test
+    public void slowLinkStallsAndRaisesRebufferTarget() throws Exception {
+        // La mitad de la tasa: el buffer inicial se agota y el enlace se ve lento
+        server.setMaxBytesPerSecond(FakeIcecastServer.BYTES_PER_SECOND / 2);
+        soak("bandwidth cap", Math.max(DURATION_MS, 6000));
+
+        assertTrue(player.getStalls() >= 1);
+        assertTrue(player.getRebufferController().getLevel() >= 1);
+        int throughput = player.getRebufferController().getThroughputKbps();
+        assertTrue("throughput " + throughput, throughput < FakeIcecastServer.BITRATE_KBPS);
+    }
+
+    @Test
+    public void slowResponsesStillConnect() throws Exception {
+        server.setLatencyMs(300);
+        soak("latency", DURATION_MS);
+
+        PlaybackStats.Snapshot stats = player.getStats();
+        assertEquals(PlaybackStatus.PLAYING, player.getStatus());
+        assertTrue(stats.timeToFirstByte.minMs >= 300);
+        assertEquals(0, stats.errorCount);
+    }
+
+    @Test
+    public void repeatedServerDropsDoNotLeak() throws Exception {
+        player = new SoakPlayer(server.url(), CONFIG, FakeIcecastServer.BYTES_PER_SECOND);
+        player.start();
+        long endMs = Clock.MONOTONIC.elapsedMs() + DURATION_MS;
+        while (Clock.MONOTONIC.elapsedMs() < endMs) {
+            Thread.sleep(300);
+            server.dropClients();
+        }
+        player.stop();
+        report("server drops");
+        player = null;
+
+        assertTrue(server.getStreamsServed() >= 3);
+        assertResourcesReleased();
+    }
+
+    private void soak(String scenario, long durationMs) throws Exception {
+        player = new SoakPlayer(server.url(), CONFIG, FakeIcecastServer.BYTES_PER_SECOND);
+        player.start();
+        Thread.sleep(durationMs);
+        report(scenario);
+    }
+
+    private void assertResourcesReleased() throws Exception {
+        server.close();
+        // Los hilos del servidor y del reproductor terminan al cerrar sus sockets
+        long deadline = Clock.MONOTONIC.elapsedMs() + 5000;
+        while ((server.getActiveHandlers() > 0 || threads.getThreadCount() > threadsBefore + MAX_THREAD_GROWTH)
+            && Clock.MONOTONIC.elapsedMs() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(0, server.getActiveHandlers());
+        assertTrue("threads " + threadsBefore + " -> " + threads.getThreadCount(),
+            threads.getThreadCount() <= threadsBefore + MAX_THREAD_GROWTH);
+        long growth = usedHeap() - heapBefore;
+        assertTrue("heap growth " + growth, growth < MAX_HEAP_GROWTH_BYTES);
+    }
+
+    private void report(String scenario) {
+        PlaybackStats.Snapshot stats = player.getStats();
+        System.out.println("soak[" + scenario + "] audio=" + player.getAudioBytes() + "B"
+            + " requests=" + server.getRequests()
+            + " errors=" + stats.errorCount
+            + " reconnects=" + stats.reconnectCount
+            + " reconnectP50=" + stats.reconnectLatency.p50Ms + "ms"
+            + " reconnectP95=" + stats.reconnectLatency.p95Ms + "ms"
+            + " stalls=" + player.getStalls()
+            + " rebufferLevel=" + player.getRebufferController().getLevel()
+            + " threads=" + threads.getThreadCount() + " (" + threadsBefore + " before)"
+            + " heapDelta=" + (usedHeap() - heapBefore) / 1024 + "KiB");
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,107 @@
+package com.realstereo.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimeShiftBufferTest {
+
+    private final FakeClock clock = new FakeClock(10000);
+    private TimeShiftBuffer buffer;
+
+    @Before
+    public void setUp() throws IOException {
+        File file = File.createTempFile("timeshift", ".buf");
+        buffer = new TimeShiftBuffer(clock, file, 1000, 60);
+    }
+
+    @After
+    public void tearDown() {
+        buffer.close();
+    }
+
+    @Test
+    public void readerFollowsWriter() throws IOException {
+        TimeShiftBuffer.Reader reader = buffer.newReader(0);
+        buffer.write(sequence(0, 300), 0, 300);
+
+        byte[] out = new byte[500];
+        int read = reader.read(out, 0, out.length, 10);
+        assertEquals(300, read);
+        for (int i = 0; i < read; i++) {
+            assertEquals((byte) i, out[i]);
+        }
+        assertEquals(300, reader.getPosition());
+    }
+
+    @Test
+    public void overwrittenReaderSkipsToOldest() throws IOException {
+        TimeShiftBuffer.Reader reader = buffer.newReader(0);
+        for (int i = 0; i < 5; i++) {
+            buffer.write(sequence(i * 500, 500), 0, 500);
+        }
+
+        byte[] out = new byte[100];
+        reader.read(out, 0, out.length, 10);
+        assertEquals(1, buffer.getOverruns());
+        assertEquals(1500 + 100, reader.getPosition());
+        assertEquals((byte) 1500, out[0]);
+    }
+
+    // La espera usa el reloj inyectado: con el reloj manual no vencería nunca
+    @Test(expected = InterruptedIOException.class)
+    public void readTimesOutWithoutData() throws IOException {
+        TimeShiftBuffer realTime = new TimeShiftBuffer(Clock.MONOTONIC,
+            File.createTempFile("timeshift", ".buf"), 1000, 60);
+        try {
+            realTime.newReader(0).read(new byte[10], 0, 10, 5);
+        } finally {
+            realTime.close();
+        }
+    }
+
+    @Test
+    public void delayMapsToRecordedPosition() {
+        for (int second = 0; second < 5; second++) {
+            buffer.write(new byte[100], 0, 100);
+            clock.advance(1000);
+        }
+        // 100 bytes por segundo; hace 2 s se acababan de escribir los 400 primeros
+        assertEquals(400, buffer.positionForDelay(2000));
+        assertEquals(500, buffer.positionForDelay(0));
+        assertEquals(5000, buffer.getAvailableMs());
+        assertTrue(buffer.timeAtPosition(250) > buffer.timeAtPosition(100));
+    }
+
+    @Test
+    public void titlesAreLookedUpByPosition() {
+        assertNull(buffer.titleAt(0));
+        buffer.markTitle("A");
+        buffer.write(new byte[200], 0, 200);
+        buffer.markTitle("B");
+        assertEquals("A", buffer.titleAt(100));
+        assertEquals("B", buffer.titleAt(200));
+    }
+
+    @Test
+    public void closeUnblocksReaders() throws IOException {
+        assertTrue(buffer.close());
+        assertEquals(-1, buffer.newReader(0).read(new byte[10], 0, 10, 1000));
+    }
+
+    private static byte[] sequence(int start, int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (start + i);
+        }
+        return data;
+    }
+}
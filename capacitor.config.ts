@@ -17,6 +17,7 @@ const config: CapacitorConfig = {
     },
     SplashScreen: {
       launchAutoHide: true,        // ✅ CAMBIAR A true
+      launchShowDuration: 0,       // El splash nativo ya espera a que la web pinte
       androidSplashResourceName: "splash",
       showSpinner: false,
       backgroundColor: "#1e3c72",  // ✅ AGREGAR color de fondo
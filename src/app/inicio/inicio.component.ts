@@ -1,6 +1,7 @@
 import { Component, OnInit, OnDestroy } from '@angular/core';
 import { CommonModule } from '@angular/common';
-import { AudioService } from '../services/audio.service';
+import { Subscription } from 'rxjs';
+import { AudioService, NativePlaybackState } from '../services/audio.service';
 
 @Component({
  selector: 'app-inicio',
@@ -14,6 +15,7 @@ export class InicioComponent implements OnInit, OnDestroy {
  isPlaying = false;
  private audioCheckInterval: any;
  private loadingTimeout: any;
+ private stateSubscription: Subscription | null = null;
 
  constructor(private audioService: AudioService) {}
 
@@ -21,6 +23,9 @@ export class InicioComponent implements OnInit, OnDestroy {
    // AUTO-INICIAR la transmisión apenas entre a la app
    console.log('App iniciada - mostrando loading y iniciando transmisión');
 
+   // El servicio nativo publica su estado real, sin sondeo
+   this.stateSubscription = this.audioService.playbackState$.subscribe(state => this.applyNativeState(state));
+
    // Iniciar INMEDIATAMENTE sin delay
    this.autoStartRadio();
  }
@@ -28,6 +33,39 @@ export class InicioComponent implements OnInit, OnDestroy {
  ngOnDestroy() {
    // Limpiar intervalos al destruir el componente
    this.clearIntervals();
+   this.stateSubscription?.unsubscribe();
+ }
+
+ // También lo que llega de la notificación, los botones multimedia o el foco de audio
+ private applyNativeState(state: NativePlaybackState) {
+   switch (state) {
+     case 'PLAYING':
+       this.isLoading = false;
+       this.isPlaying = true;
+       this.clearIntervals();
+       break;
+     case 'BUFFERING':
+       // Un corte breve mientras suena no vuelve a la pantalla de carga
+       if (!this.isPlaying) {
+         this.isLoading = true;
+       }
+       break;
+     case 'CONNECTING':
+     case 'RECONNECTING':
+       this.isLoading = true;
+       this.isPlaying = false;
+       break;
+     case 'PAUSED':
+     case 'STOPPED':
+     case 'ERROR':
+       this.isLoading = false;
+       this.isPlaying = false;
+       this.clearIntervals();
+       break;
+     default:
+       // IDLE: aún no se ha pedido nada
+       break;
+   }
  }
 
  private clearIntervals() {
@@ -51,8 +89,9 @@ export class InicioComponent implements OnInit, OnDestroy {
    this.startAudioDetection();
 
    // Timeout de seguridad - máximo 10 segundos
+   // Solo para el audio web: el nativo dice su estado real
    this.loadingTimeout = setTimeout(() => {
-     if (this.isLoading) {
+     if (this.isLoading && !this.audioService.isUsingNative()) {
        console.log('Timeout de carga - asumiendo que está funcionando');
        this.isLoading = false;
        this.isPlaying = true;
@@ -62,8 +101,13 @@ export class InicioComponent implements OnInit, OnDestroy {
  }
 
  private startAudioDetection() {
-   // Verificar cada 100ms si ya está sonando
+   // Solo el audio web necesita sondeo; el nativo publica su estado
    this.audioCheckInterval = setInterval(() => {
+     if (this.audioService.isUsingNative()) {
+       clearInterval(this.audioCheckInterval);
+       this.audioCheckInterval = null;
+       return;
+     }
      this.checkIfAudioIsPlaying();
    }, 100);
  }
@@ -116,7 +160,7 @@ export class InicioComponent implements OnInit, OnDestroy {
 
    // Timeout de seguridad
    this.loadingTimeout = setTimeout(() => {
-     if (this.isLoading) {
+     if (this.isLoading && !this.audioService.isUsingNative()) {
        console.log('Timeout manual - asumiendo que está funcionando');
        this.isLoading = false;
        this.isPlaying = true;
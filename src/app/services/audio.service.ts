@@ -1,19 +1,29 @@
-import { Injectable } from '@angular/core';
+import { Injectable, NgZone } from '@angular/core';
 import { App } from '@capacitor/app';
 import { Capacitor } from '@capacitor/core';
+import { BehaviorSubject, Observable } from 'rxjs';
 
 // Plugin unificado
 declare var AudioServicePlugin: any;
 
+// Estados que publica el servicio nativo con el evento 'playbackState'
+export type NativePlaybackState =
+ 'IDLE' | 'CONNECTING' | 'BUFFERING' | 'PLAYING' | 'PAUSED' | 'STOPPED' | 'ERROR' | 'RECONNECTING';
+
 @Injectable({
  providedIn: 'root'
 })
 export class AudioService {
  private isUsingNativeService = false;
  private audio: HTMLAudioElement | null = null;
- private streamUrl = 'https://stream.zeno.fm/oa7brrybk0vuv';
+ // URLs del stream en orden de preferencia; el servicio nativo prueba todas y usa la más rápida
+ private streamUrls = ['https://stream.zeno.fm/oa7brrybk0vuv'];
+ private nativeState$ = new BehaviorSubject<NativePlaybackState>('IDLE');
+
+ // El servicio nativo empuja sus cambios de estado: no hace falta preguntar por el bridge
+ readonly playbackState$: Observable<NativePlaybackState> = this.nativeState$.asObservable();
 
- constructor() {
+ constructor(private zone: NgZone) {
    this.initializeNativeFeatures();
  }
 
@@ -25,6 +35,15 @@ export class AudioService {
          this.isUsingNativeService = true;
          console.log('Usando servicio nativo unificado');
 
+         await AudioServicePlugin.setStreamEndpoints({ urls: this.streamUrls });
+
+         // Escuchar antes de iniciar para no perder el estado inicial
+         // Capacitor entrega los eventos nativos fuera de la zona de Angular: sin
+         // zone.run la vista no se repinta hasta el siguiente evento cualquiera
+         await AudioServicePlugin.addListener('playbackState', (event: { state: NativePlaybackState }) => {
+           this.zone.run(() => this.nativeState$.next(event.state));
+         });
+
          // Inicializar el servicio
          await AudioServicePlugin.startService();
        } else {
@@ -67,13 +86,7 @@ export class AudioService {
    console.log('App volviendo al primer plano');
 
    if (this.isUsingNativeService) {
-     // Verificar estado del servicio nativo
-     try {
-       const result = await AudioServicePlugin.isPlaying();
-       console.log('Estado del servicio nativo:', result.isPlaying);
-     } catch (error) {
-       console.error('Error verificando estado del servicio:', error);
-     }
+     console.log('Estado del servicio nativo:', this.nativeState$.value);
    }
  }
 
@@ -134,7 +147,7 @@ export class AudioService {
      this.stopRadio();
    }
 
-   this.audio = new Audio(this.streamUrl);
+   this.audio = new Audio(this.streamUrls[0]);
    this.audio.autoplay = true;
    this.audio.loop = true;
    this.audio.preload = 'auto';
@@ -291,13 +304,7 @@ export class AudioService {
 
  async isPlaying(): Promise<boolean> {
    if (this.isUsingNativeService) {
-     try {
-       const result = await AudioServicePlugin.isPlaying();
-       return result.isPlaying;
-     } catch (error) {
-       console.error('Error verificando estado nativo:', error);
-       return false;
-     }
+     return this.nativeState$.value === 'PLAYING';
    }
 
    
@@ -310,7 +317,8 @@ export class AudioService {
 
  isLoading(): boolean {
    if (this.isUsingNativeService) {
-     return false; 
+     const state = this.nativeState$.value;
+     return state === 'CONNECTING' || state === 'BUFFERING' || state === 'RECONNECTING';
    }
 
    return this.audio ? this.audio.readyState < 2 : false;
@@ -323,7 +331,20 @@ export class AudioService {
  getConnectionStatus(): string {
    if (!this.audio && !this.isUsingNativeService) return 'disconnected';
 
-   if (this.isUsingNativeService) return 'connected';
+   if (this.isUsingNativeService) {
+     switch (this.nativeState$.value) {
+       case 'PLAYING':
+         return 'connected';
+       case 'ERROR':
+         return 'error';
+       case 'CONNECTING':
+       case 'BUFFERING':
+       case 'RECONNECTING':
+         return 'connecting';
+       default:
+         return 'disconnected';
+     }
+   }
 
    if (this.audio) {
      if (this.audio.error) return 'error';